@@ -0,0 +1,149 @@
+package server.benchmark;
+
+import server.Handler;
+import server.HttpServer;
+import server.data.Method;
+import server.data.PatternHandler;
+import server.handlers.Dispatcher;
+import server.handlers.PutHandler;
+import server.util.Maps;
+import server.util.VirtualThreads;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonList;
+
+/*
+ * Compares the platform thread pool against virtual threads with many concurrent slow uploads to PutHandler.
+ * Usage: ExecutorBenchmark [clients] [chunks] [chunk interval in ms]
+ */
+public class ExecutorBenchmark {
+    private static final String HOST = "localhost";
+    private static final int PORT = 7100;
+    private static final int CHUNK_SIZE = 1024;
+    private static final Duration SO_TIMEOUT = Duration.ofSeconds(20);
+    private static final Duration CONNECT_RETRY_INTERVAL = Duration.ofMillis(10);
+    private static final long FAILED = -1;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int chunks = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        Duration chunkInterval = Duration.ofMillis(args.length > 2 ? Long.parseLong(args[2]) : 100);
+        Path directory = Files.createTempDirectory("executor-benchmark");
+
+        int numThreads = Runtime.getRuntime().availableProcessors() * (1 + 18);
+        System.out.printf("Slow uploads: %d clients x %d chunks of %d bytes every %d ms%n",
+                clients, chunks, CHUNK_SIZE, chunkInterval.toMillis());
+        run("platform(" + numThreads + ")", Executors.newFixedThreadPool(numThreads), directory, clients, chunks, chunkInterval);
+        if (VirtualThreads.isSupported())
+            run("virtual", VirtualThreads.newThreadPerTaskExecutor(), directory, clients, chunks, chunkInterval);
+        else
+            System.out.println("virtual: skipped, virtual threads require JDK 21 or later");
+    }
+
+    private static void run(String name, ExecutorService serverExecutor, Path directory,
+                            int clients, int chunks, Duration chunkInterval) throws Exception {
+        Handler handler = new Dispatcher(Maps.of(
+                Method.PUT, singletonList(new PatternHandler("*", new PutHandler(directory)))));
+        HttpServer server = new HttpServer(PORT, handler, serverExecutor, SO_TIMEOUT);
+        server.start();
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(clients);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Long>> uploads = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                int id = i;
+                uploads.add(clientExecutor.submit(() -> {
+                    start.await();
+                    return upload(id, chunks, chunkInterval);
+                }));
+            }
+            long startNanos = System.nanoTime();
+            start.countDown();
+            report(name, awaitLatencies(uploads), System.nanoTime() - startNanos);
+        } finally {
+            clientExecutor.shutdownNow();
+            server.stop();
+        }
+    }
+
+    private static long upload(int id, int chunks, Duration chunkInterval) throws InterruptedException {
+        long startNanos = System.nanoTime();
+        try (Socket socket = connect()) {
+            OutputStream out = socket.getOutputStream();
+            String head = String.format("PUT /upload-%d HTTP/1.1\r\nHost: %s:%d\r\nContent-Length: %d\r\nConnection: close\r\n\r\n",
+                    id, HOST, PORT, CHUNK_SIZE * chunks);
+            out.write(head.getBytes(StandardCharsets.US_ASCII));
+            byte[] chunk = new byte[CHUNK_SIZE];
+            Arrays.fill(chunk, (byte) 'a');
+            for (int i = 0; i < chunks; i++) {
+                out.write(chunk);
+                out.flush();
+                Thread.sleep(chunkInterval.toMillis());
+            }
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            String statusLine = in.readLine();
+            boolean succeeded = statusLine != null && (statusLine.contains(" 200 ") || statusLine.contains(" 201 "));
+            return succeeded ? System.nanoTime() - startNanos : FAILED;
+        } catch (IOException e) {
+            return FAILED;
+        }
+    }
+
+    private static Socket connect() throws IOException, InterruptedException {
+        while (true) {
+            try {
+                return new Socket(HOST, PORT);
+            } catch (ConnectException e) {
+                Thread.sleep(CONNECT_RETRY_INTERVAL.toMillis());
+            }
+        }
+    }
+
+    private static List<Long> awaitLatencies(List<Future<Long>> uploads) throws InterruptedException {
+        List<Long> latencies = new ArrayList<>();
+        for (Future<Long> upload : uploads) {
+            try {
+                latencies.add(upload.get());
+            } catch (ExecutionException e) {
+                latencies.add(FAILED);
+            }
+        }
+        return latencies;
+    }
+
+    private static void report(String name, List<Long> latencies, long elapsedNanos) {
+        List<Long> completed = new ArrayList<>();
+        for (long latency : latencies) if (latency != FAILED) completed.add(latency);
+        Collections.sort(completed);
+        System.out.printf("%-14s completed=%d failed=%d elapsed=%dms p50=%dms p99=%dms max=%dms%n",
+                name, completed.size(), latencies.size() - completed.size(),
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                percentileMillis(completed, 0.50), percentileMillis(completed, 0.99), percentileMillis(completed, 1.0));
+    }
+
+    private static long percentileMillis(List<Long> sorted, double percentile) {
+        if (sorted.isEmpty()) return 0;
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return TimeUnit.NANOSECONDS.toMillis(sorted.get(Math.max(index, 0)));
+    }
+}
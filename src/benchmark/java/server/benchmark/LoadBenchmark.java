@@ -0,0 +1,323 @@
+package server.benchmark;
+
+import server.Handler;
+import server.HttpServer;
+import server.SelectorHttpServer;
+import server.data.Method;
+import server.data.PatternHandler;
+import server.handlers.AccessControl;
+import server.handlers.Authoriser;
+import server.handlers.AuthorizationCache;
+import server.handlers.BasicAuthenticator;
+import server.handlers.CredentialStore;
+import server.handlers.Dispatcher;
+import server.handlers.FileCache;
+import server.handlers.FileMetadataCache;
+import server.handlers.GetHandler;
+import server.handlers.ParametersWrapper;
+import server.handlers.PutHandler;
+import server.metrics.Histogram;
+import server.util.Maps;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
+/*
+ * End-to-end load over loopback against a server started in this JVM. Closed-loop clients send a request as soon as the
+ * previous response is read, finding the throughput the server sustains. Open-loop clients send at a constant total
+ * rate whatever the server does, and latency is taken from when each request was due rather than when it was sent, so
+ * that a stalled server shows in the percentiles instead of slowing the clients down (coordinated omission).
+ *
+ * Usage: LoadBenchmark [-s scenarios] [-m closed,open] [-c connections] [-r requests per second] [-d seconds]
+ *                      [-w warmup seconds] [-h plain|cached|application] [-t blocking|selector]
+ * where scenarios are a comma-separated list of small-get, large-get, range, ranges, put and auth.
+ */
+public class LoadBenchmark {
+    private static final int PORT = 7101;
+    private static final Duration SO_TIMEOUT = Duration.ofSeconds(20);
+    private static final long MEGABYTE = 1024 * 1024;
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        Path directory = createFiles();
+        Handler handler = options.chain.handlerOf(directory);
+        int numThreads = Runtime.getRuntime().availableProcessors() * (1 + 18);
+        Runnable stop = start(options.transport, handler, numThreads);
+        System.out.printf("Load: %s chain, %s transport, %d connections, %ds runs after %ds warmup, open loop at %d/s%n",
+                options.chain.name, options.transport, options.connections, options.duration.getSeconds(),
+                options.warmup.getSeconds(), options.rate);
+        try {
+            for (LoadScenario scenario : options.scenarios) {
+                for (Mode mode : options.modes) {
+                    run(scenario, mode, options, options.warmup);
+                    report(scenario, mode, run(scenario, mode, options, options.duration));
+                }
+            }
+        } finally {
+            stop.run();
+        }
+    }
+
+    private static Runnable start(String transport, Handler handler, int numThreads) {
+        if (transport.equals("selector")) {
+            int numEventLoops = Runtime.getRuntime().availableProcessors();
+            SelectorHttpServer server = new SelectorHttpServer(PORT, handler, numThreads, numEventLoops, SO_TIMEOUT);
+            server.start();
+            return server::stop;
+        } else {
+            HttpServer server = new HttpServer(PORT, handler, numThreads, SO_TIMEOUT);
+            server.start();
+            return server::stop;
+        }
+    }
+
+    private static Result run(LoadScenario scenario, Mode mode, Options options, Duration duration) throws Exception {
+        Result result = new Result();
+        ExecutorService clients = Executors.newFixedThreadPool(options.connections);
+        try {
+            long start = System.nanoTime();
+            long end = start + duration.toNanos();
+            long interval = (long) (options.connections * (double) TimeUnit.SECONDS.toNanos(1) / options.rate);
+            List<Future<?>> connections = new ArrayList<>();
+            for (int i = 0; i < options.connections; i++) {
+                int id = i;
+                connections.add(clients.submit(() -> {
+                    try (LoadConnection connection = new LoadConnection(new InetSocketAddress("localhost", PORT))) {
+                        byte[] request = scenario.request(id);
+                        if (mode == Mode.OPEN) {
+                            // Connections take turns, so that requests are due at an even pace overall
+                            openLoop(connection, request, scenario, start + id * interval / options.connections, interval, end, result);
+                        } else {
+                            closedLoop(connection, request, scenario, end, result);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> connection : connections) connection.get();
+            result.elapsedNanos = System.nanoTime() - start;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Load client failed", e.getCause());
+        } finally {
+            clients.shutdownNow();
+        }
+        return result;
+    }
+
+    private static void closedLoop(LoadConnection connection, byte[] request, LoadScenario scenario, long end, Result result) {
+        long sent;
+        while ((sent = System.nanoTime()) < end) {
+            exchange(connection, request, scenario, sent, sent, result);
+        }
+    }
+
+    private static void openLoop(LoadConnection connection, byte[] request, LoadScenario scenario,
+                                 long first, long interval, long end, Result result) {
+        for (long due = first; due < end; due += interval) {
+            long now;
+            while ((now = System.nanoTime()) < due) LockSupport.parkNanos(due - now);
+            exchange(connection, request, scenario, due, now, result);
+        }
+    }
+
+    private static void exchange(LoadConnection connection, byte[] request, LoadScenario scenario, long due, long sent,
+                                 Result result) {
+        try {
+            int status = connection.exchange(request);
+            long received = System.nanoTime();
+            if (!scenario.isExpected(status)) {
+                result.errors.increment();
+                return;
+            }
+            result.latency.record(received - due);
+            result.serviceTime.record(received - sent);
+        } catch (IOException e) {
+            result.errors.increment();
+            connection.close();
+        }
+    }
+
+    private static void report(LoadScenario scenario, Mode mode, Result result) {
+        long completed = result.latency.count();
+        StringBuilder line = new StringBuilder(String.format("%-10s %-6s requests=%d errors=%d throughput=%.0f/s",
+                scenario.name, mode.name, completed, result.errors.sum(),
+                completed * (double) TimeUnit.SECONDS.toNanos(1) / result.elapsedNanos));
+        for (double quantile : QUANTILES) line.append(String.format(" p%s=%dus", percentile(quantile), micros(result.latency.valueAt(quantile))));
+        line.append(String.format(" max=%dus", micros(result.latency.max())));
+        // Without queueing behind late requests, which the open loop latency includes
+        if (mode == Mode.OPEN) line.append(String.format(" service.p99=%dus", micros(result.serviceTime.valueAt(0.99))));
+        System.out.println(line);
+    }
+
+    private static String percentile(double quantile) {
+        String percentile = String.valueOf(quantile * 100);
+        return percentile.endsWith(".0") ? percentile.substring(0, percentile.length() - 2) : percentile;
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    private static Path createFiles() throws IOException {
+        Path directory = Files.createTempDirectory("load-benchmark");
+        Random random = new Random(0);
+        byte[] small = new byte[LoadScenario.SMALL_SIZE];
+        Arrays.fill(small, (byte) 'a');
+        byte[] large = new byte[LoadScenario.LARGE_SIZE];
+        random.nextBytes(large);
+        Files.write(directory.resolve("small.txt"), small);
+        Files.write(directory.resolve("large.bin"), large);
+        Files.createDirectory(directory.resolve("uploads"));
+        Files.createDirectory(directory.resolve("private"));
+        Files.write(directory.resolve("private").resolve("small.txt"), small);
+        return directory;
+    }
+
+    private enum Mode {
+        CLOSED("closed"), OPEN("open");
+
+        final String name;
+
+        Mode(String name) {
+            this.name = name;
+        }
+
+        static Mode named(String name) {
+            for (Mode mode : values()) if (mode.name.equals(name)) return mode;
+            throw new IllegalArgumentException("Unknown mode: " + name);
+        }
+    }
+
+    // Handlers the server runs, from files alone to the application's stack with caches and Basic authentication
+    private enum Chain {
+        PLAIN("plain") {
+            @Override
+            Handler handlerOf(Path directory) {
+                return routes(directory, FileMetadataCache.uncached(), null);
+            }
+        },
+        CACHED("cached") {
+            @Override
+            Handler handlerOf(Path directory) {
+                return cachedRoutes(directory);
+            }
+        },
+        APPLICATION("application") {
+            @Override
+            Handler handlerOf(Path directory) {
+                AccessControl accessControl = new AccessControl(Maps.of(
+                        LoadScenario.USERNAME, Maps.of("/private/**", asList(Method.GET, Method.HEAD)),
+                        "anonymous", Maps.of("/private/**", emptyList())),
+                        asList(Method.GET, Method.HEAD, Method.PUT));
+                Handler handler = new ParametersWrapper(cachedRoutes(directory));
+                handler = new Authoriser(handler, accessControl);
+                return new BasicAuthenticator(handler, "default", accessControl,
+                        CredentialStore.of(Maps.of(LoadScenario.USERNAME, LoadScenario.PASSWORD)),
+                        new AuthorizationCache(Duration.ofMinutes(5), 1024));
+            }
+        };
+
+        final String name;
+
+        Chain(String name) {
+            this.name = name;
+        }
+
+        abstract Handler handlerOf(Path directory);
+
+        static Chain named(String name) {
+            for (Chain chain : values()) if (chain.name.equals(name)) return chain;
+            throw new IllegalArgumentException("Unknown handler chain: " + name);
+        }
+
+        private static Handler cachedRoutes(Path directory) {
+            FileMetadataCache metadata = new FileMetadataCache(Duration.ofSeconds(1), false);
+            FileCache cache = new FileCache(64 * MEGABYTE, 4 * MEGABYTE, true);
+            metadata.onInvalidate(cache::invalidate);
+            return routes(directory, metadata, cache);
+        }
+
+        private static Handler routes(Path directory, FileMetadataCache metadata, FileCache cache) {
+            return new Dispatcher(Maps.of(
+                    Method.GET, singletonList(new PatternHandler("*", new GetHandler(directory, metadata, cache))),
+                    Method.PUT, singletonList(new PatternHandler("*", new PutHandler(directory, metadata)))));
+        }
+    }
+
+    private static class Result {
+        final Histogram latency = new Histogram();
+        final Histogram serviceTime = new Histogram();
+        final LongAdder errors = new LongAdder();
+        long elapsedNanos;
+    }
+
+    private static class Options {
+        List<LoadScenario> scenarios = asList(LoadScenario.values());
+        List<Mode> modes = asList(Mode.values());
+        int connections = 16;
+        long rate = 1000;
+        Duration duration = Duration.ofSeconds(10);
+        Duration warmup = Duration.ofSeconds(3);
+        Chain chain = Chain.APPLICATION;
+        String transport = "blocking";
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "-s":
+                        options.scenarios = Arrays.stream(value.split(",")).map(LoadScenario::named).collect(Collectors.toList());
+                        break;
+                    case "-m":
+                        options.modes = Arrays.stream(value.split(",")).map(Mode::named).collect(Collectors.toList());
+                        break;
+                    case "-c":
+                        options.connections = Integer.parseInt(value);
+                        break;
+                    case "-r":
+                        options.rate = Long.parseLong(value);
+                        break;
+                    case "-d":
+                        options.duration = Duration.ofSeconds(Long.parseLong(value));
+                        break;
+                    case "-w":
+                        options.warmup = Duration.ofSeconds(Long.parseLong(value));
+                        break;
+                    case "-h":
+                        options.chain = Chain.named(value);
+                        break;
+                    case "-t":
+                        if (!value.equals("blocking") && !value.equals("selector"))
+                            throw new IllegalArgumentException("Unknown transport: " + value);
+                        options.transport = value;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            if (options.connections < 1 || options.rate < 1)
+                throw new IllegalArgumentException("Connections and rate should be positive");
+            return options;
+        }
+    }
+}
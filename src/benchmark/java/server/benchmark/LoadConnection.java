@@ -0,0 +1,137 @@
+package server.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+
+/*
+ * Keep-alive client connection sending one request at a time and reading whole responses, delimited by Content-Length,
+ * into a reused buffer. The connection is reopened when the server closes it, and a request is sent again once if the
+ * server closed an idle connection before answering it.
+ */
+class LoadConnection implements AutoCloseable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int EOS = -1;
+    private static final Duration CONNECT_RETRY_INTERVAL = Duration.ofMillis(10);
+    private static final int CONNECT_ATTEMPTS = 100;
+
+    private final InetSocketAddress address;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final StringBuilder line = new StringBuilder();
+    private Socket socket;
+    private InputStream in;
+    private OutputStream out;
+    private boolean used;
+
+    LoadConnection(InetSocketAddress address) {
+        this.address = address;
+    }
+
+    // Returns the status code of the response
+    int exchange(byte[] request) throws IOException {
+        if (socket == null) open();
+        try {
+            return send(request);
+        } catch (IOException e) {
+            if (!used) throw e;
+            close();
+            open();
+            return send(request);
+        }
+    }
+
+    private int send(byte[] request) throws IOException {
+        out.write(request);
+        out.flush();
+        int status = parseStatus(readLine());
+        long contentLength = 0;
+        boolean closing = false;
+        String header;
+        while (!(header = readLine()).isEmpty()) {
+            int colon = header.indexOf(':');
+            String name = header.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = header.substring(colon + 1).trim();
+            if (name.equals("content-length")) contentLength = Long.parseLong(value);
+            else if (name.equals("connection")) closing = value.equalsIgnoreCase("close");
+        }
+        skip(contentLength);
+        used = true;
+        if (closing) close();
+        return status;
+    }
+
+    private void open() throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                socket = new Socket();
+                socket.setTcpNoDelay(true);
+                socket.connect(address);
+                break;
+            } catch (ConnectException e) {
+                socket.close();
+                if (attempt == CONNECT_ATTEMPTS) throw e;
+                sleep(CONNECT_RETRY_INTERVAL);
+            }
+        }
+        in = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+        out = socket.getOutputStream();
+        used = false;
+    }
+
+    private String readLine() throws IOException {
+        line.setLength(0);
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == EOS) throw new EOFException("Connection closed before end of response head");
+            if (b != '\r') line.append((char) b);
+        }
+        return line.toString();
+    }
+
+    private static int parseStatus(String statusLine) throws IOException {
+        String[] tokens = statusLine.split(" ", 3);
+        if (tokens.length < 2) throw new IOException("Invalid status line: " + statusLine);
+        return Integer.parseInt(tokens[1]);
+    }
+
+    private void skip(long length) throws IOException {
+        long remaining = length;
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read == EOS) throw new EOFException("Connection closed before end of response body");
+            remaining -= read;
+        }
+    }
+
+    static byte[] ascii(String request) {
+        return request.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void sleep(Duration duration) throws IOException {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while connecting", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (socket == null) return;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nothing left to read or write on the connection
+        }
+        socket = null;
+    }
+}
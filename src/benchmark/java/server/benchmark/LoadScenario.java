@@ -0,0 +1,85 @@
+package server.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static server.benchmark.LoadConnection.ascii;
+
+// Kinds of request sent by the load benchmark, with the statuses expected in response
+enum LoadScenario {
+    SMALL_GET("small-get", 200) {
+        @Override
+        byte[] request(int connection) {
+            return ascii(head("GET /small.txt"));
+        }
+    },
+    LARGE_GET("large-get", 200) {
+        @Override
+        byte[] request(int connection) {
+            return ascii(head("GET /large.bin"));
+        }
+    },
+    RANGE("range", 206) {
+        @Override
+        byte[] request(int connection) {
+            return ascii(head("GET /large.bin", "Range: bytes=1024-66559"));
+        }
+    },
+    MULTIPLE_RANGES("ranges", 206) {
+        @Override
+        byte[] request(int connection) {
+            return ascii(head("GET /large.bin", "Range: bytes=0-1023,65536-69631,-4096"));
+        }
+    },
+    PUT("put", 200, 201) {
+        @Override
+        byte[] request(int connection) {
+            byte[] head = ascii(head("PUT /uploads/" + connection + ".bin", "Content-Length: " + UPLOAD_SIZE));
+            byte[] request = Arrays.copyOf(head, head.length + UPLOAD_SIZE);
+            Arrays.fill(request, head.length, request.length, (byte) 'a');
+            return request;
+        }
+    },
+    AUTHENTICATED_GET("auth", 200) {
+        @Override
+        byte[] request(int connection) {
+            String credentials = Base64.getEncoder().encodeToString(CREDENTIALS.getBytes(StandardCharsets.UTF_8));
+            return ascii(head("GET /private/small.txt", "Authorization: Basic " + credentials));
+        }
+    };
+
+    static final int SMALL_SIZE = 128;
+    static final int LARGE_SIZE = 4 * 1024 * 1024;
+    static final int UPLOAD_SIZE = 16 * 1024;
+    static final String USERNAME = "admin";
+    static final String PASSWORD = "hunter2";
+    private static final String CREDENTIALS = USERNAME + ":" + PASSWORD;
+
+    final String name;
+    private final int[] expectedStatuses;
+
+    LoadScenario(String name, int... expectedStatuses) {
+        this.name = name;
+        this.expectedStatuses = expectedStatuses;
+    }
+
+    // Request sent over and over by the given connection, so that connections do not upload to the same file
+    abstract byte[] request(int connection);
+
+    boolean isExpected(int status) {
+        for (int expected : expectedStatuses) if (status == expected) return true;
+        return false;
+    }
+
+    static LoadScenario named(String name) {
+        for (LoadScenario scenario : values()) if (scenario.name.equals(name)) return scenario;
+        throw new IllegalArgumentException("Unknown scenario: " + name);
+    }
+
+    private static String head(String requestLine, String... headers) {
+        StringBuilder head = new StringBuilder(requestLine).append(" HTTP/1.1\r\nHost: localhost\r\n");
+        for (String header : headers) head.append(header).append("\r\n");
+        return head.append("\r\n").toString();
+    }
+}
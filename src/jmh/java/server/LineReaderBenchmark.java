@@ -0,0 +1,32 @@
+package server;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+// Reads every line of a request head, as the blocking parser does
+@State(Scope.Thread)
+public class LineReaderBenchmark extends BenchmarkDefaults {
+    @Param({"minimal", "curl", "browser"})
+    public String request;
+
+    private ByteArrayInputStream in;
+
+    @Setup
+    public void setUp() {
+        in = new ByteArrayInputStream(RequestCorpus.bytesOf(request));
+    }
+
+    @Benchmark
+    public void readLines(Blackhole blackhole) throws IOException {
+        in.reset();
+        String line;
+        while ((line = LineReader.readLine(in)) != null && !line.isEmpty()) blackhole.consume(line);
+    }
+}
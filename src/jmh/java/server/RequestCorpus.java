@@ -0,0 +1,87 @@
+package server;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Requests as sent by common clients, from a bare request line to a browser revalidating a cached image, keyed by the
+ * names benchmarks take as parameters.
+ */
+public class RequestCorpus {
+    private static final String CRLF = "\r\n";
+    private static final Map<String, String> REQUESTS = new LinkedHashMap<>();
+
+    static {
+        REQUESTS.put("minimal", head(
+                "GET / HTTP/1.1",
+                "Host: localhost"));
+        REQUESTS.put("curl", head(
+                "GET /parameters?variable_1=Operators%20%3C%2C%20%3E%2C%20%3D&variable_2=stuff HTTP/1.1",
+                "Host: localhost:5000",
+                "User-Agent: curl/7.68.0",
+                "Accept: */*"));
+        REQUESTS.put("browser", head(
+                "GET /images/cat.jpeg HTTP/1.1",
+                "Host: localhost:5000",
+                "User-Agent: Mozilla/5.0 (X11; Linux x86_64; rv:74.0) Gecko/20100101 Firefox/74.0",
+                "Accept: image/webp,*/*",
+                "Accept-Language: en-GB,en;q=0.5",
+                "Accept-Encoding: gzip, deflate",
+                "Referer: http://localhost:5000/",
+                "Connection: keep-alive",
+                "Cookie: type=chocolate; session=4f8c2a1e9b7d4c3a8e6f1b2d9c0a7e5f",
+                "If-Modified-Since: Tue, 24 Mar 2020 09:15:42 GMT",
+                "If-None-Match: \"dc50a0d27dda2eee9f65644cd7e4c9cf11de8bec\"",
+                "Cache-Control: max-age=0"));
+        REQUESTS.put("range", head(
+                "GET /partial_content.txt HTTP/1.1",
+                "Host: localhost:5000",
+                "User-Agent: Apache-HttpClient/4.5.12 (Java/1.8.0_242)",
+                "Range: bytes=0-4,-6",
+                "Accept-Encoding: gzip,deflate",
+                "Connection: Keep-Alive"));
+        REQUESTS.put("upload", request("PUT /uploads/report.json HTTP/1.1", "application/json",
+                "{\"id\":1042,\"name\":\"quarterly report\",\"tags\":[\"finance\",\"q1\"],\"rows\":[[1,2,3],[4,5,6],[7,8,9]]}",
+                "Host: localhost:5000",
+                "User-Agent: python-requests/2.23.0",
+                "Accept: */*",
+                "Connection: keep-alive"));
+        REQUESTS.put("form", request("POST /cat-form HTTP/1.1", "application/x-www-form-urlencoded",
+                "data=fatcat&owner=J%C3%BCrgen+M%C3%BCller&note=likes+%3Cfish%3E+%26+naps",
+                "Host: localhost:5000",
+                "User-Agent: Mozilla/5.0 (X11; Linux x86_64; rv:74.0) Gecko/20100101 Firefox/74.0",
+                "Origin: http://localhost:5000",
+                "Connection: keep-alive"));
+    }
+
+    public static String get(String name) {
+        String request = REQUESTS.get(name);
+        if (request == null) throw new IllegalArgumentException("Unknown request: " + name);
+        return request;
+    }
+
+    public static byte[] bytesOf(String name) {
+        return get(name).getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Content following the head, empty when there is none
+    public static String bodyOf(String name) {
+        String request = get(name);
+        return request.substring(request.indexOf(CRLF + CRLF) + 2 * CRLF.length());
+    }
+
+    private static String head(String... lines) {
+        return String.join(CRLF, lines) + CRLF + CRLF;
+    }
+
+    private static String request(String requestLine, String contentType, String body, String... headers) {
+        int length = body.getBytes(StandardCharsets.UTF_8).length;
+        return requestLine + CRLF
+                + String.join(CRLF, headers) + CRLF
+                + "Content-Type: " + contentType + CRLF
+                + "Content-Length: " + length + CRLF
+                + CRLF
+                + body;
+    }
+}
@@ -0,0 +1,43 @@
+package server;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import server.data.Request;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/*
+ * Parses request heads through the line by line parser and through the buffered head parser used by connections. The
+ * connection keeps its buffer between requests, as a kept-alive connection does, and bodies are left unread.
+ */
+@State(Scope.Thread)
+public class RequestParserBenchmark extends BenchmarkDefaults {
+    @Param({"minimal", "curl", "browser", "upload"})
+    public String request;
+
+    private ByteArrayInputStream source;
+    private ConnectionInputStream connection;
+
+    @Setup
+    public void setUp() {
+        source = new ByteArrayInputStream(RequestCorpus.bytesOf(request));
+        connection = new ConnectionInputStream(source);
+    }
+
+    @Benchmark
+    public Request lineByLine() throws IOException {
+        source.reset();
+        return RequestParser.parse(source);
+    }
+
+    @Benchmark
+    public Request buffered() throws IOException {
+        source.reset();
+        connection.buffer().limit(0);
+        return RequestParser.parse(connection);
+    }
+}
@@ -0,0 +1,95 @@
+package server;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import server.data.Body;
+import server.data.Header;
+import server.data.Response;
+import server.data.Status;
+import server.util.Maps;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Collections;
+import java.util.Map;
+
+// Composes responses into a channel that discards what is written, so that only encoding and copying are measured
+@State(Scope.Thread)
+public class ResponseComposerBenchmark extends BenchmarkDefaults {
+    private static final Map<String, Object> VALIDATORS = Maps.of(
+            Header.E_TAG, "\"dc50a0d27dda2eee9f65644cd7e4c9cf11de8bec\"",
+            Header.LAST_MODIFIED, "Tue, 24 Mar 2020 09:15:42 GMT");
+
+    @Param({"notFound", "notModified", "text", "file"})
+    public String response;
+
+    private final DiscardingChannel channel = new DiscardingChannel();
+    private Response composed;
+
+    @Setup
+    public void setUp() {
+        composed = responseOf(response);
+    }
+
+    @Benchmark
+    public long compose() {
+        ResponseComposer.compose(channel, composed);
+        return channel.written;
+    }
+
+    private static Response responseOf(String name) {
+        switch (name) {
+            case "notFound":
+                return new Response(Status.NOT_FOUND, "");
+            case "notModified":
+                return new Response(Status.NOT_MODIFIED, VALIDATORS, "");
+            case "text":
+                return new Response(Status.OK, Collections.singletonMap(Header.CONTENT_TYPE, "text/plain"),
+                        "variable_1 = Operators <, >, =\nvariable_2 = stuff\n");
+            case "file":
+                Map<String, Object> headers = Maps.of(
+                        Header.CONTENT_TYPE, "image/jpeg",
+                        Header.E_TAG, VALIDATORS.get(Header.E_TAG),
+                        Header.LAST_MODIFIED, VALIDATORS.get(Header.LAST_MODIFIED));
+                return new Response(Status.OK, headers, Body.of(ByteBuffer.allocate(16 * 1024)));
+            default:
+                throw new IllegalArgumentException("Unknown response: " + name);
+        }
+    }
+
+    private static class DiscardingChannel implements GatheringByteChannel {
+        long written;
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            long total = 0;
+            for (int i = offset; i < offset + length; i++) total += write(srcs[i]);
+            return total;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            int length = src.remaining();
+            src.position(src.limit());
+            written += length;
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package server.handlers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import server.BenchmarkDefaults;
+import server.Handler;
+import server.data.Method;
+import server.data.PatternHandler;
+import server.data.Request;
+import server.data.Response;
+import server.data.Status;
+import server.util.Maps;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+
+// Routes through a table shaped like the application's, with handlers that do nothing
+@State(Scope.Thread)
+public class DispatcherBenchmark extends BenchmarkDefaults {
+    private static final Response OK = new Response(Status.OK, "");
+    private static final Handler NOTHING = r -> OK;
+
+    @Param({"/cookie", "/cat-form/data", "/users/42/orders/7", "/static/css/site.css", "/images/cat.jpeg"})
+    public String path;
+
+    private Dispatcher dispatcher;
+    private Request request;
+
+    @Setup
+    public void setUp() {
+        dispatcher = new Dispatcher(Maps.of(
+                Method.HEAD, singletonList(new PatternHandler("*", NOTHING)),
+                Method.GET, asList(
+                        new PatternHandler("/cookie", NOTHING),
+                        new PatternHandler("/eat_cookie", NOTHING),
+                        new PatternHandler("/parameters", NOTHING),
+                        new PatternHandler("/cat-form/data", NOTHING),
+                        new PatternHandler("/redirect", NOTHING),
+                        new PatternHandler("/coffee", NOTHING),
+                        new PatternHandler("/tea", NOTHING),
+                        new PatternHandler("/metrics", NOTHING),
+                        new PatternHandler("/users/{user}/orders/{order}", NOTHING),
+                        new PatternHandler("/static/**", NOTHING),
+                        new PatternHandler("*", NOTHING)),
+                Method.PUT, asList(
+                        new PatternHandler("/cat-form/data", NOTHING),
+                        new PatternHandler("*", NOTHING)),
+                Method.DELETE, singletonList(new PatternHandler("*", NOTHING))));
+        request = new Request(Method.GET, path);
+    }
+
+    @Benchmark
+    public Response dispatch() {
+        return dispatcher.handle(request);
+    }
+}
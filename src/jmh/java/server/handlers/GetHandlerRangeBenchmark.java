@@ -0,0 +1,23 @@
+package server.handlers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import server.BenchmarkDefaults;
+
+import java.util.List;
+
+// Parses Range headers against a 1 MiB resource, from a single range to overlapping ranges that are coalesced
+@State(Scope.Thread)
+public class GetHandlerRangeBenchmark extends BenchmarkDefaults {
+    private static final long RESOURCE_SIZE = 1024 * 1024;
+
+    @Param({"bytes=0-1023", "bytes=-500", "bytes=0-4,-6", "bytes=500-999,0-499,200-700,4096-8191,1048000-"})
+    public String range;
+
+    @Benchmark
+    public List<GetHandler.Range> parseRanges() {
+        return GetHandler.parseRanges(range, RESOURCE_SIZE);
+    }
+}
@@ -0,0 +1,55 @@
+package server.handlers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import server.BenchmarkDefaults;
+import server.RequestCorpus;
+import server.data.Header;
+import server.data.Method;
+import server.data.Request;
+import server.data.Response;
+import server.data.Status;
+import server.util.Maps;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+// Decodes query and form parameters of the corpus requests, looked up by a handler that does nothing else
+@State(Scope.Thread)
+public class ParametersWrapperBenchmark extends BenchmarkDefaults {
+    private static final Response OK = new Response(Status.OK, "");
+
+    private final ParametersWrapper wrapper = new ParametersWrapper(r -> r.parameters.isEmpty() ? null : OK);
+    private String query;
+    private Map<String, String> formHeaders;
+    private byte[] form;
+
+    @Setup
+    public void setUp() {
+        String requestLine = RequestCorpus.get("curl").split("\r\n")[0];
+        query = requestLine.substring(requestLine.indexOf('?') + 1, requestLine.lastIndexOf(' '));
+        form = RequestCorpus.bodyOf("form").getBytes(StandardCharsets.UTF_8);
+        formHeaders = Maps.of(
+                Header.CONTENT_TYPE, ParametersWrapper.APPLICATION_FORM_URLENCODED,
+                Header.CONTENT_LENGTH, String.valueOf(form.length));
+    }
+
+    @Benchmark
+    public Map<String, String> query() {
+        Request request = new Request(Method.GET, "/parameters", query);
+        wrapper.handle(request);
+        return request.parameters;
+    }
+
+    @Benchmark
+    public Map<String, String> form() {
+        Request request = new Request(Method.POST, "/cat-form", null, formHeaders);
+        request.body = Channels.newChannel(new ByteArrayInputStream(form));
+        wrapper.handle(request);
+        return request.parameters;
+    }
+}
@@ -0,0 +1,254 @@
+package server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.data.Request;
+import server.data.Status;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * One record per exchange, queued by the worker without locking and written by a background thread in batches. Each
+ * worker thread queues into one of a few bounded rings picked by its id, and records are dropped, and counted, when the
+ * ring is full rather than making the worker wait. Records of server errors are always kept; others are kept at the
+ * sampling rate.
+ *
+ * Records are written as "<time> <method> <path> <version> <status> <bytes> <latency>us <user>", with "-" for unknown
+ * values.
+ */
+public class AccessLog implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(AccessLog.class);
+    private static final String WRITER_THREAD_NAME = "access-log-writer";
+    private static final int DEFAULT_CAPACITY = 4096;
+    private static final int BATCH_SIZE = 64 * 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+    private static final String UNKNOWN = "-";
+    private static final AccessLog DISABLED = new AccessLog();
+
+    private final Sink sink;
+    private final double sampleRate;
+    private final Ring[] rings;
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public AccessLog(Sink sink, double sampleRate) {
+        this(sink, sampleRate, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1), DEFAULT_CAPACITY);
+    }
+
+    AccessLog(Sink sink, double sampleRate, int numRings, int capacity) {
+        if (sampleRate < 0 || sampleRate > 1) throw new IllegalArgumentException("Sample rate should be between 0 and 1");
+        if (Integer.bitCount(numRings) != 1 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Number of rings and capacity should be powers of two");
+        this.sink = sink;
+        this.sampleRate = sampleRate;
+        this.rings = new Ring[numRings];
+        for (int i = 0; i < numRings; i++) rings[i] = new Ring(capacity);
+        this.writer = new Thread(this::write, WRITER_THREAD_NAME);
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    private AccessLog() {
+        this.sink = null;
+        this.sampleRate = 0;
+        this.rings = new Ring[0];
+        this.writer = null;
+        this.running = false;
+    }
+
+    public static AccessLog disabled() {
+        return DISABLED;
+    }
+
+    // Request is null when the request could not be parsed, and bytes negative when the body bytes written are unknown
+    void record(Request request, Status status, long bytes, long startNanos) {
+        if (!running) return;
+        if (status.code < 500 && sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) return;
+
+        Record record = new Record(request, status, bytes, System.nanoTime() - startNanos);
+        Ring ring = rings[(int) Thread.currentThread().getId() & (rings.length - 1)];
+        if (!ring.offer(record)) dropped.increment();
+    }
+
+    // Writes out the records queued so far before returning
+    @Override
+    public void close() {
+        if (writer == null || !running) return;
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            sink.close();
+        } catch (IOException e) {
+            logger.warn("Unable to close access log.", e);
+        }
+    }
+
+    private void write() {
+        StringBuilder batch = new StringBuilder(BATCH_SIZE);
+        boolean stopping;
+        do {
+            stopping = !running;
+            boolean drained = false;
+            for (Ring ring : rings) {
+                Record record;
+                while ((record = ring.poll()) != null) {
+                    record.appendTo(batch);
+                    drained = true;
+                    if (batch.length() >= BATCH_SIZE) flush(batch);
+                }
+            }
+            long droppedCount = dropped.sumThenReset();
+            if (droppedCount > 0) batch.append(Instant.now()).append(" - ").append(droppedCount).append(" records dropped\n");
+            if (batch.length() > 0) flush(batch);
+            if (!drained && !stopping) LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        } while (!stopping);
+    }
+
+    private void flush(StringBuilder batch) {
+        try {
+            sink.write(batch);
+        } catch (IOException | RuntimeException e) {
+            // The batch is lost, later batches are still attempted
+            logger.warn("Unable to write access log.", e);
+        }
+        batch.setLength(0);
+    }
+
+    public interface Sink extends Closeable {
+        void write(CharSequence batch) throws IOException;
+
+        @Override
+        default void close() throws IOException {
+        }
+    }
+
+    public static Sink toFile(Path file) {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Sink() {
+            @Override
+            public void write(CharSequence batch) throws IOException {
+                ByteBuffer bytes = StandardCharsets.UTF_8.encode(batch.toString());
+                while (bytes.hasRemaining()) channel.write(bytes);
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    // Logs each batch as a single message, without its final line separator
+    public static Sink toLogger(Logger logger) {
+        return batch -> logger.info(batch.subSequence(0, batch.length() - 1).toString());
+    }
+
+    private static class Record {
+        final long time = System.currentTimeMillis();
+        final String method;
+        final String target;
+        final String version;
+        final String user;
+        final int status;
+        final long bytes;
+        final long latencyNanos;
+
+        Record(Request request, Status status, long bytes, long latencyNanos) {
+            this.method = request == null ? UNKNOWN : request.method.name();
+            this.target = request == null ? UNKNOWN : request.query == null ? request.path : request.path + "?" + request.query;
+            this.version = request == null || request.version == null ? UNKNOWN : request.version;
+            this.user = request == null || request.user == null ? UNKNOWN : request.user;
+            this.status = status.code;
+            this.bytes = bytes;
+            this.latencyNanos = latencyNanos;
+        }
+
+        void appendTo(StringBuilder line) {
+            line.append(Instant.ofEpochMilli(time))
+                    .append(' ').append(method)
+                    .append(' ').append(target)
+                    .append(' ').append(version)
+                    .append(' ').append(status)
+                    .append(' ');
+            if (bytes < 0) line.append(UNKNOWN);
+            else line.append(bytes);
+            line.append(' ').append(TimeUnit.NANOSECONDS.toMicros(latencyNanos)).append("us")
+                    .append(' ').append(user)
+                    .append('\n');
+        }
+    }
+
+    // Bounded multi-producer single-consumer ring, where each slot carries the sequence number it is next expected at
+    private static class Ring {
+        private final int mask;
+        private final AtomicReferenceArray<Record> slots;
+        private final AtomicLongArray sequences;
+        private final AtomicLong tail = new AtomicLong();
+        private long head;
+
+        Ring(int capacity) {
+            this.mask = capacity - 1;
+            this.slots = new AtomicReferenceArray<>(capacity);
+            this.sequences = new AtomicLongArray(capacity);
+            for (int i = 0; i < capacity; i++) sequences.set(i, i);
+        }
+
+        boolean offer(Record record) {
+            long position = tail.get();
+            while (true) {
+                int index = (int) position & mask;
+                long available = sequences.get(index) - position;
+                if (available == 0) {
+                    if (tail.compareAndSet(position, position + 1)) {
+                        slots.lazySet(index, record);
+                        sequences.lazySet(index, position + 1);
+                        return true;
+                    }
+                    position = tail.get();
+                } else if (available < 0) {
+                    return false;
+                } else {
+                    position = tail.get();
+                }
+            }
+        }
+
+        // Only called from the writer thread
+        Record poll() {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) return null;
+            Record record = slots.get(index);
+            slots.lazySet(index, null);
+            sequences.lazySet(index, head + mask + 1);
+            head++;
+            return record;
+        }
+    }
+}
@@ -1,23 +1,34 @@
 package server;
 
+import org.slf4j.LoggerFactory;
 import server.data.Method;
 import server.data.PatternHandler;
+import server.handlers.AccessControl;
 import server.handlers.Authoriser;
+import server.handlers.AuthorizationCache;
 import server.handlers.BasicAuthenticator;
 import server.handlers.CatFormHandler;
 import server.handlers.CookieHandler;
-import server.handlers.DefaultResponseHeaderWrapper;
+import server.handlers.CredentialStore;
 import server.handlers.DeleteHandler;
+import server.handlers.ETagIndex;
+import server.handlers.FileCache;
+import server.handlers.FileMetadataCache;
 import server.handlers.Dispatcher;
 import server.handlers.GetHandler;
 import server.handlers.HeadHandler;
+import server.handlers.MetricsHandler;
 import server.handlers.OptionsHandler;
 import server.handlers.ParametersEchoHandler;
 import server.handlers.ParametersWrapper;
 import server.handlers.PatchHandler;
+import server.handlers.Pbkdf2CredentialStore;
 import server.handlers.PutHandler;
 import server.handlers.RedirectHandler;
 import server.handlers.TeapotHandler;
+import server.handlers.UploadHandler;
+import server.metrics.Metrics;
+import server.util.BufferPool;
 import server.util.Maps;
 
 import java.nio.file.Path;
@@ -25,8 +36,9 @@ import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
@@ -34,39 +46,88 @@ import static java.util.Collections.singletonList;
 
 public class Application {
     private static final Map<String, Map<String, List<Method>>> ACCESS_CONTROL_LIST = Maps.of(
-            "admin", Maps.of("/logs", asList(Method.GET, Method.HEAD, Method.OPTIONS)),
+            "admin", Maps.of(
+                    "/logs", asList(Method.GET, Method.HEAD, Method.OPTIONS),
+                    "/metrics", asList(Method.GET, Method.HEAD, Method.OPTIONS)),
             "anonymous", Maps.of(
                     "/logs", emptyList(),
+                    "/metrics", emptyList(),
                     "/cat-form", asList(Method.GET, Method.PUT, Method.POST, Method.DELETE)));
-    private static final List<Method> DEFAULT_ACCESS = asList(Method.GET, Method.HEAD, Method.OPTIONS, Method.PUT, Method.DELETE, Method.PATCH);
+    private static final List<Method> DEFAULT_ACCESS = asList(Method.GET, Method.HEAD, Method.OPTIONS, Method.PUT, Method.POST, Method.DELETE, Method.PATCH);
     private static final String REALM = "default";
     private static final Map<String, String> CREDENTIALS_STORE = Maps.of("admin", "hunter2");
     private static final Map<String, List<Method>> ALLOWED_METHODS = Maps.of(
-            "/logs", asList(Method.GET, Method.HEAD, Method.OPTIONS)
+            "/logs", asList(Method.GET, Method.HEAD, Method.OPTIONS),
+            "/metrics", asList(Method.GET, Method.HEAD, Method.OPTIONS)
     );
     private static final Duration SO_TIMEOUT = Duration.ofSeconds(20);
+    private static final long MEGABYTE = 1024 * 1024;
+    private static final long MAX_CACHED_FILE_SIZE = 4 * MEGABYTE;
+    private static final Duration FILE_METADATA_TTL = Duration.ofSeconds(1);
+    private static final Duration AUTHORIZATION_CACHE_TTL = Duration.ofMinutes(5);
+    private static final int MAX_CACHED_AUTHORIZATIONS = 1024;
 
     public static void main(String[] args) {
         Arguments arguments = Arguments.parse(asList(args));
         System.setProperty("logDir", arguments.directory);
 
-        Handler appHandler = new Dispatcher(routes(Paths.get(arguments.directory)));
+        Path directory = Paths.get(arguments.directory);
+        ETagIndex eTagIndex = arguments.eTagIndex == null
+                ? new ETagIndex(directory)
+                : new ETagIndex(directory, Paths.get(arguments.eTagIndex));
+        FileMetadataCache metadata = new FileMetadataCache(FILE_METADATA_TTL, true, eTagIndex);
+        FileCache cache = arguments.cacheMegabytes > 0
+                ? new FileCache(arguments.cacheMegabytes * MEGABYTE, MAX_CACHED_FILE_SIZE, true)
+                : null;
+        if (cache != null) metadata.onInvalidate(cache::invalidate);
+        Metrics metrics = new Metrics();
+        BufferPool bufferPool = BufferPool.shared();
+        metrics.counter("buffer_pool_hits_total", bufferPool::hits);
+        metrics.counter("buffer_pool_misses_total", bufferPool::misses);
+        metrics.gauge("buffer_pool_outstanding", bufferPool::outstanding);
+        Handler appHandler = new Dispatcher(routes(directory, metadata, cache, metrics), metrics);
         appHandler = new ParametersWrapper(appHandler);
-        appHandler = new Authoriser(appHandler, ACCESS_CONTROL_LIST, DEFAULT_ACCESS);
-        appHandler = new BasicAuthenticator(appHandler, REALM, protectedPathsFrom(ACCESS_CONTROL_LIST), CREDENTIALS_STORE);
+        AccessControl accessControl = new AccessControl(ACCESS_CONTROL_LIST, DEFAULT_ACCESS);
+        appHandler = new Authoriser(appHandler, accessControl);
+        CredentialStore credentialStore = arguments.credentials == null
+                ? CredentialStore.of(CREDENTIALS_STORE)
+                : Pbkdf2CredentialStore.load(Paths.get(arguments.credentials));
+        AuthorizationCache authorizationCache = new AuthorizationCache(AUTHORIZATION_CACHE_TTL, MAX_CACHED_AUTHORIZATIONS);
+        appHandler = new BasicAuthenticator(appHandler, REALM, accessControl, credentialStore, authorizationCache);
         appHandler = new OptionsHandler(appHandler, ALLOWED_METHODS, DEFAULT_ACCESS);
-        appHandler = new DefaultResponseHeaderWrapper(appHandler);
+        AccessLog accessLog = new AccessLog(arguments.accessLog == null
+                ? AccessLog.toLogger(LoggerFactory.getLogger(AccessLog.class))
+                : AccessLog.toFile(Paths.get(arguments.accessLog)), arguments.accessLogSampleRate);
         int numThreads = Runtime.getRuntime().availableProcessors() * (1 + 18);
-        HttpServer httpServer = new HttpServer(arguments.port, appHandler, numThreads, SO_TIMEOUT);
-        httpServer.start();
-
-        Runtime.getRuntime().addShutdownHook(new Thread(httpServer::stop));
+        ExecutorService executor = arguments.executor.newExecutor(numThreads);
+        if (executor instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+            metrics.gauge("executor_queue_depth", () -> pool.getQueue().size());
+            metrics.gauge("executor_active_threads", pool::getActiveCount);
+        }
+        if (arguments.transport == Transport.SELECTOR) {
+            int numEventLoops = Runtime.getRuntime().availableProcessors();
+            SelectorHttpServer httpServer = new SelectorHttpServer(arguments.port, appHandler, executor, numEventLoops, SO_TIMEOUT, accessLog, metrics);
+            httpServer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                httpServer.stop();
+                accessLog.close();
+            }));
+        } else {
+            HttpServer httpServer = new HttpServer(arguments.port, appHandler, executor, SO_TIMEOUT, accessLog, metrics);
+            httpServer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                httpServer.stop();
+                accessLog.close();
+            }));
+        }
     }
 
-    private static Map<Method, List<PatternHandler>> routes(Path directory) {
+    private static Map<Method, List<PatternHandler>> routes(Path directory, FileMetadataCache metadata, FileCache cache,
+                                                            Metrics metrics) {
         CatFormHandler catForm = new CatFormHandler(new AtomicReference<>());
         return Maps.of(
-                Method.HEAD, singletonList(new PatternHandler("*", new HeadHandler(directory))),
+                Method.HEAD, singletonList(new PatternHandler("*", new HeadHandler(directory, metadata))),
                 Method.GET, asList(
                         new PatternHandler("/cookie", CookieHandler::cookie),
                         new PatternHandler("/eat_cookie", CookieHandler::eatCookie),
@@ -75,23 +136,18 @@ public class Application {
                         new PatternHandler("/redirect", new RedirectHandler("/")),
                         new PatternHandler("/coffee", TeapotHandler::handleCoffee),
                         new PatternHandler("/tea", TeapotHandler::handleTea),
-                        new PatternHandler("*", new GetHandler(directory))),
+                        new PatternHandler("/metrics", new MetricsHandler(metrics)),
+                        new PatternHandler("*", new GetHandler(directory, metadata, cache))),
                 Method.PUT, asList(
                         new PatternHandler("/cat-form/data", catForm::put),
-                        new PatternHandler("*", new PutHandler(directory))),
-                Method.POST, singletonList(new PatternHandler("/cat-form", catForm::post)),
+                        new PatternHandler("*", new PutHandler(directory, metadata))),
+                Method.POST, asList(
+                        new PatternHandler("/cat-form", catForm::post),
+                        new PatternHandler("*", new UploadHandler(directory, metadata))),
                 Method.DELETE, asList(
                         new PatternHandler("/cat-form/data", catForm::delete),
-                        new PatternHandler("*", new DeleteHandler(directory))),
-                Method.PATCH, singletonList(new PatternHandler("*", new PatchHandler(directory)))
+                        new PatternHandler("*", new DeleteHandler(directory, metadata))),
+                Method.PATCH, singletonList(new PatternHandler("*", new PatchHandler(directory, metadata)))
         );
     }
-
-    private static List<String> protectedPathsFrom(Map<String, Map<String, List<Method>>> accessControlList) {
-        return accessControlList.entrySet().stream()
-                .filter(e -> !e.getKey().equals("anonymous"))
-                .map(Map.Entry::getValue)
-                .flatMap(e -> e.keySet().stream())
-                .collect(Collectors.toList());
-    }
 }
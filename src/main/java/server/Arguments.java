@@ -10,10 +10,24 @@ import static java.util.Arrays.asList;
 class Arguments {
     private static final List<Option> OPTIONS = asList(
             new Option("-p", "port", Integer::parseInt, (a, v) -> a.port = (Integer) v),
-            new Option("-d", "directory", Function.identity(), (a, v) -> a.directory = (String) v));
+            new Option("-d", "directory", Function.identity(), (a, v) -> a.directory = (String) v),
+            new Option("-t", "transport", Transport::parse, (a, v) -> a.transport = (Transport) v, false),
+            new Option("-e", "executor", ExecutorMode::parse, (a, v) -> a.executor = (ExecutorMode) v, false),
+            new Option("-c", "cache size", Arguments::parseCacheSize, (a, v) -> a.cacheMegabytes = (Integer) v, false),
+            new Option("-i", "etag index", Function.identity(), (a, v) -> a.eTagIndex = (String) v, false),
+            new Option("-a", "credentials", Function.identity(), (a, v) -> a.credentials = (String) v, false),
+            new Option("-l", "access log", Function.identity(), (a, v) -> a.accessLog = (String) v, false),
+            new Option("-s", "access log sample rate", Arguments::parseSampleRate, (a, v) -> a.accessLogSampleRate = (Double) v, false));
 
     public Integer port;
     public String directory;
+    public Transport transport = Transport.BLOCKING;
+    public ExecutorMode executor = ExecutorMode.PLATFORM;
+    public int cacheMegabytes = 0;
+    public String eTagIndex;
+    public String credentials;
+    public String accessLog;
+    public double accessLogSampleRate = 1;
 
     public static Arguments parse(List<String> args) {
         validateRequired(args);
@@ -21,6 +35,7 @@ class Arguments {
         Arguments arguments = new Arguments();
         for (Option o : OPTIONS) {
             int i = args.indexOf(o.name);
+            if (i == -1) continue;
             if (args.size() <= i + 1) throw new IllegalArgumentException("Expected 1 argument for " + o.id);
             try {
                 Object value = o.parse.apply(args.get(i + 1));
@@ -32,9 +47,21 @@ class Arguments {
         return arguments;
     }
 
+    private static int parseCacheSize(String value) {
+        int megabytes = Integer.parseInt(value);
+        if (megabytes < 0) throw new IllegalArgumentException("Cache size should be non-negative");
+        return megabytes;
+    }
+
+    private static double parseSampleRate(String value) {
+        double rate = Double.parseDouble(value);
+        if (!(rate >= 0 && rate <= 1)) throw new IllegalArgumentException("Sample rate should be between 0 and 1");
+        return rate;
+    }
+
     private static void validateRequired(List<String> args) {
         String missingOptions = OPTIONS.stream()
-                .filter(o -> !args.contains(o.name))
+                .filter(o -> o.required && !args.contains(o.name))
                 .map(o -> String.format("%s <%s>", o.name, o.id))
                 .collect(Collectors.joining(", "));
         if (!missingOptions.isEmpty()) throw new IllegalArgumentException("Option(s) " + missingOptions + " required");
@@ -45,12 +72,18 @@ class Arguments {
         final String id;
         final Function<String, ?> parse;
         final BiConsumer<Arguments, Object> assoc;
+        final boolean required;
 
         public Option(String name, String id, Function<String, ?> parse, BiConsumer<Arguments, Object> assoc) {
+            this(name, id, parse, assoc, true);
+        }
+
+        public Option(String name, String id, Function<String, ?> parse, BiConsumer<Arguments, Object> assoc, boolean required) {
             this.name = name;
             this.id = id;
             this.parse = parse;
             this.assoc = assoc;
+            this.required = required;
         }
     }
 }
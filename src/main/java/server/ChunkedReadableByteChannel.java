@@ -0,0 +1,101 @@
+package server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/*
+ * Content of a body sent with the chunked transfer coding, ending at the last chunk. Chunk extensions and trailer
+ * fields are read and ignored. Malformed framing fails the read with a ParseException, so that the request is answered
+ * with a Bad Request and the connection closed, as the rest of the stream can no longer be trusted.
+ */
+class ChunkedReadableByteChannel implements ReadableByteChannel {
+    private static final int EOS = -1;
+    private static final int MAX_LINE_LENGTH = 1024;
+    private static final int MAX_TRAILER_LENGTH = 8192;
+    private static final int MAX_SIZE_DIGITS = 15;
+
+    private final InputStream in;
+    private final ReadableByteChannel content;
+    private final StringBuilder line = new StringBuilder();
+    private long remaining;
+    private boolean started;
+    private boolean ended;
+
+    ChunkedReadableByteChannel(InputStream in) {
+        this.in = in;
+        this.content = Channels.newChannel(in);
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (ended) return EOS;
+        if (!dst.hasRemaining()) return 0;
+        if (remaining == 0 && !nextChunk()) return EOS;
+
+        int dstLimit = dst.limit();
+        if (dst.remaining() > remaining) dst.limit(dst.position() + (int) remaining);
+        try {
+            int bytesRead = content.read(dst);
+            if (bytesRead == EOS) throw new RequestParser.ParseException("Incomplete chunked body: chunk is cut short");
+            remaining -= bytesRead;
+            return bytesRead;
+        } finally {
+            dst.limit(dstLimit);
+        }
+    }
+
+    // Returns false once the last chunk and any trailer fields have been read
+    private boolean nextChunk() throws IOException {
+        if (started && !readLine(MAX_LINE_LENGTH).isEmpty())
+            throw new RequestParser.ParseException("Invalid chunked body: chunk is longer than its size");
+        started = true;
+
+        remaining = parseSize(readLine(MAX_LINE_LENGTH));
+        if (remaining > 0) return true;
+
+        int trailerLength = 0;
+        String trailer;
+        while (!(trailer = readLine(MAX_TRAILER_LENGTH - trailerLength)).isEmpty()) trailerLength += trailer.length();
+        ended = true;
+        return false;
+    }
+
+    private static long parseSize(String sizeLine) {
+        int extension = sizeLine.indexOf(';');
+        String size = (extension < 0 ? sizeLine : sizeLine.substring(0, extension)).trim();
+        if (size.isEmpty() || size.length() > MAX_SIZE_DIGITS)
+            throw new RequestParser.ParseException("Invalid chunk size: " + sizeLine);
+        long chunkSize = 0;
+        for (int i = 0; i < size.length(); i++) {
+            int digit = Character.digit(size.charAt(i), 16);
+            if (digit < 0) throw new RequestParser.ParseException("Invalid chunk size: " + sizeLine);
+            chunkSize = chunkSize * 16 + digit;
+        }
+        return chunkSize;
+    }
+
+    private String readLine(int maxLength) throws IOException {
+        line.setLength(0);
+        int curr;
+        while ((curr = in.read()) != '\r') {
+            if (curr == EOS) throw new RequestParser.ParseException("Incomplete chunked body: missing last chunk");
+            if (line.length() == maxLength) throw new RequestParser.ParseException("Invalid chunked body: line is too long");
+            line.append((char) curr);
+        }
+        if (in.read() != '\n') throw new RequestParser.ParseException("Invalid chunked body: expecting <CR><LF>");
+        return line.toString();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return content.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        content.close();
+    }
+}
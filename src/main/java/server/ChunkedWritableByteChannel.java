@@ -0,0 +1,70 @@
+package server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+// Sends each write as one chunk, gathered with its size line and closing CRLF where the channel allows
+class ChunkedWritableByteChannel implements WritableByteChannel {
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer sizeLine = ByteBuffer.allocate(Integer.BYTES * 2 + CRLF.length);
+    private final ByteBuffer end = ByteBuffer.allocate(CRLF.length);
+    private long written;
+
+    ChunkedWritableByteChannel(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        int length = src.remaining();
+        if (length == 0) return 0; // A chunk of size zero would end the body
+        sizeLine.clear();
+        sizeLine.put(Integer.toHexString(length).getBytes(StandardCharsets.US_ASCII)).put(CRLF).flip();
+        end.clear();
+        end.put(CRLF).flip();
+
+        if (channel instanceof GatheringByteChannel) {
+            ByteBuffer[] buffers = {sizeLine, src, end};
+            do {
+                ((GatheringByteChannel) channel).write(buffers);
+            } while (end.hasRemaining());
+        } else {
+            writeFully(sizeLine);
+            writeFully(src);
+            writeFully(end);
+        }
+        written += length;
+        return length;
+    }
+
+    // Bytes of the chunks written in full, excluding their framing
+    long written() {
+        return written;
+    }
+
+    void finish() throws IOException {
+        writeFully(ByteBuffer.wrap(LAST_CHUNK));
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        do {
+            channel.write(buffer);
+        } while (buffer.hasRemaining());
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    // The underlying channel belongs to the connection and stays open
+    @Override
+    public void close() {
+    }
+}
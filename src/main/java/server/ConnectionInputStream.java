@@ -0,0 +1,84 @@
+package server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+class ConnectionInputStream extends InputStream {
+    private static final int EOS = -1;
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final ByteBuffer buffer;
+    private final InputStream source;
+    private final RequestHeadParser headParser = new RequestHeadParser();
+
+    ConnectionInputStream(InputStream source) {
+        this((ByteBuffer) ByteBuffer.allocate(DEFAULT_BUFFER_SIZE).flip(), source);
+    }
+
+    // Buffer is expected in read mode and outlives the stream, so that unread bytes remain with the connection
+    ConnectionInputStream(ByteBuffer buffer, InputStream source) {
+        if (!buffer.hasArray()) throw new IllegalArgumentException("Buffer should be backed by an array");
+        this.buffer = buffer;
+        this.source = source;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) return EOS;
+        return buffer.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (!buffer.hasRemaining() && len >= buffer.capacity()) return source.read(b, off, len);
+        if (!fill()) return EOS;
+        int length = Math.min(len, buffer.remaining());
+        buffer.get(b, off, length);
+        return length;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return buffer.remaining() > 0 ? buffer.remaining() : source.available();
+    }
+
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    RequestHeadParser headParser() {
+        return headParser;
+    }
+
+    // Appends to the buffered bytes without discarding them, returning the number of bytes read or -1 at end of stream
+    int fillMore() throws IOException {
+        buffer.compact();
+        int length = EOS;
+        try {
+            length = source.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            return length;
+        } finally {
+            buffer.position(buffer.position() + Math.max(length, 0));
+            buffer.flip();
+        }
+    }
+
+    void skipBuffered(int n) {
+        buffer.position(buffer.position() + n);
+    }
+
+    // Blocks until at least one byte is buffered, returning false at end of stream
+    boolean awaitData() throws IOException {
+        return fill();
+    }
+
+    private boolean fill() throws IOException {
+        if (buffer.hasRemaining()) return true;
+        buffer.clear().limit(0);
+        int length = source.read(buffer.array(), buffer.arrayOffset(), buffer.capacity());
+        buffer.limit(Math.max(length, 0));
+        return length > 0;
+    }
+}
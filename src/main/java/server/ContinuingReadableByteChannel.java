@@ -0,0 +1,48 @@
+package server;
+
+import server.data.Response;
+import server.data.Status;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/*
+ * Body of a request sent with "Expect: 100-continue", which the client holds back until told to continue. The interim
+ * response is sent on the first read, so that a handler rejecting the request from its head alone (authentication,
+ * preconditions, conflicts) answers before any of the body is sent.
+ */
+class ContinuingReadableByteChannel implements ReadableByteChannel {
+    private final ReadableByteChannel body;
+    private final WritableByteChannel out;
+    private boolean continued;
+
+    ContinuingReadableByteChannel(ReadableByteChannel body, WritableByteChannel out) {
+        this.body = body;
+        this.out = out;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (!continued) {
+            continued = true;
+            ResponseComposer.compose(out, new Response(Status.CONTINUE, ""));
+        }
+        return body.read(dst);
+    }
+
+    boolean continued() {
+        return continued;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return body.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        body.close();
+    }
+}
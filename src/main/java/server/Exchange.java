@@ -0,0 +1,174 @@
+package server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.data.Body;
+import server.data.Header;
+import server.data.Request;
+import server.data.Response;
+import server.data.Status;
+import server.metrics.Metrics;
+import server.util.BufferPool;
+import server.util.Maps;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+class Exchange {
+    private static final Logger logger = LoggerFactory.getLogger(Exchange.class);
+    private static final String HTTP_1_0 = "HTTP/1.0";
+    private static final String CLOSE = "close";
+    private static final String KEEP_ALIVE = "keep-alive";
+    private static final String CHUNKED = "chunked";
+    private static final int DRAIN_LIMIT = 64 * 1024;
+    private static final int DRAIN_BUFFER_SIZE = 1024;
+    private static final int EOS = -1;
+
+    // Returns whether the connection can be reused for a subsequent request
+    static boolean handle(Handler handler, ConnectionInputStream in, WritableByteChannel out, boolean reusable,
+                          AccessLog accessLog, Metrics metrics) {
+        Request request = null;
+        long start = System.nanoTime();
+        try {
+            request = RequestParser.parse(in);
+            long parsed = System.nanoTime();
+            metrics.parseTime.record(parsed - start);
+            return respond(handler, request, out, reusable, accessLog, metrics, parsed);
+        } catch (Exception e) {
+            return fail(e, request, out, accessLog, metrics, start);
+        }
+    }
+
+    // Handles the request head already parsed by the given parser, reading any body from the input stream
+    static boolean handle(Handler handler, IncrementalRequestParser parser, ConnectionInputStream in,
+                          WritableByteChannel out, boolean reusable, AccessLog accessLog, Metrics metrics) {
+        Request request = null;
+        long start = System.nanoTime();
+        try {
+            request = parser.request();
+            metrics.parseTime.record(parser.parseNanos());
+            request.body = RequestParser.bodyOf(in, request.headers);
+            return respond(handler, request, out, reusable, accessLog, metrics, start);
+        } catch (Exception e) {
+            return fail(e, request, out, accessLog, metrics, start);
+        }
+    }
+
+    private static boolean respond(Handler handler, Request request, WritableByteChannel out, boolean reusable,
+                                   AccessLog accessLog, Metrics metrics, long start) {
+        ContinuingReadableByteChannel continuing = null;
+        if (!HTTP_1_0.equals(request.version) && RequestParser.expectsContinue(request.headers))
+            request.body = continuing = new ContinuingReadableByteChannel(request.body, out);
+        Response response = withTransferEncoding(handler.handle(request), request);
+        // A body the client was never told to send will not follow, or arrives unasked for, so the connection is closed
+        boolean keepAlive = reusable && isPersistent(request, response) && (continuing == null || continuing.continued());
+        compose(out, withConnection(response, request, keepAlive), request, accessLog, metrics, start);
+        return keepAlive && drain(request.body);
+    }
+
+    private static boolean fail(Exception error, Request request, WritableByteChannel out, AccessLog accessLog,
+                                Metrics metrics, long start) {
+        Response response;
+        if (error instanceof RequestParser.ParseException || error instanceof LineReader.InvalidLineException) {
+            response = closing(Status.BAD_REQUEST, error.getMessage() + System.lineSeparator());
+        } else if (error instanceof RequestParser.InvalidMethodException
+                || error instanceof RequestParser.UnsupportedTransferCoding) {
+            response = closing(Status.NOT_IMPLEMENTED, error.getMessage() + System.lineSeparator());
+        } else if (error instanceof RequestParser.UnsupportedExpectation) {
+            response = closing(Status.EXPECTATION_FAILED, error.getMessage() + System.lineSeparator());
+        } else if (error instanceof SocketTimeoutException) {
+            response = closing(Status.REQUEST_TIMEOUT, "Request timeout" + System.lineSeparator());
+        } else if (error instanceof ResponseComposer.ComposeException) {
+            throw (ResponseComposer.ComposeException) error; // Unable to compose, hence unable to send error response
+        } else {
+            logger.error("Error while handling connection.", error);
+            response = closing(Status.INTERNAL_SERVER_ERROR, "");
+        }
+        compose(out, response, request, accessLog, metrics, start);
+        return false;
+    }
+
+    // Records the body bytes actually written, including those written before a failure when they are known
+    private static void compose(WritableByteChannel out, Response response, Request request, AccessLog accessLog,
+                                Metrics metrics, long start) {
+        long bytes = Body.UNKNOWN_LENGTH;
+        long writeStart = System.nanoTime();
+        try {
+            bytes = ResponseComposer.compose(out, response);
+        } catch (ResponseComposer.ComposeException e) {
+            bytes = e.bodyBytes;
+            throw e;
+        } finally {
+            metrics.writeTime.record(System.nanoTime() - writeStart);
+            if (bytes > 0) metrics.responseBytes.add(bytes);
+            metrics.responded(response.status);
+            accessLog.record(request, response.status, bytes, start);
+        }
+    }
+
+    private static boolean isPersistent(Request request, Response response) {
+        String requested = request.headers.getOrDefault(Header.CONNECTION, "");
+        boolean keepAliveRequested = HTTP_1_0.equals(request.version)
+                ? hasToken(requested, KEEP_ALIVE)
+                : !hasToken(requested, CLOSE);
+        Object responded = response.headers.getOrDefault(Header.CONNECTION, "");
+        return keepAliveRequested
+                && !hasToken(responded.toString(), CLOSE)
+                && RequestParser.isDelimited(request.headers)
+                && ResponseComposer.isDelimited(response);
+    }
+
+    private static boolean hasToken(String value, String token) {
+        for (String t : value.split(","))
+            if (t.trim().equalsIgnoreCase(token)) return true;
+        return false;
+    }
+
+    private static Response withConnection(Response response, Request request, boolean keepAlive) {
+        String connection;
+        if (!keepAlive) connection = CLOSE;
+        else if (HTTP_1_0.equals(request.version)) connection = KEEP_ALIVE;
+        else return response;
+
+        Map<String, Object> headers = new LinkedHashMap<>(response.headers);
+        headers.put(Header.CONNECTION, connection);
+        return new Response(response.status, headers, response.body);
+    }
+
+    // Bodies of unknown length are sent chunked to HTTP/1.1 clients, instead of being ended by closing the connection
+    private static Response withTransferEncoding(Response response, Request request) {
+        if (HTTP_1_0.equals(request.version) || ResponseComposer.isDelimited(response)) return response;
+
+        Map<String, Object> headers = new LinkedHashMap<>(response.headers);
+        headers.put(Header.TRANSFER_ENCODING, CHUNKED);
+        return new Response(response.status, headers, response.body);
+    }
+
+    private static Response closing(Status status, String body) {
+        return new Response(status, Maps.of(Header.CONNECTION, CLOSE), body);
+    }
+
+    private static boolean drain(ReadableByteChannel body) {
+        ByteBuffer buffer = BufferPool.shared().acquire(DRAIN_BUFFER_SIZE);
+        long drained = 0;
+        try {
+            int bytesRead;
+            while ((bytesRead = body.read(buffer)) != EOS) {
+                drained += bytesRead;
+                if (drained > DRAIN_LIMIT) return false;
+                buffer.clear();
+            }
+            return true;
+        } catch (IOException | RequestParser.ParseException e) {
+            logger.debug("Unable to drain request body.", e);
+            return false;
+        } finally {
+            BufferPool.shared().release(buffer);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package server;
+
+import server.util.VirtualThreads;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+enum ExecutorMode {
+    PLATFORM,
+    VIRTUAL;
+
+    static ExecutorMode parse(String mode) {
+        return valueOf(mode.toUpperCase(Locale.ROOT));
+    }
+
+    ExecutorService newExecutor(int numPlatformThreads) {
+        if (this == VIRTUAL)
+            return VirtualThreads.newThreadPerTaskExecutor();
+        else
+            return Executors.newFixedThreadPool(numPlatformThreads);
+    }
+}
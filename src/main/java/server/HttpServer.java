@@ -2,18 +2,16 @@ package server;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import server.data.Request;
-import server.data.Response;
-import server.data.Status;
+import server.metrics.Metrics;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
-import java.nio.charset.StandardCharsets;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.time.Duration;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -26,46 +24,84 @@ public class HttpServer {
     private static final int SHUTDOWN_TIMEOUT = 30;
     private static final int SHUTDOWN_NOW_TIMEOUT = 30;
     private static final Duration DEFAULT_ACCEPT_INTERVAL = Duration.ofMillis(500);
+    private static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofSeconds(5);
+    private static final int DEFAULT_MAX_REQUESTS = 100;
 
     private final int port;
     private final Handler handler;
     private final ExecutorService executor;
     private final Duration soTimeout;
     private final Duration acceptInterval;
+    private final Duration idleTimeout;
+    private final int maxRequests;
+    private final AccessLog accessLog;
+    private final Metrics metrics;
     private final Thread serverThread;
+    private ServerSocket serverSocket;
 
     public HttpServer(int port, Handler handler, int numThreads, Duration soTimeout) {
-        this(port, handler, Executors.newFixedThreadPool(numThreads), soTimeout, DEFAULT_ACCEPT_INTERVAL);
+        this(port, handler, Executors.newFixedThreadPool(numThreads), soTimeout);
+    }
+
+    public HttpServer(int port, Handler handler, ExecutorService executor, Duration soTimeout) {
+        this(port, handler, executor, soTimeout, DEFAULT_ACCEPT_INTERVAL);
+    }
+
+    public HttpServer(int port, Handler handler, ExecutorService executor, Duration soTimeout, AccessLog accessLog,
+                      Metrics metrics) {
+        this(port, handler, executor, soTimeout, DEFAULT_ACCEPT_INTERVAL, DEFAULT_IDLE_TIMEOUT, DEFAULT_MAX_REQUESTS,
+                accessLog, metrics);
     }
 
     public HttpServer(int port, Handler handler, ExecutorService executor, Duration soTimeout, Duration acceptInterval) {
+        this(port, handler, executor, soTimeout, acceptInterval, DEFAULT_IDLE_TIMEOUT, DEFAULT_MAX_REQUESTS);
+    }
+
+    public HttpServer(int port, Handler handler, ExecutorService executor, Duration soTimeout, Duration acceptInterval,
+                      Duration idleTimeout, int maxRequests) {
+        this(port, handler, executor, soTimeout, acceptInterval, idleTimeout, maxRequests, AccessLog.disabled(), new Metrics());
+    }
+
+    public HttpServer(int port, Handler handler, ExecutorService executor, Duration soTimeout, Duration acceptInterval,
+                      Duration idleTimeout, int maxRequests, AccessLog accessLog, Metrics metrics) {
         this.port = port;
         this.handler = handler;
         this.executor = executor;
         this.soTimeout = soTimeout;
         this.acceptInterval = acceptInterval;
+        this.idleTimeout = idleTimeout;
+        this.maxRequests = maxRequests;
+        this.accessLog = accessLog;
+        this.metrics = metrics;
         this.serverThread = new Thread(this::serverMain, SERVER_THREAD_NAME);
         this.serverThread.setUncaughtExceptionHandler((t, e) -> logger.error("Unhandled exception.", e));
     }
 
     public void start() {
+        try {
+            serverSocket = newServerSocket(port, acceptInterval);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open server socket.", e);
+        }
         serverThread.start();
     }
 
     private void serverMain() {
-        try (ServerSocket serverSocket = newServerSocket(port, acceptInterval)) {
+        try (ServerSocket serverSocket = this.serverSocket) {
             while (!executor.isShutdown()) {
                 waitOrHandleConnection(serverSocket);
             }
         } catch (IOException e) {
-            logger.error("Unable to open server socket or accept connection.", e);
+            logger.error("Unable to accept connection.", e);
         } catch (RejectedExecutionException e) {
             logger.info("Rejecting last connection, server is stopping.", e);
         }
     }
 
+    // Opened through a channel so that accepted sockets have channels to transfer file bodies to
     private ServerSocket newServerSocket(int port, Duration acceptInterval) throws IOException {
-        ServerSocket serverSocket = new ServerSocket(port);
+        ServerSocket serverSocket = ServerSocketChannel.open().socket();
+        serverSocket.bind(new InetSocketAddress(port));
         serverSocket.setSoTimeout((int) acceptInterval.toMillis());
         return serverSocket;
     }
@@ -74,37 +110,36 @@ public class HttpServer {
         try {
             Socket clientSocket = serverSocket.accept();
             clientSocket.setSoTimeout((int) soTimeout.toMillis());
+            // Chunks of a streamed body follow the head in separate writes, which Nagle's algorithm would hold back
+            clientSocket.setTcpNoDelay(true);
             executor.submit(() -> handle(clientSocket));
         } catch (SocketTimeoutException ignore) {
         }
     }
 
     private void handle(Socket clientSocket) {
+        metrics.activeConnections.increment();
         try (Socket socket = clientSocket;
-             InputStream in = new BufferedInputStream(socket.getInputStream());
-             PrintStream out = new PrintStream(socket.getOutputStream(), false, StandardCharsets.UTF_8.name())) {
-            handleConnection(in, out);
+             ConnectionInputStream in = new ConnectionInputStream(socket.getInputStream())) {
+            SocketChannel out = socket.getChannel();
+            int requests = 0;
+            while (Exchange.handle(handler, in, out, ++requests < maxRequests && !executor.isShutdown(), accessLog, metrics)
+                    && awaitRequest(socket, in)) {
+                socket.setSoTimeout((int) soTimeout.toMillis());
+            }
         } catch (Exception e) {
             logger.error("Unable to complete error handling of connection.", e);
+        } finally {
+            metrics.activeConnections.decrement();
         }
     }
 
-    private void handleConnection(InputStream in, PrintStream out) {
+    private boolean awaitRequest(Socket socket, ConnectionInputStream in) throws IOException {
+        socket.setSoTimeout((int) idleTimeout.toMillis());
         try {
-            Request request = RequestParser.parse(in);
-            Response response = handler.handle(request);
-            ResponseComposer.compose(out, response);
-        } catch (RequestParser.ParseException | LineReader.InvalidLineException e) {
-            ResponseComposer.compose(out, new Response(Status.BAD_REQUEST, e.getMessage() + System.lineSeparator()));
-        } catch (RequestParser.InvalidMethodException e) {
-            ResponseComposer.compose(out, new Response(Status.NOT_IMPLEMENTED, e.getMessage() + System.lineSeparator()));
+            return in.awaitData();
         } catch (SocketTimeoutException e) {
-            ResponseComposer.compose(out, new Response(Status.REQUEST_TIMEOUT, "Request timeout" + System.lineSeparator()));
-        } catch (ResponseComposer.ComposeException e) {
-            throw e; // Unable to compose, hence unable to send error response
-        } catch (Exception e) {
-            logger.error("Error while handling connection.", e);
-            ResponseComposer.compose(out, new Response(Status.INTERNAL_SERVER_ERROR, ""));
+            return false;
         }
     }
 
@@ -0,0 +1,114 @@
+package server;
+
+import server.data.Request;
+
+import java.nio.ByteBuffer;
+
+/*
+ * Parses a request head from arbitrary buffer fragments, keeping partial progress between calls. Head bytes are copied
+ * into a buffer owned by the parser that grows up to a fixed limit, and bytes following the head are left unconsumed
+ * in the fragment so that the caller can read the body from there. The parse time spans from the first byte of the head
+ * to its end, including any wait for the fragments in between, as on the blocking transport.
+ */
+class IncrementalRequestParser {
+    private static final int INITIAL_HEAD_SIZE = 512;
+
+    private final int maxHeadSize;
+    private final RequestHeadParser headParser = new RequestHeadParser();
+    private ByteBuffer head;
+    private Result result;
+    private RuntimeException error;
+    private boolean started;
+    private long startNanos;
+    private long parseNanos;
+
+    IncrementalRequestParser(int maxHeadSize) {
+        if (maxHeadSize < 1) throw new IllegalArgumentException("Maximum head size should be positive");
+        this.maxHeadSize = maxHeadSize;
+        reset();
+    }
+
+    void reset() {
+        headParser.reset();
+        if (head != null && head.capacity() > INITIAL_HEAD_SIZE) head = null;
+        if (head != null) head.clear().limit(0);
+        result = Result.NEED_MORE;
+        error = null;
+        started = false;
+    }
+
+    // Consumes head bytes from the fragment, leaving its position at the first byte after the head once complete
+    Result feed(ByteBuffer fragment) {
+        if (result != Result.NEED_MORE) return result;
+        if (!started && fragment.hasRemaining()) {
+            started = true;
+            startNanos = System.nanoTime();
+        }
+        try {
+            while (fragment.hasRemaining()) {
+                int copied = copy(fragment);
+                if (headParser.parse(head)) {
+                    int surplus = head.remaining() - headParser.length();
+                    fragment.position(fragment.position() - surplus);
+                    head.limit(headParser.length());
+                    parseNanos = System.nanoTime() - startNanos;
+                    return result = Result.COMPLETE;
+                }
+                if (copied == 0)
+                    throw new RequestParser.ParseException("Malformed request: request head exceeds " + maxHeadSize + " bytes");
+            }
+        } catch (RequestParser.ParseException | RequestParser.InvalidMethodException | LineReader.InvalidLineException e) {
+            error = e;
+            return result = Result.ERROR;
+        }
+        return result;
+    }
+
+    // Marks the head as truncated by the end of the stream
+    Result endOfStream() {
+        if (result != Result.NEED_MORE) return result;
+        error = headParser.endOfStream();
+        return result = Result.ERROR;
+    }
+
+    Result result() {
+        return result;
+    }
+
+    // Nanoseconds from the first byte of the head to its end, once complete
+    long parseNanos() {
+        return parseNanos;
+    }
+
+    boolean hasPartialInput() {
+        return result == Result.NEED_MORE && head != null && head.hasRemaining();
+    }
+
+    // The parsed request without a body, or the parse error when the head could not be parsed
+    Request request() {
+        if (result == Result.ERROR) throw error;
+        if (result != Result.COMPLETE) throw new IllegalStateException("Request head is incomplete");
+        return headParser.toRequest();
+    }
+
+    private int copy(ByteBuffer fragment) {
+        if (head == null) head = (ByteBuffer) ByteBuffer.allocate(Math.min(INITIAL_HEAD_SIZE, maxHeadSize)).limit(0);
+        if (head.limit() == head.capacity() && head.capacity() < maxHeadSize) grow();
+
+        int length = Math.min(fragment.remaining(), head.capacity() - head.limit());
+        fragment.get(head.array(), head.arrayOffset() + head.limit(), length);
+        head.limit(head.limit() + length);
+        return length;
+    }
+
+    private void grow() {
+        ByteBuffer grown = ByteBuffer.allocate(Math.min(head.capacity() * 2, maxHeadSize));
+        grown.put(head);
+        grown.flip();
+        head = grown;
+    }
+
+    enum Result {
+        NEED_MORE, COMPLETE, ERROR
+    }
+}
@@ -1,5 +1,7 @@
 package server;
 
+import server.util.BufferPool;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
@@ -16,19 +18,23 @@ public class LineReader {
     private static final Set<Integer> LINE_TERMINATORS = Stream.of(CR, LF).collect(Collectors.toSet());
 
     public static String readLine(InputStream in) throws IOException {
-        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
-        int curr;
-        while ((curr = in.read()) != EOS && !LINE_TERMINATORS.contains(curr)) {
-            buffer.put((byte) curr);
+        ByteBuffer buffer = BufferPool.shared().acquire(BUFFER_SIZE);
+        try {
+            int curr;
+            while ((curr = in.read()) != EOS && !LINE_TERMINATORS.contains(curr)) {
+                buffer.put((byte) curr);
+            }
+            if (curr == CR)
+                return validHttpLine(in, buffer);
+            else if (curr == LF)
+                throw new InvalidLineException("Invalid line terminator, expecting <CR><LF> but got: <LF>");
+            else if (buffer.position() > 0)
+                throw new InvalidLineException("Missing line terminator before end of stream: " + stringOf(buffer));
+            else
+                return null;
+        } finally {
+            BufferPool.shared().release(buffer);
         }
-        if (curr == CR)
-            return validHttpLine(in, buffer);
-        else if (curr == LF)
-            throw new InvalidLineException("Invalid line terminator, expecting <CR><LF> but got: <LF>");
-        else if (buffer.position() > 0)
-            throw new InvalidLineException("Missing line terminator before end of stream: " + stringOf(buffer));
-        else
-            return null;
     }
 
     private static String validHttpLine(InputStream in, ByteBuffer buffer) throws IOException {
@@ -0,0 +1,88 @@
+package server;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Read-only header map over the raw bytes of a request head; names are matched byte for byte against the head and
+ * values are only decoded when looked up, so headers a handler never reads are never turned into strings.
+ */
+class RawHeaders extends AbstractMap<String, String> {
+    static final int OFFSETS_PER_HEADER = 4;
+    private static final int NONE = -1;
+
+    private final byte[] head;
+    private final int[] offsets;
+    private final int count;
+    private final String[] values;
+    private Set<Entry<String, String>> entries;
+
+    RawHeaders(byte[] head, int[] offsets, int count) {
+        this.head = head;
+        this.offsets = offsets;
+        this.count = count;
+        this.values = new String[count];
+    }
+
+    @Override
+    public String get(Object key) {
+        int i = indexOf(key);
+        return i == NONE ? null : value(i);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) != NONE;
+    }
+
+    @Override
+    public String getOrDefault(Object key, String defaultValue) {
+        int i = indexOf(key);
+        return i == NONE ? defaultValue : value(i);
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        if (entries == null) {
+            Map<String, String> headers = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) headers.put(name(i), value(i));
+            entries = Collections.unmodifiableMap(headers).entrySet();
+        }
+        return entries;
+    }
+
+    // Last occurrence wins, as with the line based parser
+    private int indexOf(Object key) {
+        if (!(key instanceof String)) return NONE;
+        String name = (String) key;
+        for (int i = count - 1; i >= 0; i--)
+            if (nameEquals(i, name)) return i;
+        return NONE;
+    }
+
+    private boolean nameEquals(int i, String name) {
+        int start = offsets[i * OFFSETS_PER_HEADER];
+        int end = offsets[i * OFFSETS_PER_HEADER + 1];
+        if (end - start != name.length()) return false;
+        for (int j = 0; j < name.length(); j++)
+            if ((head[start + j] & 0xff) != name.charAt(j)) return false;
+        return true;
+    }
+
+    private String name(int i) {
+        return string(offsets[i * OFFSETS_PER_HEADER], offsets[i * OFFSETS_PER_HEADER + 1]);
+    }
+
+    private String value(int i) {
+        if (values[i] == null) values[i] = string(offsets[i * OFFSETS_PER_HEADER + 2], offsets[i * OFFSETS_PER_HEADER + 3]);
+        return values[i];
+    }
+
+    private String string(int start, int end) {
+        return new String(head, start, end - start, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,258 @@
+package server;
+
+import server.data.Method;
+import server.data.Request;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+ * Scans a request head in place within a heap buffer, recording offsets relative to the buffer position rather than
+ * building lines, so the buffer may be compacted between calls as long as its position stays at the start of the head.
+ */
+class RequestHeadParser {
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final byte SP = ' ';
+    private static final byte COLON = ':';
+    private static final byte QUERY = '?';
+    private static final byte SLASH = '/';
+    private static final String HTTP_1_1 = "HTTP/1.1";
+    private static final String HTTP_1_0 = "HTTP/1.0";
+    private static final Method[] METHODS = Method.values();
+    private static final byte[][] METHOD_NAMES = new byte[METHODS.length][];
+    private static final boolean[] PLAIN_TARGET_CHARS = new boolean[128];
+    private static final int INITIAL_HEADERS = 16;
+    private static final int NONE = -1;
+
+    static {
+        for (Method method : METHODS) METHOD_NAMES[method.ordinal()] = method.name().getBytes(StandardCharsets.US_ASCII);
+        for (char c : "-._~!$&'()*+,;=:@/?".toCharArray()) PLAIN_TARGET_CHARS[c] = true;
+        for (char c = 'a'; c <= 'z'; c++) PLAIN_TARGET_CHARS[c] = true;
+        for (char c = 'A'; c <= 'Z'; c++) PLAIN_TARGET_CHARS[c] = true;
+        for (char c = '0'; c <= '9'; c++) PLAIN_TARGET_CHARS[c] = true;
+    }
+
+    private ByteBuffer buffer;
+    private int scanned;
+    private int lineStart;
+    private Method method;
+    private int requestLineStart;
+    private int targetStart;
+    private int targetEnd;
+    private int versionStart;
+    private int versionEnd;
+    private int[] headerOffsets = new int[INITIAL_HEADERS * RawHeaders.OFFSETS_PER_HEADER];
+    private int headerCount;
+    private int length;
+
+    RequestHeadParser() {
+        reset();
+    }
+
+    void reset() {
+        buffer = null;
+        scanned = 0;
+        lineStart = 0;
+        method = null;
+        requestLineStart = targetStart = targetEnd = versionStart = versionEnd = NONE;
+        headerCount = 0;
+        length = NONE;
+    }
+
+    // Scans bytes not yet seen; returns true once the blank line ending the head has been scanned
+    boolean parse(ByteBuffer buffer) {
+        if (isComplete()) return true;
+        this.buffer = buffer;
+        byte[] array = buffer.array();
+        int base = base();
+        int remaining = buffer.remaining();
+        while (scanned < remaining) {
+            byte b = array[base + scanned];
+            if (b == LF) throw new LineReader.InvalidLineException("Invalid line terminator, expecting <CR><LF> but got: <LF>");
+            if (b != CR) {
+                scanned++;
+                continue;
+            }
+            if (scanned + 1 == remaining) return false;
+            byte next = array[base + scanned + 1];
+            if (next != LF)
+                throw new LineReader.InvalidLineException("Invalid line terminator, expecting <CR><LF> but got: <CR><" + (next & 0xff) + ">");
+            int lineEnd = scanned;
+            scanned += 2;
+            if (endsHead(lineStart, lineEnd)) {
+                length = scanned;
+                return true;
+            }
+            lineStart = scanned;
+        }
+        return false;
+    }
+
+    boolean isComplete() {
+        return length != NONE;
+    }
+
+    // Number of bytes from the buffer position up to and including the blank line
+    int length() {
+        return length;
+    }
+
+    Method method() {
+        return method;
+    }
+
+    String target() {
+        return string(targetStart, targetEnd);
+    }
+
+    String version() {
+        if (versionStart == NONE) return null;
+        if (regionEquals(versionStart, versionEnd, HTTP_1_1)) return HTTP_1_1;
+        if (regionEquals(versionStart, versionEnd, HTTP_1_0)) return HTTP_1_0;
+        return string(versionStart, versionEnd);
+    }
+
+    String requestLine() {
+        return string(requestLineStart, versionEnd == NONE ? targetEnd : versionEnd);
+    }
+
+    int headerCount() {
+        return headerCount;
+    }
+
+    String headerName(int i) {
+        return string(headerOffsets[i * RawHeaders.OFFSETS_PER_HEADER], headerOffsets[i * RawHeaders.OFFSETS_PER_HEADER + 1]);
+    }
+
+    String headerValue(int i) {
+        return string(headerOffsets[i * RawHeaders.OFFSETS_PER_HEADER + 2], headerOffsets[i * RawHeaders.OFFSETS_PER_HEADER + 3]);
+    }
+
+    // Materialises the parsed head; must be called before the buffer position moves past the head
+    Request toRequest() {
+        if (!isComplete()) throw new IllegalStateException("Request head is incomplete");
+        Request request = requestOf(method);
+        request.version = version();
+        byte[] head = Arrays.copyOfRange(buffer.array(), base(), base() + length);
+        int[] offsets = Arrays.copyOf(headerOffsets, headerCount * RawHeaders.OFFSETS_PER_HEADER);
+        request.headers = new RawHeaders(head, offsets, headerCount);
+        return request;
+    }
+
+    // Error to raise when the stream ends before the head is complete
+    RuntimeException endOfStream() {
+        if (buffer == null || (method == null && lineStart == buffer.remaining()))
+            return new RequestParser.ParseException("Malformed request: missing request line");
+        if (lineStart < buffer.remaining())
+            return new LineReader.InvalidLineException("Missing line terminator before end of stream: " + string(lineStart, buffer.remaining()));
+        return new RequestParser.ParseException("Malformed request: missing blank line after header(s)");
+    }
+
+    private int base() {
+        return buffer.arrayOffset() + buffer.position();
+    }
+
+    private boolean endsHead(int start, int end) {
+        if (method == null) {
+            if (start != end) parseRequestLine(start, end);
+            return false;
+        }
+        if (start == end) return true;
+        parseHeader(start, end);
+        return false;
+    }
+
+    private void parseRequestLine(int start, int end) {
+        requestLineStart = start;
+        int methodEnd = indexOf(SP, start, end);
+        method = parseMethod(start, methodEnd == NONE ? end : methodEnd);
+        if (methodEnd == NONE) throw new RequestParser.ParseException("Malformed request: missing request target");
+        targetStart = methodEnd + 1;
+        targetEnd = indexOf(SP, targetStart, end);
+        if (targetEnd == NONE) {
+            targetEnd = end;
+        } else {
+            versionStart = targetEnd + 1;
+            versionEnd = end;
+        }
+    }
+
+    private Method parseMethod(int start, int end) {
+        for (Method m : METHODS)
+            if (regionEquals(start, end, METHOD_NAMES[m.ordinal()])) return m;
+        throw new RequestParser.InvalidMethodException("Invalid method: " + string(start, end));
+    }
+
+    private void parseHeader(int start, int end) {
+        int colon = indexOf(COLON, start, end);
+        if (colon == NONE) throw new RequestParser.ParseException("Invalid header: " + string(start, end));
+        int valueStart = colon + 1;
+        int valueEnd = end;
+        byte[] array = buffer.array();
+        int base = base();
+        while (valueStart < valueEnd && (array[base + valueStart] & 0xff) <= SP) valueStart++;
+        while (valueEnd > valueStart && (array[base + valueEnd - 1] & 0xff) <= SP) valueEnd--;
+
+        int i = headerCount * RawHeaders.OFFSETS_PER_HEADER;
+        if (i == headerOffsets.length) headerOffsets = Arrays.copyOf(headerOffsets, headerOffsets.length * 2);
+        headerOffsets[i] = start;
+        headerOffsets[i + 1] = colon;
+        headerOffsets[i + 2] = valueStart;
+        headerOffsets[i + 3] = valueEnd;
+        headerCount++;
+    }
+
+    private Request requestOf(Method method) {
+        byte[] array = buffer.array();
+        int base = base();
+        int query = NONE;
+        boolean plain = targetEnd > targetStart && array[base + targetStart] == SLASH
+                && (targetEnd - targetStart == 1 || array[base + targetStart + 1] != SLASH);
+        for (int i = targetStart; plain && i < targetEnd; i++) {
+            int c = array[base + i] & 0xff;
+            plain = c < PLAIN_TARGET_CHARS.length && PLAIN_TARGET_CHARS[c];
+            if (c == QUERY && query == NONE) query = i;
+        }
+        if (!plain) return RequestParser.requestOf(method, target());
+
+        String path = asciiString(targetStart, query == NONE ? targetEnd : query);
+        String rawQuery = query == NONE ? null : asciiString(query + 1, targetEnd);
+        return new Request(method, path, rawQuery);
+    }
+
+    private int indexOf(byte b, int start, int end) {
+        byte[] array = buffer.array();
+        int base = base();
+        for (int i = start; i < end; i++)
+            if (array[base + i] == b) return i;
+        return NONE;
+    }
+
+    private boolean regionEquals(int start, int end, byte[] bytes) {
+        if (end - start != bytes.length) return false;
+        byte[] array = buffer.array();
+        int base = base();
+        for (int i = 0; i < bytes.length; i++)
+            if (array[base + start + i] != bytes[i]) return false;
+        return true;
+    }
+
+    private boolean regionEquals(int start, int end, String ascii) {
+        if (end - start != ascii.length()) return false;
+        byte[] array = buffer.array();
+        int base = base();
+        for (int i = 0; i < ascii.length(); i++)
+            if (array[base + start + i] != ascii.charAt(i)) return false;
+        return true;
+    }
+
+    private String string(int start, int end) {
+        return new String(buffer.array(), base() + start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private String asciiString(int start, int end) {
+        return new String(buffer.array(), base() + start, end - start, StandardCharsets.ISO_8859_1);
+    }
+}
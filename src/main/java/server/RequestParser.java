@@ -1,34 +1,99 @@
 package server;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import server.data.Header;
 import server.data.Method;
 import server.data.Request;
+import server.util.ByteChannels;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.util.HashMap;
 import java.util.Map;
 
 public class RequestParser {
-    private static final Logger logger = LoggerFactory.getLogger(RequestParser.class);
+    private static final int EOS = -1;
+    private static final String CHUNKED = "chunked";
+    private static final String CONTINUE = "100-continue";
 
     static Request parse(InputStream in) throws IOException {
         Request request = parseRequestLine(LineReader.readLine(in));
         request.headers = parseHeaders(in);
-        request.body = Channels.newChannel(in);
+        request.body = bodyOf(in, request.headers);
         return request;
     }
 
+    static Request parse(ConnectionInputStream in) throws IOException {
+        RequestHeadParser parser = in.headParser();
+        parser.reset();
+        while (!parser.parse(in.buffer())) {
+            if (in.buffer().remaining() == in.buffer().capacity())
+                throw new ParseException("Malformed request: request head exceeds " + in.buffer().capacity() + " bytes");
+            if (in.fillMore() == EOS) throw parser.endOfStream();
+        }
+        Request request = parser.toRequest();
+        in.skipBuffered(parser.length());
+        request.body = bodyOf(in, request.headers);
+        return request;
+    }
+
+    static ReadableByteChannel bodyOf(InputStream in, Map<String, String> headers) {
+        if (isChunked(headers)) return new ChunkedReadableByteChannel(in);
+        ReadableByteChannel body = Channels.newChannel(in);
+        long contentLength = contentLengthOf(headers);
+        return contentLength < 0 ? body : ByteChannels.limit(body, contentLength);
+    }
+
+    // Chunked is the only transfer coding understood, and has to be the only one applied
+    static boolean isChunked(Map<String, String> headers) {
+        String transferEncoding = headers.get(Header.TRANSFER_ENCODING);
+        if (transferEncoding == null) return false;
+        if (!transferEncoding.trim().equalsIgnoreCase(CHUNKED))
+            throw new UnsupportedTransferCoding("Unsupported transfer coding: " + transferEncoding);
+        return true;
+    }
+
+    // Whether the end of the body can be found without the connection being closed
+    static boolean isDelimited(Map<String, String> headers) {
+        if (headers.containsKey(Header.TRANSFER_ENCODING))
+            // Along with Content-Length, the message may be framed differently by an intermediary, so it is not reused
+            return !headers.containsKey(Header.CONTENT_LENGTH) && isChunked(headers);
+        return contentLengthOf(headers) >= 0;
+    }
+
+    // Only worth an interim response when there is a body to hold back; any other expectation cannot be met
+    static boolean expectsContinue(Map<String, String> headers) {
+        String expectation = headers.get(Header.EXPECT);
+        if (expectation == null) return false;
+        if (!expectation.trim().equalsIgnoreCase(CONTINUE))
+            throw new UnsupportedExpectation("Unsupported expectation: " + expectation);
+        return isChunked(headers) || contentLengthOf(headers) > 0;
+    }
+
+    // Returns -1 when the body is not delimited by a valid Content-Length
+    static long contentLengthOf(Map<String, String> headers) {
+        if (headers.containsKey(Header.TRANSFER_ENCODING)) return -1;
+        try {
+            return Math.max(Long.parseLong(headers.getOrDefault(Header.CONTENT_LENGTH, "0")), -1);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     private static Request parseRequestLine(String line) {
-        logger.info("[Request] '{}'", line);
         if (line == null) throw new ParseException("Malformed request: missing request line");
         String[] tokens = line.split(" ");
         Method method = parseMethod(tokens[0]);
-        URI target = parseTarget(tokens[1]);
+        Request request = requestOf(method, tokens[1]);
+        if (tokens.length > 2) request.version = tokens[2];
+        return request;
+    }
+
+    static Request requestOf(Method method, String targetToken) {
+        URI target = parseTarget(targetToken);
         return new Request(method, target.getPath(), target.getRawQuery());
     }
 
@@ -66,6 +131,18 @@ public class RequestParser {
         }
     }
 
+    public static class UnsupportedTransferCoding extends RuntimeException {
+        public UnsupportedTransferCoding(String message) {
+            super(message);
+        }
+    }
+
+    public static class UnsupportedExpectation extends RuntimeException {
+        public UnsupportedExpectation(String message) {
+            super(message);
+        }
+    }
+
     public static class InvalidMethodException extends RuntimeException {
         public InvalidMethodException(String message) {
             super(message);
@@ -1,85 +1,205 @@
 package server;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import server.data.Body;
+import server.data.Header;
 import server.data.Response;
+import server.data.Status;
+import server.util.BufferPool;
 
 import java.io.IOException;
 import java.io.PrintStream;
-import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.Channels;
-import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.WritableByteChannel;
-import java.util.Map;
 
 public class ResponseComposer {
-    private static final Logger logger = LoggerFactory.getLogger(ResponseComposer.class);
+    private static final String CHUNKED = "chunked";
+    private static final ThreadLocal<ResponseHeadEncoder> headEncoder = ThreadLocal.withInitial(ResponseHeadEncoder::new);
 
     static void compose(PrintStream out, Response response) {
-        try {
-            writeStatusLine(out, response);
-            writeHeaders(out, response);
-            out.print("\r\n");
-            writeBody(out, response);
-            out.flush();
+        compose(new PrintStreamChannel(out), response);
+    }
+
+    // Returns the number of body bytes written, which excludes the head and the framing of chunks
+    static long compose(WritableByteChannel channel, Response response) {
+        ChunkedWritableByteChannel chunked = null;
+        CountingChannel counting = null;
+        try (Body body = response.body) {
+            ByteBuffer head = headEncoder.get().encode(response, automaticContentLength(response));
+            ByteBuffer content = body == null ? null : body.buffer();
+            boolean gathering = channel instanceof GatheringByteChannel;
+            if (body != null && isChunked(response) && permitsBody(response.status)) {
+                write(channel, head);
+                chunked = new ChunkedWritableByteChannel(channel);
+                body.writeTo(chunked);
+                chunked.finish();
+                return chunked.written();
+            } else if (content != null && content.isDirect() && gathering) {
+                write((GatheringByteChannel) channel, head, content);
+            } else if (isSmall(head, body)) {
+                writeTogether(channel, head, body);
+            } else if (content != null && gathering) {
+                write((GatheringByteChannel) channel, head, content);
+            } else if (body != null && body.length() == Body.UNKNOWN_LENGTH) {
+                // Counted on the way through, as only bodies of known length can be transferred without copying
+                write(channel, head);
+                counting = new CountingChannel(channel);
+                body.writeTo(counting);
+                return counting.count;
+            } else {
+                write(channel, head);
+                if (body != null) body.writeTo(channel);
+            }
+            return body == null ? 0 : body.length();
         } catch (Exception e) {
-            throw new ComposeException(e);
+            throw new ComposeException(e, chunked != null ? chunked.written() : counting != null ? counting.count : Body.UNKNOWN_LENGTH);
         }
     }
 
-    private static void writeStatusLine(PrintStream out, Response response) {
-        String statusLine = String.format("HTTP/1.1 %d %s", response.status.code, response.status.reason);
-        logger.info("[Response] '{}'", statusLine);
-        out.print(statusLine + "\r\n");
+    private static long automaticContentLength(Response response) {
+        if (response.headers.containsKey(Header.CONTENT_LENGTH) || isChunked(response) || !permitsBody(response.status)) return -1;
+        return response.body == null ? -1 : response.body.length();
     }
 
-    private static void writeHeaders(PrintStream out, Response response) {
-        for (Map.Entry<String, Object> header : response.headers.entrySet()) {
-            out.printf("%s: %s\r\n", header.getKey(), header.getValue());
-        }
+    private static void write(GatheringByteChannel channel, ByteBuffer head, ByteBuffer content) throws IOException {
+        ByteBuffer[] buffers = {head, content};
+        do {
+            channel.write(buffers);
+        } while (content.hasRemaining());
     }
 
-    private static void writeBody(PrintStream out, Response response) {
-        if (response.body instanceof String) {
-            writeStringBody(out, response.body);
-        } else if (response.body instanceof byte[]) {
-            writeByteArrayBody(out, (byte[]) response.body);
-        } else if (response.body instanceof ReadableByteChannel) {
-            writeReadableByteChannel(out, (ReadableByteChannel) response.body);
+    private static boolean isSmall(ByteBuffer head, Body body) {
+        return body != null && body.length() != Body.UNKNOWN_LENGTH
+                && head.remaining() + body.length() <= BufferPool.MAX_POOLED_SIZE;
+    }
+
+    /*
+     * Copies the body behind the head into a direct buffer, so that the response leaves in a single write without the
+     * JDK copying heap buffers again. Written on its own, the head would be sent at once and the rest held back by
+     * Nagle's algorithm until the client acknowledges the head, which it may delay for tens of milliseconds.
+     */
+    private static void writeTogether(WritableByteChannel channel, ByteBuffer head, Body body) throws IOException {
+        ByteBuffer buffer = BufferPool.shared().acquire(head.remaining() + (int) body.length());
+        try {
+            buffer.put(head);
+            body.writeTo(new BufferChannel(buffer));
+            buffer.flip();
+            write(channel, buffer);
+        } finally {
+            BufferPool.shared().release(buffer);
         }
     }
 
-    private static void writeStringBody(PrintStream out, Object body) {
-        out.printf("%s", body);
+    private static void write(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        do {
+            channel.write(buffer);
+        } while (buffer.hasRemaining());
     }
 
-    private static void writeByteArrayBody(PrintStream out, byte[] body) {
-        try {
-            out.write(body);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+    private static boolean permitsBody(Status status) {
+        return status.code >= 200 && status != Status.NO_CONTENT && status != Status.NOT_MODIFIED;
+    }
+
+    // Whether the client can find the end of the response without the connection being closed
+    static boolean isDelimited(Response response) {
+        return response.headers.containsKey(Header.CONTENT_LENGTH)
+                || isChunked(response)
+                || response.body == null
+                || response.body.length() != Body.UNKNOWN_LENGTH
+                || !permitsBody(response.status);
+    }
+
+    static boolean isChunked(Response response) {
+        Object transferEncoding = response.headers.get(Header.TRANSFER_ENCODING);
+        return transferEncoding != null && transferEncoding.toString().equalsIgnoreCase(CHUNKED);
+    }
+
+    // Writes through PrintStream.write(byte[]), the only write method of a print stream declared to throw I/O errors
+    private static class PrintStreamChannel implements WritableByteChannel {
+        private final PrintStream out;
+
+        PrintStreamChannel(PrintStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            byte[] bytes = new byte[src.remaining()];
+            src.get(bytes);
+            out.write(bytes);
+            out.flush();
+            return bytes.length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            out.close();
         }
     }
 
-    private static void writeReadableByteChannel(PrintStream out, ReadableByteChannel body) {
-        try (ReadableByteChannel rbc = body) {
-            WritableByteChannel wbc = Channels.newChannel(out);
-            ByteBuffer buffer = ByteBuffer.allocate(1024);
-            while (rbc.read(buffer) != -1) {
-                rbc.read(buffer);
-                buffer.flip();
-                wbc.write(buffer);
-                buffer.clear();
-            }
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+    private static class BufferChannel implements WritableByteChannel {
+        private final ByteBuffer buffer;
+
+        BufferChannel(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int length = src.remaining();
+            if (length > buffer.remaining()) throw new IOException("Body is longer than its declared length");
+            buffer.put(src);
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class CountingChannel implements WritableByteChannel {
+        private final WritableByteChannel channel;
+        private long count;
+
+        CountingChannel(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int bytesWritten = channel.write(src);
+            count += bytesWritten;
+            return bytesWritten;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        // The underlying channel belongs to the connection and stays open
+        @Override
+        public void close() {
         }
     }
 
     public static class ComposeException extends RuntimeException {
-        public ComposeException(Exception e) {
+        // Body bytes written before the failure, or UNKNOWN_LENGTH when not known
+        public final long bodyBytes;
+
+        public ComposeException(Exception e, long bodyBytes) {
             super(e);
+            this.bodyBytes = bodyBytes;
         }
     }
 }
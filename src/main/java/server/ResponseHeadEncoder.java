@@ -0,0 +1,109 @@
+package server;
+
+import server.data.Header;
+import server.data.Response;
+import server.data.Status;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Serialises response heads into a buffer reused across responses, copying pre-encoded status lines and well-known
+ * header names rather than formatting them on every response.
+ */
+class ResponseHeadEncoder {
+    private static final byte[][] STATUS_LINES = new byte[Status.values().length][];
+    private static final Map<String, byte[]> HEADER_NAMES = new HashMap<>();
+    private static final byte[] HEADER_SEPARATOR = {':', ' '};
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final int INITIAL_CAPACITY = 512;
+    private static final int MAX_RETAINED_CAPACITY = 16 * 1024;
+    private static final int MAX_LONG_DIGITS = 19;
+
+    static {
+        for (Status status : Status.values())
+            STATUS_LINES[status.ordinal()] = ascii("HTTP/1.1 " + status.code + " " + status.reason + "\r\n");
+        String[] names = {
+                Header.HOST, Header.CONTENT_LENGTH, Header.CONTENT_TYPE, Header.TRANSFER_ENCODING, Header.RANGE,
+                Header.CONTENT_RANGE, Header.ALLOW, Header.IF_MATCH, Header.WWW_AUTHENTICATE, Header.AUTHORIZATION,
+                Header.CONNECTION, Header.LOCATION, Header.SET_COOKIE, Header.COOKIE, Header.E_TAG, Header.LAST_MODIFIED};
+        for (String name : names) HEADER_NAMES.put(name, ascii(name + ": "));
+    }
+
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+
+    // Returns the encoded head in read mode, valid until the next call; contentLength is only added when non-negative
+    ByteBuffer encode(Response response, long contentLength) {
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+        buffer.clear();
+        put(STATUS_LINES[response.status.ordinal()]);
+        for (Map.Entry<String, Object> header : response.headers.entrySet())
+            putHeader(header.getKey(), header.getValue());
+        if (contentLength >= 0) putHeader(Header.CONTENT_LENGTH, contentLength);
+        put(CRLF);
+        buffer.flip();
+        return buffer;
+    }
+
+    private void putHeader(String name, Object value) {
+        byte[] encodedName = HEADER_NAMES.get(name);
+        if (encodedName != null) {
+            put(encodedName);
+        } else {
+            putString(name);
+            put(HEADER_SEPARATOR);
+        }
+        if (value instanceof Long || value instanceof Integer) putLong(((Number) value).longValue());
+        else putString(String.valueOf(value));
+        put(CRLF);
+    }
+
+    private void put(byte[] bytes) {
+        ensureRemaining(bytes.length);
+        buffer.put(bytes);
+    }
+
+    // Characters outside ASCII are encoded as UTF-8, as the print stream previously used for heads did
+    private void putString(String value) {
+        ensureRemaining(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                put(value.substring(i).getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            buffer.put((byte) c);
+        }
+    }
+
+    private void putLong(long value) {
+        if (value < 0) {
+            putString(Long.toString(value));
+            return;
+        }
+        ensureRemaining(MAX_LONG_DIGITS);
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) digits++;
+        int end = buffer.position() + digits;
+        byte[] array = buffer.array();
+        for (int i = end - 1; i >= buffer.position(); i--) {
+            array[buffer.arrayOffset() + i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        buffer.position(end);
+    }
+
+    private void ensureRemaining(int length) {
+        if (buffer.remaining() >= length) return;
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,387 @@
+package server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.data.Response;
+import server.data.Status;
+import server.metrics.Metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Connections are owned by an event loop while idle or while their request head is arriving, and are only handed
+ * to a worker thread (switched to blocking mode) once their incremental parser has a complete head, as handlers read
+ * bodies and write responses with blocking I/O.
+ */
+public class SelectorHttpServer {
+    private static final Logger logger = LoggerFactory.getLogger(SelectorHttpServer.class);
+    private static final String SERVER_THREAD_NAME = "server-main";
+    private static final String EVENT_LOOP_THREAD_NAME = "event-loop-";
+    private static final int SHUTDOWN_TIMEOUT = 30;
+    private static final int SHUTDOWN_NOW_TIMEOUT = 30;
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final int MAX_HEAD_SIZE = 8192;
+    private static final Duration DEFAULT_SELECT_INTERVAL = Duration.ofMillis(500);
+    private static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofSeconds(5);
+    private static final int DEFAULT_MAX_REQUESTS = 100;
+
+    private final int port;
+    private final Handler handler;
+    private final ExecutorService executor;
+    private final Duration soTimeout;
+    private final Duration selectInterval;
+    private final Duration idleTimeout;
+    private final int maxRequests;
+    private final AccessLog accessLog;
+    private final Metrics metrics;
+    private final List<EventLoop> eventLoops;
+    private final Thread serverThread;
+    private ServerSocketChannel serverChannel;
+
+    public SelectorHttpServer(int port, Handler handler, int numThreads, int numEventLoops, Duration soTimeout) {
+        this(port, handler, Executors.newFixedThreadPool(numThreads), numEventLoops, soTimeout);
+    }
+
+    public SelectorHttpServer(int port, Handler handler, ExecutorService executor, int numEventLoops, Duration soTimeout) {
+        this(port, handler, executor, numEventLoops, soTimeout, DEFAULT_SELECT_INTERVAL);
+    }
+
+    public SelectorHttpServer(int port, Handler handler, ExecutorService executor, int numEventLoops, Duration soTimeout,
+                              AccessLog accessLog, Metrics metrics) {
+        this(port, handler, executor, numEventLoops, soTimeout, DEFAULT_SELECT_INTERVAL, DEFAULT_IDLE_TIMEOUT,
+                DEFAULT_MAX_REQUESTS, accessLog, metrics);
+    }
+
+    public SelectorHttpServer(int port, Handler handler, ExecutorService executor, int numEventLoops,
+                              Duration soTimeout, Duration selectInterval) {
+        this(port, handler, executor, numEventLoops, soTimeout, selectInterval, DEFAULT_IDLE_TIMEOUT, DEFAULT_MAX_REQUESTS);
+    }
+
+    public SelectorHttpServer(int port, Handler handler, ExecutorService executor, int numEventLoops,
+                              Duration soTimeout, Duration selectInterval, Duration idleTimeout, int maxRequests) {
+        this(port, handler, executor, numEventLoops, soTimeout, selectInterval, idleTimeout, maxRequests, AccessLog.disabled(),
+                new Metrics());
+    }
+
+    public SelectorHttpServer(int port, Handler handler, ExecutorService executor, int numEventLoops, Duration soTimeout,
+                              Duration selectInterval, Duration idleTimeout, int maxRequests, AccessLog accessLog,
+                              Metrics metrics) {
+        if (numEventLoops < 1) throw new IllegalArgumentException("Number of event loops should be positive");
+        this.port = port;
+        this.handler = handler;
+        this.executor = executor;
+        this.soTimeout = soTimeout;
+        this.selectInterval = selectInterval;
+        this.idleTimeout = idleTimeout;
+        this.maxRequests = maxRequests;
+        this.accessLog = accessLog;
+        this.metrics = metrics;
+        this.eventLoops = new ArrayList<>();
+        for (int i = 0; i < numEventLoops; i++) eventLoops.add(new EventLoop(EVENT_LOOP_THREAD_NAME + i));
+        this.serverThread = new Thread(this::serverMain, SERVER_THREAD_NAME);
+        this.serverThread.setUncaughtExceptionHandler((t, e) -> logger.error("Unhandled exception.", e));
+    }
+
+    public void start() {
+        try {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(port));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open server socket.", e);
+        }
+        eventLoops.forEach(EventLoop::start);
+        serverThread.start();
+    }
+
+    private void serverMain() {
+        int next = 0;
+        try {
+            while (true) {
+                SocketChannel channel = serverChannel.accept();
+                EventLoop eventLoop = eventLoops.get(next);
+                eventLoop.register(new Connection(channel, eventLoop, metrics.activeConnections));
+                next = (next + 1) % eventLoops.size();
+            }
+        } catch (ClosedChannelException e) {
+            logger.info("Server socket closed, server is stopping.");
+        } catch (IOException e) {
+            logger.error("Unable to accept connection.", e);
+        }
+    }
+
+    private void exchange(Connection connection) {
+        try {
+            Socket socket = connection.channel.socket();
+            socket.setSoTimeout((int) soTimeout.toMillis());
+            socket.setTcpNoDelay(true);
+            ConnectionInputStream in = new ConnectionInputStream(connection.buffer, socket.getInputStream());
+            IncrementalRequestParser parser = connection.parser;
+            boolean keepAlive;
+            do {
+                boolean reusable = ++connection.requests < maxRequests && !executor.isShutdown();
+                keepAlive = Exchange.handle(handler, parser, in, connection.channel, reusable, accessLog, metrics);
+                parser.reset();
+            } while (keepAlive && parser.feed(connection.buffer) != IncrementalRequestParser.Result.NEED_MORE);
+
+            if (keepAlive) {
+                connection.channel.configureBlocking(false);
+                connection.eventLoop.register(connection);
+                return;
+            }
+        } catch (Exception e) {
+            logger.error("Unable to complete error handling of connection.", e);
+        }
+        connection.close();
+    }
+
+    public void stop() {
+        close(serverChannel);
+        waitTillStop(serverThread);
+        stop(executor);
+        eventLoops.forEach(EventLoop::stop);
+    }
+
+    private void stop(ExecutorService executor) {
+        executor.shutdown();
+        try {
+            if (executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) return;
+            executor.shutdownNow();
+            if (!executor.awaitTermination(SHUTDOWN_NOW_TIMEOUT, TimeUnit.SECONDS))
+                logger.error("Executor did not terminate.");
+        } catch (InterruptedException e) {
+            logger.warn("Interrupted while stopping executor.");
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitTillStop(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            logger.warn("Interrupted while stopping {}.", thread.getName());
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable == null) return;
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            logger.warn("Unable to close {}.", closeable, e);
+        }
+    }
+
+    private static byte[] timeoutResponse() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Response response = new Response(Status.REQUEST_TIMEOUT, "Request timeout" + System.lineSeparator());
+        ResponseComposer.compose(Channels.newChannel(output), response);
+        return output.toByteArray();
+    }
+
+    private static class Connection {
+        final SocketChannel channel;
+        final EventLoop eventLoop;
+        final LongAdder activeConnections;
+        final AtomicBoolean closed = new AtomicBoolean();
+        final IncrementalRequestParser parser = new IncrementalRequestParser(MAX_HEAD_SIZE);
+        ByteBuffer buffer;
+        SelectionKey key;
+        long deadline;
+        int requests;
+
+        Connection(SocketChannel channel, EventLoop eventLoop, LongAdder activeConnections) {
+            this.channel = channel;
+            this.eventLoop = eventLoop;
+            this.activeConnections = activeConnections;
+            activeConnections.increment();
+        }
+
+        // Connections are closed from event loops and workers alike, and only counted once
+        void close() {
+            if (!closed.compareAndSet(false, true)) return;
+            activeConnections.decrement();
+            SelectorHttpServer.close(channel);
+        }
+
+        boolean isIdle() {
+            return (buffer == null || !buffer.hasRemaining()) && !parser.hasPartialInput();
+        }
+    }
+
+    private class EventLoop {
+        private final Thread thread;
+        private final Queue<Connection> registrations = new ConcurrentLinkedQueue<>();
+        private final List<Connection> ready = new ArrayList<>();
+        private Selector selector;
+        private volatile boolean running = true;
+        private long nextExpiry;
+
+        EventLoop(String name) {
+            this.thread = new Thread(this::run, name);
+            this.thread.setUncaughtExceptionHandler((t, e) -> logger.error("Unhandled exception.", e));
+        }
+
+        void start() {
+            try {
+                selector = Selector.open();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to open selector.", e);
+            }
+            thread.start();
+        }
+
+        void register(Connection connection) {
+            registrations.add(connection);
+            selector.wakeup();
+        }
+
+        private void run() {
+            try {
+                while (running) {
+                    selector.select(selectInterval.toMillis());
+                    registerPending();
+                    readSelected();
+                    dispatchReady();
+                    expireIdle();
+                }
+            } catch (IOException e) {
+                logger.error("Event loop failed.", e);
+            } finally {
+                registrations.forEach(Connection::close);
+                selector.keys().forEach(k -> ((Connection) k.attachment()).close());
+                close(selector);
+            }
+        }
+
+        private void registerPending() {
+            Connection connection;
+            while ((connection = registrations.poll()) != null) {
+                try {
+                    connection.channel.configureBlocking(false);
+                    connection.key = connection.channel.register(selector, SelectionKey.OP_READ, connection);
+                    if (connection.isIdle()) connection.buffer = null;
+                    boolean awaitingNextRequest = connection.requests > 0 && connection.isIdle();
+                    connection.deadline = System.nanoTime() + (awaitingNextRequest ? idleTimeout : soTimeout).toNanos();
+                } catch (IOException e) {
+                    logger.warn("Unable to register connection.", e);
+                    connection.close();
+                }
+            }
+        }
+
+        private void readSelected() {
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (key.isValid() && key.isReadable()) read((Connection) key.attachment());
+            }
+        }
+
+        private void read(Connection connection) {
+            if (connection.buffer == null) connection.buffer = (ByteBuffer) ByteBuffer.allocate(READ_BUFFER_SIZE).flip();
+            ByteBuffer buffer = connection.buffer;
+            int bytesRead;
+            try {
+                buffer.compact();
+                bytesRead = connection.channel.read(buffer);
+            } catch (IOException e) {
+                logger.debug("Unable to read from connection.", e);
+                disconnect(connection);
+                return;
+            } finally {
+                buffer.flip();
+            }
+
+            IncrementalRequestParser.Result result = connection.parser.feed(buffer);
+            if (bytesRead == -1 && result == IncrementalRequestParser.Result.NEED_MORE) {
+                if (!connection.parser.hasPartialInput()) {
+                    disconnect(connection);
+                    return;
+                }
+                result = connection.parser.endOfStream();
+            }
+
+            if (result != IncrementalRequestParser.Result.NEED_MORE) {
+                ready.add(connection);
+            } else if (bytesRead > 0) {
+                connection.deadline = System.nanoTime() + soTimeout.toNanos();
+            }
+        }
+
+        private void dispatchReady() throws IOException {
+            if (ready.isEmpty()) return;
+            ready.forEach(c -> c.key.cancel());
+            selector.selectNow();
+            for (Connection connection : ready) {
+                try {
+                    connection.channel.configureBlocking(true);
+                    executor.execute(() -> exchange(connection));
+                } catch (IOException | RejectedExecutionException e) {
+                    logger.warn("Unable to dispatch connection.", e);
+                    connection.close();
+                }
+            }
+            ready.clear();
+        }
+
+        private void expireIdle() {
+            long now = System.nanoTime();
+            if (now - nextExpiry < 0) return;
+            nextExpiry = now + selectInterval.toNanos();
+            for (SelectionKey key : selector.keys()) {
+                Connection connection = (Connection) key.attachment();
+                if (key.isValid() && now - connection.deadline >= 0) timeout(connection);
+            }
+        }
+
+        private void timeout(Connection connection) {
+            if (connection.requests > 0 && connection.isIdle()) {
+                disconnect(connection);
+                return;
+            }
+            try {
+                connection.channel.write(ByteBuffer.wrap(timeoutResponse()));
+            } catch (IOException e) {
+                logger.debug("Unable to send timeout response.", e);
+            }
+            disconnect(connection);
+        }
+
+        private void disconnect(Connection connection) {
+            connection.key.cancel();
+            connection.close();
+        }
+
+        void stop() {
+            running = false;
+            selector.wakeup();
+            waitTillStop(thread);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package server;
+
+import java.util.Locale;
+
+enum Transport {
+    BLOCKING,
+    SELECTOR;
+
+    static Transport parse(String transport) {
+        return valueOf(transport.toUpperCase(Locale.ROOT));
+    }
+}
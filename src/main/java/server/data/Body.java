@@ -0,0 +1,52 @@
+package server.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+
+public interface Body extends Closeable {
+    long UNKNOWN_LENGTH = -1;
+
+    static Body of(String content) {
+        return new StringBody(content);
+    }
+
+    static Body of(byte[] content) {
+        return new ByteArrayBody(content);
+    }
+
+    // Buffer is expected in read mode and is not consumed, so a pre-encoded body can be shared between responses
+    static Body of(ByteBuffer content) {
+        return new ByteBufferBody(content);
+    }
+
+    static Body of(ReadableByteChannel content) {
+        return of(content, UNKNOWN_LENGTH);
+    }
+
+    static Body of(ReadableByteChannel content, long length) {
+        return new ChannelBody(content, length);
+    }
+
+    // Parts written one after the other, with the length known only if known for every part
+    static Body concat(List<Body> parts) {
+        return new CompositeBody(parts);
+    }
+
+    // Number of bytes written by writeTo, or UNKNOWN_LENGTH when only known once the body has been written
+    long length();
+
+    void writeTo(WritableByteChannel channel) throws IOException;
+
+    // Whole content when held in memory, allowing it to be written together with the head, otherwise null
+    default ByteBuffer buffer() {
+        return null;
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+}
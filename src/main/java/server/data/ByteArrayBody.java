@@ -0,0 +1,53 @@
+package server.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+class ByteArrayBody implements Body {
+    private final byte[] content;
+
+    ByteArrayBody(byte[] content) {
+        this.content = content;
+    }
+
+    @Override
+    public long length() {
+        return content.length;
+    }
+
+    @Override
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        write(channel, buffer());
+    }
+
+    @Override
+    public ByteBuffer buffer() {
+        return ByteBuffer.wrap(content);
+    }
+
+    static void write(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        do {
+            channel.write(buffer);
+        } while (buffer.hasRemaining());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return Arrays.equals(content, ((ByteArrayBody) o).content);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(content);
+    }
+
+    @Override
+    public String toString() {
+        return new String(content, StandardCharsets.UTF_8);
+    }
+}
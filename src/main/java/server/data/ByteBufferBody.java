@@ -0,0 +1,46 @@
+package server.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+class ByteBufferBody implements Body {
+    private final ByteBuffer content;
+
+    ByteBufferBody(ByteBuffer content) {
+        this.content = content.asReadOnlyBuffer();
+    }
+
+    @Override
+    public long length() {
+        return content.remaining();
+    }
+
+    @Override
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        ByteArrayBody.write(channel, buffer());
+    }
+
+    @Override
+    public ByteBuffer buffer() {
+        return content.duplicate();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return content.equals(((ByteBufferBody) o).content);
+    }
+
+    @Override
+    public int hashCode() {
+        return content.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return StandardCharsets.UTF_8.decode(buffer()).toString();
+    }
+}
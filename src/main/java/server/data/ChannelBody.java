@@ -0,0 +1,45 @@
+package server.data;
+
+import server.util.BufferPool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+class ChannelBody implements Body {
+    private static final int BUFFER_SIZE = 8192;
+    private static final int EOS = -1;
+
+    private final ReadableByteChannel content;
+    private final long length;
+
+    ChannelBody(ReadableByteChannel content, long length) {
+        this.content = content;
+        this.length = length;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = BufferPool.shared().acquire(BUFFER_SIZE);
+        try {
+            while (content.read(buffer) != EOS) {
+                buffer.flip();
+                while (buffer.hasRemaining()) channel.write(buffer);
+                buffer.clear();
+            }
+        } finally {
+            BufferPool.shared().release(buffer);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        content.close();
+    }
+}
@@ -0,0 +1,51 @@
+package server.data;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+class CompositeBody implements Body {
+    private final List<Body> parts;
+    private final long length;
+
+    CompositeBody(List<Body> parts) {
+        this.parts = new ArrayList<>(parts);
+        this.length = lengthOf(parts);
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    // Each part is written its own way, so file parts are still transferred without copying
+    @Override
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        for (Body part : parts) part.writeTo(channel);
+    }
+
+    // Closes every part even if closing one fails, rethrowing the first failure
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Body part : parts) {
+            try {
+                part.close();
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+                else failure.addSuppressed(e);
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    private static long lengthOf(List<Body> parts) {
+        long length = 0;
+        for (Body part : parts) {
+            if (part.length() == UNKNOWN_LENGTH) return UNKNOWN_LENGTH;
+            length += part.length();
+        }
+        return length;
+    }
+}
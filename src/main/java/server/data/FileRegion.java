@@ -0,0 +1,60 @@
+package server.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+public class FileRegion implements Body, ReadableByteChannel {
+    private static final int EOS = -1;
+
+    public final FileChannel file;
+    public final long position;
+    public final long count;
+    private long transferred;
+
+    public FileRegion(FileChannel file, long position, long count) {
+        this.file = file;
+        this.position = position;
+        this.count = count;
+    }
+
+    @Override
+    public long length() {
+        return count;
+    }
+
+    // Transfers the remaining bytes of the region, letting the file system send them without copying where supported
+    @Override
+    public void writeTo(WritableByteChannel target) throws IOException {
+        while (transferred < count) {
+            long bytesTransferred = file.transferTo(position + transferred, count - transferred, target);
+            if (bytesTransferred == 0 && position + transferred >= file.size())
+                throw new IOException("File ended before the end of the region");
+            transferred += bytesTransferred;
+        }
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (transferred >= count) return EOS;
+        ByteBuffer slice = dst.duplicate();
+        slice.limit(slice.position() + (int) Math.min(slice.remaining(), count - transferred));
+        int bytesRead = file.read(slice, position + transferred);
+        if (bytesRead == EOS) return EOS;
+        dst.position(slice.position());
+        transferred += bytesRead;
+        return bytesRead;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return file.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -4,6 +4,7 @@ public class Header {
     public static final String HOST = "Host";
     public static final String CONTENT_LENGTH = "Content-Length";
     public static final String CONTENT_TYPE = "Content-Type";
+    public static final String TRANSFER_ENCODING = "Transfer-Encoding";
     public static final String RANGE = "Range";
     public static final String CONTENT_RANGE = "Content-Range";
     public static final String ALLOW = "Allow";
@@ -15,4 +16,9 @@ public class Header {
     public static final String SET_COOKIE = "Set-Cookie";
     public static final String COOKIE = "Cookie";
     public static final String E_TAG = "ETag";
+    public static final String LAST_MODIFIED = "Last-Modified";
+    public static final String IF_NONE_MATCH = "If-None-Match";
+    public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    public static final String IF_RANGE = "If-Range";
+    public static final String EXPECT = "Expect";
 }
@@ -0,0 +1,85 @@
+package server.data;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/*
+ * Parameters by name in the order they were received, where a name may be given several values. As a map each name
+ * stands for its first value. When given a decoder, the parameters are only decoded once first looked up, so a body
+ * is left unread unless a handler asks for them.
+ */
+public class Parameters extends AbstractMap<String, String> {
+    private final Map<String, List<String>> values = new LinkedHashMap<>();
+    private Consumer<Parameters> decoder;
+
+    public Parameters() {
+    }
+
+    public Parameters(Consumer<Parameters> decoder) {
+        this.decoder = decoder;
+    }
+
+    // Adds without decoding, for decoders to fill in the parameters
+    public void add(String name, String value) {
+        values.computeIfAbsent(name, n -> new ArrayList<>(1)).add(value);
+    }
+
+    // Adds every value of the given parameters after those already present
+    public void addAll(Map<String, String> others) {
+        decode();
+        if (others instanceof Parameters) {
+            Parameters parameters = (Parameters) others;
+            parameters.decode();
+            parameters.values.forEach((name, all) -> all.forEach(value -> add(name, value)));
+        } else {
+            others.forEach(this::add);
+        }
+    }
+
+    public List<String> all(String name) {
+        decode();
+        List<String> all = values.get(name);
+        return all == null ? Collections.emptyList() : Collections.unmodifiableList(all);
+    }
+
+    @Override
+    public String get(Object key) {
+        decode();
+        List<String> all = values.get(key);
+        return all == null ? null : all.get(0);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        decode();
+        return values.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        decode();
+        return values.size();
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        decode();
+        Map<String, String> first = new LinkedHashMap<>();
+        values.forEach((name, all) -> first.put(name, all.get(0)));
+        return Collections.unmodifiableMap(first).entrySet();
+    }
+
+    // A failed decoding is not retried, the parameters decoded until then are kept
+    private void decode() {
+        if (decoder == null) return;
+        Consumer<Parameters> pending = decoder;
+        decoder = null;
+        pending.accept(this);
+    }
+}
@@ -8,10 +8,12 @@ public class Request {
     public final Method method;
     public final String path;
     public final String query;
+    public String version;
     public Map<String, String> headers;
     public ReadableByteChannel body;
     public String user;
     public Map<String, String> parameters;
+    public Map<String, String> pathParameters = Collections.emptyMap();
 
     public Request(Method method, String path) {
         this(method, path, null);
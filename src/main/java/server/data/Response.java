@@ -6,14 +6,22 @@ import java.util.Objects;
 
 public class Response {
     public final Status status;
-    public final Object body;
+    public final Body body;
     public final Map<String, Object> headers;
 
-    public Response(Status status, Object body) {
+    public Response(Status status, String body) {
         this(status, Collections.emptyMap(), body);
     }
 
-    public Response(Status status, Map<String, Object> headers, Object body) {
+    public Response(Status status, Map<String, Object> headers, String body) {
+        this(status, headers, Body.of(body));
+    }
+
+    public Response(Status status, Body body) {
+        this(status, Collections.emptyMap(), body);
+    }
+
+    public Response(Status status, Map<String, Object> headers, Body body) {
         this.status = status;
         this.body = body;
         this.headers = headers;
@@ -0,0 +1,52 @@
+package server.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+class StringBody implements Body {
+    private final String content;
+    private byte[] encoded;
+
+    StringBody(String content) {
+        this.content = content;
+    }
+
+    @Override
+    public long length() {
+        return encoded().length;
+    }
+
+    @Override
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        ByteArrayBody.write(channel, buffer());
+    }
+
+    @Override
+    public ByteBuffer buffer() {
+        return ByteBuffer.wrap(encoded());
+    }
+
+    private byte[] encoded() {
+        if (encoded == null) encoded = content.getBytes(StandardCharsets.UTF_8);
+        return encoded;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return content.equals(((StringBody) o).content);
+    }
+
+    @Override
+    public int hashCode() {
+        return content.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return content;
+    }
+}
@@ -0,0 +1,169 @@
+package server.handlers;
+
+import server.data.Method;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/*
+ * Access control list compiled into a trie of path characters. A rule for "/logs" applies to that path only, while a
+ * rule for "/logs/**" applies to "/logs" and every path below it, with an exact rule taking precedence over a prefix
+ * rule and a longer prefix over a shorter one. Paths with a rule for any user other than the anonymous one require
+ * authentication.
+ *
+ * Lookups walk the trie without allocating, and the Allow header of each rule is joined once when compiling. Reloading
+ * compiles the new list before swapping it in, so a lookup sees either the old or the new rules in full.
+ */
+public class AccessControl {
+    static final String ANONYMOUS = "anonymous";
+    private static final String PREFIX_SUFFIX = "/**";
+    private static final char SEPARATOR = '/';
+
+    private volatile Table table;
+
+    public AccessControl(Map<String, Map<String, List<Method>>> accessControlList, List<Method> defaultAccess) {
+        reload(accessControlList, defaultAccess);
+    }
+
+    private AccessControl(Table table) {
+        this.table = table;
+    }
+
+    // Only tells which paths require authentication, allowing nothing to any user
+    static AccessControl protecting(Collection<String> protectedPaths) {
+        return new AccessControl(Table.compile(Collections.emptyMap(), Collections.emptyList(), protectedPaths));
+    }
+
+    public void reload(Map<String, Map<String, List<Method>>> accessControlList, List<Method> defaultAccess) {
+        Set<String> protectedPaths = accessControlList.entrySet().stream()
+                .filter(e -> !e.getKey().equals(ANONYMOUS))
+                .flatMap(e -> e.getValue().keySet().stream())
+                .collect(Collectors.toSet());
+        table = Table.compile(accessControlList, defaultAccess, protectedPaths);
+    }
+
+    boolean isProtected(String path) {
+        Node node = table.root;
+        boolean isProtected = false;
+        for (int i = 0; i < path.length() && node != null; i++) {
+            if (path.charAt(i) == SEPARATOR) isProtected |= node.prefixProtected;
+            node = node.child(path.charAt(i));
+        }
+        return node != null ? isProtected || node.exactProtected || node.prefixProtected : isProtected;
+    }
+
+    // Permissions given by the most specific rule for the path, with none at all for users absent from the list
+    Permissions permissionsOf(String user, String path) {
+        Table table = this.table;
+        if (user == null || !table.users.contains(user)) return Permissions.NONE;
+
+        Node node = table.root;
+        Permissions permissions = null;
+        for (int i = 0; i < path.length() && node != null; i++) {
+            if (path.charAt(i) == SEPARATOR) {
+                Permissions prefix = node.prefix.get(user);
+                if (prefix != null) permissions = prefix;
+            }
+            node = node.child(path.charAt(i));
+        }
+        if (node != null) {
+            Permissions exact = node.exact.get(user);
+            if (exact != null) return exact;
+            Permissions prefix = node.prefix.get(user);
+            if (prefix != null) return prefix;
+        }
+        return permissions != null ? permissions : table.defaultPermissions;
+    }
+
+    static class Permissions {
+        static final Permissions NONE = new Permissions(Collections.emptyList());
+
+        final Set<Method> methods;
+        final String allow;
+
+        private Permissions(List<Method> methods) {
+            this.methods = EnumSet.noneOf(Method.class);
+            this.methods.addAll(methods);
+            this.allow = methods.stream()
+                    .map(Enum::name)
+                    .collect(Collectors.joining(", "));
+        }
+
+        boolean allows(Method method) {
+            return methods.contains(method);
+        }
+    }
+
+    private static class Table {
+        final Node root = new Node();
+        final Set<String> users = new HashSet<>();
+        Permissions defaultPermissions;
+
+        static Table compile(Map<String, Map<String, List<Method>>> accessControlList, List<Method> defaultAccess,
+                             Collection<String> protectedPaths) {
+            Table table = new Table();
+            table.defaultPermissions = new Permissions(defaultAccess);
+            accessControlList.forEach((user, rules) -> {
+                table.users.add(user);
+                rules.forEach((path, methods) -> {
+                    Permissions permissions = new Permissions(methods);
+                    if (isPrefix(path)) table.root.insert(baseOf(path)).prefix.put(user, permissions);
+                    else table.root.insert(path).exact.put(user, permissions);
+                });
+            });
+            for (String path : protectedPaths) {
+                if (isPrefix(path)) table.root.insert(baseOf(path)).prefixProtected = true;
+                else table.root.insert(path).exactProtected = true;
+            }
+            return table;
+        }
+
+        private static boolean isPrefix(String path) {
+            return path.endsWith(PREFIX_SUFFIX);
+        }
+
+        private static String baseOf(String prefix) {
+            return prefix.substring(0, prefix.length() - PREFIX_SUFFIX.length());
+        }
+    }
+
+    private static class Node {
+        final Map<String, Permissions> exact = new HashMap<>();
+        final Map<String, Permissions> prefix = new HashMap<>();
+        boolean exactProtected;
+        boolean prefixProtected;
+        private char[] labels = new char[0];
+        private Node[] children = new Node[0];
+
+        Node child(char label) {
+            for (int i = 0; i < labels.length; i++)
+                if (labels[i] == label) return children[i];
+            return null;
+        }
+
+        Node insert(String path) {
+            Node node = this;
+            for (int i = 0; i < path.length(); i++) {
+                char label = path.charAt(i);
+                Node child = node.child(label);
+                if (child == null) {
+                    child = new Node();
+                    node.labels = Arrays.copyOf(node.labels, node.labels.length + 1);
+                    node.children = Arrays.copyOf(node.children, node.children.length + 1);
+                    node.labels[node.labels.length - 1] = label;
+                    node.children[node.children.length - 1] = child;
+                }
+                node = child;
+            }
+            return node;
+        }
+    }
+}
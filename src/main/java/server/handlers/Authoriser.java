@@ -10,44 +10,28 @@ import server.data.Status;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public class Authoriser implements Handler {
     private final Handler handler;
-    private final Map<String, Map<String, List<Method>>> accessControlList;
-    private final List<Method> defaultAccess;
+    private final AccessControl accessControl;
 
     public Authoriser(Handler handler, Map<String, Map<String, List<Method>>> accessControlList, List<Method> defaultAccess) {
+        this(handler, new AccessControl(accessControlList, defaultAccess));
+    }
+
+    public Authoriser(Handler handler, AccessControl accessControl) {
         this.handler = handler;
-        this.accessControlList = accessControlList;
-        this.defaultAccess = defaultAccess;
+        this.accessControl = accessControl;
     }
 
     @Override
     public Response handle(Request request) {
-        if (accessControlList.containsKey(request.user))
-            return authorise(request);
-        else
-            return new Response(Status.METHOD_NOT_ALLOWED,
-                    Collections.singletonMap(Header.ALLOW, ""),
-                    "");
-    }
-
-    private Response authorise(Request request) {
-        Map<String, List<Method>> accessControl = accessControlList.get(request.user);
-        List<Method> allowedMethods = accessControl.getOrDefault(request.path, defaultAccess);
-        if (allowedMethods.contains(request.method))
+        AccessControl.Permissions permissions = accessControl.permissionsOf(request.user, request.path);
+        if (permissions.allows(request.method))
             return handler.handle(request);
-        else {
+        else
             return new Response(Status.METHOD_NOT_ALLOWED,
-                    Collections.singletonMap(Header.ALLOW, commaDelimited(allowedMethods)),
+                    Collections.singletonMap(Header.ALLOW, permissions.allow),
                     "");
-        }
-    }
-
-    private String commaDelimited(List<Method> methods) {
-        return methods.stream()
-                .map(Enum::name)
-                .collect(Collectors.joining(", "));
     }
 }
@@ -0,0 +1,85 @@
+package server.handlers;
+
+import server.util.Digests;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Remembers the user of recently verified Authorization headers, so that repeated requests skip decoding the header
+ * and hashing the password. Headers are kept as SHA-256 digests rather than in the clear, entries expire after the time
+ * to live, and the least recently used entries are evicted beyond the maximum. Failed attempts are never cached.
+ */
+public class AuthorizationCache {
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> Digests.digest("SHA-256"));
+
+    private final long timeToLiveNanos;
+    private final int maxEntries;
+    private final Lock lock = new ReentrantLock();
+    private final LinkedHashMap<ByteBuffer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    public AuthorizationCache(Duration timeToLive, int maxEntries) {
+        if (timeToLive.isNegative() || maxEntries < 0) throw new IllegalArgumentException("Cache limits should be non-negative");
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.maxEntries = maxEntries;
+    }
+
+    // The user verified with the header, or null if it has not been verified recently
+    String userOf(String authorization) {
+        ByteBuffer key = keyOf(authorization);
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry == null) return null;
+            if (System.nanoTime() - entry.verifiedAt < timeToLiveNanos) return entry.user;
+            entries.remove(key);
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void put(String authorization, String user) {
+        if (maxEntries == 0 || timeToLiveNanos == 0) return;
+        ByteBuffer key = keyOf(authorization);
+        lock.lock();
+        try {
+            entries.put(key, new Entry(user, System.nanoTime()));
+            if (entries.size() > maxEntries) {
+                Map.Entry<ByteBuffer, Entry> eldest = entries.entrySet().iterator().next();
+                entries.remove(eldest.getKey());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static ByteBuffer keyOf(String authorization) {
+        return ByteBuffer.wrap(SHA_256.get().digest(authorization.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static class Entry {
+        final String user;
+        final long verifiedAt;
+
+        Entry(String user, long verifiedAt) {
+            this.user = user;
+            this.verifiedAt = verifiedAt;
+        }
+    }
+}
@@ -15,20 +15,28 @@ import java.util.Map;
 public class BasicAuthenticator implements Handler {
     private final Handler handler;
     private final String challenge;
-    private final List<String> protectedPaths;
-    private final Map<String, String> credentialsStore;
+    private final AccessControl accessControl;
+    private final CredentialStore credentialStore;
+    private final AuthorizationCache authorizationCache;
 
     public BasicAuthenticator(Handler handler, String realm, List<String> protectedPaths, Map<String, String> credentialsStore) {
+        this(handler, realm, AccessControl.protecting(protectedPaths), CredentialStore.of(credentialsStore), null);
+    }
+
+    // Every attempt is verified against the credential store when there is no cache
+    public BasicAuthenticator(Handler handler, String realm, AccessControl accessControl, CredentialStore credentialStore,
+                              AuthorizationCache authorizationCache) {
         this.handler = handler;
         this.challenge = String.format("Basic realm=\"%s\"", realm);
-        this.protectedPaths = protectedPaths;
-        this.credentialsStore = credentialsStore;
+        this.accessControl = accessControl;
+        this.credentialStore = credentialStore;
+        this.authorizationCache = authorizationCache;
     }
 
     @Override
     public Response handle(Request request) {
-        if (!protectedPaths.contains(request.path)) {
-            request.user = "anonymous";
+        if (!accessControl.isProtected(request.path)) {
+            request.user = AccessControl.ANONYMOUS;
             return handler.handle(request);
         }
 
@@ -40,9 +48,16 @@ public class BasicAuthenticator implements Handler {
     }
 
     private Response attemptAuthenticationOf(Request request) {
+        String authorization = request.headers.get(Header.AUTHORIZATION);
+        String user = authorizationCache == null ? null : authorizationCache.userOf(authorization);
+        if (user != null) {
+            request.user = user;
+            return handler.handle(request);
+        }
+
         try {
-            String[] credentials = parseCredentials(request.headers.get(Header.AUTHORIZATION));
-            return authenticate(request, credentials[0], credentials[1]);
+            String[] credentials = parseCredentials(authorization);
+            return authenticate(request, authorization, credentials[0], credentials[1]);
         } catch (ParseException e) {
             return new Response(Status.BAD_REQUEST, "Malformed Authorization header: " + e.getMessage() + System.lineSeparator());
         }
@@ -57,8 +72,9 @@ public class BasicAuthenticator implements Handler {
         return credentials;
     }
 
-    private Response authenticate(Request request, String username, String password) {
-        if (password.equals(credentialsStore.get(username))) {
+    private Response authenticate(Request request, String authorization, String username, String password) {
+        if (credentialStore.verify(username, password)) {
+            if (authorizationCache != null) authorizationCache.put(authorization, username);
             request.user = username;
             return handler.handle(request);
         } else {
@@ -0,0 +1,18 @@
+package server.handlers;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+
+public interface CredentialStore {
+    boolean verify(String username, String password);
+
+    // Passwords held in plain text, only suitable for development
+    static CredentialStore of(Map<String, String> passwords) {
+        return (username, password) -> {
+            String expected = passwords.get(username);
+            return expected != null && MessageDigest.isEqual(
+                    expected.getBytes(StandardCharsets.UTF_8), password.getBytes(StandardCharsets.UTF_8));
+        };
+    }
+}
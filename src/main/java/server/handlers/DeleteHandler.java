@@ -12,9 +12,15 @@ import java.nio.file.Path;
 
 public class DeleteHandler implements Handler {
     private final Path directory;
+    private final FileMetadataCache metadata;
 
     public DeleteHandler(Path directory) {
+        this(directory, FileMetadataCache.uncached());
+    }
+
+    public DeleteHandler(Path directory, FileMetadataCache metadata) {
         this.directory = directory;
+        this.metadata = metadata;
     }
 
     @Override
@@ -30,6 +36,7 @@ public class DeleteHandler implements Handler {
     private Response delete(Path resource) {
         try {
             boolean deleted = Files.deleteIfExists(resource);
+            metadata.deleted(resource);
             return new Response(deleted ? Status.OK : Status.NOT_FOUND, "");
         } catch (IOException e) {
             throw new UncheckedIOException(e);
@@ -1,35 +1,65 @@
 package server.handlers;
 
 import server.Handler;
+import server.data.Header;
 import server.data.Method;
 import server.data.PatternHandler;
 import server.data.Request;
 import server.data.Response;
 import server.data.Status;
+import server.metrics.Histogram;
+import server.metrics.Metrics;
 
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public class Dispatcher implements Handler {
-    private static final String WILDCARD = "*";
-
-    private final Map<Method, List<PatternHandler>> routes;
+    private final RouteTree routes = new RouteTree();
 
     public Dispatcher(Map<Method, List<PatternHandler>> routes) {
-        this.routes = routes;
+        this(routes, new Metrics());
+    }
+
+    // Where patterns overlap, the more specific wins; among equally specific patterns the first listed wins
+    public Dispatcher(Map<Method, List<PatternHandler>> routes, Metrics metrics) {
+        routes.forEach((method, patternHandlers) -> {
+            for (PatternHandler ph : patternHandlers)
+                this.routes.add(method, ph.pattern, timed(ph.handler, metrics.handlerTime(method.name(), ph.pattern)));
+        });
     }
 
     @Override
     public Response handle(Request request) {
-        for (PatternHandler ph : routes.getOrDefault(request.method, Collections.emptyList()))
-            if (matches(ph.pattern, request))
-                return ph.handler.handle(request);
-        return new Response(Status.INTERNAL_SERVER_ERROR, "");
+        RouteTree.Match match = routes.find(request.method, request.path);
+        if (match != null) {
+            request.pathParameters = match.parameters;
+            return match.handler.handle(request);
+        }
+
+        Set<Method> allowedMethods = routes.methodsOf(request.path);
+        if (allowedMethods.isEmpty()) return new Response(Status.NOT_FOUND, "");
+        return new Response(Status.METHOD_NOT_ALLOWED,
+                Collections.singletonMap(Header.ALLOW, commaDelimited(allowedMethods)),
+                "");
     }
 
-    private boolean matches(String pattern, Request request) {
-        return pattern.equals(request.path) || pattern.equals(WILDCARD);
+    private static Handler timed(Handler handler, Histogram handlerTime) {
+        return request -> {
+            long start = System.nanoTime();
+            try {
+                return handler.handle(request);
+            } finally {
+                handlerTime.record(System.nanoTime() - start);
+            }
+        };
     }
 
+    private String commaDelimited(Set<Method> methods) {
+        return methods.stream()
+                .map(Enum::name)
+                .collect(Collectors.joining(", "));
+    }
 }
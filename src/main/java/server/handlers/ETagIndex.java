@@ -0,0 +1,231 @@
+package server.handlers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.util.Digests;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Remembers the SHA-1 ETag of each file together with the size and modification time it was computed for, so that the
+ * digest is only recomputed once the file changes. Uploads record the digest computed while streaming the body.
+ * Responses only use digests already known, leaving the others to be computed by a background thread, so that no
+ * request waits for a whole file to be read.
+ *
+ * When given an index file, entries are appended to it as a journal of "<sha1> <size> <mtime nanos> <path>" and
+ * "- <path>" lines, relative to the root directory, and read back on start, keeping the index across restarts. The
+ * journal is rewritten with only the entries still matching their files when it is loaded.
+ */
+public class ETagIndex implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ETagIndex.class);
+    private static final String REMOVED = "-";
+    private static final String DIGESTER_THREAD_NAME = "etag-digester";
+    private static final int MAX_PENDING_DIGESTS = 1024;
+    private static final ExecutorService DIGESTER = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(MAX_PENDING_DIGESTS), ETagIndex::newDigesterThread);
+
+    private final Path root;
+    private final Path indexFile;
+    private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<Path> pending = ConcurrentHashMap.newKeySet();
+    private final Lock journalLock = new ReentrantLock();
+    private BufferedWriter journal;
+
+    public ETagIndex(Path root) {
+        this(root, null);
+    }
+
+    public ETagIndex(Path root, Path indexFile) {
+        this.root = root.toAbsolutePath().normalize();
+        this.indexFile = indexFile;
+        if (indexFile != null) {
+            load();
+            compact();
+        }
+    }
+
+    // The ETag of the file, computing and recording it unless an entry matches its size and modification time
+    public String eTagOf(FileMetadata file) {
+        Path key = keyOf(file.path);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.matches(file.size, file.lastModified)) return entry.eTag;
+
+        String eTag = Digests.sha1Of(file.path);
+        record(key, new Entry(eTag, file.size, file.lastModified));
+        return eTag;
+    }
+
+    // The ETag of the file if an entry matches it, otherwise null while the file is digested in the background
+    public String eTagIfKnown(FileMetadata file) {
+        Path key = keyOf(file.path);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.matches(file.size, file.lastModified)) return entry.eTag;
+
+        if (pending.add(key)) {
+            try {
+                DIGESTER.execute(() -> digest(key, file));
+            } catch (RejectedExecutionException e) {
+                // Too many files waiting, a later request schedules it again
+                pending.remove(key);
+            }
+        }
+        return null;
+    }
+
+    public void record(FileMetadata file, String eTag) {
+        record(keyOf(file.path), new Entry(eTag, file.size, file.lastModified));
+    }
+
+    public void remove(Path path) {
+        Path key = keyOf(path);
+        if (entries.remove(key) != null) append(REMOVED + " " + key);
+    }
+
+    @Override
+    public void close() {
+        journalLock.lock();
+        try {
+            if (journal != null) journal.close();
+            journal = null;
+        } catch (IOException e) {
+            logger.warn("Unable to close ETag index.", e);
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    // The digest is only recorded when the file did not change while being read
+    private void digest(Path key, FileMetadata file) {
+        try {
+            String eTag = Digests.sha1Of(file.path);
+            FileMetadata digested = FileMetadata.of(file.path);
+            if (digested.isRegularFile && digested.size == file.size && digested.lastModified.equals(file.lastModified))
+                record(key, new Entry(eTag, file.size, file.lastModified));
+        } catch (UncheckedIOException e) {
+            logger.debug("Unable to digest file: {}", file.path, e);
+        } finally {
+            pending.remove(key);
+        }
+    }
+
+    private static Thread newDigesterThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, DIGESTER_THREAD_NAME);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private void record(Path key, Entry entry) {
+        entries.put(key, entry);
+        append(lineOf(key, entry));
+    }
+
+    private Path keyOf(Path path) {
+        Path absolute = path.toAbsolutePath().normalize();
+        return absolute.startsWith(root) ? root.relativize(absolute) : absolute;
+    }
+
+    private void load() {
+        if (!Files.exists(indexFile)) return;
+        try {
+            List<String> lines = Files.readAllLines(indexFile, StandardCharsets.UTF_8);
+            for (String line : lines) loadLine(line);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void loadLine(String line) {
+        String[] fields = line.split(" ", 4);
+        try {
+            if (fields[0].equals(REMOVED)) {
+                entries.remove(root.getFileSystem().getPath(line.substring(REMOVED.length() + 1)));
+            } else {
+                FileTime lastModified = FileTime.from(Long.parseLong(fields[2]), TimeUnit.NANOSECONDS);
+                entries.put(root.getFileSystem().getPath(fields[3]), new Entry(fields[0], Long.parseLong(fields[1]), lastModified));
+            }
+        } catch (RuntimeException e) {
+            // A line cut short by a crash while appending is skipped
+            logger.warn("Skipping malformed ETag index line: {}", line);
+        }
+    }
+
+    // Drops entries of files since changed or deleted and starts a fresh journal holding the remaining entries
+    private void compact() {
+        entries.entrySet().removeIf(e -> !e.getValue().matches(FileMetadata.of(root.resolve(e.getKey()))));
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<Path, Entry> e : entries.entrySet()) {
+                writer.write(lineOf(e.getKey(), e.getValue()));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            journal = Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String lineOf(Path key, Entry entry) {
+        return entry.eTag + " " + entry.size + " " + entry.lastModified.to(TimeUnit.NANOSECONDS) + " " + key;
+    }
+
+    private void append(String line) {
+        if (indexFile == null) return;
+        journalLock.lock();
+        try {
+            if (journal == null) return;
+            journal.write(line);
+            journal.newLine();
+            journal.flush();
+        } catch (IOException e) {
+            // The entry is still held in memory, it is only lost on restart
+            logger.warn("Unable to append to ETag index.", e);
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    private static class Entry {
+        final String eTag;
+        final long size;
+        final FileTime lastModified;
+
+        Entry(String eTag, long size, FileTime lastModified) {
+            this.eTag = eTag;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        boolean matches(long size, FileTime lastModified) {
+            return this.size == size && this.lastModified.equals(lastModified);
+        }
+
+        boolean matches(FileMetadata file) {
+            return file.isRegularFile && matches(file.size, file.lastModified);
+        }
+    }
+}
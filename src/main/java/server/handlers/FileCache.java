@@ -0,0 +1,153 @@
+package server.handlers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Keeps the content of recently served files in memory, evicting the least recently used files once the total size
+ * exceeds the limit. An entry is only served while it matches the size and modification time in the metadata of its
+ * file, so files modified outside the server are reloaded; writers within the server invalidate entries explicitly.
+ */
+public class FileCache {
+    private static final Logger logger = LoggerFactory.getLogger(FileCache.class);
+    private static final int EOS = -1;
+
+    private final long maxBytes;
+    private final long maxEntrySize;
+    private final boolean direct;
+    private final Lock lock = new ReentrantLock();
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+
+    public FileCache(long maxBytes, long maxEntrySize, boolean direct) {
+        if (maxBytes < 0 || maxEntrySize < 0) throw new IllegalArgumentException("Cache sizes should be non-negative");
+        this.maxBytes = maxBytes;
+        this.maxEntrySize = Math.min(Math.min(maxEntrySize, maxBytes), Integer.MAX_VALUE);
+        this.direct = direct;
+    }
+
+    // The cached content of a regular file, loading it if it fits; null if the resource is not a cacheable file
+    public Entry get(FileMetadata metadata) {
+        Path resource = metadata.path;
+        if (!metadata.isRegularFile) {
+            invalidate(resource);
+            return null;
+        }
+
+        Entry entry = lookup(resource);
+        if (entry != null && entry.matches(metadata)) return entry;
+        if (metadata.size > maxEntrySize) {
+            if (entry != null) invalidate(resource);
+            return null;
+        }
+
+        entry = load(metadata);
+        if (entry != null) store(resource, entry);
+        return entry;
+    }
+
+    public void invalidate(Path resource) {
+        lock.lock();
+        try {
+            Entry removed = entries.remove(resource);
+            if (removed != null) size -= removed.size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Entry lookup(Path resource) {
+        lock.lock();
+        try {
+            return entries.get(resource);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void store(Path resource, Entry entry) {
+        lock.lock();
+        try {
+            Entry replaced = entries.put(resource, entry);
+            if (replaced != null) size -= replaced.size;
+            size += entry.size;
+            Iterator<Map.Entry<Path, Entry>> eldest = entries.entrySet().iterator();
+            while (size > maxBytes && eldest.hasNext()) {
+                size -= eldest.next().getValue().size;
+                eldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Entry load(FileMetadata metadata) {
+        Path resource = metadata.path;
+        int fileSize = (int) metadata.size;
+        ByteBuffer content = direct ? ByteBuffer.allocateDirect(fileSize) : ByteBuffer.allocate(fileSize);
+        try (FileChannel file = FileChannel.open(resource, StandardOpenOption.READ)) {
+            while (content.hasRemaining()) {
+                if (file.read(content) == EOS) break;
+            }
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // A file changed while being read is served from the file system until it settles
+        if (content.hasRemaining()) {
+            logger.debug("File changed while caching: {}", resource);
+            return null;
+        }
+        content.flip();
+        return new Entry(content, metadata.contentType, metadata.size, metadata.lastModified);
+    }
+
+    public static class Entry {
+        public final String contentType;
+        public final long size;
+        private final ByteBuffer content;
+        private final FileTime lastModified;
+
+        Entry(ByteBuffer content, String contentType, long size, FileTime lastModified) {
+            this.content = content.asReadOnlyBuffer();
+            this.contentType = contentType;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        // A view of the given region of the content, independent of other views
+        public ByteBuffer content(long position, long count) {
+            ByteBuffer view = content.duplicate();
+            view.position((int) position).limit((int) (position + count));
+            return view;
+        }
+
+        boolean matches(FileMetadata metadata) {
+            return size == metadata.size && lastModified.equals(metadata.lastModified);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package server.handlers;
+
+import server.util.Digests;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+public class FileMetadata {
+    public final Path path;
+    public final boolean exists;
+    public final boolean isRegularFile;
+    public final boolean isDirectory;
+    public final long size;
+    public final FileTime lastModified;
+    public final String contentType;
+    private final ETagIndex eTagIndex;
+    private volatile String eTag;
+
+    private FileMetadata(Path path, BasicFileAttributes attributes, ETagIndex eTagIndex) {
+        this.path = path;
+        this.eTagIndex = eTagIndex;
+        this.exists = attributes != null;
+        this.isRegularFile = exists && attributes.isRegularFile();
+        this.isDirectory = exists && attributes.isDirectory();
+        this.size = exists ? attributes.size() : 0;
+        this.lastModified = exists ? attributes.lastModifiedTime() : null;
+        this.contentType = isRegularFile ? URLConnection.guessContentTypeFromName(path.getFileName().toString()) : null;
+    }
+
+    public static FileMetadata of(Path path) {
+        return of(path, null);
+    }
+
+    // Reads the ETag from the index when given one, rather than digesting the file on first use
+    public static FileMetadata of(Path path, ETagIndex eTagIndex) {
+        try {
+            return new FileMetadata(path, Files.readAttributes(path, BasicFileAttributes.class), eTagIndex);
+        } catch (NoSuchFileException e) {
+            return new FileMetadata(path, null, eTagIndex);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // SHA-1 of the content, computed on first use as it requires reading the whole file
+    public String eTag() {
+        if (!isRegularFile) return null;
+        String eTag = this.eTag;
+        if (eTag == null) this.eTag = eTag = eTagIndex == null ? Digests.sha1Of(path) : eTagIndex.eTagOf(this);
+        return eTag;
+    }
+
+    // SHA-1 of the content if the index already knows it, never reading the file; null until digested in the background
+    public String eTagIfKnown() {
+        if (!isRegularFile) return null;
+        String eTag = this.eTag;
+        if (eTag == null && eTagIndex != null) this.eTag = eTag = eTagIndex.eTagIfKnown(this);
+        return eTag;
+    }
+}
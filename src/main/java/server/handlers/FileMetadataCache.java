@@ -0,0 +1,290 @@
+package server.handlers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/*
+ * Shares file metadata between handlers so that repeated requests for the same path do not stat the file each time.
+ * Entries expire after a short time to live, which bounds staleness on file systems that do not report changes, and
+ * are dropped earlier when a watch service reports a change in the directory of the file.
+ *
+ * Only existing files are cached, at most a fixed number of them, least recently used first out. Entries are also
+ * indexed by directory, so that a reported change only touches the entries of its own directory. A fixed number of
+ * directories are watched, and directories that cannot be watched are remembered rather than retried on every request;
+ * entries in directories that are not watched rely on the time to live alone.
+ */
+public class FileMetadataCache implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(FileMetadataCache.class);
+    private static final String WATCHER_THREAD_NAME = "file-metadata-watcher";
+    static final int DEFAULT_MAX_ENTRIES = 16 * 1024;
+    static final int DEFAULT_MAX_WATCHED_DIRECTORIES = 1024;
+
+    private final long timeToLiveNanos;
+    private final int maxEntries;
+    private final int maxWatchedDirectories;
+    private final Lock lock = new ReentrantLock();
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Path, Set<Path>> entriesByDirectory = new HashMap<>();
+    private final List<Consumer<Path>> invalidationListeners = new CopyOnWriteArrayList<>();
+    private final Set<Path> watchedDirectories = ConcurrentHashMap.newKeySet();
+    private final Set<Path> unwatchableDirectories = ConcurrentHashMap.newKeySet();
+    private final WatchService watchService;
+    private final ETagIndex eTagIndex;
+
+    public FileMetadataCache(Duration timeToLive, boolean watch) {
+        this(timeToLive, watch, null);
+    }
+
+    // A time to live of zero disables caching, reading metadata from the file system on every call
+    public FileMetadataCache(Duration timeToLive, boolean watch, ETagIndex eTagIndex) {
+        this(timeToLive, watch, eTagIndex, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_WATCHED_DIRECTORIES);
+    }
+
+    FileMetadataCache(Duration timeToLive, boolean watch, ETagIndex eTagIndex, int maxEntries, int maxWatchedDirectories) {
+        if (timeToLive.isNegative()) throw new IllegalArgumentException("Time to live should be non-negative");
+        if (maxEntries < 1 || maxWatchedDirectories < 0) throw new IllegalArgumentException("Invalid cache limits");
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.maxEntries = maxEntries;
+        this.maxWatchedDirectories = maxWatchedDirectories;
+        // Without an index, ETags are still kept in memory so that each version of a file is digested once
+        this.eTagIndex = eTagIndex == null ? new ETagIndex(Paths.get("")) : eTagIndex;
+        this.watchService = watch && timeToLiveNanos > 0 ? newWatchService() : null;
+        if (watchService != null) {
+            Thread watcher = new Thread(this::watch, WATCHER_THREAD_NAME);
+            watcher.setDaemon(true);
+            watcher.start();
+        }
+    }
+
+    public static FileMetadataCache uncached() {
+        return new FileMetadataCache(Duration.ZERO, false);
+    }
+
+    public FileMetadata get(Path path) {
+        if (timeToLiveNanos == 0) return FileMetadata.of(path, eTagIndex);
+        lock.lock();
+        try {
+            Entry entry = entries.get(path);
+            if (entry != null) {
+                if (!entry.isExpired(System.nanoTime())) return entry.metadata;
+                remove(path);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return refresh(path);
+    }
+
+    // Reads the metadata from the file system, as writers do before evaluating preconditions
+    public FileMetadata refresh(Path path) {
+        if (timeToLiveNanos == 0) return FileMetadata.of(path, eTagIndex);
+
+        long now = System.nanoTime();
+        FileMetadata metadata = FileMetadata.of(path, eTagIndex);
+        // Read again once newly watched, so that a change made before the watch started is not missed
+        if (metadata.exists && watchDirectoryOf(path)) metadata = FileMetadata.of(path, eTagIndex);
+        lock.lock();
+        try {
+            remove(path);
+            if (metadata.exists) store(path, new Entry(metadata, now + timeToLiveNanos));
+        } finally {
+            lock.unlock();
+        }
+        return metadata;
+    }
+
+    // Records the ETag digested while the file was written, sparing a read of the whole file to compute it
+    public void written(Path path, String eTag) {
+        eTagIndex.record(FileMetadata.of(path), eTag);
+        invalidate(path);
+    }
+
+    public void deleted(Path path) {
+        eTagIndex.remove(path);
+        invalidate(path);
+    }
+
+    public void invalidate(Path path) {
+        lock.lock();
+        try {
+            remove(path);
+        } finally {
+            lock.unlock();
+        }
+        notifyInvalidated(path);
+    }
+
+    // Notifies the listener of paths invalidated by writers or by changes reported by the watch service
+    public void onInvalidate(Consumer<Path> listener) {
+        invalidationListeners.add(listener);
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int watchedDirectories() {
+        return watchedDirectories.size();
+    }
+
+    @Override
+    public void close() {
+        if (watchService == null) return;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.warn("Unable to close watch service.", e);
+        }
+    }
+
+    // Called with the lock held; expired entries are dropped from the least recently used end as new ones come in
+    private void store(Path path, Entry entry) {
+        entries.put(path, entry);
+        entriesByDirectory.computeIfAbsent(path.getParent(), d -> new HashSet<>()).add(path);
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Path, Entry>> eldest = entries.entrySet().iterator();
+        while (eldest.hasNext()) {
+            Map.Entry<Path, Entry> e = eldest.next();
+            if (entries.size() <= maxEntries && !e.getValue().isExpired(now)) break;
+            eldest.remove();
+            unindex(e.getKey());
+        }
+    }
+
+    // Called with the lock held
+    private void remove(Path path) {
+        if (entries.remove(path) != null) unindex(path);
+    }
+
+    private void unindex(Path path) {
+        Set<Path> siblings = entriesByDirectory.get(path.getParent());
+        if (siblings == null) return;
+        siblings.remove(path);
+        if (siblings.isEmpty()) entriesByDirectory.remove(path.getParent());
+    }
+
+    // Returns whether the directory of the path has just started being watched
+    private boolean watchDirectoryOf(Path path) {
+        Path directory = path.getParent();
+        if (watchService == null || directory == null || watchedDirectories.contains(directory)
+                || unwatchableDirectories.contains(directory)) return false;
+        if (watchedDirectories.size() >= maxWatchedDirectories) return false;
+        try {
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            return watchedDirectories.add(directory);
+        } catch (IOException | ClosedWatchServiceException | ProviderMismatchException e) {
+            logger.debug("Unable to watch directory: {}", directory);
+            if (unwatchableDirectories.size() < maxWatchedDirectories) unwatchableDirectories.add(directory);
+            return false;
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        invalidateWithin(directory);
+                    } else {
+                        Path changed = directory.resolve((Path) event.context());
+                        invalidate(changed);
+                        invalidateWithin(changed);
+                    }
+                }
+                if (!key.reset()) {
+                    watchedDirectories.remove(directory);
+                    invalidateWithin(directory);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            logger.debug("Watch service closed.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Entries of the directory and, through the index, of the directories below it that have entries themselves
+    private void invalidateWithin(Path directory) {
+        List<Path> invalidated = new ArrayList<>();
+        lock.lock();
+        try {
+            Deque<Path> directories = new ArrayDeque<>();
+            directories.push(directory);
+            while (!directories.isEmpty()) {
+                Set<Path> paths = entriesByDirectory.remove(directories.pop());
+                if (paths == null) continue;
+                for (Path path : paths) {
+                    entries.remove(path);
+                    invalidated.add(path);
+                    if (entriesByDirectory.containsKey(path)) directories.push(path);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Path path : invalidated) notifyInvalidated(path);
+    }
+
+    private void notifyInvalidated(Path path) {
+        for (Consumer<Path> listener : invalidationListeners) listener.accept(path);
+    }
+
+    private static WatchService newWatchService() {
+        try {
+            return FileSystems.getDefault().newWatchService();
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.warn("Unable to watch files, relying on time to live for invalidation.", e);
+            return null;
+        }
+    }
+
+    private static class Entry {
+        final FileMetadata metadata;
+        final long expiresAt;
+
+        Entry(FileMetadata metadata, long expiresAt) {
+            this.metadata = metadata;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
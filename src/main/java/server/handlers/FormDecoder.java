@@ -0,0 +1,126 @@
+package server.handlers;
+
+import server.data.Parameters;
+import server.util.BufferPool;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+ * Decodes application/x-www-form-urlencoded content in a single pass over its bytes, as they are read: names and values
+ * are unescaped into a reusable byte array and only turned into strings, as UTF-8, once complete. Empty pairs are
+ * skipped and a name without "=" is given an empty value.
+ */
+class FormDecoder {
+    private static final int BUFFER_SIZE = 4096;
+    private static final int INITIAL_TOKEN_SIZE = 64;
+    private static final int EOS = -1;
+    private static final int NO_ESCAPE = -1;
+    private static final int ESCAPE_STARTED = -2;
+
+    private final Parameters parameters;
+    private final long maxSize;
+    private byte[] token = new byte[INITIAL_TOKEN_SIZE];
+    private int length;
+    private String name;
+    private int escape = NO_ESCAPE;
+    private long size;
+
+    FormDecoder(Parameters parameters, long maxSize) {
+        this.parameters = parameters;
+        this.maxSize = maxSize;
+    }
+
+    void decode(String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        for (byte b : bytes) feed(b);
+        end();
+    }
+
+    void decode(ReadableByteChannel body) {
+        ByteBuffer buffer = BufferPool.shared().acquire(BUFFER_SIZE);
+        try {
+            while (body.read(buffer) != EOS) {
+                buffer.flip();
+                while (buffer.hasRemaining()) feed(buffer.get());
+                buffer.clear();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            BufferPool.shared().release(buffer);
+        }
+        end();
+    }
+
+    private void feed(byte b) {
+        if (++size > maxSize) throw new FormTooLarge(maxSize);
+        if (escape != NO_ESCAPE) {
+            int digit = Character.digit(b, 16);
+            if (digit < 0) throw new InvalidForm("Invalid percent-encoding in form");
+            if (escape == ESCAPE_STARTED) {
+                escape = digit;
+            } else {
+                append(escape << 4 | digit);
+                escape = NO_ESCAPE;
+            }
+            return;
+        }
+        switch (b) {
+            case '&':
+                endPair();
+                break;
+            case '=':
+                if (name == null) name = takeToken();
+                else append(b);
+                break;
+            case '+':
+                append(' ');
+                break;
+            case '%':
+                escape = ESCAPE_STARTED;
+                break;
+            default:
+                append(b);
+        }
+    }
+
+    private void end() {
+        if (escape != NO_ESCAPE) throw new InvalidForm("Invalid percent-encoding in form");
+        endPair();
+    }
+
+    private void endPair() {
+        if (name == null && length == 0) return;
+        if (name == null) parameters.add(takeToken(), "");
+        else parameters.add(name, takeToken());
+        name = null;
+    }
+
+    private void append(int b) {
+        if (length == token.length) token = Arrays.copyOf(token, length * 2);
+        token[length++] = (byte) b;
+    }
+
+    private String takeToken() {
+        String decoded = new String(token, 0, length, StandardCharsets.UTF_8);
+        length = 0;
+        return decoded;
+    }
+
+    static class InvalidForm extends RuntimeException {
+        InvalidForm(String message) {
+            super(message);
+        }
+    }
+
+    static class FormTooLarge extends InvalidForm {
+        FormTooLarge(long maxSize) {
+            super("Form is larger than " + maxSize + " byte(s)");
+        }
+    }
+}
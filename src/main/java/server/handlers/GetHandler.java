@@ -3,165 +3,277 @@ package server.handlers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import server.Handler;
+import server.data.Body;
+import server.data.FileRegion;
 import server.data.Header;
 import server.data.Request;
 import server.data.Response;
 import server.data.Status;
-import server.util.ByteChannels;
 import server.util.Resources;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.net.URLConnection;
-import java.nio.channels.ReadableByteChannel;
-import java.nio.channels.SeekableByteChannel;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class GetHandler implements Handler {
     private static final Logger logger = LoggerFactory.getLogger(GetHandler.class);
 
+    private static final String BYTES_UNIT = "bytes=";
+    private static final Pattern RANGE_SPEC = Pattern.compile("(?<start>\\d+)-(?<end>\\d*)|-(?<suffix>\\d+)");
+    private static final int MAX_RANGES = 64;
+    private static final String LISTING_MARKER = "\0";
+
     private final Path directory;
+    private final FileMetadataCache metadata;
+    private final FileCache cache;
 
     public GetHandler(Path directory) {
+        this(directory, FileMetadataCache.uncached(), null);
+    }
+
+    public GetHandler(Path directory, FileMetadataCache metadata, FileCache cache) {
         this.directory = directory;
+        this.metadata = metadata;
+        this.cache = cache;
     }
 
     @Override
     public Response handle(Request request) {
         Path resource = directory.resolve(request.path.substring(1));
-        if (Files.isRegularFile(resource)) {
-            return getFile(request, resource);
-        } else if (Files.isDirectory(resource)) {
+        FileMetadata file = metadata.get(resource);
+        if (file.isRegularFile) {
+            return getFile(request, file);
+        } else if (file.isDirectory) {
             return getDirectoryListing(request, resource);
         } else {
             return new Response(Status.NOT_FOUND, "");
         }
     }
 
-    private static Response getFile(Request request, Path resource) {
-        if (request.headers.containsKey(Header.RANGE)) {
-            return partialContentOf(resource, request.headers);
+    private Response getFile(Request request, FileMetadata file) {
+        Map<String, Object> validators = Validators.headersOf(file);
+        if (Validators.isNotModified(request.headers, file)) return new Response(Status.NOT_MODIFIED, validators, "");
+
+        String range = Validators.rangeApplies(request.headers, file) ? request.headers.get(Header.RANGE) : null;
+        FileCache.Entry cached = cache == null ? null : cache.get(file);
+        if (cached != null) {
+            return getCachedFile(cached, range, validators);
+        } else if (range != null) {
+            return partialContentOf(file, range, validators);
         } else {
-            return fullContentOf(resource);
+            return fullContentOf(file, validators);
         }
     }
 
-    private static Response fullContentOf(Path resource) {
-        Map<String, Object> headers = new HashMap<>();
-        headers.put(Header.CONTENT_LENGTH, sizeOf(resource));
-        String contentType = URLConnection.guessContentTypeFromName(resource.getFileName().toString());
+    private static Response getCachedFile(FileCache.Entry file, String rawRange, Map<String, Object> validators) {
+        try {
+            if (rawRange != null) {
+                List<Range> ranges = parseRanges(rawRange, file.size);
+                return partialContentOf(ranges, file.size, file.contentType,
+                        range -> Body.of(file.content(range.start, range.length())), validators);
+            }
+        } catch (UnknownRangeUnit e) {
+            // Serve the full content, as for an uncached file
+        } catch (InvalidByteRange e) {
+            return rangeNotSatisfiable(e.resourceSize);
+        }
+        Map<String, Object> headers = fullContentHeaders(file.size, file.contentType, validators);
+        return new Response(Status.OK, headers, Body.of(file.content(0, file.size)));
+    }
+
+    private static Response fullContentOf(FileMetadata metadata, Map<String, Object> validators) {
+        FileChannel file = fileChannelOf(metadata.path);
+        long size = sizeOf(file);
+        Map<String, Object> headers = fullContentHeaders(size, metadata.contentType, validators);
+        return new Response(Status.OK, headers, new FileRegion(file, 0, size));
+    }
+
+    private static Map<String, Object> fullContentHeaders(long size, String contentType, Map<String, Object> validators) {
+        Map<String, Object> headers = new HashMap<>(validators);
+        headers.put(Header.CONTENT_LENGTH, size);
         if (contentType != null) headers.put(Header.CONTENT_TYPE, contentType);
-        return new Response(Status.OK, headers, byteChannelOf(resource));
+        return headers;
     }
 
-    private static long sizeOf(Path resource) {
+    private static long sizeOf(FileChannel file) {
         try {
-            return Files.size(resource);
+            return file.size();
         } catch (IOException e) {
+            close(file);
             throw new UncheckedIOException(e);
         }
     }
 
-    private static SeekableByteChannel byteChannelOf(Path resource) {
+    private static FileChannel fileChannelOf(Path resource) {
         try {
-            return Files.newByteChannel(resource, StandardOpenOption.READ);
+            return FileChannel.open(resource, StandardOpenOption.READ);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
-    private static Response partialContentOf(Path resource, Map<String, String> requestHeaders) {
+    private static Response partialContentOf(FileMetadata metadata, String rawRange, Map<String, Object> validators) {
         // Close file only on exceptions as downstream is responsible for closing on happy path
-        SeekableByteChannel sbc = null;
+        FileChannel file = null;
         try {
-            sbc = Files.newByteChannel(resource, StandardOpenOption.READ);
-            Range range = parseRange(requestHeaders.get(Header.RANGE), sbc.size());
-            sbc.position(range.start);
-            long partialSize = range.end - range.start + 1;
-            ReadableByteChannel partialContent = ByteChannels.limit(sbc, partialSize);
-            Map<String, Object> headers = new HashMap<>();
-            headers.put(Header.CONTENT_RANGE, String.format("bytes %d-%d/%d", range.start, range.end, sbc.size()));
-            headers.put(Header.CONTENT_LENGTH, partialSize);
-            return new Response(Status.PARTIAL_CONTENT, headers, partialContent);
+            file = FileChannel.open(metadata.path, StandardOpenOption.READ);
+            FileChannel content = file;
+            List<Range> ranges = parseRanges(rawRange, file.size());
+            return partialContentOf(ranges, file.size(), metadata.contentType,
+                    range -> new FileRegion(content, range.start, range.length()), validators);
         } catch (UnknownRangeUnit e) {
-            close(sbc);
-            return fullContentOf(resource);
+            close(file);
+            return fullContentOf(metadata, validators);
         } catch (InvalidByteRange e) {
-            close(sbc);
-            Map<String, Object> headers = Collections.singletonMap(Header.CONTENT_RANGE, String.format("bytes */%d", e.resourceSize));
-            return new Response(Status.REQUESTED_RANGE_NOT_SATISFIABLE, headers, "");
+            close(file);
+            return rangeNotSatisfiable(e.resourceSize);
         } catch (Exception e) {
-            close(sbc);
+            close(file);
             throw new RuntimeException(e);
         }
     }
 
-    private static void close(SeekableByteChannel sbc) {
-        if (sbc == null) return;
+    // Parts of a multipart response share the file, which closing the response closes
+    private static Response partialContentOf(List<Range> ranges, long resourceSize, String contentType,
+                                             Function<Range, Body> contentOf, Map<String, Object> validators) {
+        if (ranges.size() > 1) return multipartContentOf(ranges, resourceSize, contentType, contentOf, validators);
+
+        Range range = ranges.get(0);
+        Map<String, Object> headers = new HashMap<>(validators);
+        headers.put(Header.CONTENT_RANGE, contentRangeOf(range, resourceSize));
+        headers.put(Header.CONTENT_LENGTH, range.length());
+        return new Response(Status.PARTIAL_CONTENT, headers, contentOf.apply(range));
+    }
+
+    private static Response multipartContentOf(List<Range> ranges, long resourceSize, String contentType,
+                                               Function<Range, Body> contentOf, Map<String, Object> validators) {
+        String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong())
+                + Long.toHexString(ThreadLocalRandom.current().nextLong());
+        List<Body> parts = new ArrayList<>();
+        for (Range range : ranges) {
+            StringBuilder partHead = new StringBuilder("\r\n--").append(boundary).append("\r\n");
+            if (contentType != null) partHead.append(Header.CONTENT_TYPE).append(": ").append(contentType).append("\r\n");
+            partHead.append(Header.CONTENT_RANGE).append(": ").append(contentRangeOf(range, resourceSize)).append("\r\n\r\n");
+            parts.add(Body.of(partHead.toString()));
+            parts.add(contentOf.apply(range));
+        }
+        parts.add(Body.of("\r\n--" + boundary + "--\r\n"));
+        Body body = Body.concat(parts);
+
+        Map<String, Object> headers = new HashMap<>(validators);
+        headers.put(Header.CONTENT_TYPE, "multipart/byteranges; boundary=" + boundary);
+        headers.put(Header.CONTENT_LENGTH, body.length());
+        return new Response(Status.PARTIAL_CONTENT, headers, body);
+    }
+
+    private static String contentRangeOf(Range range, long resourceSize) {
+        return String.format("bytes %d-%d/%d", range.start, range.end, resourceSize);
+    }
+
+    private static Response rangeNotSatisfiable(long resourceSize) {
+        Map<String, Object> headers = Collections.singletonMap(Header.CONTENT_RANGE, String.format("bytes */%d", resourceSize));
+        return new Response(Status.REQUESTED_RANGE_NOT_SATISFIABLE, headers, "");
+    }
+
+    private static void close(FileChannel file) {
+        if (file == null) return;
         try {
-            sbc.close();
+            file.close();
         } catch (IOException e) {
             logger.warn("Unable to close ByteChannel.", e);
         }
     }
 
-    private static Range parseRange(String range, long resourceSize) {
-        if (!range.trim().startsWith("bytes=")) throw new UnknownRangeUnit();
-        Pattern pattern = Pattern.compile("bytes=(?:(?<start>\\d+)-(?<end>\\d*)|-(?<suffix>\\d+))");
-        Matcher matcher = pattern.matcher(range);
-        if (!matcher.find()) throw new InvalidByteRange(resourceSize);
-        if (matcher.group("suffix") == null) {
-            return parseStartEndRange(matcher.group("start"), matcher.group("end"), resourceSize);
-        } else {
-            return parseSuffixRange(matcher.group("suffix"), resourceSize);
+    // Unsatisfiable ranges are dropped, and overlapping or adjacent ranges are coalesced in ascending order
+    static List<Range> parseRanges(String rawRange, long resourceSize) {
+        String range = rawRange.trim();
+        if (!range.startsWith(BYTES_UNIT)) throw new UnknownRangeUnit();
+        List<Range> ranges = new ArrayList<>();
+        for (String rangeSpec : range.substring(BYTES_UNIT.length()).split(",")) {
+            Matcher matcher = RANGE_SPEC.matcher(rangeSpec.trim());
+            if (!matcher.matches()) throw new InvalidByteRange(resourceSize);
+            Range parsed = matcher.group("suffix") == null
+                    ? parseStartEndRange(matcher.group("start"), matcher.group("end"), resourceSize)
+                    : parseSuffixRange(matcher.group("suffix"), resourceSize);
+            if (parsed != null) ranges.add(parsed);
         }
+        if (ranges.isEmpty()) throw new InvalidByteRange(resourceSize);
+        List<Range> coalesced = coalesce(ranges);
+        if (coalesced.size() > MAX_RANGES) throw new TooManyRanges();
+        return coalesced;
     }
 
     private static Range parseStartEndRange(String rawStart, String rawEnd, long resourceSize) {
-        long start = Long.parseLong(rawStart);
-        if (start >= resourceSize) throw new InvalidByteRange(resourceSize);
-        if (rawEnd.isEmpty()) {
-            return new Range(start, (resourceSize - 1));
-        } else {
-            long end = Long.parseLong(rawEnd);
-            if (start > end) throw new InvalidByteRange(resourceSize);
-            return new Range(start, Math.min(end, resourceSize - 1));
-        }
+        long start = parsePosition(rawStart);
+        long end = rawEnd.isEmpty() ? Long.MAX_VALUE : parsePosition(rawEnd);
+        if (start > end) throw new InvalidByteRange(resourceSize);
+        if (start >= resourceSize) return null;
+        return new Range(start, Math.min(end, resourceSize - 1));
     }
 
     private static Range parseSuffixRange(String rawSuffix, long resourceSize) {
-        long suffixLength = Long.parseLong(rawSuffix);
-        if (suffixLength == 0) throw new InvalidByteRange(resourceSize);
+        long suffixLength = parsePosition(rawSuffix);
+        if (suffixLength == 0 || resourceSize == 0) return null;
         long start = Math.max(resourceSize - suffixLength, 0);
         long end = resourceSize - 1;
         return new Range(start, end);
     }
 
+    // Positions beyond a long are beyond any file, so they are saturated rather than rejected
+    private static long parsePosition(String digits) {
+        try {
+            return Long.parseLong(digits);
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static List<Range> coalesce(List<Range> ranges) {
+        ranges.sort(Comparator.comparingLong(r -> r.start));
+        List<Range> coalesced = new ArrayList<>();
+        Range current = ranges.get(0);
+        for (Range next : ranges.subList(1, ranges.size())) {
+            if (next.start <= current.end + 1) {
+                current = new Range(current.start, Math.max(current.end, next.end));
+            } else {
+                coalesced.add(current);
+                current = next;
+            }
+        }
+        coalesced.add(current);
+        return coalesced;
+    }
+
+    // Streamed as the directory is read, so that the size of the page does not depend on holding it all in memory
     private static Response getDirectoryListing(Request request, Path resource) {
-        String listing = directoryListingOf(resource)
-                .map(Path::getFileName)
-                .map(f -> String.format("<li><a href=\"%s\">%s</a></li>", linkOf(request.path, f), f))
-                .collect(Collectors.joining());
-        String directoryTemplate = Resources.slurp("/directory.html");
-        String directoryListing = String.format(directoryTemplate, request.path, listing);
-        Map<String, Object> headers = new HashMap<>();
-        headers.put(Header.CONTENT_LENGTH, directoryListing.length());
-        headers.put(Header.CONTENT_TYPE, "text/html");
-        return new Response(Status.OK, headers, directoryListing);
-    }
-
-    private static Stream<Path> directoryListingOf(Path resource) {
+        String page = String.format(Resources.slurp("/directory.html"), request.path, LISTING_MARKER);
+        int listingAt = page.indexOf(LISTING_MARKER);
+        Body body = new DirectoryListing(request.path, directoryStreamOf(resource),
+                page.substring(0, listingAt), page.substring(listingAt + LISTING_MARKER.length()));
+        return new Response(Status.OK, Collections.singletonMap(Header.CONTENT_TYPE, "text/html"), body);
+    }
+
+    private static DirectoryStream<Path> directoryStreamOf(Path resource) {
         try {
-            return Files.list(resource);
+            return Files.newDirectoryStream(resource);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -171,9 +283,50 @@ public class GetHandler implements Handler {
         return basePath.endsWith("/") ? basePath + filename : basePath + "/" + filename;
     }
 
+    private static class DirectoryListing implements Body {
+        private final String basePath;
+        private final DirectoryStream<Path> entries;
+        private final String header;
+        private final String footer;
+
+        DirectoryListing(String basePath, DirectoryStream<Path> entries, String header, String footer) {
+            this.basePath = basePath;
+            this.entries = entries;
+            this.header = header;
+            this.footer = footer;
+        }
+
+        @Override
+        public long length() {
+            return UNKNOWN_LENGTH;
+        }
+
+        // The writer is flushed rather than closed, as closing it would close the channel
+        @Override
+        public void writeTo(WritableByteChannel channel) throws IOException {
+            Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1);
+            writer.write(header);
+            for (Path entry : entries) {
+                Path f = entry.getFileName();
+                writer.write(String.format("<li><a href=\"%s\">%s</a></li>", linkOf(basePath, f), f));
+            }
+            writer.write(footer);
+            writer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            entries.close();
+        }
+    }
+
     private static class UnknownRangeUnit extends RuntimeException {
     }
 
+    // Served in full like an unknown unit, bounding the number of parts a single request can ask for
+    private static class TooManyRanges extends UnknownRangeUnit {
+    }
+
     private static class InvalidByteRange extends RuntimeException {
         final long resourceSize;
 
@@ -182,7 +335,7 @@ public class GetHandler implements Handler {
         }
     }
 
-    private static class Range {
+    static class Range {
         final long start;
         final long end;
 
@@ -190,5 +343,9 @@ public class GetHandler implements Handler {
             this.start = start;
             this.end = end;
         }
+
+        long length() {
+            return end - start + 1;
+        }
     }
 }
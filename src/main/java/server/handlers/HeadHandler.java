@@ -6,36 +6,36 @@ import server.data.Request;
 import server.data.Response;
 import server.data.Status;
 
-import java.io.IOException;
-import java.io.UncheckedIOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.Map;
 
 public class HeadHandler implements Handler {
     private final Path directory;
+    private final FileMetadataCache metadata;
 
     public HeadHandler(Path directory) {
+        this(directory, FileMetadataCache.uncached());
+    }
+
+    public HeadHandler(Path directory, FileMetadataCache metadata) {
         this.directory = directory;
+        this.metadata = metadata;
     }
 
     @Override
     public Response handle(Request request) {
-        Path resource = directory.resolve(request.path.substring(1));
-        if (Files.exists(resource)) {
-            Map<String, Object> headers = Collections.singletonMap(Header.CONTENT_LENGTH, sizeOf(resource));
+        FileMetadata file = metadata.get(directory.resolve(request.path.substring(1)));
+        if (file.isRegularFile) {
+            Map<String, Object> headers = Validators.headersOf(file);
+            if (Validators.isNotModified(request.headers, file)) return new Response(Status.NOT_MODIFIED, headers, "");
+            headers.put(Header.CONTENT_LENGTH, file.size);
+            return new Response(Status.OK, headers, "");
+        } else if (file.exists) {
+            Map<String, Object> headers = Collections.singletonMap(Header.CONTENT_LENGTH, file.size);
             return new Response(Status.OK, headers, "");
         } else {
             return new Response(Status.NOT_FOUND, "");
         }
     }
-
-    private long sizeOf(Path resource) {
-        try {
-            return Files.size(resource);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-    }
 }
@@ -0,0 +1,25 @@
+package server.handlers;
+
+import server.Handler;
+import server.data.Header;
+import server.data.Request;
+import server.data.Response;
+import server.data.Status;
+import server.metrics.Metrics;
+
+import java.util.Collections;
+
+public class MetricsHandler implements Handler {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final Metrics metrics;
+
+    public MetricsHandler(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Response handle(Request request) {
+        return new Response(Status.OK, Collections.singletonMap(Header.CONTENT_TYPE, CONTENT_TYPE), metrics.render());
+    }
+}
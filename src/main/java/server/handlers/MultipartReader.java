@@ -0,0 +1,245 @@
+package server.handlers;
+
+import server.util.BufferPool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+ * Reads the parts of a multipart/form-data body one after the other as the body is read. The content of a part is a
+ * channel ending at the next delimiter, found by searching a fixed buffer, so no part is ever held in memory whole: bytes
+ * are handed out as soon as they can no longer be the start of a delimiter. Content left unread is skipped when moving
+ * to the next part, and the preamble and epilogue are ignored.
+ */
+class MultipartReader implements Closeable {
+    private static final String MULTIPART_FORM_DATA = "multipart/form-data";
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_HEADERS_LENGTH = 8 * 1024;
+    private static final int MAX_BOUNDARY_LENGTH = 70;
+    private static final int EOS = -1;
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final byte DASH = '-';
+
+    private final ReadableByteChannel body;
+    private final byte[] delimiter;
+    private final ByteBuffer buffer;
+    private boolean partEnded;
+    private boolean ended;
+
+    MultipartReader(ReadableByteChannel body, String boundary) {
+        this.body = body;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        this.buffer = BufferPool.shared().acquire(BUFFER_SIZE);
+        // The first delimiter may start the body, without the line break that precedes the others
+        buffer.put(CR).put(LF).flip();
+    }
+
+    // Boundary of a multipart/form-data content type, or null for any other content type
+    static String boundaryOf(String contentType) {
+        if (contentType == null) return null;
+        String[] mediaType = contentType.split(";", 2);
+        if (!mediaType[0].trim().equalsIgnoreCase(MULTIPART_FORM_DATA)) return null;
+        String boundary = mediaType.length < 2 ? null : parametersOf(mediaType[1]).get("boundary");
+        if (boundary == null || boundary.isEmpty() || boundary.length() > MAX_BOUNDARY_LENGTH)
+            throw new InvalidMultipart("Invalid multipart boundary");
+        return boundary;
+    }
+
+    // Returns null once the closing delimiter has been read
+    Part next() throws IOException {
+        if (ended) return null;
+        skipContent();
+        fill(2);
+        if (buffer.get(buffer.position()) == DASH && buffer.get(buffer.position() + 1) == DASH) {
+            ended = true;
+            return null;
+        }
+        String line = readLine(MAX_HEADERS_LENGTH);
+        if (!line.trim().isEmpty()) throw new InvalidMultipart("Invalid multipart body: expecting <CR><LF> after delimiter");
+
+        String disposition = null;
+        String contentType = null;
+        int headersLength = 0;
+        while (!(line = readLine(MAX_HEADERS_LENGTH - headersLength)).isEmpty()) {
+            headersLength += line.length();
+            int colon = line.indexOf(':');
+            if (colon < 0) throw new InvalidMultipart("Invalid part header: " + line);
+            String name = line.substring(0, colon).trim();
+            if (name.equalsIgnoreCase("Content-Disposition")) disposition = line.substring(colon + 1).trim();
+            else if (name.equalsIgnoreCase("Content-Type")) contentType = line.substring(colon + 1).trim();
+        }
+        partEnded = false;
+        return partOf(disposition, contentType);
+    }
+
+    private Part partOf(String disposition, String contentType) {
+        String[] type = disposition == null ? new String[0] : disposition.split(";", 2);
+        if (type.length < 2 || !type[0].trim().equalsIgnoreCase("form-data"))
+            throw new InvalidMultipart("Invalid part: missing form-data disposition");
+        Map<String, String> parameters = parametersOf(type[1]);
+        String name = parameters.get("name");
+        if (name == null) throw new InvalidMultipart("Invalid part: missing name");
+        return new Part(name, parameters.get("filename"), contentType, new Content());
+    }
+
+    private void skipContent() throws IOException {
+        while (!partEnded) {
+            int found = indexOfDelimiter();
+            if (found >= 0) {
+                buffer.position(found + delimiter.length);
+                partEnded = true;
+            } else {
+                buffer.position(Math.max(buffer.position(), buffer.limit() - delimiter.length + 1));
+                fill(delimiter.length);
+            }
+        }
+    }
+
+    private int readContent(ByteBuffer dst) throws IOException {
+        if (partEnded) return EOS;
+        if (!dst.hasRemaining()) return 0;
+        while (true) {
+            int found = indexOfDelimiter();
+            // Without a delimiter, the last bytes may still be the start of one
+            int available = found >= 0 ? found - buffer.position() : buffer.remaining() - delimiter.length + 1;
+            if (available > 0) return copy(dst, Math.min(available, dst.remaining()));
+            if (found >= 0) {
+                buffer.position(found + delimiter.length);
+                partEnded = true;
+                return EOS;
+            }
+            fill(delimiter.length);
+        }
+    }
+
+    private int copy(ByteBuffer dst, int length) {
+        int limit = buffer.limit();
+        buffer.limit(buffer.position() + length);
+        dst.put(buffer);
+        buffer.limit(limit);
+        return length;
+    }
+
+    private int indexOfDelimiter() {
+        int last = buffer.limit() - delimiter.length;
+        for (int i = buffer.position(); i <= last; i++) {
+            if (buffer.get(i) != CR) continue;
+            int j = 1;
+            while (j < delimiter.length && buffer.get(i + j) == delimiter[j]) j++;
+            if (j == delimiter.length) return i;
+        }
+        return -1;
+    }
+
+    private String readLine(int maxLength) throws IOException {
+        int scanned = 0;
+        while (true) {
+            for (int i = buffer.position() + scanned; i < buffer.limit() - 1; i++) {
+                if (buffer.get(i) == CR && buffer.get(i + 1) == LF) {
+                    byte[] line = new byte[i - buffer.position()];
+                    buffer.get(line);
+                    buffer.position(buffer.position() + 2);
+                    return new String(line, StandardCharsets.UTF_8);
+                }
+            }
+            scanned = Math.max(0, buffer.remaining() - 1);
+            if (scanned > maxLength) throw new InvalidMultipart("Invalid multipart body: part headers are too long");
+            fill(buffer.remaining() + 1);
+        }
+    }
+
+    // Reads until at least the given number of bytes are buffered, failing at the end of the body
+    private void fill(int minimum) throws IOException {
+        if (buffer.remaining() >= minimum) return;
+        buffer.compact();
+        try {
+            while (buffer.position() < minimum) {
+                if (body.read(buffer) == EOS) throw new InvalidMultipart("Incomplete multipart body");
+            }
+        } finally {
+            buffer.flip();
+        }
+    }
+
+    // Parameters of a header value, such as name="value"; quoted strings may contain escaped quotes and backslashes
+    private static Map<String, String> parametersOf(String header) {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        int i = 0;
+        while (i < header.length()) {
+            int end = i;
+            while (end < header.length() && header.charAt(end) != '=' && header.charAt(end) != ';') end++;
+            String name = header.substring(i, end).trim().toLowerCase(Locale.ROOT);
+            i = end + 1;
+            if (end == header.length() || header.charAt(end) == ';') continue;
+
+            StringBuilder value = new StringBuilder();
+            while (i < header.length() && header.charAt(i) == ' ') i++;
+            if (i < header.length() && header.charAt(i) == '"') {
+                for (i++; i < header.length() && header.charAt(i) != '"'; i++) {
+                    if (header.charAt(i) == '\\' && i + 1 < header.length() && isEscaped(header.charAt(i + 1))) i++;
+                    value.append(header.charAt(i));
+                }
+                while (i < header.length() && header.charAt(i) != ';') i++;
+            } else {
+                while (i < header.length() && header.charAt(i) != ';') value.append(header.charAt(i++));
+            }
+            i++;
+            parameters.putIfAbsent(name, value.toString().trim());
+        }
+        return parameters;
+    }
+
+    // Other backslashes are kept, as clients send Windows paths as they are
+    private static boolean isEscaped(char c) {
+        return c == '"' || c == '\\';
+    }
+
+    @Override
+    public void close() {
+        BufferPool.shared().release(buffer);
+    }
+
+    static class Part {
+        final String name;
+        final String filename;
+        final String contentType;
+        final ReadableByteChannel content;
+
+        Part(String name, String filename, String contentType, ReadableByteChannel content) {
+            this.name = name;
+            this.filename = filename;
+            this.contentType = contentType;
+            this.content = content;
+        }
+    }
+
+    // Only valid until the next part is read
+    private class Content implements ReadableByteChannel {
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return readContent(dst);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    static class InvalidMultipart extends RuntimeException {
+        InvalidMultipart(String message) {
+            super(message);
+        }
+    }
+}
@@ -2,63 +2,70 @@ package server.handlers;
 
 import server.Handler;
 import server.data.Header;
+import server.data.Parameters;
 import server.data.Request;
 import server.data.Response;
-import server.util.ByteChannels;
+import server.data.Status;
 
-import java.io.UncheckedIOException;
-import java.io.UnsupportedEncodingException;
-import java.net.URLDecoder;
-import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
 import java.util.Map;
-import java.util.stream.Collectors;
 
+// Query parameters come before form parameters of the same name, and the form is only read once a parameter is looked up
 public class ParametersWrapper implements Handler {
     static final String APPLICATION_FORM_URLENCODED = "application/x-www-form-urlencoded";
+    public static final long DEFAULT_MAX_FORM_SIZE = 1024 * 1024;
     private final Handler handler;
+    private final long maxFormSize;
 
     public ParametersWrapper(Handler handler) {
+        this(handler, DEFAULT_MAX_FORM_SIZE);
+    }
+
+    public ParametersWrapper(Handler handler, long maxFormSize) {
         this.handler = handler;
+        this.maxFormSize = maxFormSize;
     }
 
     @Override
     public Response handle(Request request) {
-        if (isUrlEncodedForm(request)) request.parameters = parseFormParameters(request);
-        if (hasQuery(request)) request.parameters = parseParameters(request.query);
-        return handler.handle(request);
+        boolean form = isUrlEncodedForm(request);
+        if (form || hasQuery(request)) request.parameters = new Parameters(p -> decode(request, form, p));
+
+        try {
+            return handler.handle(request);
+        } catch (FormDecoder.FormTooLarge e) {
+            return new Response(Status.PAYLOAD_TOO_LARGE, e.getMessage());
+        } catch (FormDecoder.InvalidForm e) {
+            return new Response(Status.BAD_REQUEST, e.getMessage());
+        }
     }
 
-    private boolean isUrlEncodedForm(Request request) {
-        return APPLICATION_FORM_URLENCODED.equals(request.headers.get(Header.CONTENT_TYPE));
+    private void decode(Request request, boolean form, Parameters parameters) {
+        if (hasQuery(request)) new FormDecoder(parameters, Long.MAX_VALUE).decode(request.query);
+        if (!form || request.body == null) return;
+        // Rejected before reading, so that a client expecting 100-continue is not told to send it
+        if (parseContentLength(request.headers) > maxFormSize) throw new FormDecoder.FormTooLarge(maxFormSize);
+        new FormDecoder(parameters, maxFormSize).decode(request.body);
     }
 
-    private Map<String, String> parseFormParameters(Request request) {
-        long contentLength = parseContentLength(request.headers);
-        String rawParams = ByteChannels.slurp(ByteChannels.limit(request.body, contentLength));
-        return parseParameters(rawParams);
+    // Media type parameters, such as a charset, are allowed
+    private boolean isUrlEncodedForm(Request request) {
+        String contentType = request.headers.get(Header.CONTENT_TYPE);
+        if (contentType == null) return false;
+        int end = contentType.indexOf(';');
+        return (end < 0 ? contentType : contentType.substring(0, end)).trim().equalsIgnoreCase(APPLICATION_FORM_URLENCODED);
     }
 
     private boolean hasQuery(Request request) {
         return request.query != null;
     }
 
-    private Map<String, String> parseParameters(String rawParams) {
-        return Arrays.stream(rawParams.split("&"))
-                .map(rp -> rp.split("="))
-                .collect(Collectors.toMap(p -> p[0], p -> p.length < 2 ? "" : decode(p[1])));
-    }
-
+    // Returns -1 when the length is unknown, leaving the limit to be enforced while reading
     private static long parseContentLength(Map<String, String> headers) {
-        String contentLength = headers.getOrDefault(Header.CONTENT_LENGTH, "0");
-        return Long.parseLong(contentLength);
-    }
-
-    private String decode(String formEncodedStr) {
+        if (headers.containsKey(Header.TRANSFER_ENCODING)) return -1;
         try {
-            return URLDecoder.decode(formEncodedStr, StandardCharsets.UTF_8.name());
-        } catch (UnsupportedEncodingException e) {
-            throw new UncheckedIOException(e);
+            return Long.parseLong(headers.getOrDefault(Header.CONTENT_LENGTH, "0"));
+        } catch (NumberFormatException e) {
+            return -1;
         }
     }
 }
@@ -7,12 +7,12 @@ import server.data.Header;
 import server.data.Request;
 import server.data.Response;
 import server.data.Status;
+import server.util.ByteChannels;
+import server.util.Digests;
 import server.util.Maps;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.UncheckedIOException;
-import java.math.BigInteger;
 import java.nio.channels.FileChannel;
 import java.nio.channels.NonReadableChannelException;
 import java.nio.channels.ReadableByteChannel;
@@ -20,18 +20,23 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
-import java.security.DigestInputStream;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.Map;
 
 public class PatchHandler implements Handler {
     private static final Logger logger = LoggerFactory.getLogger(PatchHandler.class);
+    private static final long UNKNOWN_LENGTH = -1;
 
     private final Path directory;
+    private final FileMetadataCache metadata;
 
     public PatchHandler(Path directory) {
+        this(directory, FileMetadataCache.uncached());
+    }
+
+    public PatchHandler(Path directory, FileMetadataCache metadata) {
         this.directory = directory;
+        this.metadata = metadata;
     }
 
     @Override
@@ -47,7 +52,9 @@ public class PatchHandler implements Handler {
         }
     }
 
+    // A chunked body is read to its end, its length known only then
     private static long parseContentLength(Map<String, String> headers) {
+        if (headers.containsKey(Header.TRANSFER_ENCODING)) return UNKNOWN_LENGTH;
         String contentLength = headers.getOrDefault(Header.CONTENT_LENGTH, "0");
         try {
             return Long.parseLong(contentLength);
@@ -57,12 +64,15 @@ public class PatchHandler implements Handler {
     }
 
     private Response patch(Path resource, ReadableByteChannel body, String eTag, long contentLength) {
-        if (Files.isRegularFile(resource)) {
-            if (!eTag.equals(sha1Of(resource)))
+        FileMetadata file = metadata.refresh(resource);
+        if (file.isRegularFile) {
+            String sha1 = file.eTag();
+            // Accepts the quoted entity tag served by GET as well as the bare checksum
+            if (!eTag.equals(sha1) && !eTag.equals('"' + sha1 + '"'))
                 return new Response(Status.PRECONDITION_FAILED, "ETag does not match file checksum.");
             String newETag = write(resource, body, contentLength);
             return new Response(Status.NO_CONTENT, Maps.of(Header.E_TAG, newETag), "");
-        } else if (Files.isDirectory(resource)) {
+        } else if (file.isDirectory) {
             return new Response(Status.CONFLICT, "Unable to create/update: " + resource.getFileName() + " is a directory.");
         } else {
             return new Response(Status.NOT_FOUND, "");
@@ -71,12 +81,16 @@ public class PatchHandler implements Handler {
 
     private String write(Path resource, ReadableByteChannel rbc, long contentLength) {
         Path temp = createTempFile(directory);
+        MessageDigest digest = Digests.digest("SHA-1");
         try (FileChannel sbc = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
-            long bytesTransferred = sbc.transferFrom(rbc, 0, contentLength);
-            if (bytesTransferred != contentLength)
+            long bytesTransferred = sbc.transferFrom(ByteChannels.digesting(rbc, digest), 0,
+                    contentLength == UNKNOWN_LENGTH ? Long.MAX_VALUE : contentLength);
+            if (contentLength != UNKNOWN_LENGTH && bytesTransferred != contentLength)
                 throw new InvalidRequest("Incomplete message: body is not " + contentLength + " byte(s)");
             Files.move(temp, resource, StandardCopyOption.REPLACE_EXISTING);
-            return sha1Of(resource);
+            String eTag = Digests.hexOf(digest.digest());
+            metadata.written(resource, eTag);
+            return eTag;
         } catch (NonReadableChannelException e) {
             throw new InvalidRequest("Incomplete message: unable to read body");
         } catch (IOException e) {
@@ -86,25 +100,6 @@ public class PatchHandler implements Handler {
         }
     }
 
-    private static String sha1Of(Path resource) {
-        try (InputStream is = Files.newInputStream(resource);
-             DigestInputStream dis = new DigestInputStream(is, digest("SHA-1"))) {
-            while (dis.read() != -1) ;
-            byte[] digest = dis.getMessageDigest().digest();
-            return String.format("%040x", new BigInteger(1, digest));
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-    }
-
-    private static MessageDigest digest(String algorithm) {
-        try {
-            return MessageDigest.getInstance(algorithm);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
     private static Path createTempFile(Path tempDirectory) {
         try {
             return Files.createTempFile(tempDirectory, null, null);
@@ -0,0 +1,137 @@
+package server.handlers;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Passwords stored as salted PBKDF2 (HMAC-SHA256) hashes, one "<username>:<iterations>:<salt>:<hash>" line per user
+ * with the salt and hash in Base64. Blank lines and lines starting with "#" are ignored.
+ *
+ * Entries are created with:
+ *   java -cp <classpath> server.handlers.Pbkdf2CredentialStore <username> <password>
+ */
+public class Pbkdf2CredentialStore implements CredentialStore {
+    public static final int DEFAULT_ITERATIONS = 210_000;
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_LENGTH = 16;
+    private static final int HASH_LENGTH = 32;
+    private static final String SEPARATOR = ":";
+    private static final String COMMENT = "#";
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Map<String, Entry> entries;
+    // Verified against for unknown users, so that they take as long to reject as wrong passwords
+    private final Entry absentUser;
+
+    private Pbkdf2CredentialStore(Map<String, Entry> entries) {
+        this.entries = entries;
+        int iterations = entries.values().stream().mapToInt(e -> e.iterations).max().orElse(DEFAULT_ITERATIONS);
+        this.absentUser = new Entry(iterations, randomBytes(SALT_LENGTH), randomBytes(HASH_LENGTH));
+    }
+
+    public static Pbkdf2CredentialStore load(Path file) {
+        try {
+            return parse(Files.readAllLines(file, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static Pbkdf2CredentialStore parse(List<String> lines) {
+        Map<String, Entry> entries = new HashMap<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith(COMMENT)) continue;
+            String[] fields = line.split(SEPARATOR, 2);
+            try {
+                if (fields.length != 2) throw new IllegalArgumentException("missing fields");
+                entries.put(fields[0], Entry.parse(fields[1]));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidCredentials(i + 1, e.getMessage());
+            }
+        }
+        return new Pbkdf2CredentialStore(entries);
+    }
+
+    public static String entryOf(String username, String password, int iterations) {
+        byte[] salt = randomBytes(SALT_LENGTH);
+        Base64.Encoder base64 = Base64.getEncoder();
+        return String.join(SEPARATOR, username, String.valueOf(iterations),
+                base64.encodeToString(salt), base64.encodeToString(hash(password, salt, iterations)));
+    }
+
+    @Override
+    public boolean verify(String username, String password) {
+        Entry entry = entries.get(username);
+        boolean matches = (entry != null ? entry : absentUser).matches(password);
+        return entry != null && matches;
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        RANDOM.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] hash(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_LENGTH * 8);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException(e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: Pbkdf2CredentialStore <username> <password>");
+            System.exit(1);
+        }
+        System.out.println(entryOf(args[0], args[1], DEFAULT_ITERATIONS));
+    }
+
+    private static class Entry {
+        final int iterations;
+        final byte[] salt;
+        final byte[] hash;
+
+        Entry(int iterations, byte[] salt, byte[] hash) {
+            this.iterations = iterations;
+            this.salt = salt;
+            this.hash = hash;
+        }
+
+        static Entry parse(String fields) {
+            String[] values = fields.split(SEPARATOR);
+            if (values.length != 3) throw new IllegalArgumentException("expected <iterations>:<salt>:<hash>");
+            int iterations = Integer.parseInt(values[0]);
+            if (iterations <= 0) throw new IllegalArgumentException("iterations should be positive");
+            Base64.Decoder base64 = Base64.getDecoder();
+            return new Entry(iterations, base64.decode(values[1]), base64.decode(values[2]));
+        }
+
+        boolean matches(String password) {
+            return MessageDigest.isEqual(hash, hash(password, salt, iterations));
+        }
+    }
+
+    static class InvalidCredentials extends RuntimeException {
+        InvalidCredentials(int lineNumber, String message) {
+            super(String.format("Invalid credentials on line %d: %s", lineNumber, message));
+        }
+    }
+}
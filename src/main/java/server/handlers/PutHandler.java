@@ -7,6 +7,8 @@ import server.data.Header;
 import server.data.Request;
 import server.data.Response;
 import server.data.Status;
+import server.util.ByteChannels;
+import server.util.Digests;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
@@ -17,15 +19,23 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
 import java.util.Map;
 
 public class PutHandler implements Handler {
     private static final Logger logger = LoggerFactory.getLogger(PutHandler.class);
+    static final long UNKNOWN_LENGTH = -1;
 
     private final Path directory;
+    private final FileMetadataCache metadata;
 
     public PutHandler(Path directory) {
+        this(directory, FileMetadataCache.uncached());
+    }
+
+    public PutHandler(Path directory, FileMetadataCache metadata) {
         this.directory = directory;
+        this.metadata = metadata;
     }
 
     @Override
@@ -39,7 +49,9 @@ public class PutHandler implements Handler {
         }
     }
 
+    // A chunked body is read to its end, its length known only then
     private static long parseContentLength(Map<String, String> headers) {
+        if (headers.containsKey(Header.TRANSFER_ENCODING)) return UNKNOWN_LENGTH;
         String contentLength = headers.getOrDefault(Header.CONTENT_LENGTH, "0");
         try {
             return Long.parseLong(contentLength);
@@ -60,14 +72,18 @@ public class PutHandler implements Handler {
         }
     }
 
-    private void write(Path resource, ReadableByteChannel rbc, long contentLength) {
+    // Writes into a temporary file first, moved over the resource only once the whole body has been read
+    void write(Path resource, ReadableByteChannel rbc, long contentLength) {
         Path temp = createTempFile(directory);
+        MessageDigest digest = Digests.digest("SHA-1");
         try (FileChannel sbc = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
-            long bytesTransferred = sbc.transferFrom(rbc, 0, contentLength);
-            if (bytesTransferred == contentLength)
+            long bytesTransferred = sbc.transferFrom(ByteChannels.digesting(rbc, digest), 0,
+                    contentLength == UNKNOWN_LENGTH ? Long.MAX_VALUE : contentLength);
+            if (contentLength == UNKNOWN_LENGTH || bytesTransferred == contentLength)
                 Files.move(temp, resource, StandardCopyOption.REPLACE_EXISTING);
             else
                 throw new InvalidRequest("Incomplete message: body is not " + contentLength + " byte(s)");
+            metadata.written(resource, Digests.hexOf(digest.digest()));
         } catch (NonReadableChannelException e) {
             throw new InvalidRequest("Incomplete message: unable to read body");
         } catch (IOException e) {
@@ -0,0 +1,144 @@
+package server.handlers;
+
+import server.Handler;
+import server.data.Method;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Routes compiled into a tree of path segments, so that a lookup walks the path once rather than comparing it against
+ * every pattern. A pattern is "*", matching any path, or a path whose segments are literal, "{name}" capturing a
+ * single non-empty segment, or a final "**" matching the remaining segments, including none.
+ *
+ * At each segment a literal child is tried before a parameter, and both before a "**" ending at that segment, with "*"
+ * tried last of all. Each node keeps a handler per method, so the same walk serves any method.
+ */
+class RouteTree {
+    private static final String WILDCARD = "*";
+    private static final String CATCH_ALL = "**";
+    private static final String SEPARATOR = "/";
+
+    private final Node root = new Node();
+    private final Map<Method, Route> wildcards = new EnumMap<>(Method.class);
+
+    void add(Method method, String pattern, Handler handler) {
+        if (pattern.equals(WILDCARD)) {
+            wildcards.putIfAbsent(method, new Route(handler, Collections.emptyList()));
+            return;
+        }
+        if (!pattern.startsWith(SEPARATOR)) throw new InvalidPattern(pattern);
+
+        Node node = root;
+        List<String> parameterNames = new ArrayList<>();
+        String[] segments = pattern.substring(SEPARATOR.length()).split(SEPARATOR, -1);
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (segment.equals(CATCH_ALL)) {
+                if (i != segments.length - 1) throw new InvalidPattern(pattern);
+                node.catchAll.putIfAbsent(method, new Route(handler, parameterNames));
+                return;
+            }
+            if (isParameter(segment)) {
+                parameterNames.add(segment.substring(1, segment.length() - 1));
+                if (node.parameter == null) node.parameter = new Node();
+                node = node.parameter;
+            } else {
+                node = node.children.computeIfAbsent(segment, s -> new Node());
+            }
+        }
+        node.routes.putIfAbsent(method, new Route(handler, parameterNames));
+    }
+
+    // The route for the method and path along with the captured parameters, or null if there is none
+    Match find(Method method, String path) {
+        List<String> values = new ArrayList<>();
+        Route route = path.startsWith(SEPARATOR) ? find(root, path, SEPARATOR.length(), method, values) : null;
+        if (route == null) {
+            route = wildcards.get(method);
+            values.clear();
+        }
+        return route == null ? null : new Match(route, values);
+    }
+
+    Set<Method> methodsOf(String path) {
+        Set<Method> methods = EnumSet.noneOf(Method.class);
+        for (Method method : Method.values())
+            if (find(method, path) != null) methods.add(method);
+        return methods;
+    }
+
+    private static Route find(Node node, String path, int start, Method method, List<String> values) {
+        if (start > path.length()) {
+            Route route = node.routes.get(method);
+            return route != null ? route : node.catchAll.get(method);
+        }
+
+        int end = path.indexOf(SEPARATOR, start);
+        if (end < 0) end = path.length();
+        String segment = path.substring(start, end);
+
+        Node child = node.children.get(segment);
+        if (child != null) {
+            Route route = find(child, path, end + 1, method, values);
+            if (route != null) return route;
+        }
+        if (node.parameter != null && !segment.isEmpty()) {
+            values.add(segment);
+            Route route = find(node.parameter, path, end + 1, method, values);
+            if (route != null) return route;
+            values.remove(values.size() - 1);
+        }
+        return node.catchAll.get(method);
+    }
+
+    private static boolean isParameter(String segment) {
+        return segment.length() > 2 && segment.startsWith("{") && segment.endsWith("}");
+    }
+
+    static class Match {
+        final Handler handler;
+        final Map<String, String> parameters;
+
+        private Match(Route route, List<String> values) {
+            this.handler = route.handler;
+            this.parameters = parametersOf(route.parameterNames, values);
+        }
+
+        private static Map<String, String> parametersOf(List<String> names, List<String> values) {
+            if (names.isEmpty()) return Collections.emptyMap();
+            Map<String, String> parameters = new HashMap<>();
+            for (int i = 0; i < names.size(); i++) parameters.put(names.get(i), values.get(i));
+            return parameters;
+        }
+    }
+
+    private static class Node {
+        final Map<String, Node> children = new HashMap<>();
+        final Map<Method, Route> routes = new EnumMap<>(Method.class);
+        final Map<Method, Route> catchAll = new EnumMap<>(Method.class);
+        Node parameter;
+    }
+
+    private static class Route {
+        final Handler handler;
+        final List<String> parameterNames;
+
+        Route(Handler handler, List<String> parameterNames) {
+            this.handler = handler;
+            this.parameterNames = parameterNames;
+        }
+    }
+
+    static class InvalidPattern extends RuntimeException {
+        InvalidPattern(String pattern) {
+            super("Invalid route pattern: " + pattern);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package server.handlers;
+
+import server.Handler;
+import server.data.Header;
+import server.data.Request;
+import server.data.Response;
+import server.data.Status;
+import server.util.BufferPool;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Stores the files of a multipart/form-data form posted to a directory, streaming each one into place the way PUT does,
+ * so uploads of any size take the same memory. Other fields are buffered, up to a size each, a total size and a number
+ * of fields, and echoed back. Responds with the path of each stored file, one per line, followed by a line of
+ * "<name>=<value>" per field, form-encoded so that values cannot span lines.
+ */
+public class UploadHandler implements Handler {
+    public static final int DEFAULT_MAX_FIELD_SIZE = 64 * 1024;
+    public static final long DEFAULT_MAX_FORM_SIZE = ParametersWrapper.DEFAULT_MAX_FORM_SIZE;
+    public static final int DEFAULT_MAX_FIELDS = 1024;
+    private static final int FIELD_BUFFER_SIZE = 1024;
+    private static final int EOS = -1;
+
+    private final Path directory;
+    private final PutHandler files;
+    private final int maxFieldSize;
+    private final long maxFormSize;
+    private final int maxFields;
+
+    public UploadHandler(Path directory, FileMetadataCache metadata) {
+        this(directory, metadata, DEFAULT_MAX_FIELD_SIZE);
+    }
+
+    public UploadHandler(Path directory, FileMetadataCache metadata, int maxFieldSize) {
+        this(directory, metadata, maxFieldSize, DEFAULT_MAX_FORM_SIZE, DEFAULT_MAX_FIELDS);
+    }
+
+    // The form size counts the names and values of the fields buffered, not the files streamed to disk
+    public UploadHandler(Path directory, FileMetadataCache metadata, int maxFieldSize, long maxFormSize, int maxFields) {
+        this.directory = directory;
+        this.files = new PutHandler(directory, metadata);
+        this.maxFieldSize = maxFieldSize;
+        this.maxFormSize = maxFormSize;
+        this.maxFields = maxFields;
+    }
+
+    @Override
+    public Response handle(Request request) {
+        Path target = directory.resolve(request.path.substring(1));
+        if (!Files.exists(target)) return new Response(Status.NOT_FOUND, "");
+        if (!Files.isDirectory(target))
+            return new Response(Status.CONFLICT, "Unable to upload: " + target.getFileName() + " is not a directory.");
+
+        try {
+            String boundary = MultipartReader.boundaryOf(request.headers.get(Header.CONTENT_TYPE));
+            if (boundary == null) return new Response(Status.UNSUPPORTED_MEDIA_TYPE, "Expecting multipart/form-data.");
+            return upload(request, target, boundary);
+        } catch (MultipartReader.InvalidMultipart e) {
+            return new Response(Status.BAD_REQUEST, e.getMessage());
+        } catch (FormTooLarge e) {
+            return new Response(Status.PAYLOAD_TOO_LARGE, e.getMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Response upload(Request request, Path target, String boundary) throws IOException {
+        List<String> stored = new ArrayList<>();
+        List<String> fields = new ArrayList<>();
+        long formSize = 0;
+        try (MultipartReader reader = new MultipartReader(request.body, boundary)) {
+            MultipartReader.Part part;
+            while ((part = reader.next()) != null) {
+                if (part.filename == null) {
+                    if (fields.size() == maxFields) throw new FormTooLarge("Form has more than " + maxFields + " field(s)");
+                    formSize += part.name.getBytes(StandardCharsets.UTF_8).length;
+                    if (formSize > maxFormSize) throw new FormTooLarge("Form fields are larger than " + maxFormSize + " byte(s)");
+                    byte[] value = readField(part.content, maxFormSize - formSize);
+                    formSize += value.length;
+                    fields.add(encode(part.name) + "=" + encode(new String(value, StandardCharsets.UTF_8)));
+                } else if (!part.filename.isEmpty()) { // Browsers send an empty file part when no file was chosen
+                    String filename = filenameOf(part.filename);
+                    Path file = target.resolve(filename);
+                    if (Files.isDirectory(file))
+                        return new Response(Status.CONFLICT, "Unable to upload: " + filename + " is a directory.");
+                    files.write(file, part.content, PutHandler.UNKNOWN_LENGTH);
+                    stored.add(linkOf(request.path, filename));
+                }
+            }
+        }
+        List<String> lines = new ArrayList<>(stored);
+        lines.addAll(fields);
+        return new Response(stored.isEmpty() ? Status.OK : Status.CREATED, String.join(System.lineSeparator(), lines));
+    }
+
+    // Reads the value of a field, failing once over the size of a field or the given remainder of the form size
+    private byte[] readField(ReadableByteChannel content, long remaining) throws IOException {
+        ByteArrayOutputStream field = new ByteArrayOutputStream();
+        ByteBuffer buffer = BufferPool.shared().acquire(FIELD_BUFFER_SIZE);
+        byte[] bytes = new byte[buffer.capacity()];
+        try {
+            while (content.read(buffer) != EOS) {
+                buffer.flip();
+                int length = buffer.remaining();
+                if (field.size() + length > maxFieldSize)
+                    throw new FormTooLarge("Form field is larger than " + maxFieldSize + " byte(s)");
+                if (field.size() + length > remaining)
+                    throw new FormTooLarge("Form fields are larger than " + maxFormSize + " byte(s)");
+                buffer.get(bytes, 0, length);
+                field.write(bytes, 0, length);
+                buffer.clear();
+            }
+        } finally {
+            BufferPool.shared().release(buffer);
+        }
+        return field.toByteArray();
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Only the last segment is kept, as some clients send the full path the file was chosen from
+    private static String filenameOf(String filename) {
+        String name = filename.substring(Math.max(filename.lastIndexOf('/'), filename.lastIndexOf('\\')) + 1);
+        if (name.isEmpty() || name.equals(".") || name.equals("..") || name.indexOf('\0') >= 0)
+            throw new MultipartReader.InvalidMultipart("Invalid filename: " + filename);
+        return name;
+    }
+
+    private static String linkOf(String basePath, String filename) {
+        return basePath.endsWith("/") ? basePath + filename : basePath + "/" + filename;
+    }
+
+    private static class FormTooLarge extends RuntimeException {
+        FormTooLarge(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package server.handlers;
+
+import server.data.Header;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+ * Validators of file representations and evaluation of the conditional request headers against them. The ETag is the
+ * SHA-1 of the content as a strong entity tag, and Last-Modified has the one second precision of HTTP dates.
+ *
+ * The ETag is only sent once known, as digesting the file would hold the response until the whole file is read. Until
+ * then, entity tags in conditional headers never match, except for "*" in If-None-Match.
+ */
+class Validators {
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter
+            .ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US)
+            .withZone(ZoneOffset.UTC);
+    private static final String WEAK_PREFIX = "W/";
+    private static final String ANY = "*";
+
+    static Map<String, Object> headersOf(FileMetadata file) {
+        Map<String, Object> headers = new HashMap<>();
+        String eTag = eTagOf(file);
+        if (eTag != null) headers.put(Header.E_TAG, eTag);
+        headers.put(Header.LAST_MODIFIED, HTTP_DATE.format(file.lastModified.toInstant()));
+        return headers;
+    }
+
+    static String eTagOf(FileMetadata file) {
+        String eTag = file.eTagIfKnown();
+        return eTag == null ? null : '"' + eTag + '"';
+    }
+
+    // If-None-Match takes precedence over If-Modified-Since, which is ignored when its date is invalid
+    static boolean isNotModified(Map<String, String> requestHeaders, FileMetadata file) {
+        String ifNoneMatch = requestHeaders.get(Header.IF_NONE_MATCH);
+        if (ifNoneMatch != null) return matchesAny(ifNoneMatch, file);
+
+        String ifModifiedSince = requestHeaders.get(Header.IF_MODIFIED_SINCE);
+        if (ifModifiedSince == null) return false;
+        Instant since = parseHttpDate(ifModifiedSince);
+        return since != null && !lastModifiedOf(file).isAfter(since);
+    }
+
+    // A range is only served when If-Range is absent or still identifies the current representation
+    static boolean rangeApplies(Map<String, String> requestHeaders, FileMetadata file) {
+        String ifRange = requestHeaders.get(Header.IF_RANGE);
+        if (ifRange == null) return true;
+
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith(WEAK_PREFIX)) return false;
+        if (ifRange.startsWith("\"")) return ifRange.equals(eTagOf(file));
+        Instant date = parseHttpDate(ifRange);
+        return date != null && date.equals(lastModifiedOf(file));
+    }
+
+    // Weak comparison, as required for If-None-Match
+    private static boolean matchesAny(String entityTags, FileMetadata file) {
+        String eTag = eTagOf(file);
+        for (String entityTag : entityTags.split(",")) {
+            entityTag = entityTag.trim();
+            if (entityTag.equals(ANY)) return true;
+            if (entityTag.startsWith(WEAK_PREFIX)) entityTag = entityTag.substring(WEAK_PREFIX.length());
+            if (entityTag.equals(eTag)) return true;
+        }
+        return false;
+    }
+
+    private static Instant lastModifiedOf(FileMetadata file) {
+        return Instant.ofEpochSecond(file.lastModified.toInstant().getEpochSecond());
+    }
+
+    private static Instant parseHttpDate(String value) {
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
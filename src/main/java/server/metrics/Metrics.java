@@ -0,0 +1,112 @@
+package server.metrics;
+
+import server.data.Status;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/*
+ * Metrics of a server, rendered in the Prometheus text format. Recorders keep references to the histograms and
+ * counters they update, so that recording never looks anything up by name.
+ */
+public class Metrics {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    public final Histogram parseTime = new Histogram();
+    public final Histogram writeTime = new Histogram();
+    public final LongAdder responseBytes = new LongAdder();
+    public final LongAdder activeConnections = new LongAdder();
+    private final Map<Status, LongAdder> responses = new EnumMap<>(Status.class);
+    private final Map<String, Histogram> handlerTimes = new ConcurrentSkipListMap<>();
+    private final Map<String, LongSupplier> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+
+    public Metrics() {
+        for (Status status : Status.values()) responses.put(status, new LongAdder());
+        gauge("http_active_connections", activeConnections::sum);
+    }
+
+    public void responded(Status status) {
+        responses.get(status).increment();
+    }
+
+    public Histogram handlerTime(String method, String route) {
+        return handlerTimes.computeIfAbsent(labels("method", method, "route", route), l -> new Histogram());
+    }
+
+    // Counter kept elsewhere, read when rendering
+    public void counter(String name, LongSupplier value) {
+        counters.put(name, value);
+    }
+
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    public String render() {
+        StringBuilder text = new StringBuilder();
+        summary(text, "http_request_parse_seconds", "", parseTime);
+        text.append("# TYPE http_request_handler_seconds summary\n");
+        handlerTimes.forEach((labels, histogram) -> quantiles(text, "http_request_handler_seconds", labels, histogram));
+        summary(text, "http_response_write_seconds", "", writeTime);
+
+        text.append("# TYPE http_response_bytes_total counter\n");
+        text.append("http_response_bytes_total ").append(responseBytes.sum()).append('\n');
+        text.append("# TYPE http_responses_total counter\n");
+        responses.forEach((status, count) -> {
+            long sum = count.sum();
+            if (sum > 0) text.append("http_responses_total").append(labels("status", String.valueOf(status.code)))
+                    .append(' ').append(sum).append('\n');
+        });
+
+        counters.forEach((name, value) -> single(text, name, "counter", value));
+        gauges.forEach((name, value) -> single(text, name, "gauge", value));
+        return text.toString();
+    }
+
+    private static void single(StringBuilder text, String name, String type, LongSupplier value) {
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        text.append(name).append(' ').append(value.getAsLong()).append('\n');
+    }
+
+    private static void summary(StringBuilder text, String name, String labels, Histogram histogram) {
+        text.append("# TYPE ").append(name).append(" summary\n");
+        quantiles(text, name, labels, histogram);
+    }
+
+    private static void quantiles(StringBuilder text, String name, String labels, Histogram histogram) {
+        for (double quantile : QUANTILES) {
+            text.append(name).append(withQuantile(labels, quantile)).append(' ')
+                    .append(seconds(histogram.valueAt(quantile))).append('\n');
+        }
+        text.append(name).append("_sum").append(labels).append(' ').append(seconds(histogram.sum())).append('\n');
+        text.append(name).append("_count").append(labels).append(' ').append(histogram.count()).append('\n');
+    }
+
+    private static String withQuantile(String labels, double quantile) {
+        String label = "quantile=\"" + quantile + "\"";
+        return labels.isEmpty() ? "{" + label + "}" : labels.substring(0, labels.length() - 1) + "," + label + "}";
+    }
+
+    private static String labels(String... namesAndValues) {
+        StringBuilder labels = new StringBuilder("{");
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            if (i > 0) labels.append(',');
+            labels.append(namesAndValues[i]).append("=\"").append(escape(namesAndValues[i + 1])).append('"');
+        }
+        return labels.append('}').toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / NANOS_PER_SECOND);
+    }
+}
@@ -0,0 +1,152 @@
+package server.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Direct buffers in power-of-two size classes from 1 KiB to 64 KiB. Each thread keeps a few released buffers of each
+ * class to hand out again without contention, and buffers beyond those go to a shared queue per class, bounded to a
+ * few MiB. Larger buffers are allocated on every request and left to the garbage collector once released.
+ *
+ * Virtual threads have no buffers of their own, as they usually end with the exchange they were started for.
+ *
+ * Tracking records where each outstanding buffer was acquired, and rejects buffers released twice. It is enabled for
+ * the shared pool with -Dserver.bufferPool.trackLeaks=true.
+ */
+public class BufferPool {
+    public static final int MAX_POOLED_SIZE = 64 * 1024;
+    private static final int MIN_SHIFT = 10;
+    private static final int MAX_SHIFT = Integer.numberOfTrailingZeros(MAX_POOLED_SIZE);
+    private static final int CLASSES = MAX_SHIFT - MIN_SHIFT + 1;
+    private static final int THREAD_CACHE_SIZE = 4;
+    private static final int SHARED_BYTES_PER_CLASS = 4 * 1024 * 1024;
+    private static final BufferPool SHARED = new BufferPool(Boolean.getBoolean("server.bufferPool.trackLeaks"));
+
+    private final List<Queue<ByteBuffer>> shared = new ArrayList<>();
+    private final AtomicInteger[] sharedSizes = new AtomicInteger[CLASSES];
+    private final ThreadLocal<ThreadCache> threadCache =
+            ThreadLocal.withInitial(() -> new ThreadCache(VirtualThreads.isVirtual(Thread.currentThread())));
+    private final Map<ByteBuffer, Throwable> outstanding;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder released = new LongAdder();
+
+    public BufferPool(boolean trackLeaks) {
+        for (int i = 0; i < CLASSES; i++) {
+            shared.add(new ConcurrentLinkedQueue<>());
+            sharedSizes[i] = new AtomicInteger();
+        }
+        this.outstanding = trackLeaks ? Collections.synchronizedMap(new IdentityHashMap<>()) : null;
+    }
+
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    // Cleared buffer of at least the given capacity, to be released once no longer used
+    public ByteBuffer acquire(int capacity) {
+        ByteBuffer buffer = take(capacity);
+        acquired.increment();
+        if (outstanding != null) outstanding.put(buffer, new Throwable("Buffer of " + capacity + " bytes acquired here"));
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (outstanding != null && outstanding.remove(buffer) == null)
+            throw new IllegalStateException("Buffer was released twice or not acquired from this pool");
+        released.increment();
+        int index = indexOf(buffer.capacity());
+        if (!buffer.isDirect() || index < 0 || buffer.capacity() != sizeOf(index)) return;
+
+        buffer.clear();
+        if (threadCache.get().offer(index, buffer)) return;
+        if (sharedSizes[index].incrementAndGet() <= SHARED_BYTES_PER_CLASS / sizeOf(index)) {
+            shared.get(index).offer(buffer);
+        } else {
+            sharedSizes[index].decrementAndGet();
+        }
+    }
+
+    private ByteBuffer take(int capacity) {
+        int index = indexOf(capacity);
+        if (index < 0) {
+            misses.increment();
+            return ByteBuffer.allocateDirect(capacity);
+        }
+        ByteBuffer buffer = threadCache.get().poll(index);
+        if (buffer == null) {
+            buffer = shared.get(index).poll();
+            if (buffer != null) sharedSizes[index].decrementAndGet();
+        }
+        if (buffer != null) {
+            hits.increment();
+            return buffer;
+        }
+        misses.increment();
+        return ByteBuffer.allocateDirect(sizeOf(index));
+    }
+
+    // Acquisitions served by a released buffer
+    public long hits() {
+        return hits.sum();
+    }
+
+    // Acquisitions that allocated a buffer
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long outstanding() {
+        return acquired.sum() - released.sum();
+    }
+
+    // Where the buffers not yet released were acquired, when tracking
+    public List<Throwable> leaks() {
+        if (outstanding == null) return Collections.emptyList();
+        synchronized (outstanding) {
+            return new ArrayList<>(outstanding.values());
+        }
+    }
+
+    // Size class of the capacity, or -1 when beyond the largest class
+    private static int indexOf(int capacity) {
+        if (capacity > MAX_POOLED_SIZE) return -1;
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(capacity, 1 << MIN_SHIFT) - 1);
+        return shift - MIN_SHIFT;
+    }
+
+    private static int sizeOf(int index) {
+        return 1 << (index + MIN_SHIFT);
+    }
+
+    private static class ThreadCache {
+        private final ByteBuffer[][] buffers;
+        private final int[] sizes = new int[CLASSES];
+
+        ThreadCache(boolean virtual) {
+            this.buffers = new ByteBuffer[CLASSES][virtual ? 0 : THREAD_CACHE_SIZE];
+        }
+
+        ByteBuffer poll(int index) {
+            if (sizes[index] == 0) return null;
+            ByteBuffer buffer = buffers[index][--sizes[index]];
+            buffers[index][sizes[index]] = null;
+            return buffer;
+        }
+
+        boolean offer(int index, ByteBuffer buffer) {
+            if (sizes[index] == buffers[index].length) return false;
+            buffers[index][sizes[index]++] = buffer;
+            return true;
+        }
+    }
+}
@@ -3,20 +3,40 @@ package server.util;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class ByteChannels {
     private static final int BUFFER_SIZE = 1024;
     private static final int EOS = -1;
 
+    // Decodes as bytes arrive, keeping the bytes of a character split between reads until the rest is read
     public static String slurp(ReadableByteChannel rbc) {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
         StringBuilder builder = new StringBuilder();
-        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
-        while (readInto(rbc, buffer) != EOS) {
-            buffer.flip();
-            builder.append(StandardCharsets.UTF_8.decode(buffer).toString());
-            buffer.clear();
+        ByteBuffer buffer = BufferPool.shared().acquire(BUFFER_SIZE);
+        CharBuffer chars = CharBuffer.allocate(buffer.capacity());
+        try {
+            boolean endOfInput;
+            do {
+                endOfInput = readInto(rbc, buffer) == EOS;
+                buffer.flip();
+                decoder.decode(buffer, chars, endOfInput);
+                if (endOfInput) decoder.flush(chars);
+                builder.append((CharBuffer) chars.flip());
+                chars.clear();
+                buffer.compact();
+            } while (!endOfInput);
+        } finally {
+            BufferPool.shared().release(buffer);
         }
         return builder.toString();
     }
@@ -33,8 +53,46 @@ public class ByteChannels {
         return new LimitedReadableByteChannel(rbc, limit);
     }
 
+    // Updates the digest with every byte read through the returned channel
+    public static ReadableByteChannel digesting(ReadableByteChannel rbc, MessageDigest digest) {
+        return new DigestingReadableByteChannel(rbc, digest);
+    }
+
+    private static class DigestingReadableByteChannel implements ReadableByteChannel {
+        private final ReadableByteChannel rbc;
+        private final MessageDigest digest;
+
+        public DigestingReadableByteChannel(ReadableByteChannel rbc, MessageDigest digest) {
+            this.rbc = rbc;
+            this.digest = digest;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            int start = dst.position();
+            int bytesRead = rbc.read(dst);
+            if (bytesRead > 0) {
+                ByteBuffer read = dst.duplicate();
+                read.position(start).limit(start + bytesRead);
+                digest.update(read);
+            }
+            return bytesRead;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return rbc.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            rbc.close();
+        }
+    }
+
     private static class LimitedReadableByteChannel implements ReadableByteChannel {
         private final ReadableByteChannel rbc;
+        private final Lock lock = new ReentrantLock();
         private long limit;
 
         public LimitedReadableByteChannel(ReadableByteChannel rbc, long limit) {
@@ -43,18 +101,26 @@ public class ByteChannels {
             this.limit = limit;
         }
 
+        // Lock rather than synchronized, as blocking inside a monitor pins the carrier of a virtual thread
         @Override
-        public synchronized int read(ByteBuffer dst) throws IOException {
-            if (limit == 0) return -1;
+        public int read(ByteBuffer dst) throws IOException {
+            lock.lock();
+            try {
+                if (limit == 0) return -1;
 
-            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(dst.limit(), limit));
-            int bytesRead = rbc.read(buffer);
-            if (bytesRead > -1) {
-                buffer.flip();
-                dst.put(buffer);
-                limit -= bytesRead;
+                // Reads straight into the destination, narrowed so that nothing beyond the limit is read
+                int dstLimit = dst.limit();
+                if (dst.remaining() > limit) dst.limit(dst.position() + (int) limit);
+                try {
+                    int bytesRead = rbc.read(dst);
+                    if (bytesRead > 0) limit -= bytesRead;
+                    return bytesRead;
+                } finally {
+                    dst.limit(dstLimit);
+                }
+            } finally {
+                lock.unlock();
             }
-            return bytesRead;
         }
 
         @Override
@@ -0,0 +1,39 @@
+package server.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public class Digests {
+    private static final int BUFFER_SIZE = 8192;
+    private static final int EOS = -1;
+
+    public static String sha1Of(Path resource) {
+        MessageDigest digest = digest("SHA-1");
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream is = Files.newInputStream(resource)) {
+            int bytesRead;
+            while ((bytesRead = is.read(buffer)) != EOS) digest.update(buffer, 0, bytesRead);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return hexOf(digest.digest());
+    }
+
+    public static String hexOf(byte[] digest) {
+        return String.format("%0" + digest.length * 2 + "x", new BigInteger(1, digest));
+    }
+
+    public static MessageDigest digest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package server.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Resolved reflectively so that the build can stay on Java 8 while running with virtual threads on JDK 21+
+public class VirtualThreads {
+    private static final String FACTORY_METHOD = "newVirtualThreadPerTaskExecutor";
+    private static final Method IS_VIRTUAL = isVirtualMethod();
+
+    public static boolean isSupported() {
+        try {
+            newThreadPerTaskExecutor().shutdown();
+            return true;
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    public static boolean isVirtual(Thread thread) {
+        if (IS_VIRTUAL == null) return false;
+        try {
+            return (boolean) IS_VIRTUAL.invoke(thread);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod(FACTORY_METHOD).invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new UnsupportedOperationException("Virtual threads require JDK 21 or later");
+        } catch (InvocationTargetException e) {
+            // Preview releases throw when virtual threads are not enabled
+            throw new UnsupportedOperationException("Virtual threads are unavailable: " + e.getCause().getMessage());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Method isVirtualMethod() {
+        try {
+            return Thread.class.getMethod("isVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
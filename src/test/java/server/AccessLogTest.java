@@ -0,0 +1,89 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import server.data.Method;
+import server.data.Request;
+import server.data.Status;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccessLogTest {
+    private final List<String> batches = new CopyOnWriteArrayList<>();
+
+    @Test
+    void record_writtenOnClose() {
+        AccessLog accessLog = new AccessLog(batch -> batches.add(batch.toString()), 1, 2, 16);
+        Request request = new Request(Method.PUT, "/file");
+        request.version = "HTTP/1.1";
+
+        accessLog.record(request, Status.CREATED, 0, System.nanoTime());
+        accessLog.record(null, Status.BAD_REQUEST, 12, System.nanoTime());
+        accessLog.close();
+
+        assertThat(records()).hasSize(2);
+        assertThat(records()[0]).matches("\\S+ PUT /file HTTP/1\\.1 201 0 \\d+us -");
+        assertThat(records()[1]).matches("\\S+ - - - 400 12 \\d+us -");
+    }
+
+    @Test
+    void record_unknownLength() {
+        AccessLog accessLog = new AccessLog(batch -> batches.add(batch.toString()), 1, 1, 16);
+
+        accessLog.record(new Request(Method.GET, "/stream"), Status.OK, -1, System.nanoTime());
+        accessLog.close();
+
+        assertThat(records()[0]).matches("\\S+ GET /stream - 200 - \\d+us -");
+    }
+
+    @Test
+    void record_sampledExceptServerErrors() {
+        AccessLog accessLog = new AccessLog(batch -> batches.add(batch.toString()), 0, 1, 16);
+
+        accessLog.record(new Request(Method.GET, "/ok"), Status.OK, 0, System.nanoTime());
+        accessLog.record(new Request(Method.GET, "/not-found"), Status.NOT_FOUND, 0, System.nanoTime());
+        accessLog.record(new Request(Method.GET, "/error"), Status.INTERNAL_SERVER_ERROR, 0, System.nanoTime());
+        accessLog.close();
+
+        assertThat(records()).hasSize(1);
+        assertThat(records()[0]).contains("GET /error");
+    }
+
+    @Test
+    void record_droppedWhenFull() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AccessLog accessLog = new AccessLog(batch -> {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            batches.add(batch.toString());
+        }, 1, 1, 4);
+        accessLog.record(new Request(Method.GET, "/first"), Status.OK, 0, System.nanoTime());
+        writing.await();
+
+        for (int i = 0; i < 10; i++) accessLog.record(new Request(Method.GET, "/" + i), Status.OK, 0, System.nanoTime());
+        release.countDown();
+        accessLog.close();
+
+        String written = String.join("", batches);
+        assertThat(written).contains("GET /first", "GET /3 ", "6 records dropped");
+        assertThat(written).doesNotContain("GET /4 ");
+    }
+
+    @Test
+    void disabled() {
+        AccessLog.disabled().record(new Request(Method.GET, "/"), Status.OK, 0, System.nanoTime());
+        AccessLog.disabled().close();
+    }
+
+    private String[] records() {
+        return String.join("", batches).split("\n");
+    }
+}
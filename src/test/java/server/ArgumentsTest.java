@@ -14,6 +14,75 @@ class ArgumentsTest {
 
         assertThat(arguments.port).isEqualTo(1234);
         assertThat(arguments.directory).isEqualTo("/path/to/directory");
+        assertThat(arguments.transport).isEqualTo(Transport.BLOCKING);
+        assertThat(arguments.executor).isEqualTo(ExecutorMode.PLATFORM);
+        assertThat(arguments.cacheMegabytes).isEqualTo(0);
+    }
+
+    @Test
+    void parse_executorOptionPresent() {
+        Arguments arguments = Arguments.parse(asList("-p", "1234", "-d", "/path/to/directory", "-e", "virtual"));
+
+        assertThat(arguments.executor).isEqualTo(ExecutorMode.VIRTUAL);
+    }
+
+    @Test
+    void parse_transportOptionPresent() {
+        Arguments arguments = Arguments.parse(asList("-p", "1234", "-d", "/path/to/directory", "-t", "selector"));
+
+        assertThat(arguments.transport).isEqualTo(Transport.SELECTOR);
+    }
+
+    @Test
+    void parse_cacheOptionPresent() {
+        Arguments arguments = Arguments.parse(asList("-p", "1234", "-d", "/path/to/directory", "-c", "64"));
+
+        assertThat(arguments.cacheMegabytes).isEqualTo(64);
+    }
+
+    @Test
+    void parse_eTagIndexOptionPresent() {
+        Arguments arguments = Arguments.parse(asList("-p", "1234", "-d", "/path/to/directory", "-i", "/path/to/index"));
+
+        assertThat(arguments.eTagIndex).isEqualTo("/path/to/index");
+    }
+
+    @Test
+    void parse_credentialsOptionPresent() {
+        Arguments arguments = Arguments.parse(asList("-p", "1234", "-d", "/path/to/directory", "-a", "/path/to/credentials"));
+
+        assertThat(arguments.credentials).isEqualTo("/path/to/credentials");
+    }
+
+    @Test
+    void parse_accessLogOptionsPresent() {
+        Arguments arguments = Arguments.parse(asList("-p", "1234", "-d", "/path/to/directory", "-l", "/path/to/access.log", "-s", "0.25"));
+
+        assertThat(arguments.accessLog).isEqualTo("/path/to/access.log");
+        assertThat(arguments.accessLogSampleRate).isEqualTo(0.25);
+    }
+
+    @Test
+    void parse_invalidSampleRate() {
+        Throwable error = catchThrowable(() -> Arguments.parse(asList("-p", "1234", "-d", "/path/to/directory", "-s", "1.5")));
+
+        assertThat(error).hasMessageContaining("Invalid access log sample rate: 1.5");
+    }
+
+    @Test
+    void parse_negativeCacheSize() {
+        Throwable error = catchThrowable(() -> Arguments.parse(asList("-p", "1234", "-d", "/path/to/directory", "-c", "-1")));
+
+        assertThat(error).isInstanceOf(IllegalArgumentException.class);
+        assertThat(error).hasMessageContaining("Invalid cache size: -1");
+    }
+
+    @Test
+    void parse_invalidTransport() {
+        Throwable error = catchThrowable(() -> Arguments.parse(asList("-p", "1234", "-d", "/path/to/directory", "-t", "carrier-pigeon")));
+
+        assertThat(error).isInstanceOf(IllegalArgumentException.class);
+        assertThat(error).hasMessageContaining("Invalid transport: carrier-pigeon");
     }
 
     @Test
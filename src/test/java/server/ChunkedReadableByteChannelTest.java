@@ -0,0 +1,132 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import server.util.ByteChannels;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class ChunkedReadableByteChannelTest {
+    @Test
+    void read_chunks() {
+        ChunkedReadableByteChannel body = channelOf("5\r\nhello\r\n6\r\n world\r\n0\r\n\r\n");
+
+        assertThat(ByteChannels.slurp(body)).isEqualTo("hello world");
+    }
+
+    @Test
+    void read_noChunks() {
+        ChunkedReadableByteChannel body = channelOf("0\r\n\r\n");
+
+        assertThat(ByteChannels.slurp(body)).isEqualTo("");
+    }
+
+    @Test
+    void read_upperCaseSizeWithExtensions() {
+        ChunkedReadableByteChannel body = channelOf("A;name=value;other\r\n0123456789\r\n0;last\r\n\r\n");
+
+        assertThat(ByteChannels.slurp(body)).isEqualTo("0123456789");
+    }
+
+    @Test
+    void read_trailerFieldsSkipped() throws IOException {
+        InputStream in = inputStreamOf("5\r\nhello\r\n0\r\nExpires: never\r\nOther: value\r\n\r\nnext");
+        ChunkedReadableByteChannel body = new ChunkedReadableByteChannel(in);
+
+        assertThat(ByteChannels.slurp(body)).isEqualTo("hello");
+        assertThat(body.read(ByteBuffer.allocate(16))).isEqualTo(-1);
+        assertThat(in.read()).isEqualTo('n');
+    }
+
+    @Test
+    void read_notBeyondChunk() throws IOException {
+        ChunkedReadableByteChannel body = channelOf("3\r\nabc\r\n3\r\ndef\r\n0\r\n\r\n");
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+
+        assertThat(body.read(buffer)).isEqualTo(3);
+        assertThat(body.read(buffer)).isEqualTo(3);
+        assertThat(body.read(buffer)).isEqualTo(-1);
+        assertThat(new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII)).isEqualTo("abcdef");
+    }
+
+    @Test
+    void read_invalidSize() {
+        Throwable error = catchThrowable(() -> ByteChannels.slurp(channelOf("x5\r\nhello\r\n0\r\n\r\n")));
+
+        assertThat(error).isInstanceOf(RequestParser.ParseException.class);
+        assertThat(error).hasMessageContaining("Invalid chunk size: x5");
+    }
+
+    @Test
+    void read_negativeSize() {
+        Throwable error = catchThrowable(() -> ByteChannels.slurp(channelOf("-5\r\nhello\r\n0\r\n\r\n")));
+
+        assertThat(error).isInstanceOf(RequestParser.ParseException.class);
+        assertThat(error).hasMessageContaining("Invalid chunk size: -5");
+    }
+
+    @Test
+    void read_sizeTooLarge() {
+        Throwable error = catchThrowable(() -> ByteChannels.slurp(channelOf("1000000000000000\r\nhello\r\n")));
+
+        assertThat(error).isInstanceOf(RequestParser.ParseException.class);
+        assertThat(error).hasMessageContaining("Invalid chunk size");
+    }
+
+    @Test
+    void read_chunkLongerThanSize() {
+        Throwable error = catchThrowable(() -> ByteChannels.slurp(channelOf("3\r\nhello\r\n0\r\n\r\n")));
+
+        assertThat(error).isInstanceOf(RequestParser.ParseException.class);
+        assertThat(error).hasMessageContaining("chunk is longer than its size");
+    }
+
+    @Test
+    void read_missingLineFeed() {
+        Throwable error = catchThrowable(() -> ByteChannels.slurp(channelOf("5\rhello\r\n0\r\n\r\n")));
+
+        assertThat(error).isInstanceOf(RequestParser.ParseException.class);
+        assertThat(error).hasMessageContaining("expecting <CR><LF>");
+    }
+
+    @Test
+    void read_chunkCutShort() {
+        Throwable error = catchThrowable(() -> ByteChannels.slurp(channelOf("5\r\nhel")));
+
+        assertThat(error).isInstanceOf(RequestParser.ParseException.class);
+        assertThat(error).hasMessageContaining("chunk is cut short");
+    }
+
+    @Test
+    void read_missingLastChunk() {
+        Throwable error = catchThrowable(() -> ByteChannels.slurp(channelOf("5\r\nhello\r\n")));
+
+        assertThat(error).isInstanceOf(RequestParser.ParseException.class);
+        assertThat(error).hasMessageContaining("missing last chunk");
+    }
+
+    @Test
+    void read_trailerTooLong() {
+        StringBuilder trailer = new StringBuilder();
+        for (int i = 0; i < 1000; i++) trailer.append("Field: value\r\n");
+
+        Throwable error = catchThrowable(() -> ByteChannels.slurp(channelOf("0\r\n" + trailer + "\r\n")));
+
+        assertThat(error).isInstanceOf(RequestParser.ParseException.class);
+        assertThat(error).hasMessageContaining("line is too long");
+    }
+
+    private static ChunkedReadableByteChannel channelOf(String content) {
+        return new ChunkedReadableByteChannel(inputStreamOf(content));
+    }
+
+    private static InputStream inputStreamOf(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,80 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class ConnectionInputStreamTest {
+    @Test
+    void read_bufferedBytesBeforeSource() throws IOException {
+        ByteBuffer buffer = bufferOf("buffered", 16);
+        InputStream in = new ConnectionInputStream(buffer, inputStreamOf("-source"));
+
+        assertThat(readAll(in)).isEqualTo("buffered-source");
+    }
+
+    @Test
+    void read_unreadBytesRemainInBuffer() throws IOException {
+        ByteBuffer buffer = bufferOf("", 16);
+        InputStream in = new ConnectionInputStream(buffer, inputStreamOf("head|next"));
+
+        byte[] head = new byte[5];
+        assertThat(in.read(head)).isEqualTo(5);
+
+        assertThat(new String(head, StandardCharsets.UTF_8)).isEqualTo("head|");
+        assertThat(StandardCharsets.UTF_8.decode(buffer).toString()).isEqualTo("next");
+    }
+
+    @Test
+    void read_largeReadBypassesEmptyBuffer() throws IOException {
+        ByteBuffer buffer = bufferOf("", 4);
+        InputStream in = new ConnectionInputStream(buffer, inputStreamOf("0123456789"));
+
+        byte[] bytes = new byte[10];
+        assertThat(in.read(bytes)).isEqualTo(10);
+
+        assertThat(new String(bytes, StandardCharsets.UTF_8)).isEqualTo("0123456789");
+        assertThat(buffer.hasRemaining()).isFalse();
+    }
+
+    @Test
+    void read_endOfStream() throws IOException {
+        InputStream in = new ConnectionInputStream(bufferOf("", 4), inputStreamOf(""));
+
+        assertThat(in.read()).isEqualTo(-1);
+        assertThat(in.read(new byte[4])).isEqualTo(-1);
+    }
+
+    @Test
+    void new_directBuffer() {
+        Throwable error = catchThrowable(() -> new ConnectionInputStream(ByteBuffer.allocateDirect(4), inputStreamOf("")));
+
+        assertThat(error).isInstanceOf(IllegalArgumentException.class);
+        assertThat(error).hasMessageContaining("Buffer should be backed by an array");
+    }
+
+    private static ByteBuffer bufferOf(String content, int capacity) {
+        ByteBuffer buffer = ByteBuffer.allocate(capacity);
+        buffer.put(content.getBytes(StandardCharsets.UTF_8));
+        buffer.flip();
+        return buffer;
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1) builder.append((char) b);
+        return builder.toString();
+    }
+
+    private static InputStream inputStreamOf(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
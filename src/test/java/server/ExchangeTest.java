@@ -0,0 +1,343 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import server.data.Body;
+import server.data.Header;
+import server.data.Response;
+import server.data.Status;
+import server.metrics.Metrics;
+import server.util.ByteChannels;
+import server.util.Maps;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExchangeTest {
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final WritableByteChannel channel = Channels.newChannel(output);
+
+    @Test
+    void handle_keepAliveByDefault() {
+        ConnectionInputStream in = inputStreamOf("GET /any HTTP/1.1\r\n\r\n");
+
+        boolean keepAlive = Exchange.handle(r -> new Response(Status.OK, "body"), in, channel, true, AccessLog.disabled(), new Metrics());
+
+        assertThat(keepAlive).isTrue();
+        assertThat(output.toString())
+                .isEqualTo("HTTP/1.1 200 OK\r\n"
+                        + "Content-Length: 4\r\n"
+                        + "\r\n"
+                        + "body");
+    }
+
+    @Test
+    void handle_connectionCloseRequested() {
+        ConnectionInputStream in = inputStreamOf("GET /any HTTP/1.1\r\nConnection: close\r\n\r\n");
+
+        boolean keepAlive = Exchange.handle(r -> new Response(Status.OK, ""), in, channel, true, AccessLog.disabled(), new Metrics());
+
+        assertThat(keepAlive).isFalse();
+        assertThat(output.toString()).contains("Connection: close\r\n");
+    }
+
+    @Test
+    void handle_notReusable() {
+        ConnectionInputStream in = inputStreamOf("GET /any HTTP/1.1\r\n\r\n");
+
+        boolean keepAlive = Exchange.handle(r -> new Response(Status.OK, ""), in, channel, false, AccessLog.disabled(), new Metrics());
+
+        assertThat(keepAlive).isFalse();
+        assertThat(output.toString()).contains("Connection: close\r\n");
+    }
+
+    @Test
+    void handle_http10KeepAliveRequested() {
+        ConnectionInputStream in = inputStreamOf("GET /any HTTP/1.0\r\nConnection: Keep-Alive\r\n\r\n");
+
+        boolean keepAlive = Exchange.handle(r -> new Response(Status.OK, ""), in, channel, true, AccessLog.disabled(), new Metrics());
+
+        assertThat(keepAlive).isTrue();
+        assertThat(output.toString()).contains("Connection: keep-alive\r\n");
+    }
+
+    @Test
+    void handle_http10ClosesByDefault() {
+        ConnectionInputStream in = inputStreamOf("GET /any HTTP/1.0\r\n\r\n");
+
+        boolean keepAlive = Exchange.handle(r -> new Response(Status.OK, ""), in, channel, true, AccessLog.disabled(), new Metrics());
+
+        assertThat(keepAlive).isFalse();
+        assertThat(output.toString()).contains("Connection: close\r\n");
+    }
+
+    @Test
+    void handle_undelimitedResponseBody() {
+        ConnectionInputStream in = inputStreamOf("GET /any HTTP/1.0\r\nConnection: Keep-Alive\r\n\r\n");
+        ConnectionInputStream body = inputStreamOf("streamed");
+
+        boolean keepAlive = Exchange.handle(r -> new Response(Status.OK, Body.of(Channels.newChannel(body))), in, channel, true, AccessLog.disabled(), new Metrics());
+
+        assertThat(keepAlive).isFalse();
+        assertThat(output.toString()).contains("Connection: close\r\n").endsWith("\r\n\r\nstreamed");
+    }
+
+    @Test
+    void handle_chunkedResponseBody() {
+        ConnectionInputStream in = inputStreamOf("GET /any HTTP/1.1\r\n\r\n");
+        ConnectionInputStream body = inputStreamOf("streamed");
+
+        boolean keepAlive = Exchange.handle(r -> new Response(Status.OK, Body.of(Channels.newChannel(body))), in, channel, true, AccessLog.disabled(), new Metrics());
+
+        assertThat(keepAlive).isTrue();
+        assertThat(output.toString())
+                .isEqualTo("HTTP/1.1 200 OK\r\n"
+                        + "Transfer-Encoding: chunked\r\n"
+                        + "\r\n"
+                        + "8\r\nstreamed\r\n"
+                        + "0\r\n\r\n");
+    }
+
+    @Test
+    void handle_chunkedRequestBody() {
+        ConnectionInputStream in = inputStreamOf("PUT /any HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "5\r\nhello\r\n6\r\n world\r\n0\r\n\r\n"
+                + "GET /next HTTP/1.1\r\n\r\n");
+
+        assertThat(Exchange.handle(r -> new Response(Status.OK, ByteChannels.slurp(r.body)), in, channel, true, AccessLog.disabled(), new Metrics())).isTrue();
+        assertThat(Exchange.handle(r -> new Response(Status.OK, r.path), in, channel, true, AccessLog.disabled(), new Metrics())).isTrue();
+
+        assertThat(output.toString())
+                .contains("Content-Length: 11\r\n\r\nhello world")
+                .endsWith("\r\n\r\n/next");
+    }
+
+    @Test
+    void handle_unreadChunkedRequestBodyDiscarded() {
+        ConnectionInputStream in = inputStreamOf("PUT /any HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "5;name=value\r\nhello\r\n0\r\nTrailer: value\r\n\r\n"
+                + "GET /next HTTP/1.1\r\n\r\n");
+
+        assertThat(Exchange.handle(r -> new Response(Status.OK, ""), in, channel, true, AccessLog.disabled(), new Metrics())).isTrue();
+        assertThat(Exchange.handle(r -> new Response(Status.OK, r.path), in, channel, true, AccessLog.disabled(), new Metrics())).isTrue();
+
+        assertThat(output.toString()).endsWith("\r\n\r\n/next");
+    }
+
+    @Test
+    void handle_malformedChunkedRequestBody() {
+        ConnectionInputStream in = inputStreamOf("PUT /any HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\nzz\r\nhello\r\n");
+
+        boolean keepAlive = Exchange.handle(r -> new Response(Status.OK, ByteChannels.slurp(r.body)), in, channel, true, AccessLog.disabled(), new Metrics());
+
+        assertThat(keepAlive).isFalse();
+        assertThat(output.toString()).startsWith("HTTP/1.1 400 Bad Request\r\nConnection: close\r\n");
+    }
+
+    @Test
+    void handle_unsupportedTransferCoding() {
+        ConnectionInputStream in = inputStreamOf("PUT /any HTTP/1.1\r\nTransfer-Encoding: gzip, chunked\r\n\r\n");
+
+        boolean keepAlive = Exchange.handle(r -> new Response(Status.OK, ""), in, channel, true, AccessLog.disabled(), new Metrics());
+
+        assertThat(keepAlive).isFalse();
+        assertThat(output.toString()).startsWith("HTTP/1.1 501 Not Implemented\r\nConnection: close\r\n");
+    }
+
+    @Test
+    void handle_unreadRequestBodyDiscarded() {
+        ConnectionInputStream in = inputStreamOf("PUT /any HTTP/1.1\r\nContent-Length: 5\r\n\r\nhello"
+                + "PUT /next HTTP/1.1\r\nContent-Length: 5\r\n\r\nworld");
+
+        assertThat(Exchange.handle(r -> new Response(Status.OK, ""), in, channel, true, AccessLog.disabled(), new Metrics())).isTrue();
+        assertThat(Exchange.handle(r -> new Response(Status.OK, r.path + " " + ByteChannels.slurp(r.body)), in, channel, true, AccessLog.disabled(), new Metrics())).isTrue();
+
+        assertThat(output.toString()).endsWith("/next world");
+    }
+
+    @Test
+    void handle_continueSentOnFirstRead() {
+        ConnectionInputStream in = inputStreamOf("PUT /any HTTP/1.1\r\nExpect: 100-continue\r\nContent-Length: 5\r\n\r\nhello");
+
+        boolean keepAlive = Exchange.handle(r -> new Response(Status.OK, ByteChannels.slurp(r.body)), in, channel, true, AccessLog.disabled(), new Metrics());
+
+        assertThat(keepAlive).isTrue();
+        assertThat(output.toString())
+                .isEqualTo("HTTP/1.1 100 Continue\r\n"
+                        + "\r\n"
+                        + "HTTP/1.1 200 OK\r\n"
+                        + "Content-Length: 5\r\n"
+                        + "\r\n"
+                        + "hello");
+    }
+
+    @Test
+    void handle_rejectedWithoutContinue() {
+        ConnectionInputStream in = inputStreamOf("PUT /any HTTP/1.1\r\nExpect: 100-continue\r\nContent-Length: 5\r\n\r\n");
+
+        boolean keepAlive = Exchange.handle(r -> new Response(Status.UNAUTHORIZED, ""), in, channel, true, AccessLog.disabled(), new Metrics());
+
+        assertThat(keepAlive).isFalse();
+        assertThat(output.toString())
+                .startsWith("HTTP/1.1 401 Unauthorized\r\n")
+                .contains("Connection: close\r\n")
+                .doesNotContain("100 Continue");
+    }
+
+    @Test
+    void handle_noContinueWithoutBody() {
+        ConnectionInputStream in = inputStreamOf("PUT /any HTTP/1.1\r\nExpect: 100-continue\r\nContent-Length: 0\r\n\r\n");
+
+        boolean keepAlive = Exchange.handle(r -> new Response(Status.OK, ByteChannels.slurp(r.body)), in, channel, true, AccessLog.disabled(), new Metrics());
+
+        assertThat(keepAlive).isTrue();
+        assertThat(output.toString()).startsWith("HTTP/1.1 200 OK\r\n");
+    }
+
+    @Test
+    void handle_continueIgnoredForHttp10() {
+        ConnectionInputStream in = inputStreamOf("PUT /any HTTP/1.0\r\nExpect: 100-continue\r\nContent-Length: 5\r\n\r\nhello");
+
+        Exchange.handle(r -> new Response(Status.OK, ByteChannels.slurp(r.body)), in, channel, true, AccessLog.disabled(), new Metrics());
+
+        assertThat(output.toString()).startsWith("HTTP/1.1 200 OK\r\n").endsWith("hello");
+    }
+
+    @Test
+    void handle_unsupportedExpectation() {
+        ConnectionInputStream in = inputStreamOf("PUT /any HTTP/1.1\r\nExpect: something-else\r\nContent-Length: 5\r\n\r\nhello");
+
+        boolean keepAlive = Exchange.handle(r -> new Response(Status.OK, ""), in, channel, true, AccessLog.disabled(), new Metrics());
+
+        assertThat(keepAlive).isFalse();
+        assertThat(output.toString()).startsWith("HTTP/1.1 417 Expectation Failed\r\nConnection: close\r\n");
+    }
+
+    @Test
+    void handle_parseErrorClosesConnection() {
+        ConnectionInputStream in = inputStreamOf("GET /any HTTP/1.1\r\ninvalid\r\n\r\n");
+
+        boolean keepAlive = Exchange.handle(r -> new Response(Status.OK, ""), in, channel, true, AccessLog.disabled(), new Metrics());
+
+        assertThat(keepAlive).isFalse();
+        assertThat(output.toString()).startsWith("HTTP/1.1 400 Bad Request\r\nConnection: close\r\n");
+    }
+
+    @Test
+    void handle_recordsAccess() {
+        List<String> batches = new CopyOnWriteArrayList<>();
+        AccessLog accessLog = new AccessLog(batch -> batches.add(batch.toString()), 1, 1, 16);
+        ConnectionInputStream in = inputStreamOf("GET /any?key=value HTTP/1.1\r\n\r\nGET /any HTTP/1.1\r\ninvalid\r\n\r\n");
+
+        Exchange.handle(r -> {
+            r.user = "admin";
+            return new Response(Status.OK, "body");
+        }, in, channel, true, accessLog, new Metrics());
+        Exchange.handle(r -> new Response(Status.OK, ""), in, channel, true, accessLog, new Metrics());
+        accessLog.close();
+
+        String[] records = String.join("", batches).split("\n");
+        assertThat(records).hasSize(2);
+        assertThat(records[0]).matches("\\S+ GET /any\\?key=value HTTP/1\\.1 200 4 \\d+us admin");
+        assertThat(records[1]).matches("\\S+ - - - 400 \\d+ \\d+us -");
+    }
+
+    @Test
+    void handle_recordsMetrics() {
+        Metrics metrics = new Metrics();
+        ConnectionInputStream in = inputStreamOf("GET /any HTTP/1.1\r\n\r\n");
+
+        Exchange.handle(r -> new Response(Status.NOT_FOUND, "body"), in, channel, true, AccessLog.disabled(), metrics);
+
+        assertThat(metrics.parseTime.count()).isEqualTo(1);
+        assertThat(metrics.writeTime.count()).isEqualTo(1);
+        assertThat(metrics.responseBytes.sum()).isEqualTo(4);
+        assertThat(metrics.render()).contains("http_responses_total{status=\"404\"} 1\n");
+    }
+
+    @Test
+    void handle_parsedHeadRecordsParseTime() {
+        Metrics metrics = new Metrics();
+        IncrementalRequestParser parser = new IncrementalRequestParser(1024);
+        parser.feed(ByteBuffer.wrap("GET /any HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII)));
+
+        Exchange.handle(r -> new Response(Status.OK, "body"), parser, inputStreamOf(""), channel, true, AccessLog.disabled(), metrics);
+
+        assertThat(metrics.parseTime.count()).isEqualTo(1);
+        assertThat(metrics.responseBytes.sum()).isEqualTo(4);
+    }
+
+    @Test
+    void handle_recordsBodyBytesWritten() {
+        List<String> batches = new CopyOnWriteArrayList<>();
+        AccessLog accessLog = new AccessLog(batch -> batches.add(batch.toString()), 1, 1, 16);
+        Metrics metrics = new Metrics();
+        ConnectionInputStream in = inputStreamOf("HEAD /any HTTP/1.1\r\n\r\nGET /any HTTP/1.1\r\n\r\n");
+        ConnectionInputStream body = inputStreamOf("streamed");
+
+        Exchange.handle(r -> new Response(Status.OK, Maps.of(Header.CONTENT_LENGTH, 12L), ""), in, channel, true, accessLog, metrics);
+        Exchange.handle(r -> new Response(Status.OK, Body.of(Channels.newChannel(body))), in, channel, true, accessLog, metrics);
+        accessLog.close();
+
+        String[] records = String.join("", batches).split("\n");
+        assertThat(records[0]).matches("\\S+ HEAD /any HTTP/1\\.1 200 0 \\d+us -");
+        assertThat(records[1]).matches("\\S+ GET /any HTTP/1\\.1 200 8 \\d+us -");
+        assertThat(metrics.responseBytes.sum()).isEqualTo(8);
+    }
+
+    @Test
+    void handle_recordsBodyBytesWrittenBeforeFailure() {
+        List<String> batches = new CopyOnWriteArrayList<>();
+        AccessLog accessLog = new AccessLog(batch -> batches.add(batch.toString()), 1, 1, 16);
+        Metrics metrics = new Metrics();
+        ConnectionInputStream in = inputStreamOf("GET /any HTTP/1.1\r\n\r\n");
+        ReadableByteChannel body = Channels.newChannel(new SequenceInputStream(
+                new ByteArrayInputStream("first".getBytes(StandardCharsets.UTF_8)),
+                new ByteArrayInputStream("second".getBytes(StandardCharsets.UTF_8))));
+        String written = "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n5\r\nfirst\r\n";
+
+        assertThatThrownBy(() -> Exchange.handle(r -> new Response(Status.OK, Body.of(body)), in,
+                failingAfter(written.length()), true, accessLog, metrics))
+                .isInstanceOf(ResponseComposer.ComposeException.class);
+        accessLog.close();
+
+        assertThat(String.join("", batches)).matches("\\S+ GET /any HTTP/1\\.1 200 5 \\d+us -\n");
+        assertThat(metrics.responseBytes.sum()).isEqualTo(5);
+        assertThat(metrics.render()).contains("http_responses_total{status=\"200\"} 1\n");
+    }
+
+    private static ConnectionInputStream inputStreamOf(String content) {
+        return new ConnectionInputStream(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // Accepts the given number of bytes, as a connection closed by the client partway through the response
+    private WritableByteChannel failingAfter(int limit) {
+        return new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                if (output.size() + src.remaining() > limit) throw new IOException("Connection reset by peer");
+                return channel.write(src);
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
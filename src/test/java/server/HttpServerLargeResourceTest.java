@@ -25,6 +25,7 @@ import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
@@ -68,11 +69,13 @@ public class HttpServerLargeResourceTest {
              BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
             out.printf("GET /large-file HTTP/1.1\r\n");
             out.printf("Host: %s:%s\r\n", HOST, PORT);
+            out.printf("Connection: close\r\n");
             out.printf("\r\n");
 
             assertThat(in.readLine()).isEqualTo("HTTP/1.1 200 OK");
-            assertThat(in.readLine()).isEqualTo("Content-Length: " + (1L << 31));
-            assertThat(in.readLine()).isEqualTo("");
+            assertThat(readHeaders(in))
+                    .containsEntry("Content-Length", String.valueOf(1L << 31))
+                    .containsEntry("Connection", "close");
             assertThat(countRemainingBytes(in)).isEqualTo(1L << 31);
         }
     }
@@ -94,6 +97,15 @@ public class HttpServerLargeResourceTest {
         }
     }
 
+    private static Map<String, String> readHeaders(BufferedReader in) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        for (String line = in.readLine(); !line.isEmpty(); line = in.readLine()) {
+            String[] nameValue = line.split(": ", 2);
+            headers.put(nameValue[0], nameValue[1]);
+        }
+        return headers;
+    }
+
     private static Path createLargeFile(String fileName, int powerOfTwoSize) throws IOException {
         Path file = directory.resolve(fileName);
         int initialPowerSize = 25;
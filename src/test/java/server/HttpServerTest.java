@@ -22,6 +22,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
@@ -52,7 +53,7 @@ public class HttpServerTest {
                 Method.GET, singletonList(new PatternHandler("*", new GetHandler(directory))));
         Handler appHandler = new Dispatcher(routes);
         ExecutorService executor = Executors.newSingleThreadExecutor();
-        server = new HttpServer(PORT, appHandler, executor, Duration.ofSeconds(5), Duration.ofMillis(10));
+        server = new HttpServer(PORT, appHandler, executor, Duration.ofSeconds(5), Duration.ofMillis(10), Duration.ofSeconds(1), 2);
         server.start();
     }
 
@@ -77,11 +78,13 @@ public class HttpServerTest {
              BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
             out.printf("GET /existing-file HTTP/1.1\r\n");
             out.printf("Host: %s:%s\r\n", HOST, PORT);
+            out.printf("Connection: close\r\n");
             out.printf("\r\n");
 
             assertThat(in.readLine()).isEqualTo("HTTP/1.1 200 OK");
-            assertThat(in.readLine()).isEqualTo("Content-Length: 12");
-            assertThat(in.readLine()).isEqualTo("");
+            assertThat(readHeaders(in))
+                    .containsEntry("Content-Length", "12")
+                    .containsEntry("Connection", "close");
             assertThat(in.readLine()).isEqualTo("Hello World!");
         }
     }
@@ -96,11 +99,96 @@ public class HttpServerTest {
             out.printf("invalid\r\n");
 
             assertThat(in.readLine()).isEqualTo("HTTP/1.1 400 Bad Request");
+            assertThat(in.readLine()).isEqualTo("Connection: close");
+            assertThat(in.readLine()).startsWith("Content-Length: ");
             assertThat(in.readLine()).isEqualTo("");
             assertThat(in.readLine()).contains("Invalid header");
         }
     }
 
+    @Test
+    void keepAlive_multipleRequestsOnConnection() throws IOException {
+        try (Socket socket = new Socket(HOST, PORT);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+            out.printf("GET /existing-file HTTP/1.1\r\n");
+            out.printf("\r\n");
+
+            assertThat(in.readLine()).isEqualTo("HTTP/1.1 200 OK");
+            assertThat(readHeaders(in))
+                    .containsEntry("Content-Length", "12")
+                    .doesNotContainKey("Connection");
+            assertThat(readChars(in, 12)).isEqualTo("Hello World!");
+
+            out.printf("GET /does-not-exist HTTP/1.1\r\n");
+            out.printf("\r\n");
+
+            assertThat(in.readLine()).isEqualTo("HTTP/1.1 404 Not Found");
+        }
+    }
+
+    @Test
+    void keepAlive_pipelinedRequestsRespondedInOrder() throws IOException {
+        try (Socket socket = new Socket(HOST, PORT);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+            out.printf("GET /does-not-exist HTTP/1.1\r\n\r\nGET /existing-file HTTP/1.1\r\n\r\n");
+
+            assertThat(in.readLine()).isEqualTo("HTTP/1.1 404 Not Found");
+            assertThat(in.readLine()).isEqualTo("Content-Length: 0");
+            assertThat(in.readLine()).isEqualTo("");
+            assertThat(in.readLine()).isEqualTo("HTTP/1.1 200 OK");
+        }
+    }
+
+    @Test
+    void keepAlive_maxRequestsClosesConnection() throws IOException {
+        try (Socket socket = new Socket(HOST, PORT);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+            out.printf("GET /does-not-exist HTTP/1.1\r\n\r\nGET /does-not-exist HTTP/1.1\r\n\r\n");
+
+            assertThat(in.readLine()).isEqualTo("HTTP/1.1 404 Not Found");
+            assertThat(in.readLine()).isEqualTo("Content-Length: 0");
+            assertThat(in.readLine()).isEqualTo("");
+            assertThat(in.readLine()).isEqualTo("HTTP/1.1 404 Not Found");
+            assertThat(in.readLine()).isEqualTo("Connection: close");
+            assertThat(in.readLine()).isEqualTo("Content-Length: 0");
+            assertThat(in.readLine()).isEqualTo("");
+            assertThat(in.readLine()).isNull();
+        }
+    }
+
+    @Test
+    void keepAlive_idleConnectionClosed() throws IOException {
+        try (Socket socket = new Socket(HOST, PORT);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+            out.printf("GET /does-not-exist HTTP/1.1\r\n\r\n");
+
+            assertThat(in.readLine()).isEqualTo("HTTP/1.1 404 Not Found");
+            assertThat(in.readLine()).isEqualTo("Content-Length: 0");
+            assertThat(in.readLine()).isEqualTo("");
+            assertThat(in.readLine()).isNull();
+        }
+    }
+
+    private static Map<String, String> readHeaders(BufferedReader in) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        for (String line = in.readLine(); !line.isEmpty(); line = in.readLine()) {
+            String[] nameValue = line.split(": ", 2);
+            headers.put(nameValue[0], nameValue[1]);
+        }
+        return headers;
+    }
+
+    private static String readChars(BufferedReader in, int length) throws IOException {
+        char[] chars = new char[length];
+        int offset = 0;
+        while (offset < length) offset += in.read(chars, offset, length - offset);
+        return new String(chars);
+    }
+
     @AfterEach
     void tearDown() {
         server.stop();
@@ -0,0 +1,114 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import server.data.Header;
+import server.data.Method;
+import server.data.Request;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.*;
+import static server.IncrementalRequestParser.Result.*;
+
+class IncrementalRequestParserTest {
+    private final IncrementalRequestParser parser = new IncrementalRequestParser(64);
+
+    @Test
+    void feed_completeHeadLeavesBodyInFragment() {
+        ByteBuffer fragment = bufferOf("PUT /file HTTP/1.1\r\nContent-Length: 5\r\n\r\nhello");
+
+        assertThat(parser.feed(fragment)).isEqualTo(COMPLETE);
+
+        Request request = parser.request();
+        assertThat(request.method).isEqualTo(Method.PUT);
+        assertThat(request.path).isEqualTo("/file");
+        assertThat(request.headers.get(Header.CONTENT_LENGTH)).isEqualTo("5");
+        assertThat(StandardCharsets.US_ASCII.decode(fragment).toString()).isEqualTo("hello");
+    }
+
+    @Test
+    void feed_headAcrossFragments() {
+        assertThat(parser.feed(bufferOf("GET /fi"))).isEqualTo(NEED_MORE);
+        assertThat(parser.hasPartialInput()).isTrue();
+        assertThat(parser.feed(bufferOf("le HTTP/1.1\r\nHost: h\r"))).isEqualTo(NEED_MORE);
+        assertThat(parser.feed(bufferOf("\n\r\n"))).isEqualTo(COMPLETE);
+
+        Request request = parser.request();
+        assertThat(request.path).isEqualTo("/file");
+        assertThat(request.headers).containsExactly(entry(Header.HOST, "h"));
+    }
+
+    @Test
+    void parseNanos_spansFragments() throws InterruptedException {
+        parser.feed(bufferOf("GET / HT"));
+        Thread.sleep(20);
+        parser.feed(bufferOf("TP/1.1\r\n\r\n"));
+
+        assertThat(parser.parseNanos()).isGreaterThanOrEqualTo(20_000_000L);
+        parser.reset();
+        assertThat(parser.feed(bufferOf("GET / HTTP/1.1\r\n\r\n"))).isEqualTo(COMPLETE);
+        assertThat(parser.parseNanos()).isLessThan(20_000_000L);
+    }
+
+    @Test
+    void feed_directFragment() {
+        byte[] bytes = "GET / HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer fragment = ByteBuffer.allocateDirect(bytes.length);
+        fragment.put(bytes).flip();
+
+        assertThat(parser.feed(fragment)).isEqualTo(COMPLETE);
+        assertThat(fragment.hasRemaining()).isFalse();
+    }
+
+    @Test
+    void feed_pipelinedRequestsAfterReset() {
+        ByteBuffer fragment = bufferOf("GET /first HTTP/1.1\r\n\r\nGET /second HTTP/1.1\r\n\r\n");
+
+        assertThat(parser.feed(fragment)).isEqualTo(COMPLETE);
+        assertThat(parser.request().path).isEqualTo("/first");
+        parser.reset();
+        assertThat(parser.feed(fragment)).isEqualTo(COMPLETE);
+        assertThat(parser.request().path).isEqualTo("/second");
+    }
+
+    @Test
+    void feed_headExceedsMaximumSize() {
+        assertThat(parser.feed(bufferOf("GET / HTTP/1.1\r\n"))).isEqualTo(NEED_MORE);
+        assertThat(parser.feed(bufferOf("X-Filler: 01234567890123456789012345678901234567890123456789\r\n"))).isEqualTo(ERROR);
+
+        assertThatThrownBy(parser::request)
+                .isInstanceOf(RequestParser.ParseException.class)
+                .hasMessageContaining("request head exceeds 64 bytes");
+    }
+
+    @Test
+    void feed_invalidMethod() {
+        assertThat(parser.feed(bufferOf("INVALID / HTTP/1.1\r\n"))).isEqualTo(ERROR);
+
+        assertThatThrownBy(parser::request)
+                .isInstanceOf(RequestParser.InvalidMethodException.class)
+                .hasMessageContaining("Invalid method: INVALID");
+    }
+
+    @Test
+    void endOfStream_partialHead() {
+        parser.feed(bufferOf("GET / HTTP/1.1\r\nHost: h\r\n"));
+
+        assertThat(parser.endOfStream()).isEqualTo(ERROR);
+        assertThatThrownBy(parser::request)
+                .isInstanceOf(RequestParser.ParseException.class)
+                .hasMessageContaining("Malformed request: missing blank line after header(s)");
+    }
+
+    @Test
+    void request_incompleteHead() {
+        parser.feed(bufferOf("GET / HTTP/1.1\r\n"));
+
+        assertThatThrownBy(parser::request).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static ByteBuffer bufferOf(String content) {
+        return ByteBuffer.wrap(content.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,136 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import server.data.Header;
+import server.data.Method;
+import server.data.Request;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RequestHeadParserTest {
+    private final RequestHeadParser parser = new RequestHeadParser();
+
+    @Test
+    void parse_completeHead() {
+        ByteBuffer buffer = bufferOf("GET /path?q=1 HTTP/1.1\r\nHost: localhost:8080\r\nAccept:  */* \r\n\r\nbody");
+
+        assertThat(parser.parse(buffer)).isTrue();
+
+        Request request = parser.toRequest();
+        assertThat(parser.length()).isEqualTo(buffer.remaining() - "body".length());
+        assertThat(request.method).isEqualTo(Method.GET);
+        assertThat(request.path).isEqualTo("/path");
+        assertThat(request.query).isEqualTo("q=1");
+        assertThat(request.version).isSameAs("HTTP/1.1");
+        assertThat(request.headers).containsExactly(
+                entry(Header.HOST, "localhost:8080"),
+                entry("Accept", "*/*"));
+    }
+
+    @Test
+    void parse_headSplitAcrossFragments() {
+        String head = "PUT /file HTTP/1.1\r\nContent-Length: 5\r\n\r\n";
+        ByteBuffer buffer = ByteBuffer.allocate(head.length());
+        buffer.flip();
+
+        for (int i = 0; i < head.length() - 1; i++) {
+            append(buffer, head.substring(i, i + 1));
+            assertThat(parser.parse(buffer)).isFalse();
+        }
+        append(buffer, head.substring(head.length() - 1));
+
+        assertThat(parser.parse(buffer)).isTrue();
+        assertThat(parser.toRequest().headers.get(Header.CONTENT_LENGTH)).isEqualTo("5");
+    }
+
+    @Test
+    void parse_offsetsSurviveCompaction() {
+        ByteBuffer buffer = bufferOf("previous" + "GET /a HTTP/1.1\r\nHost: h");
+        buffer.position("previous".length());
+        assertThat(parser.parse(buffer)).isFalse();
+
+        buffer.compact();
+        buffer.put("ost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        buffer.flip();
+
+        assertThat(parser.parse(buffer)).isTrue();
+        assertThat(parser.toRequest().headers.get(Header.HOST)).isEqualTo("host");
+    }
+
+    @Test
+    void toRequest_headersLastOccurrenceWins() {
+        parser.parse(bufferOf("GET / HTTP/1.1\r\nX-A: 1\r\nX-A: 2\r\n\r\n"));
+
+        Request request = parser.toRequest();
+
+        assertThat(request.headers.get("X-A")).isEqualTo("2");
+        assertThat(request.headers.containsKey("x-a")).isFalse();
+        assertThat(request.headers.getOrDefault("X-B", "none")).isEqualTo("none");
+    }
+
+    @Test
+    void toRequest_encodedTarget() {
+        parser.parse(bufferOf("GET /a%20b?c=%20 HTTP/1.0\r\n\r\n"));
+
+        Request request = parser.toRequest();
+
+        assertThat(request.path).isEqualTo("/a b");
+        assertThat(request.query).isEqualTo("c=%20");
+        assertThat(request.version).isSameAs("HTTP/1.0");
+    }
+
+    @Test
+    void parse_invalidMethod() {
+        Throwable error = catchThrowable(() -> parser.parse(bufferOf("INVALID / HTTP/1.1\r\n\r\n")));
+
+        assertThat(error).isInstanceOf(RequestParser.InvalidMethodException.class);
+        assertThat(error).hasMessageContaining("Invalid method: INVALID");
+    }
+
+    @Test
+    void parse_invalidHeader() {
+        Throwable error = catchThrowable(() -> parser.parse(bufferOf("GET / HTTP/1.1\r\ninvalidHeader\r\n\r\n")));
+
+        assertThat(error).isInstanceOf(RequestParser.ParseException.class);
+        assertThat(error).hasMessageContaining("Invalid header: invalidHeader");
+    }
+
+    @Test
+    void parse_bareLineFeed() {
+        Throwable error = catchThrowable(() -> parser.parse(bufferOf("GET / HTTP/1.1\n\n")));
+
+        assertThat(error).isInstanceOf(LineReader.InvalidLineException.class);
+        assertThat(error).hasMessageContaining("expecting <CR><LF> but got: <LF>");
+    }
+
+    @Test
+    void endOfStream_partialLine() {
+        parser.parse(bufferOf("GET / HTTP/1.1\r\nHost"));
+
+        assertThat(parser.endOfStream())
+                .isInstanceOf(LineReader.InvalidLineException.class)
+                .hasMessageContaining("Missing line terminator before end of stream: Host");
+    }
+
+    @Test
+    void endOfStream_missingBlankLine() {
+        parser.parse(bufferOf("GET / HTTP/1.1\r\nHost: h\r\n"));
+
+        assertThat(parser.endOfStream())
+                .isInstanceOf(RequestParser.ParseException.class)
+                .hasMessageContaining("Malformed request: missing blank line after header(s)");
+    }
+
+    private static ByteBuffer bufferOf(String content) {
+        return ByteBuffer.wrap(content.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void append(ByteBuffer buffer, String content) {
+        buffer.compact();
+        buffer.put(content.getBytes(StandardCharsets.US_ASCII));
+        buffer.flip();
+    }
+}
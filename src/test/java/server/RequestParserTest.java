@@ -5,6 +5,7 @@ import server.data.Header;
 import server.data.Method;
 import server.data.Request;
 import server.util.ByteChannels;
+import server.util.Maps;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -63,6 +64,80 @@ class RequestParserTest {
         assertThat(request.query).isEqualTo("key=value+one%24");
     }
 
+    @Test
+    void parse_requestVersion() throws IOException {
+        String input = "GET /existing-file HTTP/1.0\r\n" +
+                "\r\n";
+        ByteArrayInputStream in = inputStreamOf(input);
+
+        Request request = RequestParser.parse(in);
+
+        assertThat(request.version).isEqualTo("HTTP/1.0");
+    }
+
+    @Test
+    void parse_bodyLimitedToContentLength() throws IOException {
+        String input = "PUT /existing-file HTTP/1.1\r\n" +
+                "Content-Length: 5\r\n" +
+                "\r\n" +
+                "hello" +
+                "GET /next-request HTTP/1.1\r\n" +
+                "\r\n";
+        ByteArrayInputStream in = inputStreamOf(input);
+
+        Request request = RequestParser.parse(in);
+
+        assertThat(ByteChannels.slurp(request.body)).isEqualTo("hello");
+        assertThat(RequestParser.parse(in).path).isEqualTo("/next-request");
+    }
+
+    @Test
+    void contentLengthOf_undelimitedBody() {
+        assertThat(RequestParser.contentLengthOf(Maps.of())).isEqualTo(0);
+        assertThat(RequestParser.contentLengthOf(Maps.of(Header.CONTENT_LENGTH, "26"))).isEqualTo(26);
+        assertThat(RequestParser.contentLengthOf(Maps.of(Header.CONTENT_LENGTH, "invalid"))).isEqualTo(-1);
+        assertThat(RequestParser.contentLengthOf(Maps.of(Header.CONTENT_LENGTH, "-26"))).isEqualTo(-1);
+        assertThat(RequestParser.contentLengthOf(Maps.of(Header.TRANSFER_ENCODING, "chunked"))).isEqualTo(-1);
+    }
+
+    @Test
+    void parse_chunkedBody() throws IOException {
+        String input = "PUT /existing-file HTTP/1.1\r\n" +
+                "Transfer-Encoding: chunked\r\n" +
+                "\r\n" +
+                "5\r\nhello\r\n0\r\n\r\n" +
+                "GET /next-request HTTP/1.1\r\n" +
+                "\r\n";
+        ByteArrayInputStream in = inputStreamOf(input);
+
+        Request request = RequestParser.parse(in);
+
+        assertThat(ByteChannels.slurp(request.body)).isEqualTo("hello");
+        assertThat(RequestParser.parse(in).path).isEqualTo("/next-request");
+    }
+
+    @Test
+    void parse_unsupportedTransferCoding() {
+        String input = "PUT /existing-file HTTP/1.1\r\n" +
+                "Transfer-Encoding: gzip\r\n" +
+                "\r\n";
+        ByteArrayInputStream in = inputStreamOf(input);
+
+        Throwable error = catchThrowable(() -> RequestParser.parse(in));
+
+        assertThat(error).isInstanceOf(RequestParser.UnsupportedTransferCoding.class);
+        assertThat(error).hasMessageContaining("Unsupported transfer coding: gzip");
+    }
+
+    @Test
+    void isDelimited() {
+        assertThat(RequestParser.isDelimited(Maps.of())).isTrue();
+        assertThat(RequestParser.isDelimited(Maps.of(Header.CONTENT_LENGTH, "26"))).isTrue();
+        assertThat(RequestParser.isDelimited(Maps.of(Header.CONTENT_LENGTH, "invalid"))).isFalse();
+        assertThat(RequestParser.isDelimited(Maps.of(Header.TRANSFER_ENCODING, "Chunked"))).isTrue();
+        assertThat(RequestParser.isDelimited(Maps.of(Header.TRANSFER_ENCODING, "chunked", Header.CONTENT_LENGTH, "26"))).isFalse();
+    }
+
     @Test
     void parse_requestWithNoInput() {
         ByteArrayInputStream in = inputStreamOf("");
@@ -124,7 +199,79 @@ class RequestParserTest {
         assertThat(error).hasMessageContaining("Invalid header: invalidHeader");
     }
 
+    @Test
+    void parse_connectionInputStream() throws IOException {
+        String input = "PUT /existing-file?a=1 HTTP/1.1\r\n" +
+                "Host: localhost:8080\r\n" +
+                "Content-Length: 5\r\n" +
+                "\r\n" +
+                "hello" +
+                "GET /next-request HTTP/1.0\r\n" +
+                "\r\n";
+        ConnectionInputStream in = new ConnectionInputStream(inputStreamOf(input));
+
+        Request request = RequestParser.parse(in);
+
+        assertThat(request.method).isEqualTo(Method.PUT);
+        assertThat(request.path).isEqualTo("/existing-file");
+        assertThat(request.query).isEqualTo("a=1");
+        assertThat(request.version).isEqualTo("HTTP/1.1");
+        assertThat(request.headers).containsOnly(
+                entry(Header.HOST, "localhost:8080"),
+                entry(Header.CONTENT_LENGTH, "5"));
+        assertThat(ByteChannels.slurp(request.body)).isEqualTo("hello");
+        Request next = RequestParser.parse(in);
+        assertThat(next.path).isEqualTo("/next-request");
+        assertThat(next.version).isEqualTo("HTTP/1.0");
+    }
+
+    @Test
+    void parse_connectionInputStreamHeadSplitAcrossReads() throws IOException {
+        String input = "GET /split%20path HTTP/1.1\r\n" +
+                "Host: localhost:8080\r\n" +
+                "\r\n";
+        ConnectionInputStream in = new ConnectionInputStream(new OneByteInputStream(input));
+
+        Request request = RequestParser.parse(in);
+
+        assertThat(request.path).isEqualTo("/split path");
+        assertThat(request.headers.get(Header.HOST)).isEqualTo("localhost:8080");
+    }
+
+    @Test
+    void parse_connectionInputStreamWithNoInput() {
+        ConnectionInputStream in = new ConnectionInputStream(inputStreamOf(""));
+
+        Throwable error = catchThrowable(() -> RequestParser.parse(in));
+
+        assertThat(error).isInstanceOf(RequestParser.ParseException.class);
+        assertThat(error).hasMessageContaining("Malformed request: missing request line");
+    }
+
+    @Test
+    void parse_connectionInputStreamWithOversizedHead() {
+        StringBuilder input = new StringBuilder("GET /any HTTP/1.1\r\n");
+        while (input.length() < 10_000) input.append("X-Filler: 0123456789\r\n");
+        ConnectionInputStream in = new ConnectionInputStream(inputStreamOf(input.toString()));
+
+        Throwable error = catchThrowable(() -> RequestParser.parse(in));
+
+        assertThat(error).isInstanceOf(RequestParser.ParseException.class);
+        assertThat(error).hasMessageContaining("request head exceeds 8192 bytes");
+    }
+
     private ByteArrayInputStream inputStreamOf(String content) {
         return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
     }
-}
\ No newline at end of file
+
+    private static class OneByteInputStream extends ByteArrayInputStream {
+        OneByteInputStream(String content) {
+            super(content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, 1));
+        }
+    }
+}
@@ -1,18 +1,31 @@
 package server;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import server.data.Body;
+import server.data.FileRegion;
+import server.data.Header;
 import server.data.Response;
 import server.data.Status;
+import server.util.BufferPool;
 import server.util.Maps;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
-import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -27,6 +40,7 @@ class ResponseComposerTest {
 
         assertThat(output.toString())
                 .isEqualTo("HTTP/1.1 200 OK\r\n"
+                        + "Content-Length: 4\r\n"
                         + "\r\n"
                         + "body");
     }
@@ -35,19 +49,37 @@ class ResponseComposerTest {
     void compose_byteArrayBody() {
         ByteArrayOutputStream output = new ByteArrayOutputStream();
 
-        ResponseComposer.compose(new PrintStream(output), new Response(Status.OK, "body".getBytes(StandardCharsets.UTF_8)));
+        ResponseComposer.compose(new PrintStream(output), new Response(Status.OK, Body.of("body".getBytes(StandardCharsets.UTF_8))));
 
         assertThat(output.toString())
                 .isEqualTo("HTTP/1.1 200 OK\r\n"
+                        + "Content-Length: 4\r\n"
                         + "\r\n"
                         + "body");
     }
 
+    @Test
+    void compose_byteBufferBodyReusable() {
+        Body body = Body.of(ByteBuffer.wrap("body".getBytes(StandardCharsets.UTF_8)));
+
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+            ResponseComposer.compose(new PrintStream(output), new Response(Status.OK, body));
+
+            assertThat(output.toString())
+                    .isEqualTo("HTTP/1.1 200 OK\r\n"
+                            + "Content-Length: 4\r\n"
+                            + "\r\n"
+                            + "body");
+        }
+    }
+
     @Test
     void compose_readableByteChannelBody() {
         ByteArrayOutputStream output = new ByteArrayOutputStream();
         String content = String.join("", Collections.nCopies(1024 * 3 + 1, "a"));
-        ReadableByteChannel body = Channels.newChannel(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        Body body = Body.of(Channels.newChannel(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))));
 
         ResponseComposer.compose(new PrintStream(output), new Response(Status.OK, body));
 
@@ -57,6 +89,55 @@ class ResponseComposerTest {
                         + content);
     }
 
+    @Test
+    void compose_fileRegionBody(@TempDir Path directory) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Path file = Files.write(directory.resolve("file"), "Hello World!".getBytes(StandardCharsets.UTF_8));
+        FileRegion body = new FileRegion(FileChannel.open(file, StandardOpenOption.READ), 6, 5);
+
+        ResponseComposer.compose(new PrintStream(output), new Response(Status.OK, body));
+
+        assertThat(output.toString())
+                .isEqualTo("HTTP/1.1 200 OK\r\n"
+                        + "Content-Length: 5\r\n"
+                        + "\r\n"
+                        + "World");
+        assertThat(body.isOpen()).isFalse();
+    }
+
+    @Test
+    void compose_smallFileRegionInSingleWrite(@TempDir Path directory) throws IOException {
+        Path file = Files.write(directory.resolve("file"), "Hello World!".getBytes(StandardCharsets.UTF_8));
+        FileRegion body = new FileRegion(FileChannel.open(file, StandardOpenOption.READ), 0, 12);
+        RecordingChannel channel = new RecordingChannel();
+        long outstandingBuffers = BufferPool.shared().outstanding();
+
+        ResponseComposer.compose(channel, new Response(Status.OK, body));
+
+        assertThat(channel.writes).containsExactly("HTTP/1.1 200 OK\r\n"
+                + "Content-Length: 12\r\n"
+                + "\r\n"
+                + "Hello World!");
+        assertThat(BufferPool.shared().outstanding()).isEqualTo(outstandingBuffers);
+    }
+
+    @Test
+    void compose_largeFileRegion(@TempDir Path directory) throws IOException {
+        byte[] content = new byte[BufferPool.MAX_POOLED_SIZE];
+        Arrays.fill(content, (byte) 'a');
+        Path file = Files.write(directory.resolve("file"), content);
+        FileRegion body = new FileRegion(FileChannel.open(file, StandardOpenOption.READ), 0, content.length);
+        RecordingChannel channel = new RecordingChannel();
+
+        ResponseComposer.compose(channel, new Response(Status.OK, body));
+
+        assertThat(channel.writes.get(0)).isEqualTo("HTTP/1.1 200 OK\r\n"
+                + "Content-Length: 65536\r\n"
+                + "\r\n");
+        assertThat(String.join("", channel.writes.subList(1, channel.writes.size())))
+                .isEqualTo(new String(content, StandardCharsets.UTF_8));
+    }
+
     @Test
     void compose_noBody() {
         ByteArrayOutputStream output = new ByteArrayOutputStream();
@@ -65,6 +146,7 @@ class ResponseComposerTest {
 
         assertThat(output.toString())
                 .isEqualTo("HTTP/1.1 200 OK\r\n"
+                        + "Content-Length: 0\r\n"
                         + "\r\n");
     }
 
@@ -76,6 +158,7 @@ class ResponseComposerTest {
 
         assertThat(output.toString())
                 .isEqualTo("HTTP/1.1 404 Not Found\r\n"
+                        + "Content-Length: 0\r\n"
                         + "\r\n");
     }
 
@@ -93,14 +176,88 @@ class ResponseComposerTest {
                 .isEqualTo("HTTP/1.1 200 OK\r\n"
                         + "headerOne: valueOne\r\n"
                         + "headerTwo: 2\r\n"
+                        + "Content-Length: 0\r\n"
+                        + "\r\n");
+    }
+
+    @Test
+    void compose_contentLengthPresent() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        ResponseComposer.compose(new PrintStream(output), new Response(Status.OK, Maps.of(Header.CONTENT_LENGTH, 3), ""));
+
+        assertThat(output.toString())
+                .isEqualTo("HTTP/1.1 200 OK\r\n"
+                        + "Content-Length: 3\r\n"
                         + "\r\n");
     }
 
+    @Test
+    void compose_noContent() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        ResponseComposer.compose(new PrintStream(output), new Response(Status.NO_CONTENT, ""));
+
+        assertThat(output.toString())
+                .isEqualTo("HTTP/1.1 204 No Content\r\n"
+                        + "\r\n");
+    }
+
+    @Test
+    void compose_notModified() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        ResponseComposer.compose(new PrintStream(output), new Response(Status.NOT_MODIFIED, Maps.of(Header.E_TAG, "\"tag\""), ""));
+
+        assertThat(output.toString())
+                .isEqualTo("HTTP/1.1 304 Not Modified\r\n"
+                        + "ETag: \"tag\"\r\n"
+                        + "\r\n");
+    }
+
+    @Test
+    void isDelimited_readableByteChannelBody() {
+        Body body = Body.of(Channels.newChannel(new ByteArrayInputStream(new byte[0])));
+
+        assertThat(ResponseComposer.isDelimited(new Response(Status.OK, body))).isFalse();
+        assertThat(ResponseComposer.isDelimited(new Response(Status.OK, Maps.of(Header.CONTENT_LENGTH, 0L), body))).isTrue();
+        assertThat(ResponseComposer.isDelimited(new Response(Status.OK, Maps.of(Header.TRANSFER_ENCODING, "chunked"), body))).isTrue();
+    }
+
+    @Test
+    void compose_chunkedBody() {
+        RecordingChannel channel = new RecordingChannel();
+        Body body = Body.concat(Arrays.asList(
+                Body.of(Channels.newChannel(new ByteArrayInputStream("hello".getBytes(StandardCharsets.UTF_8)))),
+                Body.of(Channels.newChannel(new ByteArrayInputStream(new byte[0]))),
+                Body.of(Channels.newChannel(new ByteArrayInputStream(" chunked world".getBytes(StandardCharsets.UTF_8))))));
+
+        ResponseComposer.compose(channel, new Response(Status.OK, Maps.of(Header.TRANSFER_ENCODING, "chunked"), body));
+
+        assertThat(String.join("", channel.writes))
+                .isEqualTo("HTTP/1.1 200 OK\r\n"
+                        + "Transfer-Encoding: chunked\r\n"
+                        + "\r\n"
+                        + "5\r\nhello\r\n"
+                        + "e\r\n chunked world\r\n"
+                        + "0\r\n\r\n");
+    }
+
+    @Test
+    void compose_chunkedNoContent() {
+        RecordingChannel channel = new RecordingChannel();
+        Body body = Body.of(Channels.newChannel(new ByteArrayInputStream(new byte[0])));
+
+        ResponseComposer.compose(channel, new Response(Status.NO_CONTENT, Maps.of(Header.TRANSFER_ENCODING, "chunked"), body));
+
+        assertThat(String.join("", channel.writes)).isEqualTo("HTTP/1.1 204 No Content\r\nTransfer-Encoding: chunked\r\n\r\n");
+    }
+
     @Test
     void compose_exceptionOnWritingResponse() {
         IOException exception = new IOException("Error during write.");
         ErrorPrintStream out = new ErrorPrintStream(exception);
-        Response response = new Response(Status.OK, new byte[0]);
+        Response response = new Response(Status.OK, Body.of(new byte[0]));
 
         Throwable error = catchThrowable(() -> ResponseComposer.compose(out, response));
 
@@ -108,6 +265,26 @@ class ResponseComposerTest {
         assertThat(error).hasRootCause(exception);
     }
 
+    private static class RecordingChannel implements WritableByteChannel {
+        final List<String> writes = new ArrayList<>();
+
+        @Override
+        public int write(ByteBuffer src) {
+            int length = src.remaining();
+            writes.add(StandardCharsets.UTF_8.decode(src).toString());
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
     private static class ErrorPrintStream extends PrintStream {
         private final IOException exception;
 
@@ -0,0 +1,69 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import server.data.Header;
+import server.data.Response;
+import server.data.Status;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseHeadEncoderTest {
+    private final ResponseHeadEncoder encoder = new ResponseHeadEncoder();
+
+    @Test
+    void encode_statusLineOnly() {
+        ByteBuffer head = encoder.encode(new Response(Status.NO_CONTENT, ""), -1);
+
+        assertThat(utf8(head)).isEqualTo("HTTP/1.1 204 No Content\r\n\r\n");
+    }
+
+    @Test
+    void encode_headersAndContentLength() {
+        Map<String, Object> headers = new LinkedHashMap<>();
+        headers.put(Header.CONTENT_TYPE, "text/plain");
+        headers.put("X-Count", 1234567890123L);
+        headers.put("X-Zero", 0);
+
+        ByteBuffer head = encoder.encode(new Response(Status.OK, headers, "body"), 4);
+
+        assertThat(utf8(head)).isEqualTo("HTTP/1.1 200 OK\r\n" +
+                "Content-Type: text/plain\r\n" +
+                "X-Count: 1234567890123\r\n" +
+                "X-Zero: 0\r\n" +
+                "Content-Length: 4\r\n" +
+                "\r\n");
+    }
+
+    @Test
+    void encode_nonAsciiValue() {
+        Map<String, Object> headers = new LinkedHashMap<>();
+        headers.put("X-Name", "caf\u00e9 \u2603");
+
+        ByteBuffer head = encoder.encode(new Response(Status.OK, headers, ""), -1);
+
+        assertThat(utf8(head)).isEqualTo("HTTP/1.1 200 OK\r\nX-Name: caf\u00e9 \u2603\r\n\r\n");
+    }
+
+    @Test
+    void encode_growsForLargeHeadsAndReusesAfterwards() {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 20000; i++) value.append('a');
+        Map<String, Object> headers = new LinkedHashMap<>();
+        headers.put("X-Large", value.toString());
+
+        ByteBuffer large = encoder.encode(new Response(Status.OK, headers, ""), -1);
+        assertThat(utf8(large)).endsWith(value + "\r\n\r\n");
+
+        ByteBuffer small = encoder.encode(new Response(Status.NOT_FOUND, ""), 0);
+        assertThat(utf8(small)).isEqualTo("HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\n\r\n");
+    }
+
+    private static String utf8(ByteBuffer buffer) {
+        return StandardCharsets.UTF_8.decode(buffer.duplicate()).toString();
+    }
+}
@@ -0,0 +1,274 @@
+package server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import server.data.Method;
+import server.data.PatternHandler;
+import server.handlers.Dispatcher;
+import server.handlers.GetHandler;
+import server.util.Maps;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Timeout(value = 5)
+public class SelectorHttpServerTest {
+    private static final String HOST = "localhost";
+    private static final int PORT = 6001;
+
+    @TempDir
+    static Path directory;
+
+    private SelectorHttpServer server;
+
+    @BeforeAll
+    static void beforeAll() throws IOException {
+        Files.write(directory.resolve("existing-file"), "Hello World!".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @BeforeEach
+    void setUp() {
+        Map<Method, List<PatternHandler>> routes = Maps.of(
+                Method.GET, singletonList(new PatternHandler("*", new GetHandler(directory))));
+        Handler appHandler = new Dispatcher(routes);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        server = new SelectorHttpServer(PORT, appHandler, executor, 2, Duration.ofMillis(500), Duration.ofMillis(10), Duration.ofSeconds(1), 2);
+        server.start();
+    }
+
+    @Test
+    void connect_whenServerIsStarted() throws IOException {
+        try (Socket socket = new Socket(HOST, PORT)) {
+            assertThat(socket.isConnected()).isTrue();
+        }
+    }
+
+    @Test
+    void connect_whenServerIsStopped() {
+        server.stop();
+
+        assertThatThrownBy(() -> new Socket(HOST, PORT)).isInstanceOf(ConnectException.class);
+    }
+
+    @Test
+    void getRequest() throws IOException {
+        try (Socket socket = new Socket(HOST, PORT);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+            out.printf("GET /existing-file HTTP/1.1\r\n");
+            out.printf("Host: %s:%s\r\n", HOST, PORT);
+            out.printf("Connection: close\r\n");
+            out.printf("\r\n");
+
+            assertThat(in.readLine()).isEqualTo("HTTP/1.1 200 OK");
+            assertThat(readHeaders(in))
+                    .containsEntry("Content-Length", "12")
+                    .containsEntry("Connection", "close");
+            assertThat(in.readLine()).isEqualTo("Hello World!");
+        }
+    }
+
+    @Test
+    void invalidRequest_parseException() throws IOException {
+        try (Socket socket = new Socket(HOST, PORT);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+            out.printf("GET /existing-file HTTP/1.1\r\n");
+            out.printf("Host: %s:%s\r\n", HOST, PORT);
+            out.printf("invalid\r\n");
+
+            assertThat(in.readLine()).isEqualTo("HTTP/1.1 400 Bad Request");
+            assertThat(in.readLine()).isEqualTo("Connection: close");
+            assertThat(in.readLine()).startsWith("Content-Length: ");
+            assertThat(in.readLine()).isEqualTo("");
+            assertThat(in.readLine()).contains("Invalid header");
+        }
+    }
+
+    @Test
+    void getRequest_headSplitAcrossWrites() throws IOException, InterruptedException {
+        try (Socket socket = new Socket(HOST, PORT);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+            out.printf("GET /existing-file HTTP/1.1\r\n");
+            Thread.sleep(50);
+            out.printf("Host: %s:%s\r\n", HOST, PORT);
+            Thread.sleep(50);
+            out.printf("Connection: close\r\n");
+            out.printf("\r\n");
+
+            assertThat(in.readLine()).isEqualTo("HTTP/1.1 200 OK");
+            assertThat(readHeaders(in))
+                    .containsEntry("Content-Length", "12")
+                    .containsEntry("Connection", "close");
+            assertThat(in.readLine()).isEqualTo("Hello World!");
+        }
+    }
+
+    @Test
+    void invalidRequest_headTooLarge() throws IOException {
+        try (Socket socket = new Socket(HOST, PORT);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+            out.printf("GET /existing-file HTTP/1.1\r\n");
+            for (int i = 0; i < 1000; i++) out.printf("X-Filler: 0123456789\r\n");
+
+            assertThat(in.readLine()).isEqualTo("HTTP/1.1 400 Bad Request");
+            assertThat(in.readLine()).isEqualTo("Connection: close");
+            assertThat(in.readLine()).startsWith("Content-Length: ");
+            assertThat(in.readLine()).isEqualTo("");
+            assertThat(in.readLine()).contains("request head exceeds 8192 bytes");
+        }
+    }
+
+    @Test
+    void idleConnection_requestTimeout() throws IOException {
+        try (Socket socket = new Socket(HOST, PORT);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+            out.printf("GET /existing-file HTTP/1.1\r\n");
+
+            assertThat(in.readLine()).isEqualTo("HTTP/1.1 408 Request Timeout");
+        }
+    }
+
+    @Test
+    void concurrentIdleConnections_doNotOccupyWorker() throws IOException {
+        try (Socket idle = new Socket(HOST, PORT);
+             Socket socket = new Socket(HOST, PORT);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+            new PrintWriter(idle.getOutputStream(), true).printf("GET /existing-file HTTP/1.1\r\n");
+            out.printf("GET /existing-file HTTP/1.1\r\n");
+            out.printf("Host: %s:%s\r\n", HOST, PORT);
+            out.printf("\r\n");
+
+            assertThat(in.readLine()).isEqualTo("HTTP/1.1 200 OK");
+        }
+    }
+
+    @Test
+    void keepAlive_multipleRequestsOnConnection() throws IOException {
+        try (Socket socket = new Socket(HOST, PORT);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+            out.printf("GET /existing-file HTTP/1.1\r\n");
+            out.printf("\r\n");
+
+            assertThat(in.readLine()).isEqualTo("HTTP/1.1 200 OK");
+            assertThat(readHeaders(in))
+                    .containsEntry("Content-Length", "12")
+                    .doesNotContainKey("Connection");
+            assertThat(readChars(in, 12)).isEqualTo("Hello World!");
+
+            out.printf("GET /does-not-exist HTTP/1.1\r\n");
+            out.printf("\r\n");
+
+            assertThat(in.readLine()).isEqualTo("HTTP/1.1 404 Not Found");
+        }
+    }
+
+    @Test
+    void keepAlive_pipelinedRequestsRespondedInOrder() throws IOException {
+        try (Socket socket = new Socket(HOST, PORT);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+            out.printf("GET /does-not-exist HTTP/1.1\r\n\r\nGET /existing-file HTTP/1.1\r\n\r\n");
+
+            assertThat(in.readLine()).isEqualTo("HTTP/1.1 404 Not Found");
+            assertThat(in.readLine()).isEqualTo("Content-Length: 0");
+            assertThat(in.readLine()).isEqualTo("");
+            assertThat(in.readLine()).isEqualTo("HTTP/1.1 200 OK");
+        }
+    }
+
+    @Test
+    void keepAlive_pipelinedRequestSplitAcrossWrites() throws IOException, InterruptedException {
+        try (Socket socket = new Socket(HOST, PORT);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+            out.printf("GET /does-not-exist HTTP/1.1\r\n\r\nGET /existing-");
+            Thread.sleep(50);
+            out.printf("file HTTP/1.1\r\n\r\n");
+
+            assertThat(in.readLine()).isEqualTo("HTTP/1.1 404 Not Found");
+            assertThat(in.readLine()).isEqualTo("Content-Length: 0");
+            assertThat(in.readLine()).isEqualTo("");
+            assertThat(in.readLine()).isEqualTo("HTTP/1.1 200 OK");
+        }
+    }
+
+    @Test
+    void keepAlive_maxRequestsClosesConnection() throws IOException {
+        try (Socket socket = new Socket(HOST, PORT);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+            out.printf("GET /does-not-exist HTTP/1.1\r\n\r\nGET /does-not-exist HTTP/1.1\r\n\r\n");
+
+            assertThat(in.readLine()).isEqualTo("HTTP/1.1 404 Not Found");
+            assertThat(in.readLine()).isEqualTo("Content-Length: 0");
+            assertThat(in.readLine()).isEqualTo("");
+            assertThat(in.readLine()).isEqualTo("HTTP/1.1 404 Not Found");
+            assertThat(in.readLine()).isEqualTo("Connection: close");
+            assertThat(in.readLine()).isEqualTo("Content-Length: 0");
+            assertThat(in.readLine()).isEqualTo("");
+            assertThat(in.readLine()).isNull();
+        }
+    }
+
+    @Test
+    void keepAlive_idleConnectionClosed() throws IOException {
+        try (Socket socket = new Socket(HOST, PORT);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+            out.printf("GET /does-not-exist HTTP/1.1\r\n\r\n");
+
+            assertThat(in.readLine()).isEqualTo("HTTP/1.1 404 Not Found");
+            assertThat(in.readLine()).isEqualTo("Content-Length: 0");
+            assertThat(in.readLine()).isEqualTo("");
+            assertThat(in.readLine()).isNull();
+        }
+    }
+
+    private static Map<String, String> readHeaders(BufferedReader in) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        for (String line = in.readLine(); !line.isEmpty(); line = in.readLine()) {
+            String[] nameValue = line.split(": ", 2);
+            headers.put(nameValue[0], nameValue[1]);
+        }
+        return headers;
+    }
+
+    private static String readChars(BufferedReader in, int length) throws IOException {
+        char[] chars = new char[length];
+        int offset = 0;
+        while (offset < length) offset += in.read(chars, offset, length - offset);
+        return new String(chars);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+}
@@ -0,0 +1,102 @@
+package server.handlers;
+
+import org.junit.jupiter.api.Test;
+import server.data.Method;
+import server.util.Maps;
+
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccessControlTest {
+    private static final Map<String, Map<String, List<Method>>> ACCESS_CONTROL_LIST = Maps.of(
+            "admin", Maps.of(
+                    "/logs", asList(Method.GET, Method.HEAD),
+                    "/admin/**", asList(Method.GET, Method.PUT, Method.DELETE),
+                    "/admin/secrets/**", singletonList(Method.GET)),
+            "anonymous", Maps.of(
+                    "/logs", emptyList(),
+                    "/cat-form", asList(Method.GET, Method.POST)));
+    private static final List<Method> DEFAULT_ACCESS = asList(Method.GET, Method.HEAD, Method.OPTIONS);
+
+    private final AccessControl accessControl = new AccessControl(ACCESS_CONTROL_LIST, DEFAULT_ACCESS);
+
+    @Test
+    void permissionsOf_exactRule() {
+        AccessControl.Permissions permissions = accessControl.permissionsOf("anonymous", "/cat-form");
+
+        assertThat(permissions.allows(Method.POST)).isTrue();
+        assertThat(permissions.allows(Method.DELETE)).isFalse();
+        assertThat(permissions.allow).isEqualTo("GET, POST");
+    }
+
+    @Test
+    void permissionsOf_exactRuleDoesNotApplyBelowPath() {
+        AccessControl.Permissions permissions = accessControl.permissionsOf("anonymous", "/cat-form/data");
+
+        assertThat(permissions.allow).isEqualTo("GET, HEAD, OPTIONS");
+    }
+
+    @Test
+    void permissionsOf_prefixRule() {
+        assertThat(accessControl.permissionsOf("admin", "/admin").allow).isEqualTo("GET, PUT, DELETE");
+        assertThat(accessControl.permissionsOf("admin", "/admin/users/1").allow).isEqualTo("GET, PUT, DELETE");
+        assertThat(accessControl.permissionsOf("admin", "/administrator").allow).isEqualTo("GET, HEAD, OPTIONS");
+    }
+
+    @Test
+    void permissionsOf_longestPrefixRule() {
+        AccessControl.Permissions permissions = accessControl.permissionsOf("admin", "/admin/secrets/key");
+
+        assertThat(permissions.allows(Method.GET)).isTrue();
+        assertThat(permissions.allows(Method.DELETE)).isFalse();
+    }
+
+    @Test
+    void permissionsOf_defaultAccess() {
+        AccessControl.Permissions permissions = accessControl.permissionsOf("admin", "/index.html");
+
+        assertThat(permissions.allows(Method.OPTIONS)).isTrue();
+        assertThat(permissions.allows(Method.PUT)).isFalse();
+    }
+
+    @Test
+    void permissionsOf_userNotInList() {
+        AccessControl.Permissions permissions = accessControl.permissionsOf("notInAcl", "/index.html");
+
+        assertThat(permissions.allows(Method.GET)).isFalse();
+        assertThat(permissions.allow).isEqualTo("");
+    }
+
+    @Test
+    void isProtected() {
+        assertThat(accessControl.isProtected("/logs")).isTrue();
+        assertThat(accessControl.isProtected("/admin")).isTrue();
+        assertThat(accessControl.isProtected("/admin/users/1")).isTrue();
+        assertThat(accessControl.isProtected("/cat-form")).isFalse();
+        assertThat(accessControl.isProtected("/logs/other")).isFalse();
+        assertThat(accessControl.isProtected("/")).isFalse();
+    }
+
+    @Test
+    void protecting() {
+        AccessControl protecting = AccessControl.protecting(asList("/protected", "/private/**"));
+
+        assertThat(protecting.isProtected("/protected")).isTrue();
+        assertThat(protecting.isProtected("/private/file")).isTrue();
+        assertThat(protecting.isProtected("/public")).isFalse();
+    }
+
+    @Test
+    void reload() {
+        accessControl.reload(Maps.of("anonymous", Maps.of("/cat-form", singletonList(Method.GET))), DEFAULT_ACCESS);
+
+        assertThat(accessControl.permissionsOf("anonymous", "/cat-form").allow).isEqualTo("GET");
+        assertThat(accessControl.permissionsOf("admin", "/logs").allows(Method.GET)).isFalse();
+        assertThat(accessControl.isProtected("/logs")).isFalse();
+    }
+}
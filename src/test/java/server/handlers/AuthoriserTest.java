@@ -85,4 +85,17 @@ public class AuthoriserTest {
         assertThat(response.status).isEqualTo(Status.METHOD_NOT_ALLOWED);
         assertThat(response.headers).containsEntry(Header.ALLOW, "");
     }
+
+    @Test
+    void reloadedAccessControl() {
+        AccessControl accessControl = new AccessControl(ACCESS_CONTROL_LIST, DEFAULT_ACCESS);
+        authoriser = new Authoriser(handler, accessControl);
+        Request request = new Request(Method.DELETE, "/protected");
+        request.user = "admin";
+
+        accessControl.reload(Maps.of("admin", Maps.of("/protected", asList(Method.GET, Method.DELETE))), DEFAULT_ACCESS);
+        Response response = authoriser.handle(request);
+
+        assertThat(response).isEqualTo(handler.handledResponse);
+    }
 }
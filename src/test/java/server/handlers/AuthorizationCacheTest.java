@@ -0,0 +1,53 @@
+package server.handlers;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AuthorizationCacheTest {
+    @Test
+    void userOf_verifiedAuthorization() {
+        AuthorizationCache cache = new AuthorizationCache(Duration.ofMinutes(1), 10);
+
+        cache.put("Basic YWRtaW46aHVudGVyMg==", "admin");
+
+        assertThat(cache.userOf("Basic YWRtaW46aHVudGVyMg==")).isEqualTo("admin");
+        assertThat(cache.userOf("Basic YWRtaW46d3Jvbmc=")).isNull();
+    }
+
+    @Test
+    void userOf_expiredAuthorization() throws InterruptedException {
+        AuthorizationCache cache = new AuthorizationCache(Duration.ofMillis(1), 10);
+        cache.put("Basic YWRtaW46aHVudGVyMg==", "admin");
+
+        Thread.sleep(5);
+
+        assertThat(cache.userOf("Basic YWRtaW46aHVudGVyMg==")).isNull();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    void put_evictsLeastRecentlyUsed() {
+        AuthorizationCache cache = new AuthorizationCache(Duration.ofMinutes(1), 2);
+        cache.put("first", "admin");
+        cache.put("second", "admin");
+        cache.userOf("first");
+
+        cache.put("third", "admin");
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.userOf("first")).isEqualTo("admin");
+        assertThat(cache.userOf("second")).isNull();
+    }
+
+    @Test
+    void put_disabledCache() {
+        AuthorizationCache cache = new AuthorizationCache(Duration.ZERO, 10);
+
+        cache.put("first", "admin");
+
+        assertThat(cache.userOf("first")).isNull();
+    }
+}
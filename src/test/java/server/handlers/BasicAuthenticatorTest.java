@@ -3,6 +3,7 @@ package server.handlers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import server.Handler;
+import server.data.Body;
 import server.data.Header;
 import server.data.Method;
 import server.data.Request;
@@ -11,9 +12,11 @@ import server.data.Status;
 import server.util.TestHandler;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Base64;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.util.Collections.singletonList;
 import static java.util.Collections.singletonMap;
@@ -65,7 +68,7 @@ public class BasicAuthenticatorTest {
 
         assertThat(response.status).isEqualTo(Status.UNAUTHORIZED);
         assertThat(response.headers).containsEntry(Header.WWW_AUTHENTICATE, "Basic realm=\"default\"");
-        assertThat(response.body).isEqualTo("Invalid credentials" + System.lineSeparator());
+        assertThat(response.body).isEqualTo(Body.of("Invalid credentials" + System.lineSeparator()));
     }
 
     @Test
@@ -77,7 +80,7 @@ public class BasicAuthenticatorTest {
         Response response = authenticator.handle(request);
 
         assertThat(response.status).isEqualTo(Status.BAD_REQUEST);
-        assertThat(response.body).isEqualTo("Malformed Authorization header: BasicNoSpaceOnlyOneToken" + System.lineSeparator());
+        assertThat(response.body).isEqualTo(Body.of("Malformed Authorization header: BasicNoSpaceOnlyOneToken" + System.lineSeparator()));
     }
 
     @Test
@@ -90,7 +93,7 @@ public class BasicAuthenticatorTest {
         Response response = authenticator.handle(request);
 
         assertThat(response.status).isEqualTo(Status.BAD_REQUEST);
-        assertThat(response.body).isEqualTo("Malformed Authorization header: credentials format invalid" + System.lineSeparator());
+        assertThat(response.body).isEqualTo(Body.of("Malformed Authorization header: credentials format invalid" + System.lineSeparator()));
     }
 
     @Test
@@ -102,4 +105,43 @@ public class BasicAuthenticatorTest {
         assertThat(response).isEqualTo(handler.handledResponse);
         assertThat(handler.receivedRequest.user).isEqualTo("anonymous");
     }
+
+    @Test
+    void protectedPath_cachedAuthorization_skipsCredentialStore() {
+        AtomicInteger verifications = new AtomicInteger();
+        CredentialStore store = (username, password) -> {
+            verifications.incrementAndGet();
+            return password.equals("password");
+        };
+        authenticator = new BasicAuthenticator(handler, "default", AccessControl.protecting(PROTECTED_PATHS), store,
+                new AuthorizationCache(Duration.ofMinutes(1), 10));
+        String basicCookie = Base64.getEncoder().encodeToString("admin:password".getBytes(StandardCharsets.UTF_8));
+
+        for (int i = 0; i < 3; i++) {
+            Request request = new Request(Method.GET, "/protected");
+            request.headers = singletonMap(Header.AUTHORIZATION, "Basic " + basicCookie);
+            assertThat(authenticator.handle(request)).isEqualTo(handler.handledResponse);
+            assertThat(handler.receivedRequest.user).isEqualTo("admin");
+        }
+        assertThat(verifications.get()).isEqualTo(1);
+    }
+
+    @Test
+    void protectedPath_failedAuthorization_notCached() {
+        AtomicInteger verifications = new AtomicInteger();
+        CredentialStore store = (username, password) -> {
+            verifications.incrementAndGet();
+            return false;
+        };
+        authenticator = new BasicAuthenticator(handler, "default", AccessControl.protecting(PROTECTED_PATHS), store,
+                new AuthorizationCache(Duration.ofMinutes(1), 10));
+        String basicCookie = Base64.getEncoder().encodeToString("admin:wrong".getBytes(StandardCharsets.UTF_8));
+
+        for (int i = 0; i < 2; i++) {
+            Request request = new Request(Method.GET, "/protected");
+            request.headers = singletonMap(Header.AUTHORIZATION, "Basic " + basicCookie);
+            assertThat(authenticator.handle(request).status).isEqualTo(Status.UNAUTHORIZED);
+        }
+        assertThat(verifications.get()).isEqualTo(2);
+    }
 }
@@ -2,6 +2,7 @@ package server.handlers;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import server.data.Body;
 import server.data.Header;
 import server.data.Method;
 import server.data.Request;
@@ -40,7 +41,7 @@ public class CatFormHandlerTest {
         Response response = handler.get(request);
 
         assertThat(response.status).isEqualTo(Status.OK);
-        assertThat(response.body).isEqualTo("data=hicat");
+        assertThat(response.body).isEqualTo(Body.of("data=hicat"));
     }
 
     @Test
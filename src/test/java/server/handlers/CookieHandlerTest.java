@@ -1,6 +1,7 @@
 package server.handlers;
 
 import org.junit.jupiter.api.Test;
+import server.data.Body;
 import server.data.Header;
 import server.data.Method;
 import server.data.Request;
@@ -20,7 +21,7 @@ public class CookieHandlerTest {
 
         assertThat(response.status).isEqualTo(Status.OK);
         assertThat(response.headers).containsEntry(Header.SET_COOKIE, "type=food");
-        assertThat(response.body).isEqualTo("Eat food");
+        assertThat(response.body).isEqualTo(Body.of("Eat food"));
     }
 
     @Test
@@ -30,7 +31,7 @@ public class CookieHandlerTest {
         Response response = CookieHandler.cookie(request);
 
         assertThat(response.status).isEqualTo(Status.BAD_REQUEST);
-        assertThat(response.body).isEqualTo("Missing type parameter.");
+        assertThat(response.body).isEqualTo(Body.of("Missing type parameter."));
     }
 
     @Test
@@ -41,7 +42,7 @@ public class CookieHandlerTest {
         Response response = CookieHandler.eatCookie(request);
 
         assertThat(response.status).isEqualTo(Status.OK);
-        assertThat(response.body).isEqualTo("mmmm food");
+        assertThat(response.body).isEqualTo(Body.of("mmmm food"));
     }
 
     @Test
@@ -52,7 +53,7 @@ public class CookieHandlerTest {
         Response response = CookieHandler.eatCookie(request);
 
         assertThat(response.status).isEqualTo(Status.BAD_REQUEST);
-        assertThat(response.body).isEqualTo("Missing cookie type.");
+        assertThat(response.body).isEqualTo(Body.of("Missing cookie type."));
     }
 
     @Test
@@ -62,6 +63,6 @@ public class CookieHandlerTest {
         Response response = CookieHandler.eatCookie(request);
 
         assertThat(response.status).isEqualTo(Status.BAD_REQUEST);
-        assertThat(response.body).isEqualTo("Missing cookie type.");
+        assertThat(response.body).isEqualTo(Body.of("Missing cookie type."));
     }
 }
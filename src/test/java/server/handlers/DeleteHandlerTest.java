@@ -3,6 +3,7 @@ package server.handlers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import server.data.Body;
 import server.data.Method;
 import server.data.Request;
 import server.data.Response;
@@ -33,7 +34,7 @@ public class DeleteHandlerTest {
         Response response = handler.handle(request);
 
         assertThat(response.status).isEqualTo(Status.OK);
-        assertThat(response.body).isEqualTo("");
+        assertThat(response.body).isEqualTo(Body.of(""));
         assertThat(Files.exists(directory.resolve("existing-file"))).isFalse();
     }
 
@@ -54,6 +55,6 @@ public class DeleteHandlerTest {
         Response response = handler.handle(request);
 
         assertThat(response.status).isEqualTo(Status.CONFLICT);
-        assertThat(response.body).isEqualTo("Unable to delete: directory is a directory.");
+        assertThat(response.body).isEqualTo(Body.of("Unable to delete: directory is a directory."));
     }
 }
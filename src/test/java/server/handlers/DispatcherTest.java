@@ -2,18 +2,24 @@ package server.handlers;
 
 import org.junit.jupiter.api.Test;
 import server.Handler;
+import server.data.Body;
+import server.data.Header;
 import server.data.Method;
 import server.data.PatternHandler;
 import server.data.Request;
 import server.data.Response;
 import server.data.Status;
+import server.metrics.Metrics;
 import server.util.Maps;
 
 import java.util.List;
 import java.util.Map;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
 
 public class DispatcherTest {
     public static final Map<Method, List<PatternHandler>> ROUTES = Maps.of(
@@ -31,7 +37,7 @@ public class DispatcherTest {
 
         Response response = dispatcher.handle(new Request(Method.GET, "/pathOne"));
 
-        assertThat(response.body).isEqualTo("GET /pathOne");
+        assertThat(response.body).isEqualTo(Body.of("GET /pathOne"));
     }
 
     @Test
@@ -40,7 +46,7 @@ public class DispatcherTest {
 
         Response response = dispatcher.handle(new Request(Method.GET, "/path"));
 
-        assertThat(response.body).isEqualTo("GET *");
+        assertThat(response.body).isEqualTo(Body.of("GET *"));
     }
 
     @Test
@@ -49,16 +55,118 @@ public class DispatcherTest {
 
         Response response = dispatcher.handle(new Request(Method.PUT, "/anyPath"));
 
-        assertThat(response.body).isEqualTo("PUT *");
+        assertThat(response.body).isEqualTo(Body.of("PUT *"));
     }
 
     @Test
-    void noMatch() {
+    void noMatch_methodNotAllowed() {
         Dispatcher dispatcher = new Dispatcher(ROUTES);
 
         Response response = dispatcher.handle(new Request(Method.DELETE, "/path"));
 
-        assertThat(response.status).isEqualTo(Status.INTERNAL_SERVER_ERROR);
+        assertThat(response.status).isEqualTo(Status.METHOD_NOT_ALLOWED);
+        assertThat(response.headers).containsOnly(entry(Header.ALLOW, "GET, PUT"));
+    }
+
+    @Test
+    void noMatch_notFound() {
+        Dispatcher dispatcher = new Dispatcher(Maps.of(
+                Method.GET, singletonList(new PatternHandler("/pathOne", echoMethodBody(Method.GET, "/pathOne")))));
+
+        Response response = dispatcher.handle(new Request(Method.GET, "/pathTwo"));
+
+        assertThat(response.status).isEqualTo(Status.NOT_FOUND);
+    }
+
+    @Test
+    void exactPatternPreferredOverWildcardListedBefore() {
+        Dispatcher dispatcher = new Dispatcher(ROUTES);
+
+        Response response = dispatcher.handle(new Request(Method.PUT, "/pathUnseen"));
+
+        assertThat(response.body).isEqualTo(Body.of("PUT pathUnseen"));
+    }
+
+    @Test
+    void parameterisedPattern() {
+        Dispatcher dispatcher = new Dispatcher(Maps.of(
+                Method.GET, singletonList(new PatternHandler("/cat-form/{key}/{field}", echoPathParameters()))));
+        Request request = new Request(Method.GET, "/cat-form/data/name");
+
+        Response response = dispatcher.handle(request);
+
+        assertThat(request.pathParameters).containsOnly(entry("key", "data"), entry("field", "name"));
+        assertThat(response.status).isEqualTo(Status.OK);
+    }
+
+    @Test
+    void parameterisedPattern_doesNotMatchEmptySegment() {
+        Dispatcher dispatcher = new Dispatcher(Maps.of(
+                Method.GET, singletonList(new PatternHandler("/cat-form/{key}", echoPathParameters()))));
+
+        Response response = dispatcher.handle(new Request(Method.GET, "/cat-form/"));
+
+        assertThat(response.status).isEqualTo(Status.NOT_FOUND);
+    }
+
+    @Test
+    void literalSegmentPreferredOverParameter() {
+        Dispatcher dispatcher = new Dispatcher(Maps.of(
+                Method.GET, asList(
+                        new PatternHandler("/cat-form/{key}", echoMethodBody(Method.GET, "{key}")),
+                        new PatternHandler("/cat-form/data", echoMethodBody(Method.GET, "data")))));
+
+        assertThat(dispatcher.handle(new Request(Method.GET, "/cat-form/data")).body).isEqualTo(Body.of("GET data"));
+        assertThat(dispatcher.handle(new Request(Method.GET, "/cat-form/other")).body).isEqualTo(Body.of("GET {key}"));
+    }
+
+    @Test
+    void literalSegmentFallsBackToParameterForOtherMethod() {
+        Dispatcher dispatcher = new Dispatcher(Maps.of(
+                Method.GET, singletonList(new PatternHandler("/cat-form/data", echoMethodBody(Method.GET, "data"))),
+                Method.PUT, singletonList(new PatternHandler("/cat-form/{key}", echoMethodBody(Method.PUT, "{key}")))));
+
+        Response response = dispatcher.handle(new Request(Method.PUT, "/cat-form/data"));
+
+        assertThat(response.body).isEqualTo(Body.of("PUT {key}"));
+    }
+
+    @Test
+    void prefixPattern() {
+        Dispatcher dispatcher = new Dispatcher(Maps.of(
+                Method.GET, asList(
+                        new PatternHandler("/static/**", echoMethodBody(Method.GET, "/static/**")),
+                        new PatternHandler("/static/index.html", echoMethodBody(Method.GET, "/static/index.html")))));
+
+        assertThat(dispatcher.handle(new Request(Method.GET, "/static")).body).isEqualTo(Body.of("GET /static/**"));
+        assertThat(dispatcher.handle(new Request(Method.GET, "/static/css/site.css")).body).isEqualTo(Body.of("GET /static/**"));
+        assertThat(dispatcher.handle(new Request(Method.GET, "/static/index.html")).body).isEqualTo(Body.of("GET /static/index.html"));
+        assertThat(dispatcher.handle(new Request(Method.GET, "/statics")).status).isEqualTo(Status.NOT_FOUND);
+    }
+
+    @Test
+    void invalidPattern() {
+        assertThatThrownBy(() -> new Dispatcher(Maps.of(
+                Method.GET, singletonList(new PatternHandler("/static/**/index.html", echoMethodBody(Method.GET, ""))))))
+                .isInstanceOf(RouteTree.InvalidPattern.class);
+    }
+
+    @Test
+    void recordsHandlerTimePerRoute() {
+        Metrics metrics = new Metrics();
+        Dispatcher dispatcher = new Dispatcher(ROUTES, metrics);
+
+        dispatcher.handle(new Request(Method.GET, "/pathOne"));
+        dispatcher.handle(new Request(Method.GET, "/path"));
+        dispatcher.handle(new Request(Method.GET, "/other"));
+
+        assertThat(metrics.handlerTime("GET", "/pathOne").count()).isEqualTo(1);
+        assertThat(metrics.handlerTime("GET", "*").count()).isEqualTo(2);
+        assertThat(metrics.handlerTime("PUT", "*").count()).isEqualTo(0);
+    }
+
+    private static Handler echoPathParameters() {
+        return r -> new Response(Status.OK, r.pathParameters.toString());
     }
 
     private static Handler echoMethodBody(Method method, String body) {
@@ -0,0 +1,100 @@
+package server.handlers;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ETagIndexTest {
+    private static final String HELLO_SHA1 = "2ef7bde608ce5404e97d5f042f95f89f1c232871";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void eTagOf_computesAndRecords() throws IOException {
+        Path file = write("file", "Hello World!");
+        ETagIndex index = new ETagIndex(directory);
+
+        assertThat(index.eTagOf(FileMetadata.of(file))).isEqualTo(HELLO_SHA1);
+    }
+
+    @Test
+    void eTagOf_recordedEntryMatchingFile() throws IOException {
+        Path file = write("file", "Hello World!");
+        ETagIndex index = new ETagIndex(directory);
+
+        index.record(FileMetadata.of(file), "recorded");
+
+        assertThat(index.eTagOf(FileMetadata.of(file))).isEqualTo("recorded");
+    }
+
+    @Test
+    void eTagOf_recomputesForChangedFile() throws IOException {
+        Path file = write("file", "Goodbye World!");
+        ETagIndex index = new ETagIndex(directory);
+        index.record(FileMetadata.of(file), "recorded");
+
+        write("file", "Hello World!");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(60)));
+
+        assertThat(index.eTagOf(FileMetadata.of(file))).isEqualTo(HELLO_SHA1);
+    }
+
+    @Test
+    void indexFile_keepsEntriesAcrossInstances() throws IOException {
+        Path file = write("file", "Hello World!");
+        Path indexFile = directory.resolve("index");
+        try (ETagIndex index = new ETagIndex(directory, indexFile)) {
+            index.record(FileMetadata.of(file), "recorded");
+        }
+
+        try (ETagIndex index = new ETagIndex(directory, indexFile)) {
+            assertThat(index.eTagOf(FileMetadata.of(file))).isEqualTo("recorded");
+        }
+    }
+
+    @Test
+    void indexFile_dropsRemovedAndChangedEntries() throws IOException {
+        Path removed = write("removed", "Hello World!");
+        Path changed = write("changed", "Hello World!");
+        Path indexFile = directory.resolve("index");
+        try (ETagIndex index = new ETagIndex(directory, indexFile)) {
+            index.record(FileMetadata.of(removed), "removed");
+            index.record(FileMetadata.of(changed), "changed");
+            index.remove(removed);
+        }
+        write("changed", "Goodbye World!");
+
+        try (ETagIndex index = new ETagIndex(directory, indexFile)) {
+            assertThat(Files.readAllLines(indexFile)).isEmpty();
+            assertThat(index.eTagOf(FileMetadata.of(removed))).isEqualTo(HELLO_SHA1);
+        }
+    }
+
+    @Test
+    void indexFile_skipsMalformedLines() throws IOException {
+        Path file = write("file", "Hello World!");
+        Path indexFile = directory.resolve("index");
+        try (ETagIndex index = new ETagIndex(directory, indexFile)) {
+            index.record(FileMetadata.of(file), "recorded");
+        }
+        Files.write(indexFile, "truncated 12".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (ETagIndex index = new ETagIndex(directory, indexFile)) {
+            assertThat(index.eTagOf(FileMetadata.of(file))).isEqualTo("recorded");
+        }
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,123 @@
+package server.handlers;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileCacheTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void get_loadsAndReusesEntry() throws IOException {
+        Path file = write("index.html", "Hello World!");
+        FileCache cache = new FileCache(1024, 1024, false);
+
+        FileCache.Entry entry = cache.get(FileMetadata.of(file));
+
+        assertThat(entry.size).isEqualTo(12L);
+        assertThat(entry.contentType).isEqualTo("text/html");
+        assertThat(utf8(entry.content(0, entry.size))).isEqualTo("Hello World!");
+        assertThat(cache.get(FileMetadata.of(file))).isSameAs(entry);
+        assertThat(cache.size()).isEqualTo(12L);
+    }
+
+    @Test
+    void get_directContent() throws IOException {
+        Path file = write("file", "Hello World!");
+        FileCache cache = new FileCache(1024, 1024, true);
+
+        FileCache.Entry entry = cache.get(FileMetadata.of(file));
+
+        assertThat(entry.content(0, entry.size).isDirect()).isTrue();
+        assertThat(utf8(entry.content(6, 5))).isEqualTo("World");
+    }
+
+    @Test
+    void get_absentOrDirectory() throws IOException {
+        Files.createDirectory(directory.resolve("directory"));
+        FileCache cache = new FileCache(1024, 1024, false);
+
+        assertThat(cache.get(FileMetadata.of(directory.resolve("does-not-exist")))).isNull();
+        assertThat(cache.get(FileMetadata.of(directory.resolve("directory")))).isNull();
+    }
+
+    @Test
+    void get_fileLargerThanMaxEntrySize() throws IOException {
+        Path file = write("large-file", "0123456789");
+        FileCache cache = new FileCache(1024, 9, false);
+
+        assertThat(cache.get(FileMetadata.of(file))).isNull();
+        assertThat(cache.size()).isEqualTo(0L);
+    }
+
+    @Test
+    void get_reloadsExternallyModifiedFile() throws IOException {
+        Path file = write("file", "Hello World!");
+        FileCache cache = new FileCache(1024, 1024, false);
+        cache.get(FileMetadata.of(file));
+
+        write("file", "Goodbye World!");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(60)));
+
+        assertThat(utf8(cache.get(FileMetadata.of(file)).content(0, 14))).isEqualTo("Goodbye World!");
+        assertThat(cache.size()).isEqualTo(14L);
+    }
+
+    @Test
+    void get_deletedFileIsInvalidated() throws IOException {
+        Path file = write("file", "Hello World!");
+        FileCache cache = new FileCache(1024, 1024, false);
+        cache.get(FileMetadata.of(file));
+
+        Files.delete(file);
+
+        assertThat(cache.get(FileMetadata.of(file))).isNull();
+        assertThat(cache.size()).isEqualTo(0L);
+    }
+
+    @Test
+    void get_evictsLeastRecentlyUsed() throws IOException {
+        Path first = write("first", "0123456789");
+        Path second = write("second", "0123456789");
+        Path third = write("third", "0123456789");
+        FileCache cache = new FileCache(25, 10, false);
+        FileCache.Entry firstEntry = cache.get(FileMetadata.of(first));
+        cache.get(FileMetadata.of(second));
+        cache.get(FileMetadata.of(first));
+
+        cache.get(FileMetadata.of(third));
+
+        assertThat(cache.size()).isEqualTo(20L);
+        assertThat(cache.get(FileMetadata.of(first))).isSameAs(firstEntry);
+    }
+
+    @Test
+    void invalidate() throws IOException {
+        Path file = write("file", "Hello World!");
+        FileCache cache = new FileCache(1024, 1024, false);
+        FileCache.Entry entry = cache.get(FileMetadata.of(file));
+
+        cache.invalidate(file);
+
+        assertThat(cache.size()).isEqualTo(0L);
+        assertThat(cache.get(FileMetadata.of(file))).isNotSameAs(entry);
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String utf8(ByteBuffer buffer) {
+        return StandardCharsets.UTF_8.decode(buffer).toString();
+    }
+}
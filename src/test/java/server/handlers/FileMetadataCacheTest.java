@@ -0,0 +1,174 @@
+package server.handlers;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileMetadataCacheTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void get_regularFile() throws IOException {
+        Path file = write("index.html", "Hello World!");
+
+        FileMetadata metadata = FileMetadataCache.uncached().get(file);
+
+        assertThat(metadata.exists).isTrue();
+        assertThat(metadata.isRegularFile).isTrue();
+        assertThat(metadata.isDirectory).isFalse();
+        assertThat(metadata.size).isEqualTo(12L);
+        assertThat(metadata.lastModified).isEqualTo(Files.getLastModifiedTime(file));
+        assertThat(metadata.contentType).isEqualTo("text/html");
+        assertThat(metadata.eTag()).isEqualTo("2ef7bde608ce5404e97d5f042f95f89f1c232871");
+    }
+
+    @Test
+    void get_absentAndDirectory() throws IOException {
+        Files.createDirectory(directory.resolve("directory"));
+        FileMetadataCache cache = FileMetadataCache.uncached();
+
+        FileMetadata absent = cache.get(directory.resolve("does-not-exist"));
+        FileMetadata subdirectory = cache.get(directory.resolve("directory"));
+
+        assertThat(absent.exists).isFalse();
+        assertThat(absent.eTag()).isNull();
+        assertThat(subdirectory.isDirectory).isTrue();
+        assertThat(subdirectory.contentType).isNull();
+    }
+
+    @Test
+    void get_cachedWithinTimeToLive() throws IOException {
+        Path file = write("file", "Hello World!");
+        FileMetadataCache cache = new FileMetadataCache(Duration.ofMinutes(1), false);
+        FileMetadata metadata = cache.get(file);
+
+        write("file", "Goodbye World!");
+
+        assertThat(cache.get(file)).isSameAs(metadata);
+    }
+
+    @Test
+    void get_uncachedReadsEveryTime() throws IOException {
+        Path file = write("file", "Hello World!");
+        FileMetadataCache cache = FileMetadataCache.uncached();
+        cache.get(file);
+
+        write("file", "Goodbye World!");
+
+        assertThat(cache.get(file).size).isEqualTo(14L);
+    }
+
+    @Test
+    void invalidate_notifiesListeners() throws IOException {
+        Path file = write("file", "Hello World!");
+        FileMetadataCache cache = new FileMetadataCache(Duration.ofMinutes(1), false);
+        List<Path> invalidated = new ArrayList<>();
+        cache.onInvalidate(invalidated::add);
+        cache.get(file);
+        write("file", "Goodbye World!");
+
+        cache.invalidate(file);
+
+        assertThat(invalidated).containsExactly(file);
+        assertThat(cache.get(file).size).isEqualTo(14L);
+    }
+
+    @Test
+    @Timeout(10)
+    void watch_invalidatesChangedFile() throws Exception {
+        Path file = write("file", "Hello World!");
+        try (FileMetadataCache cache = new FileMetadataCache(Duration.ofMinutes(1), true)) {
+            cache.get(file);
+
+            write("file", "Goodbye World!");
+
+            while (cache.get(file).size != 14L) Thread.sleep(50);
+        }
+    }
+
+    @Test
+    void get_absentNotCached() throws IOException {
+        FileMetadataCache cache = new FileMetadataCache(Duration.ofMinutes(1), false);
+
+        for (int i = 0; i < 100; i++) assertThat(cache.get(directory.resolve("missing-" + i)).exists).isFalse();
+        Path created = write("missing-0", "Hello World!");
+
+        assertThat(cache.size()).isZero();
+        assertThat(cache.get(created).exists).isTrue();
+    }
+
+    @Test
+    void get_evictsLeastRecentlyUsed() throws IOException {
+        Path first = write("first", "1");
+        Path second = write("second", "2");
+        Path third = write("third", "3");
+        FileMetadataCache cache = new FileMetadataCache(Duration.ofMinutes(1), false, null, 2, 0);
+        FileMetadata metadata = cache.get(first);
+        cache.get(second);
+        cache.get(first);
+
+        cache.get(third);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(first)).isSameAs(metadata);
+    }
+
+    @Test
+    void get_removesExpiredEntries() throws Exception {
+        Path file = write("file", "Hello World!");
+        FileMetadataCache cache = new FileMetadataCache(Duration.ofMillis(1), false);
+        cache.get(file);
+
+        Thread.sleep(5);
+        Files.delete(file);
+
+        assertThat(cache.get(file).exists).isFalse();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    @Timeout(10)
+    void watch_invalidatesOnlyChangedDirectory() throws Exception {
+        Path unchanged = write("file", "Hello World!");
+        Path subdirectory = Files.createDirectory(directory.resolve("subdirectory"));
+        Path file = Files.write(subdirectory.resolve("file"), "Hello World!".getBytes(StandardCharsets.UTF_8));
+        try (FileMetadataCache cache = new FileMetadataCache(Duration.ofMinutes(1), true)) {
+            FileMetadata metadata = cache.get(unchanged);
+            cache.get(file);
+
+            Files.write(file, "Goodbye World!".getBytes(StandardCharsets.UTF_8));
+
+            while (cache.get(file).size != 14L) Thread.sleep(50);
+            assertThat(cache.get(unchanged)).isSameAs(metadata);
+        }
+    }
+
+    @Test
+    void watch_limitsWatchedDirectories() throws IOException {
+        Path first = Files.createDirectory(directory.resolve("first"));
+        Path second = Files.createDirectory(directory.resolve("second"));
+        try (FileMetadataCache cache = new FileMetadataCache(Duration.ofMinutes(1), true, null, 16, 1)) {
+            cache.get(Files.write(first.resolve("file"), new byte[1]));
+            cache.get(Files.write(second.resolve("file"), new byte[1]));
+            cache.get(directory.resolve("missing").resolve("file"));
+
+            assertThat(cache.watchedDirectories()).isEqualTo(1);
+            assertThat(cache.size()).isEqualTo(2);
+        }
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
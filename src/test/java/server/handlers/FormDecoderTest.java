@@ -0,0 +1,79 @@
+package server.handlers;
+
+import org.junit.jupiter.api.Test;
+import server.data.Parameters;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.entry;
+
+class FormDecoderTest {
+    private final Parameters parameters = new Parameters();
+
+    @Test
+    void decode_escapedSeparators() {
+        new FormDecoder(parameters, Long.MAX_VALUE).decode("a%3Db=c%26d&e=f=g");
+
+        assertThat(parameters).containsOnly(entry("a=b", "c&d"), entry("e", "f=g"));
+    }
+
+    @Test
+    void decode_utf8() {
+        new FormDecoder(parameters, Long.MAX_VALUE).decode("name=caf%C3%A9&city=Z%c3%bcrich");
+
+        assertThat(parameters).containsOnly(entry("name", "caf\u00e9"), entry("city", "Z\u00fcrich"));
+    }
+
+    @Test
+    void decode_emptyPairsSkipped() {
+        new FormDecoder(parameters, Long.MAX_VALUE).decode("&a=1&&b&=2&");
+
+        assertThat(parameters).containsOnly(entry("a", "1"), entry("b", ""), entry("", "2"));
+    }
+
+    @Test
+    void decode_multipleValues() {
+        new FormDecoder(parameters, Long.MAX_VALUE).decode("a=1&b=2&a=3");
+
+        assertThat(parameters.all("a")).containsExactly("1", "3");
+        assertThat(parameters.get("a")).isEqualTo("1");
+    }
+
+    @Test
+    void decode_bodyAcrossReads() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 2000; i++) content.append("key").append(i).append("=%E2%82%AC+").append(i).append('&');
+
+        new FormDecoder(parameters, Long.MAX_VALUE).decode(
+                Channels.newChannel(new ByteArrayInputStream(content.toString().getBytes(StandardCharsets.UTF_8))));
+
+        assertThat(parameters.size()).isEqualTo(2000);
+        assertThat(parameters.get("key1999")).isEqualTo("\u20ac 1999");
+    }
+
+    @Test
+    void decode_tooLarge() {
+        Throwable error = catchThrowable(() -> new FormDecoder(parameters, 8).decode(
+                Channels.newChannel(new ByteArrayInputStream("key=value".getBytes(StandardCharsets.UTF_8)))));
+
+        assertThat(error).isInstanceOf(FormDecoder.FormTooLarge.class);
+    }
+
+    @Test
+    void decode_invalidEscape() {
+        Throwable error = catchThrowable(() -> new FormDecoder(parameters, Long.MAX_VALUE).decode("key=%zz"));
+
+        assertThat(error).isInstanceOf(FormDecoder.InvalidForm.class);
+    }
+
+    @Test
+    void decode_incompleteEscape() {
+        Throwable error = catchThrowable(() -> new FormDecoder(parameters, Long.MAX_VALUE).decode("key=%4"));
+
+        assertThat(error).isInstanceOf(FormDecoder.InvalidForm.class);
+    }
+}
@@ -2,38 +2,53 @@ package server.handlers;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.api.io.TempDir;
+import server.data.Body;
+import server.data.FileRegion;
 import server.data.Header;
 import server.data.Method;
 import server.data.Request;
 import server.data.Response;
 import server.data.Status;
 import server.util.ByteChannels;
+import server.util.Maps;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
 import java.util.Collections;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.entry;
 
 public class GetHandlerTest {
+    private static final String E_TAG = "\"2ef7bde608ce5404e97d5f042f95f89f1c232871\"";
+    private static final String LAST_MODIFIED = "Wed, 01 Apr 2020 10:15:30 GMT";
+
     @TempDir
     Path directory;
+    private FileMetadataCache metadata;
     private GetHandler handler;
 
     @BeforeEach
     void setUp() throws IOException {
         Files.write(directory.resolve("existing-file"), "Hello World!".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(directory.resolve("existing-file"), FileTime.from(Instant.parse("2020-04-01T10:15:30Z")));
         Files.createFile(directory.resolve("another-file"));
         Files.createFile(directory.resolve(".hidden-file"));
         Files.createDirectory(directory.resolve("directory"));
         Files.createFile(directory.resolve("directory").resolve("inner-file"));
 
-        handler = new GetHandler(directory);
+        metadata = FileMetadataCache.uncached();
+        metadata.get(directory.resolve("existing-file")).eTag();
+        handler = new GetHandler(directory, metadata, null);
     }
 
     @Test
@@ -43,7 +58,7 @@ public class GetHandlerTest {
         Response response = handler.handle(request);
 
         assertThat(response.status).isEqualTo(Status.NOT_FOUND);
-        assertThat(response.body).isEqualTo("");
+        assertThat(response.body).isEqualTo(Body.of(""));
     }
 
     @Test
@@ -53,7 +68,11 @@ public class GetHandlerTest {
         Response response = handler.handle(request);
 
         assertThat(response.status).isEqualTo(Status.OK);
-        assertThat(response.headers).containsOnly(entry(Header.CONTENT_LENGTH, 12L));
+        assertThat(response.headers).containsOnly(
+                entry(Header.CONTENT_LENGTH, 12L),
+                entry(Header.E_TAG, E_TAG),
+                entry(Header.LAST_MODIFIED, LAST_MODIFIED)
+        );
         assertThat(slurpReadableByteChannel(response.body)).isEqualTo("Hello World!");
     }
 
@@ -102,15 +121,15 @@ public class GetHandlerTest {
     }
 
     @Test
-    void get_rootDirectory() {
+    void get_rootDirectory() throws IOException {
         Request request = new Request(Method.GET, "/");
 
         Response response = handler.handle(request);
 
         assertThat(response.status).isEqualTo(Status.OK);
-        assertThat(response.headers).containsKeys(Header.CONTENT_LENGTH);
-        assertThat(response.headers).containsEntry(Header.CONTENT_TYPE, "text/html");
-        assertThat((String) response.body)
+        assertThat(response.headers).containsOnly(entry(Header.CONTENT_TYPE, "text/html"));
+        assertThat(response.body.length()).isEqualTo(Body.UNKNOWN_LENGTH);
+        assertThat(written(response.body))
                 .contains("<title>Directory: /</title>")
                 .contains("<h1>Directory: /</h1>")
                 .contains(
@@ -121,13 +140,13 @@ public class GetHandlerTest {
     }
 
     @Test
-    void get_nonRootDirectory() {
+    void get_nonRootDirectory() throws IOException {
         Request request = new Request(Method.GET, "/directory");
 
         Response response = handler.handle(request);
 
         assertThat(response.status).isEqualTo(Status.OK);
-        assertThat((String) response.body)
+        assertThat(written(response.body))
                 .contains("<title>Directory: /directory</title>")
                 .contains("<h1>Directory: /directory</h1>")
                 .contains("<li><a href=\"/directory/inner-file\">inner-file</a></li>");
@@ -143,8 +162,11 @@ public class GetHandlerTest {
         assertThat(response.status).isEqualTo(Status.PARTIAL_CONTENT);
         assertThat(response.headers).containsOnly(
                 entry(Header.CONTENT_RANGE, "bytes 6-10/12"),
-                entry(Header.CONTENT_LENGTH, 5L)
+                entry(Header.CONTENT_LENGTH, 5L),
+                entry(Header.E_TAG, E_TAG),
+                entry(Header.LAST_MODIFIED, LAST_MODIFIED)
         );
+        assertThat(response.body).isInstanceOf(FileRegion.class);
         assertThat(slurpReadableByteChannel(response.body)).isEqualTo("World");
     }
 
@@ -158,7 +180,9 @@ public class GetHandlerTest {
         assertThat(response.status).isEqualTo(Status.PARTIAL_CONTENT);
         assertThat(response.headers).containsOnly(
                 entry(Header.CONTENT_RANGE, "bytes 6-11/12"),
-                entry(Header.CONTENT_LENGTH, 6L)
+                entry(Header.CONTENT_LENGTH, 6L),
+                entry(Header.E_TAG, E_TAG),
+                entry(Header.LAST_MODIFIED, LAST_MODIFIED)
         );
         assertThat(slurpReadableByteChannel(response.body)).isEqualTo("World!");
     }
@@ -187,7 +211,9 @@ public class GetHandlerTest {
         assertThat(response.status).isEqualTo(Status.PARTIAL_CONTENT);
         assertThat(response.headers).containsOnly(
                 entry(Header.CONTENT_RANGE, "bytes 6-11/12"),
-                entry(Header.CONTENT_LENGTH, 6L)
+                entry(Header.CONTENT_LENGTH, 6L),
+                entry(Header.E_TAG, E_TAG),
+                entry(Header.LAST_MODIFIED, LAST_MODIFIED)
         );
         assertThat(slurpReadableByteChannel(response.body)).isEqualTo("World!");
     }
@@ -202,7 +228,9 @@ public class GetHandlerTest {
         assertThat(response.status).isEqualTo(Status.PARTIAL_CONTENT);
         assertThat(response.headers).containsOnly(
                 entry(Header.CONTENT_RANGE, "bytes 9-11/12"),
-                entry(Header.CONTENT_LENGTH, 3L)
+                entry(Header.CONTENT_LENGTH, 3L),
+                entry(Header.E_TAG, E_TAG),
+                entry(Header.LAST_MODIFIED, LAST_MODIFIED)
         );
         assertThat(slurpReadableByteChannel(response.body)).isEqualTo("ld!");
     }
@@ -269,7 +297,9 @@ public class GetHandlerTest {
         assertThat(response.status).isEqualTo(Status.PARTIAL_CONTENT);
         assertThat(response.headers).containsOnly(
                 entry(Header.CONTENT_RANGE, "bytes 0-11/12"),
-                entry(Header.CONTENT_LENGTH, 12L)
+                entry(Header.CONTENT_LENGTH, 12L),
+                entry(Header.E_TAG, E_TAG),
+                entry(Header.LAST_MODIFIED, LAST_MODIFIED)
         );
         assertThat(slurpReadableByteChannel(response.body)).isEqualTo("Hello World!");
     }
@@ -287,6 +317,129 @@ public class GetHandlerTest {
         );
     }
 
+    @Test
+    void get_partialContent_multipleRanges() throws IOException {
+        Request request = new Request(Method.GET, "/existing-file");
+        request.headers = Collections.singletonMap(Header.RANGE, "bytes=0-4, -6");
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.PARTIAL_CONTENT);
+        String boundary = boundaryOf(response);
+        String expected = "\r\n--" + boundary + "\r\n"
+                + "Content-Range: bytes 0-4/12\r\n\r\n"
+                + "Hello"
+                + "\r\n--" + boundary + "\r\n"
+                + "Content-Range: bytes 6-11/12\r\n\r\n"
+                + "World!"
+                + "\r\n--" + boundary + "--\r\n";
+        assertThat(response.headers).containsEntry(Header.CONTENT_LENGTH, (long) expected.length());
+        assertThat(response.headers).containsEntry(Header.E_TAG, E_TAG);
+        assertThat(written(response.body)).isEqualTo(expected);
+    }
+
+    @Test
+    void get_partialContent_multipleRanges_partContentType() throws IOException {
+        Files.write(directory.resolve("index.html"), "<p>Hello</p>".getBytes(StandardCharsets.UTF_8));
+        Request request = new Request(Method.GET, "/index.html");
+        request.headers = Collections.singletonMap(Header.RANGE, "bytes=0-2,9-");
+
+        Response response = handler.handle(request);
+
+        String boundary = boundaryOf(response);
+        assertThat(written(response.body)).isEqualTo("\r\n--" + boundary + "\r\n"
+                + "Content-Type: text/html\r\n"
+                + "Content-Range: bytes 0-2/12\r\n\r\n"
+                + "<p>"
+                + "\r\n--" + boundary + "\r\n"
+                + "Content-Type: text/html\r\n"
+                + "Content-Range: bytes 9-11/12\r\n\r\n"
+                + "/p>"
+                + "\r\n--" + boundary + "--\r\n");
+    }
+
+    @Test
+    void get_partialContent_overlappingAndAdjacentRangesCoalesced() throws IOException {
+        Request request = new Request(Method.GET, "/existing-file");
+        request.headers = Collections.singletonMap(Header.RANGE, "bytes=6-8,0-2,3-4,7-");
+
+        Response response = handler.handle(request);
+
+        String boundary = boundaryOf(response);
+        assertThat(written(response.body)).isEqualTo("\r\n--" + boundary + "\r\n"
+                + "Content-Range: bytes 0-4/12\r\n\r\n"
+                + "Hello"
+                + "\r\n--" + boundary + "\r\n"
+                + "Content-Range: bytes 6-11/12\r\n\r\n"
+                + "World!"
+                + "\r\n--" + boundary + "--\r\n");
+    }
+
+    @Test
+    void get_partialContent_rangesCoalescedIntoSingleRange() throws IOException {
+        Request request = new Request(Method.GET, "/existing-file");
+        request.headers = Collections.singletonMap(Header.RANGE, "bytes=0-5,6-11");
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.PARTIAL_CONTENT);
+        assertThat(response.headers).contains(
+                entry(Header.CONTENT_RANGE, "bytes 0-11/12"),
+                entry(Header.CONTENT_LENGTH, 12L)
+        );
+        assertThat(written(response.body)).isEqualTo("Hello World!");
+    }
+
+    @Test
+    void get_partialContent_unsatisfiableRangesDropped() throws IOException {
+        Request request = new Request(Method.GET, "/existing-file");
+        request.headers = Collections.singletonMap(Header.RANGE, "bytes=20-30,-0,6-");
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.PARTIAL_CONTENT);
+        assertThat(response.headers).containsEntry(Header.CONTENT_RANGE, "bytes 6-11/12");
+        assertThat(written(response.body)).isEqualTo("World!");
+    }
+
+    @Test
+    void get_partialContent_allRangesUnsatisfiable() {
+        Request request = new Request(Method.GET, "/existing-file");
+        request.headers = Collections.singletonMap(Header.RANGE, "bytes=12-,20-30");
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.REQUESTED_RANGE_NOT_SATISFIABLE);
+        assertThat(response.headers).containsOnly(entry(Header.CONTENT_RANGE, "bytes */12"));
+    }
+
+    @Test
+    void get_partialContent_numbersBeyondLong() throws IOException {
+        Request request = new Request(Method.GET, "/existing-file");
+        request.headers = Collections.singletonMap(Header.RANGE, "bytes=6-99999999999999999999");
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.PARTIAL_CONTENT);
+        assertThat(response.headers).containsEntry(Header.CONTENT_RANGE, "bytes 6-11/12");
+        assertThat(written(response.body)).isEqualTo("World!");
+    }
+
+    @Test
+    void get_partialContent_tooManyRangesServesFullContent() throws IOException {
+        StringBuilder ranges = new StringBuilder("bytes=0-0");
+        for (int i = 2; i < 200; i += 2) ranges.append(',').append(i).append('-').append(i);
+        Files.write(directory.resolve("large-file"), new byte[200]);
+        Request request = new Request(Method.GET, "/large-file");
+        request.headers = Collections.singletonMap(Header.RANGE, ranges.toString());
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.OK);
+        assertThat(response.headers).containsEntry(Header.CONTENT_LENGTH, 200L);
+        response.body.close();
+    }
+
     @Test
     void get_partialContent_unknownByteUnit() throws IOException {
         Request request = new Request(Method.GET, "/existing-file");
@@ -296,11 +449,241 @@ public class GetHandlerTest {
 
         assertThat(response.status).isEqualTo(Status.OK);
         assertThat(response.headers).containsOnly(
-                entry(Header.CONTENT_LENGTH, 12L)
+                entry(Header.CONTENT_LENGTH, 12L),
+                entry(Header.E_TAG, E_TAG),
+                entry(Header.LAST_MODIFIED, LAST_MODIFIED)
+        );
+        assertThat(slurpReadableByteChannel(response.body)).isEqualTo("Hello World!");
+    }
+
+    @Test
+    void get_ifNoneMatch_matching() {
+        Request request = new Request(Method.GET, "/existing-file");
+        request.headers = Collections.singletonMap(Header.IF_NONE_MATCH, "\"other\", W/" + E_TAG);
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.NOT_MODIFIED);
+        assertThat(response.headers).containsOnly(
+                entry(Header.E_TAG, E_TAG),
+                entry(Header.LAST_MODIFIED, LAST_MODIFIED)
         );
+        assertThat(response.body).isEqualTo(Body.of(""));
+    }
+
+    @Test
+    void get_ifNoneMatch_notMatchingTakesPrecedence() throws IOException {
+        Request request = new Request(Method.GET, "/existing-file");
+        request.headers = Maps.of(
+                Header.IF_NONE_MATCH, "\"other\"",
+                Header.IF_MODIFIED_SINCE, LAST_MODIFIED);
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.OK);
         assertThat(slurpReadableByteChannel(response.body)).isEqualTo("Hello World!");
     }
 
+    @Test
+    void get_ifNoneMatch_any() {
+        Request request = new Request(Method.GET, "/existing-file");
+        request.headers = Collections.singletonMap(Header.IF_NONE_MATCH, "*");
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.NOT_MODIFIED);
+    }
+
+    @Test
+    void get_ifModifiedSince_notModified() {
+        Request request = new Request(Method.GET, "/existing-file");
+        request.headers = Collections.singletonMap(Header.IF_MODIFIED_SINCE, "Wed, 01 Apr 2020 10:15:31 GMT");
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.NOT_MODIFIED);
+    }
+
+    @Test
+    void get_ifModifiedSince_modified() throws IOException {
+        Request request = new Request(Method.GET, "/existing-file");
+        request.headers = Collections.singletonMap(Header.IF_MODIFIED_SINCE, "Wed, 01 Apr 2020 10:15:29 GMT");
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.OK);
+        assertThat(slurpReadableByteChannel(response.body)).isEqualTo("Hello World!");
+    }
+
+    @Test
+    void get_ifModifiedSince_invalidDateIgnored() throws IOException {
+        Request request = new Request(Method.GET, "/existing-file");
+        request.headers = Collections.singletonMap(Header.IF_MODIFIED_SINCE, "yesterday");
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.OK);
+        assertThat(slurpReadableByteChannel(response.body)).isEqualTo("Hello World!");
+    }
+
+    @Test
+    void get_ifRange_matchingETag() throws IOException {
+        Request request = new Request(Method.GET, "/existing-file");
+        request.headers = Maps.of(Header.RANGE, "bytes=6-10", Header.IF_RANGE, E_TAG);
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.PARTIAL_CONTENT);
+        assertThat(slurpReadableByteChannel(response.body)).isEqualTo("World");
+    }
+
+    @Test
+    void get_ifRange_matchingDate() throws IOException {
+        Request request = new Request(Method.GET, "/existing-file");
+        request.headers = Maps.of(Header.RANGE, "bytes=6-10", Header.IF_RANGE, LAST_MODIFIED);
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.PARTIAL_CONTENT);
+        assertThat(slurpReadableByteChannel(response.body)).isEqualTo("World");
+    }
+
+    @Test
+    void get_ifRange_staleValidatorServesFullContent() throws IOException {
+        Request request = new Request(Method.GET, "/existing-file");
+        request.headers = Maps.of(Header.RANGE, "bytes=6-10", Header.IF_RANGE, "\"stale\"");
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.OK);
+        assertThat(response.headers).containsEntry(Header.CONTENT_LENGTH, 12L);
+        assertThat(slurpReadableByteChannel(response.body)).isEqualTo("Hello World!");
+    }
+
+    @Test
+    void get_ifRange_weakETagServesFullContent() {
+        Request request = new Request(Method.GET, "/existing-file");
+        request.headers = Maps.of(Header.RANGE, "bytes=6-10", Header.IF_RANGE, "W/" + E_TAG);
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.OK);
+    }
+
+    @Test
+    @Timeout(10)
+    void get_eTagNotYetDigested() throws Exception {
+        Files.write(directory.resolve("new-file"), "Hello World!".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(directory.resolve("new-file"), FileTime.from(Instant.parse("2020-04-01T10:15:30Z")));
+        Request request = new Request(Method.GET, "/new-file");
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.OK);
+        assertThat(response.headers).containsOnly(
+                entry(Header.CONTENT_LENGTH, 12L),
+                entry(Header.LAST_MODIFIED, LAST_MODIFIED)
+        );
+        while (!handler.handle(request).headers.containsKey(Header.E_TAG)) Thread.sleep(10);
+        assertThat(handler.handle(request).headers).containsEntry(Header.E_TAG, E_TAG);
+    }
+
+    @Test
+    void get_cachedResource() throws IOException {
+        FileCache cache = new FileCache(1024, 1024, false);
+        GetHandler cachedHandler = new GetHandler(directory, metadata, cache);
+        Files.createFile(directory.resolve("image.png"));
+        cachedHandler.handle(new Request(Method.GET, "/existing-file"));
+
+        Response response = cachedHandler.handle(new Request(Method.GET, "/existing-file"));
+        Response image = cachedHandler.handle(new Request(Method.GET, "/image.png"));
+
+        assertThat(response.status).isEqualTo(Status.OK);
+        assertThat(response.headers).containsOnly(
+                entry(Header.CONTENT_LENGTH, 12L),
+                entry(Header.E_TAG, E_TAG),
+                entry(Header.LAST_MODIFIED, LAST_MODIFIED)
+        );
+        assertThat(response.body.toString()).isEqualTo("Hello World!");
+        assertThat(image.headers).containsEntry(Header.CONTENT_TYPE, "image/png");
+        assertThat(cache.size()).isEqualTo(12L);
+    }
+
+    @Test
+    void get_cachedResource_partialContent() {
+        GetHandler cachedHandler = new GetHandler(directory, metadata, new FileCache(1024, 1024, false));
+        Request request = new Request(Method.GET, "/existing-file");
+        request.headers = Collections.singletonMap(Header.RANGE, "bytes=-6");
+
+        Response response = cachedHandler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.PARTIAL_CONTENT);
+        assertThat(response.headers).containsOnly(
+                entry(Header.CONTENT_RANGE, "bytes 6-11/12"),
+                entry(Header.CONTENT_LENGTH, 6L),
+                entry(Header.E_TAG, E_TAG),
+                entry(Header.LAST_MODIFIED, LAST_MODIFIED)
+        );
+        assertThat(response.body.toString()).isEqualTo("World!");
+    }
+
+    @Test
+    void get_cachedResource_multipleRanges() throws IOException {
+        GetHandler cachedHandler = new GetHandler(directory, metadata, new FileCache(1024, 1024, false));
+        Request request = new Request(Method.GET, "/existing-file");
+        request.headers = Collections.singletonMap(Header.RANGE, "bytes=0-4,-6");
+
+        Response response = cachedHandler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.PARTIAL_CONTENT);
+        String boundary = boundaryOf(response);
+        String expected = "\r\n--" + boundary + "\r\n"
+                + "Content-Range: bytes 0-4/12\r\n\r\n"
+                + "Hello"
+                + "\r\n--" + boundary + "\r\n"
+                + "Content-Range: bytes 6-11/12\r\n\r\n"
+                + "World!"
+                + "\r\n--" + boundary + "--\r\n";
+        assertThat(response.headers).containsEntry(Header.CONTENT_LENGTH, (long) expected.length());
+        assertThat(written(response.body)).isEqualTo(expected);
+    }
+
+    @Test
+    void get_cachedResource_invalidByteRange() {
+        GetHandler cachedHandler = new GetHandler(directory, metadata, new FileCache(1024, 1024, false));
+        Request request = new Request(Method.GET, "/existing-file");
+        request.headers = Collections.singletonMap(Header.RANGE, "bytes=12-");
+
+        Response response = cachedHandler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.REQUESTED_RANGE_NOT_SATISFIABLE);
+        assertThat(response.headers).containsOnly(entry(Header.CONTENT_RANGE, "bytes */12"));
+    }
+
+    @Test
+    void get_cachedResource_directoryFallsThrough() {
+        GetHandler cachedHandler = new GetHandler(directory, metadata, new FileCache(1024, 1024, false));
+
+        Response response = cachedHandler.handle(new Request(Method.GET, "/directory"));
+
+        assertThat(response.status).isEqualTo(Status.OK);
+        assertThat(response.headers).containsEntry(Header.CONTENT_TYPE, "text/html");
+    }
+
+    private static String boundaryOf(Response response) {
+        String contentType = (String) response.headers.get(Header.CONTENT_TYPE);
+        assertThat(contentType).startsWith("multipart/byteranges; boundary=");
+        return contentType.substring("multipart/byteranges; boundary=".length());
+    }
+
+    private static String written(Body body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (Body closed = body) {
+            closed.writeTo(Channels.newChannel(out));
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
     private String slurpReadableByteChannel(Object body) throws IOException {
         try (ReadableByteChannel rbc = (ReadableByteChannel) body) {
             return ByteChannels.slurp(rbc);
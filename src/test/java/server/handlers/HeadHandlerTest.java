@@ -3,6 +3,7 @@ package server.handlers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import server.data.Body;
 import server.data.Header;
 import server.data.Method;
 import server.data.Request;
@@ -13,18 +14,26 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Collections;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.entry;
 
 public class HeadHandlerTest {
+    private static final String E_TAG = "\"2ef7bde608ce5404e97d5f042f95f89f1c232871\"";
+    private static final String LAST_MODIFIED = "Wed, 01 Apr 2020 10:15:30 GMT";
+
     @TempDir
     Path directory;
+    private FileMetadataCache metadata;
     private HeadHandler handler;
 
     @BeforeEach
     void setUp() {
-        handler = new HeadHandler(directory);
+        metadata = FileMetadataCache.uncached();
+        handler = new HeadHandler(directory, metadata);
     }
 
     @Test
@@ -34,18 +43,65 @@ public class HeadHandlerTest {
         Response response = handler.handle(request);
 
         assertThat(response.status).isEqualTo(Status.NOT_FOUND);
-        assertThat(response.body).isEqualTo("");
+        assertThat(response.body).isEqualTo(Body.of(""));
     }
 
     @Test
     void head_existingResource() throws IOException {
         Files.write(directory.resolve("existing-file"), "Hello World!".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(directory.resolve("existing-file"), FileTime.from(Instant.parse("2020-04-01T10:15:30Z")));
+        metadata.get(directory.resolve("existing-file")).eTag();
+        Request request = new Request(Method.HEAD, "/existing-file");
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.OK);
+        assertThat(response.headers).containsOnly(
+                entry(Header.CONTENT_LENGTH, 12L),
+                entry(Header.E_TAG, E_TAG),
+                entry(Header.LAST_MODIFIED, LAST_MODIFIED)
+        );
+        assertThat(response.body).isEqualTo(Body.of(""));
+    }
+
+    @Test
+    void head_ifNoneMatch_matching() throws IOException {
+        Files.write(directory.resolve("existing-file"), "Hello World!".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(directory.resolve("existing-file"), FileTime.from(Instant.parse("2020-04-01T10:15:30Z")));
+        metadata.get(directory.resolve("existing-file")).eTag();
+        Request request = new Request(Method.HEAD, "/existing-file");
+        request.headers = Collections.singletonMap(Header.IF_NONE_MATCH, E_TAG);
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.NOT_MODIFIED);
+        assertThat(response.headers).containsOnly(
+                entry(Header.E_TAG, E_TAG),
+                entry(Header.LAST_MODIFIED, LAST_MODIFIED)
+        );
+    }
+
+    @Test
+    void head_eTagNotYetDigested() throws IOException {
+        Files.write(directory.resolve("existing-file"), "Hello World!".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(directory.resolve("existing-file"), FileTime.from(Instant.parse("2020-04-01T10:15:30Z")));
         Request request = new Request(Method.HEAD, "/existing-file");
+        request.headers = Collections.singletonMap(Header.IF_NONE_MATCH, "*");
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.NOT_MODIFIED);
+        assertThat(response.headers).containsOnly(entry(Header.LAST_MODIFIED, LAST_MODIFIED));
+    }
+
+    @Test
+    void head_directory() throws IOException {
+        Files.createDirectory(directory.resolve("directory"));
+        Request request = new Request(Method.HEAD, "/directory");
 
         Response response = handler.handle(request);
 
         assertThat(response.status).isEqualTo(Status.OK);
-        assertThat(response.headers).containsOnly(entry(Header.CONTENT_LENGTH, 12L));
-        assertThat(response.body).isEqualTo("");
+        assertThat(response.headers).doesNotContainKey(Header.E_TAG);
     }
 }
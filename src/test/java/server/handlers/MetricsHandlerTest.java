@@ -0,0 +1,25 @@
+package server.handlers;
+
+import org.junit.jupiter.api.Test;
+import server.data.Header;
+import server.data.Method;
+import server.data.Request;
+import server.data.Response;
+import server.data.Status;
+import server.metrics.Metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetricsHandlerTest {
+    @Test
+    void rendersMetrics() {
+        Metrics metrics = new Metrics();
+        metrics.responded(Status.OK);
+
+        Response response = new MetricsHandler(metrics).handle(new Request(Method.GET, "/metrics"));
+
+        assertThat(response.status).isEqualTo(Status.OK);
+        assertThat(response.headers.get(Header.CONTENT_TYPE)).startsWith("text/plain; version=0.0.4");
+        assertThat(response.body).asString().contains("http_responses_total{status=\"200\"} 1");
+    }
+}
@@ -0,0 +1,173 @@
+package server.handlers;
+
+import org.junit.jupiter.api.Test;
+import server.util.ByteChannels;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class MultipartReaderTest {
+    private static final String BOUNDARY = "----boundary42";
+
+    @Test
+    void boundaryOf() {
+        assertThat(MultipartReader.boundaryOf("multipart/form-data; boundary=abc")).isEqualTo("abc");
+        assertThat(MultipartReader.boundaryOf("Multipart/Form-Data; charset=utf-8; boundary=\"a b:c\"")).isEqualTo("a b:c");
+        assertThat(MultipartReader.boundaryOf("application/x-www-form-urlencoded")).isNull();
+        assertThat(MultipartReader.boundaryOf(null)).isNull();
+    }
+
+    @Test
+    void boundaryOf_missing() {
+        Throwable error = catchThrowable(() -> MultipartReader.boundaryOf("multipart/form-data"));
+
+        assertThat(error).isInstanceOf(MultipartReader.InvalidMultipart.class);
+    }
+
+    @Test
+    void next_parts() throws IOException {
+        String body = "preamble\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"title\"\r\n"
+                + "\r\n"
+                + "Hello\r\n"
+                + "--" + BOUNDARY + "  \r\n"
+                + "content-disposition: form-data; name=\"file\"; filename=\"a \\\"quoted\\\" name.txt\"\r\n"
+                + "Content-Type: text/plain\r\n"
+                + "\r\n"
+                + "line one\r\nline two\r\n--not the boundary\r\n"
+                + "--" + BOUNDARY + "--\r\n"
+                + "epilogue";
+
+        try (MultipartReader reader = readerOf(body, 16)) {
+            MultipartReader.Part title = reader.next();
+            assertThat(title.name).isEqualTo("title");
+            assertThat(title.filename).isNull();
+            assertThat(ByteChannels.slurp(title.content)).isEqualTo("Hello");
+
+            MultipartReader.Part file = reader.next();
+            assertThat(file.name).isEqualTo("file");
+            assertThat(file.filename).isEqualTo("a \"quoted\" name.txt");
+            assertThat(file.contentType).isEqualTo("text/plain");
+            assertThat(ByteChannels.slurp(file.content)).isEqualTo("line one\r\nline two\r\n--not the boundary");
+
+            assertThat(reader.next()).isNull();
+            assertThat(reader.next()).isNull();
+        }
+    }
+
+    @Test
+    void next_skipsUnreadContent() throws IOException {
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) large.append("0123456789\r\n--");
+        String body = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"large\"\r\n"
+                + "\r\n"
+                + large + "\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"small\"\r\n"
+                + "\r\n"
+                + "value\r\n"
+                + "--" + BOUNDARY + "--";
+
+        try (MultipartReader reader = readerOf(body, 1000)) {
+            MultipartReader.Part first = reader.next();
+            first.content.read(ByteBuffer.allocate(10));
+            MultipartReader.Part second = reader.next();
+
+            assertThat(second.name).isEqualTo("small");
+            assertThat(ByteChannels.slurp(second.content)).isEqualTo("value");
+        }
+    }
+
+    @Test
+    void next_largeContentAcrossReads() throws IOException {
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) large.append(i).append("\r\n-");
+        String body = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"large.txt\"\r\n"
+                + "\r\n"
+                + large + "\r\n"
+                + "--" + BOUNDARY + "--\r\n";
+
+        try (MultipartReader reader = readerOf(body, 7)) {
+            assertThat(ByteChannels.slurp(reader.next().content)).isEqualTo(large.toString());
+            assertThat(reader.next()).isNull();
+        }
+    }
+
+    @Test
+    void next_missingDisposition() {
+        String body = "--" + BOUNDARY + "\r\n"
+                + "Content-Type: text/plain\r\n"
+                + "\r\n"
+                + "value\r\n"
+                + "--" + BOUNDARY + "--";
+
+        try (MultipartReader reader = readerOf(body, 64)) {
+            Throwable error = catchThrowable(reader::next);
+
+            assertThat(error).isInstanceOf(MultipartReader.InvalidMultipart.class);
+        }
+    }
+
+    @Test
+    void next_incompleteBody() {
+        String body = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"title\"\r\n"
+                + "\r\n"
+                + "value";
+
+        try (MultipartReader reader = readerOf(body, 64)) {
+            Throwable error = catchThrowable(() -> ByteChannels.slurp(reader.next().content));
+
+            assertThat(error).isInstanceOf(MultipartReader.InvalidMultipart.class);
+            assertThat(error).hasMessageContaining("Incomplete multipart body");
+        }
+    }
+
+    @Test
+    void next_headersTooLong() {
+        StringBuilder headers = new StringBuilder();
+        for (int i = 0; i < 1000; i++) headers.append("X-Header: value\r\n");
+        String body = "--" + BOUNDARY + "\r\n" + headers + "\r\nvalue\r\n--" + BOUNDARY + "--";
+
+        try (MultipartReader reader = readerOf(body, 64)) {
+            Throwable error = catchThrowable(reader::next);
+
+            assertThat(error).isInstanceOf(MultipartReader.InvalidMultipart.class);
+            assertThat(error).hasMessageContaining("too long");
+        }
+    }
+
+    // Hands out at most the given number of bytes per read, as a network connection would
+    private static MultipartReader readerOf(String body, int readSize) {
+        ByteArrayInputStream in = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+        return new MultipartReader(new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer dst) {
+                int length = Math.min(Math.min(readSize, dst.remaining()), in.available());
+                if (length == 0) return -1;
+                byte[] bytes = new byte[length];
+                in.read(bytes, 0, length);
+                dst.put(bytes);
+                return length;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        }, BOUNDARY);
+    }
+}
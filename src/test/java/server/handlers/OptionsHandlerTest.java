@@ -4,6 +4,7 @@ package server.handlers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import server.Handler;
+import server.data.Body;
 import server.data.Header;
 import server.data.Method;
 import server.data.Request;
@@ -40,7 +41,7 @@ class OptionsHandlerTest {
 
         assertThat(response.status).isEqualTo(Status.OK);
         assertThat(response.headers).containsEntry(Header.ALLOW, "GET");
-        assertThat(response.body).isEqualTo("");
+        assertThat(response.body).isEqualTo(Body.of(""));
     }
 
     @Test
@@ -51,7 +52,7 @@ class OptionsHandlerTest {
 
         assertThat(response.status).isEqualTo(Status.OK);
         assertThat(response.headers).containsEntry(Header.ALLOW, "GET, HEAD, OPTIONS");
-        assertThat(response.body).isEqualTo("");
+        assertThat(response.body).isEqualTo(Body.of(""));
     }
 
     @Test
@@ -6,7 +6,10 @@ import org.junit.jupiter.api.Test;
 import server.Handler;
 import server.data.Header;
 import server.data.Method;
+import server.data.Parameters;
 import server.data.Request;
+import server.data.Response;
+import server.data.Status;
 import server.util.Maps;
 import server.util.TestHandler;
 
@@ -88,6 +91,99 @@ class ParametersWrapperTest {
         );
     }
 
+    @Test
+    void queryAndFormParametersMerged() {
+        Request request = new Request(Method.POST, "/any", "key=fromQuery&other=value");
+        String content = "key=fromForm&key=again";
+        request.headers = Maps.of(
+                Header.CONTENT_TYPE, ParametersWrapper.APPLICATION_FORM_URLENCODED + "; charset=UTF-8",
+                Header.CONTENT_LENGTH, String.valueOf(content.length()));
+        request.body = readableByteChannelOf(content);
+
+        wrapper.handle(request);
+
+        Parameters parameters = (Parameters) handler.receivedRequest.parameters;
+        assertThat(parameters).containsOnly(entry("key", "fromQuery"), entry("other", "value"));
+        assertThat(parameters.all("key")).containsExactly("fromQuery", "fromForm", "again");
+        assertThat(parameters.all("absent")).isEmpty();
+    }
+
+    @Test
+    void formParameters_notReadUntilLookedUp() {
+        Request request = new Request(Method.POST, "/any");
+        String content = "key=value";
+        request.headers = Maps.of(
+                Header.CONTENT_TYPE, ParametersWrapper.APPLICATION_FORM_URLENCODED,
+                Header.CONTENT_LENGTH, String.valueOf(content.length()));
+        ByteArrayInputStream body = new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+        request.body = Channels.newChannel(body);
+
+        wrapper.handle(request);
+
+        assertThat(body.available()).isEqualTo(content.length());
+        assertThat(handler.receivedRequest.parameters.get("key")).isEqualTo("value");
+        assertThat(body.available()).isEqualTo(0);
+    }
+
+    @Test
+    void formParameters_declaredLengthTooLarge() {
+        ParametersWrapper wrapper = new ParametersWrapper(r -> new Response(Status.OK, r.parameters.get("key")), 8);
+        Request request = new Request(Method.POST, "/any");
+        request.headers = Maps.of(
+                Header.CONTENT_TYPE, ParametersWrapper.APPLICATION_FORM_URLENCODED,
+                Header.CONTENT_LENGTH, "9");
+        ByteArrayInputStream body = new ByteArrayInputStream("key=value".getBytes(StandardCharsets.UTF_8));
+        request.body = Channels.newChannel(body);
+
+        Response response = wrapper.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.PAYLOAD_TOO_LARGE);
+        assertThat(body.available()).isEqualTo(9);
+    }
+
+    @Test
+    void formParameters_tooLargeButNotLookedUp() {
+        ParametersWrapper wrapper = new ParametersWrapper(handler, 8);
+        Request request = new Request(Method.PATCH, "/any");
+        request.headers = Maps.of(
+                Header.CONTENT_TYPE, ParametersWrapper.APPLICATION_FORM_URLENCODED,
+                Header.CONTENT_LENGTH, "9");
+        request.body = readableByteChannelOf("key=value");
+
+        Response response = wrapper.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.OK);
+    }
+
+    @Test
+    void formParameters_chunkedBodyTooLarge() {
+        ParametersWrapper wrapper = new ParametersWrapper(r -> new Response(Status.OK, r.parameters.get("key")), 8);
+        Request request = new Request(Method.POST, "/any");
+        request.headers = Maps.of(
+                Header.CONTENT_TYPE, ParametersWrapper.APPLICATION_FORM_URLENCODED,
+                Header.TRANSFER_ENCODING, "chunked");
+        request.body = readableByteChannelOf("key=value");
+
+        Response response = wrapper.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.PAYLOAD_TOO_LARGE);
+    }
+
+    @Test
+    void formParameters_invalidEncoding() {
+        ParametersWrapper wrapper = new ParametersWrapper(r -> new Response(Status.OK, r.parameters.get("key")));
+        Request request = new Request(Method.POST, "/any");
+        String content = "key=100%";
+        request.headers = Maps.of(
+                Header.CONTENT_TYPE, ParametersWrapper.APPLICATION_FORM_URLENCODED,
+                Header.CONTENT_LENGTH, String.valueOf(content.length()));
+        request.body = readableByteChannelOf(content);
+
+        Response response = wrapper.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.BAD_REQUEST);
+    }
+
     private ReadableByteChannel readableByteChannelOf(String content) {
         return Channels.newChannel(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
     }
@@ -3,6 +3,7 @@ package server.handlers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import server.data.Body;
 import server.data.Header;
 import server.data.Method;
 import server.data.Request;
@@ -18,6 +19,8 @@ import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -67,6 +70,44 @@ public class PatchHandlerTest {
                 .containsExactly("New Hello World!");
     }
 
+    @Test
+    void patch_existingResource_matchingQuotedETag() throws IOException {
+        String existingContent = "Hello World!";
+        Files.write(directory.resolve("existing-file"), existingContent.getBytes(StandardCharsets.UTF_8));
+        Request request = new Request(Method.PATCH, "/existing-file");
+        String body = "New Hello World!";
+        request.headers = Maps.of(
+                Header.CONTENT_LENGTH, String.valueOf(body.length()),
+                Header.IF_MATCH, '"' + sha1(existingContent) + '"');
+        request.body = readableChannelOf(body);
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.NO_CONTENT);
+    }
+
+    @Test
+    void patch_existingResource_indexedETag() throws IOException {
+        Path file = Files.write(directory.resolve("existing-file"), "Hello World!".getBytes(StandardCharsets.UTF_8));
+        Path indexFile = directory.resolve("etag-index");
+        ETagIndex eTagIndex = new ETagIndex(directory, indexFile);
+        eTagIndex.record(FileMetadata.of(file), "indexedETag");
+        PatchHandler indexedHandler = new PatchHandler(directory, new FileMetadataCache(Duration.ZERO, false, eTagIndex));
+        Request request = new Request(Method.PATCH, "/existing-file");
+        String body = "New Hello World!";
+        request.headers = Maps.of(
+                Header.CONTENT_LENGTH, String.valueOf(body.length()),
+                Header.IF_MATCH, "indexedETag");
+        request.body = readableChannelOf(body);
+
+        Response response = indexedHandler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.NO_CONTENT);
+        assertThat(response.headers).containsEntry(Header.E_TAG, sha1(body));
+        List<String> indexLines = Files.readAllLines(indexFile);
+        assertThat(indexLines.get(indexLines.size() - 1)).startsWith(sha1(body) + " 16 ");
+    }
+
     @Test
     void patch_existingResource_mismatchedETag() throws IOException {
         String existingContent = "Hello World!";
@@ -81,7 +122,7 @@ public class PatchHandlerTest {
         Response response = handler.handle(request);
 
         assertThat(response.status).isEqualTo(Status.PRECONDITION_FAILED);
-        assertThat(response.body).isEqualTo("ETag does not match file checksum.");
+        assertThat(response.body).isEqualTo(Body.of("ETag does not match file checksum."));
         assertThat(Files.readAllLines(directory.resolve("existing-file")))
                 .containsExactly("Hello World!");
     }
@@ -98,7 +139,7 @@ public class PatchHandlerTest {
         Response response = handler.handle(request);
 
         assertThat(response.status).isEqualTo(Status.CONFLICT);
-        assertThat(response.body).isEqualTo("Missing ETag, unable to patch file.");
+        assertThat(response.body).isEqualTo(Body.of("Missing ETag, unable to patch file."));
         assertThat(Files.readAllLines(directory.resolve("existing-file")))
                 .containsExactly("Hello World!");
     }
@@ -116,7 +157,7 @@ public class PatchHandlerTest {
         Response response = handler.handle(request);
 
         assertThat(response.status).isEqualTo(Status.CONFLICT);
-        assertThat(response.body).isEqualTo("Unable to create/update: directory is a directory.");
+        assertThat(response.body).isEqualTo(Body.of("Unable to create/update: directory is a directory."));
     }
 
     private static ReadableByteChannel readableChannelOf(String body) {
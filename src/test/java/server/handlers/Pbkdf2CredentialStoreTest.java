@@ -0,0 +1,64 @@
+package server.handlers;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class Pbkdf2CredentialStoreTest {
+    private static final int ITERATIONS = 1000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void load_verifiesHashedPasswords() throws IOException {
+        Path file = Files.write(directory.resolve("credentials"), asList(
+                "# development users",
+                Pbkdf2CredentialStore.entryOf("admin", "hunter2", ITERATIONS),
+                "",
+                Pbkdf2CredentialStore.entryOf("guest", "password", ITERATIONS)), StandardCharsets.UTF_8);
+
+        Pbkdf2CredentialStore store = Pbkdf2CredentialStore.load(file);
+
+        assertThat(store.verify("admin", "hunter2")).isTrue();
+        assertThat(store.verify("guest", "password")).isTrue();
+        assertThat(store.verify("admin", "password")).isFalse();
+        assertThat(store.verify("unknown", "hunter2")).isFalse();
+    }
+
+    @Test
+    void entryOf_saltsEachEntry() {
+        String first = Pbkdf2CredentialStore.entryOf("admin", "hunter2", ITERATIONS);
+        String second = Pbkdf2CredentialStore.entryOf("admin", "hunter2", ITERATIONS);
+
+        assertThat(first).startsWith("admin:1000:");
+        assertThat(first).isNotEqualTo(second);
+        assertThat(first).doesNotContain("hunter2");
+    }
+
+    @Test
+    void parse_malformedLine() {
+        Throwable error = catchThrowable(() -> Pbkdf2CredentialStore.parse(asList(
+                Pbkdf2CredentialStore.entryOf("admin", "hunter2", ITERATIONS),
+                "guest:not-a-number:c2FsdA==:aGFzaA==")));
+
+        assertThat(error).isInstanceOf(Pbkdf2CredentialStore.InvalidCredentials.class)
+                .hasMessageContaining("line 2");
+    }
+
+    @Test
+    void parse_missingFields() {
+        Throwable error = catchThrowable(() -> Pbkdf2CredentialStore.parse(asList("admin")));
+
+        assertThat(error).isInstanceOf(Pbkdf2CredentialStore.InvalidCredentials.class)
+                .hasMessageContaining("line 1");
+    }
+}
@@ -3,6 +3,7 @@ package server.handlers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import server.data.Body;
 import server.data.Header;
 import server.data.Method;
 import server.data.Request;
@@ -16,6 +17,7 @@ import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Collections;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -44,6 +46,37 @@ public class PutHandlerTest {
                 .containsExactly("lineOne", "lineTwo");
     }
 
+    @Test
+    void put_chunkedBody() throws IOException {
+        Request request = new Request(Method.PUT, "/new-file");
+        request.headers = Collections.singletonMap(Header.TRANSFER_ENCODING, "chunked");
+        request.body = readableChannelOf("lineOne\nlineTwo");
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.CREATED);
+        assertThat(Files.readAllLines(directory.resolve("new-file")))
+                .containsExactly("lineOne", "lineTwo");
+    }
+
+    @Test
+    void put_invalidatesCachedMetadata() throws IOException {
+        Files.write(directory.resolve("existing-file"), "Hello World!".getBytes(StandardCharsets.UTF_8));
+        FileMetadataCache metadata = new FileMetadataCache(Duration.ofMinutes(1), false);
+        FileCache cache = new FileCache(1024, 1024, false);
+        metadata.onInvalidate(cache::invalidate);
+        cache.get(metadata.get(directory.resolve("existing-file")));
+        Request request = new Request(Method.PUT, "/existing-file");
+        String body = "Hello";
+        request.headers = Collections.singletonMap(Header.CONTENT_LENGTH, String.valueOf(body.length()));
+        request.body = readableChannelOf(body);
+
+        new PutHandler(directory, metadata).handle(request);
+
+        assertThat(metadata.get(directory.resolve("existing-file")).size).isEqualTo(5L);
+        assertThat(cache.size()).isEqualTo(0L);
+    }
+
     @Test
     void put_existingResource() throws IOException {
         Files.write(directory.resolve("existing-file"), "Hello World!".getBytes(StandardCharsets.UTF_8));
@@ -82,7 +115,7 @@ public class PutHandlerTest {
         Response response = handler.handle(request);
 
         assertThat(response.status).isEqualTo(Status.CONFLICT);
-        assertThat(response.body).isEqualTo("Unable to create/update: directory is a directory.");
+        assertThat(response.body).isEqualTo(Body.of("Unable to create/update: directory is a directory."));
     }
 
     @Test
@@ -94,7 +127,7 @@ public class PutHandlerTest {
         Response response = handler.handle(request);
 
         assertThat(response.status).isEqualTo(Status.BAD_REQUEST);
-        assertThat(response.body).isEqualTo("Invalid Content-Length: invalid");
+        assertThat(response.body).isEqualTo(Body.of("Invalid Content-Length: invalid"));
     }
 
     @Test
@@ -106,7 +139,7 @@ public class PutHandlerTest {
         Response response = handler.handle(request);
 
         assertThat(response.status).isEqualTo(Status.BAD_REQUEST);
-        assertThat(response.body).isEqualTo("Incomplete message: body is not 5 byte(s)");
+        assertThat(response.body).isEqualTo(Body.of("Incomplete message: body is not 5 byte(s)"));
         assertThat(Files.notExists(directory.resolve("new-file"))).isTrue();
     }
 
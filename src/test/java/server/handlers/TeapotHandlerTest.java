@@ -1,6 +1,7 @@
 package server.handlers;
 
 import org.junit.jupiter.api.Test;
+import server.data.Body;
 import server.data.Method;
 import server.data.Request;
 import server.data.Response;
@@ -16,7 +17,7 @@ public class TeapotHandlerTest {
         Response response = TeapotHandler.handleCoffee(request);
 
         assertThat(response.status).isEqualTo(Status.I_AM_A_TEAPOT);
-        assertThat(response.body).isEqualTo("I'm a teapot");
+        assertThat(response.body).isEqualTo(Body.of("I'm a teapot"));
     }
 
     @Test
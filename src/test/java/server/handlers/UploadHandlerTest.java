@@ -0,0 +1,165 @@
+package server.handlers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import server.data.Header;
+import server.data.Method;
+import server.data.Request;
+import server.data.Response;
+import server.data.Status;
+import server.util.Maps;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UploadHandlerTest {
+    private static final String BOUNDARY = "XyZ";
+    private static final String CONTENT_TYPE = "multipart/form-data; boundary=" + BOUNDARY;
+
+    @TempDir
+    Path directory;
+    private UploadHandler handler;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.createDirectory(directory.resolve("uploads"));
+        Files.createFile(directory.resolve("existing-file"));
+        handler = new UploadHandler(directory, FileMetadataCache.uncached(), 16);
+    }
+
+    @Test
+    void upload_filesAndFields() throws IOException {
+        Request request = requestOf("/uploads", "title=first",
+                field("title", "Holiday"),
+                file("photo", "C:\\Users\\me\\photo.jpg", "binary\r\ncontent"),
+                file("notes", "notes.txt", "some notes"),
+                file("empty", "", ""));
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.CREATED);
+        assertThat(response.body.toString()).isEqualTo(String.join(System.lineSeparator(),
+                "/uploads/photo.jpg", "/uploads/notes.txt", "title=Holiday"));
+        assertThat(new String(Files.readAllBytes(directory.resolve("uploads/photo.jpg")), StandardCharsets.UTF_8))
+                .isEqualTo("binary\r\ncontent");
+        assertThat(Files.readAllLines(directory.resolve("uploads/notes.txt"))).containsExactly("some notes");
+        assertThat(Files.list(directory).filter(Files::isRegularFile).count()).isEqualTo(1);
+    }
+
+    @Test
+    void upload_onlyFields() {
+        Request request = requestOf("/uploads/", null, field("title", "Holiday"), field("caption", "Hi\r\nyou & me"));
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.OK);
+        assertThat(response.body.toString()).isEqualTo("title=Holiday" + System.lineSeparator()
+                + "caption=Hi%0D%0Ayou+%26+me");
+    }
+
+    @Test
+    void upload_fieldTooLarge() {
+        Request request = requestOf("/uploads", null, field("title", "A title longer than sixteen bytes"));
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.PAYLOAD_TOO_LARGE);
+    }
+
+    @Test
+    void upload_fieldsTooLarge() {
+        UploadHandler limitedHandler = new UploadHandler(directory, FileMetadataCache.uncached(), 16, 24, 16);
+        Request request = requestOf("/uploads", null, field("first", "0123456789"), field("second", "0123456789"));
+
+        Response response = limitedHandler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.PAYLOAD_TOO_LARGE);
+    }
+
+    @Test
+    void upload_tooManyFields() {
+        UploadHandler limitedHandler = new UploadHandler(directory, FileMetadataCache.uncached(), 16, 1024, 2);
+        Request request = requestOf("/uploads", null, field("a", ""), field("b", ""), field("c", ""),
+                file("file", "a.txt", "content"));
+
+        Response response = limitedHandler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.PAYLOAD_TOO_LARGE);
+        assertThat(Files.exists(directory.resolve("uploads/a.txt"))).isFalse();
+    }
+
+    @Test
+    void upload_invalidFilename() {
+        Request request = requestOf("/uploads", null, file("file", "../..", "content"));
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.BAD_REQUEST);
+    }
+
+    @Test
+    void upload_notMultipart() {
+        Request request = requestOf("/uploads", null, field("title", "Holiday"));
+        request.headers = Maps.of(Header.CONTENT_TYPE, ParametersWrapper.APPLICATION_FORM_URLENCODED);
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.UNSUPPORTED_MEDIA_TYPE);
+    }
+
+    @Test
+    void upload_toFile() {
+        Request request = requestOf("/existing-file", null, file("file", "a.txt", "content"));
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.CONFLICT);
+    }
+
+    @Test
+    void upload_toAbsentDirectory() {
+        Request request = requestOf("/absent", null, file("file", "a.txt", "content"));
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.NOT_FOUND);
+    }
+
+    @Test
+    void upload_truncatedBody() {
+        Request request = requestOf("/uploads", null, file("file", "a.txt", "content"));
+        request.body = Channels.newChannel(new ByteArrayInputStream(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"a.txt\"\r\n\r\ncontent")
+                .getBytes(StandardCharsets.UTF_8)));
+
+        Response response = handler.handle(request);
+
+        assertThat(response.status).isEqualTo(Status.BAD_REQUEST);
+        assertThat(Files.exists(directory.resolve("uploads/a.txt"))).isFalse();
+    }
+
+    private static Request requestOf(String path, String query, String... parts) {
+        Request request = new Request(Method.POST, path, query);
+        request.headers = Maps.of(Header.CONTENT_TYPE, CONTENT_TYPE);
+        if (query != null) request.parameters = Maps.of(query.split("=")[0], query.split("=")[1]);
+        String body = String.join("", parts) + "--" + BOUNDARY + "--\r\n";
+        request.body = Channels.newChannel(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        return request;
+    }
+
+    private static String field(String name, String value) {
+        return "--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"" + name + "\"\r\n\r\n" + value + "\r\n";
+    }
+
+    private static String file(String name, String filename, String content) {
+        return "--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"" + name + "\"; filename=\"" + filename
+                + "\"\r\nContent-Type: application/octet-stream\r\n\r\n" + content + "\r\n";
+    }
+}
@@ -0,0 +1,80 @@
+package server.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HistogramTest {
+    @Test
+    void empty() {
+        Histogram histogram = new Histogram();
+
+        assertThat(histogram.count()).isEqualTo(0);
+        assertThat(histogram.valueAt(0.99)).isEqualTo(0);
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        Histogram histogram = new Histogram();
+        for (long value = 0; value < 16; value++) histogram.record(value);
+
+        assertThat(histogram.valueAt(0.5)).isEqualTo(7);
+        assertThat(histogram.valueAt(1)).isEqualTo(15);
+    }
+
+    @Test
+    void quantilesWithinBucketPrecision() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 100_000; value++) histogram.record(value * 1000);
+
+        assertThat(histogram.count()).isEqualTo(100_000);
+        assertThat(histogram.max()).isEqualTo(100_000_000);
+        assertThat(histogram.valueAt(0.5)).isBetween(50_000_000L, 53_125_000L);
+        assertThat(histogram.valueAt(0.99)).isBetween(99_000_000L, 100_000_000L);
+        assertThat(histogram.valueAt(1)).isEqualTo(100_000_000);
+    }
+
+    @Test
+    void bucketsCoverEveryValue() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 1000, 1L << 40, (1L << 41) - 1}) {
+            int index = Histogram.indexOf(value);
+            assertThat(Histogram.highestValueOf(index)).isGreaterThanOrEqualTo(value);
+            if (index > 0) assertThat(Histogram.highestValueOf(index - 1)).isLessThan(value);
+        }
+        assertThat(Histogram.indexOf(1L << 41)).isEqualTo(Histogram.BUCKETS - 1);
+        assertThat(Histogram.indexOf(Long.MAX_VALUE)).isEqualTo(Histogram.BUCKETS - 1);
+    }
+
+    @Test
+    void negativeValuesCountAsZero() {
+        Histogram histogram = new Histogram();
+
+        histogram.record(-5);
+
+        assertThat(histogram.valueAt(1)).isEqualTo(0);
+        assertThat(histogram.sum()).isEqualTo(0);
+    }
+
+    @Test
+    void concurrentRecording() throws Exception {
+        Histogram histogram = new Histogram();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 10_000; j++) histogram.record(j);
+            }));
+        }
+        for (Future<?> future : futures) future.get();
+        executor.shutdown();
+
+        assertThat(histogram.count()).isEqualTo(80_000);
+        assertThat(histogram.valueAt(1)).isEqualTo(9_999);
+    }
+}
@@ -0,0 +1,66 @@
+package server.metrics;
+
+import org.junit.jupiter.api.Test;
+import server.data.Status;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetricsTest {
+    @Test
+    void rendersSummaries() {
+        Metrics metrics = new Metrics();
+        metrics.writeTime.record(2_000_000);
+        metrics.writeTime.record(2_000_000);
+
+        String text = metrics.render();
+
+        assertThat(text).contains("# TYPE http_response_write_seconds summary\n");
+        assertThat(text).contains("http_response_write_seconds{quantile=\"0.99\"} 0.002");
+        assertThat(text).contains("http_response_write_seconds_sum 0.004000000\n");
+        assertThat(text).contains("http_response_write_seconds_count 2\n");
+        assertThat(text).contains("http_request_parse_seconds_count 0\n");
+    }
+
+    @Test
+    void rendersHandlerTimesPerRoute() {
+        Metrics metrics = new Metrics();
+        metrics.handlerTime("GET", "/files/{name}").record(1000);
+        metrics.handlerTime("GET", "/files/{name}").record(1000);
+        metrics.handlerTime("PUT", "*").record(1000);
+
+        String text = metrics.render();
+
+        assertThat(text).contains("http_request_handler_seconds_count{method=\"GET\",route=\"/files/{name}\"} 2\n");
+        assertThat(text).contains("http_request_handler_seconds{method=\"PUT\",route=\"*\",quantile=\"0.5\"} 0.000001");
+    }
+
+    @Test
+    void rendersCountersAndGauges() {
+        Metrics metrics = new Metrics();
+        metrics.responded(Status.OK);
+        metrics.responded(Status.OK);
+        metrics.responded(Status.NOT_FOUND);
+        metrics.responseBytes.add(42);
+        metrics.activeConnections.increment();
+        metrics.gauge("executor_queue_depth", () -> 7);
+        metrics.counter("buffer_pool_hits_total", () -> 3);
+
+        String text = metrics.render();
+
+        assertThat(text).contains("http_responses_total{status=\"200\"} 2\n");
+        assertThat(text).contains("http_responses_total{status=\"404\"} 1\n");
+        assertThat(text).doesNotContain("status=\"500\"");
+        assertThat(text).contains("http_response_bytes_total 42\n");
+        assertThat(text).contains("# TYPE http_active_connections gauge\nhttp_active_connections 1\n");
+        assertThat(text).contains("executor_queue_depth 7\n");
+        assertThat(text).contains("# TYPE buffer_pool_hits_total counter\nbuffer_pool_hits_total 3\n");
+    }
+
+    @Test
+    void escapesLabelValues() {
+        Metrics metrics = new Metrics();
+        metrics.handlerTime("GET", "/a\"b\\c").record(1);
+
+        assertThat(metrics.render()).contains("route=\"/a\\\"b\\\\c\"");
+    }
+}
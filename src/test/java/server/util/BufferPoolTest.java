@@ -0,0 +1,104 @@
+package server.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class BufferPoolTest {
+    private final BufferPool pool = new BufferPool(true);
+
+    @Test
+    void acquire_roundsUpToSizeClass() {
+        ByteBuffer small = pool.acquire(10);
+        ByteBuffer medium = pool.acquire(3000);
+        ByteBuffer largest = pool.acquire(BufferPool.MAX_POOLED_SIZE);
+
+        assertThat(small.isDirect()).isTrue();
+        assertThat(small.capacity()).isEqualTo(1024);
+        assertThat(medium.capacity()).isEqualTo(4096);
+        assertThat(largest.capacity()).isEqualTo(BufferPool.MAX_POOLED_SIZE);
+        assertThat(medium.position()).isEqualTo(0);
+        assertThat(medium.limit()).isEqualTo(medium.capacity());
+    }
+
+    @Test
+    void acquire_reusesReleasedBuffer() {
+        ByteBuffer buffer = pool.acquire(2048);
+        buffer.put((byte) 1);
+        pool.release(buffer);
+
+        ByteBuffer reused = pool.acquire(1500);
+
+        assertThat(reused).isSameAs(buffer);
+        assertThat(reused.position()).isEqualTo(0);
+        assertThat(pool.hits()).isEqualTo(1);
+        assertThat(pool.misses()).isEqualTo(1);
+    }
+
+    @Test
+    void acquire_reusesBufferReleasedByAnotherThread() throws Exception {
+        ByteBuffer[] buffers = new ByteBuffer[5];
+        for (int i = 0; i < buffers.length; i++) buffers[i] = pool.acquire(1024);
+        for (ByteBuffer buffer : buffers) pool.release(buffer);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ByteBuffer reused = executor.submit(() -> pool.acquire(1024)).get();
+        executor.shutdown();
+
+        assertThat(reused).isIn((Object[]) buffers);
+        assertThat(pool.hits()).isEqualTo(1);
+    }
+
+    @Test
+    void acquire_largerThanPooled() {
+        ByteBuffer buffer = pool.acquire(BufferPool.MAX_POOLED_SIZE + 1);
+        pool.release(buffer);
+
+        assertThat(buffer.capacity()).isEqualTo(BufferPool.MAX_POOLED_SIZE + 1);
+        assertThat(pool.acquire(BufferPool.MAX_POOLED_SIZE + 1)).isNotSameAs(buffer);
+        assertThat(pool.misses()).isEqualTo(2);
+    }
+
+    @Test
+    void outstanding_countsBuffersNotReleased() {
+        ByteBuffer released = pool.acquire(100);
+        pool.acquire(100);
+        pool.release(released);
+
+        assertThat(pool.outstanding()).isEqualTo(1);
+        assertThat(pool.leaks()).hasSize(1);
+        assertThat(pool.leaks().get(0)).hasMessageContaining("100 bytes");
+    }
+
+    @Test
+    void release_twice() {
+        ByteBuffer buffer = pool.acquire(100);
+        pool.release(buffer);
+
+        Throwable error = catchThrowable(() -> pool.release(buffer));
+
+        assertThat(error).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void release_notFromPool() {
+        Throwable error = catchThrowable(() -> pool.release(ByteBuffer.allocateDirect(1024)));
+
+        assertThat(error).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void release_withoutTracking() {
+        BufferPool untracked = new BufferPool(false);
+        ByteBuffer buffer = untracked.acquire(100);
+        untracked.release(buffer);
+
+        assertThat(untracked.outstanding()).isEqualTo(0);
+        assertThat(untracked.leaks()).isEmpty();
+    }
+}
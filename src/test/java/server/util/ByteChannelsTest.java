@@ -1,5 +1,7 @@
 package server.util;
 
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayInputStream;
@@ -8,11 +10,48 @@ import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 
 public class ByteChannelsTest {
+    private long outstandingBuffers;
+
+    @BeforeEach
+    void setUp() {
+        outstandingBuffers = BufferPool.shared().outstanding();
+    }
+
+    @AfterEach
+    void releasesBuffers() {
+        assertThat(BufferPool.shared().outstanding()).isEqualTo(outstandingBuffers);
+    }
+
+    @Test
+    void slurp() {
+        ReadableByteChannel rbc = Channels.newChannel(new ByteArrayInputStream("123456789".getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(ByteChannels.slurp(rbc)).isEqualTo("123456789");
+    }
+
+    @Test
+    void slurp_characterSplitBetweenReads() {
+        String content = "caf\u00e9 \u20ac \ud83d\ude00";
+        ReadableByteChannel rbc = oneByteAtATime(content.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(ByteChannels.slurp(rbc)).isEqualTo(content);
+    }
+
+    @Test
+    void slurp_longerThanBuffer() {
+        String content = String.join("", Collections.nCopies(5000, "\u00e9"));
+        ReadableByteChannel rbc = Channels.newChannel(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(ByteChannels.slurp(rbc)).isEqualTo(content);
+    }
+
     @Test
     void limit_isLessThanChannelSize() throws IOException {
         ReadableByteChannel rbc = Channels.newChannel(new ByteArrayInputStream("123456789".getBytes(StandardCharsets.UTF_8)));
@@ -93,6 +132,35 @@ public class ByteChannelsTest {
         assertThat(stringOf(buffer)).isEqualTo("");
     }
 
+    @Test
+    void limit_partlyFilledBuffer() throws IOException {
+        ReadableByteChannel rbc = Channels.newChannel(new ByteArrayInputStream("123456789".getBytes(StandardCharsets.UTF_8)));
+
+        ReadableByteChannel limited = ByteChannels.limit(rbc, 7);
+
+        ByteBuffer buffer = ByteBuffer.allocate(6);
+        buffer.put((byte) 'x').put((byte) 'y');
+        assertThat(limited.read(buffer)).isEqualTo(4);
+        assertThat(stringOf(buffer)).isEqualTo("xy1234");
+        buffer.clear();
+        assertThat(limited.read(buffer)).isEqualTo(3);
+        assertThat(buffer.limit()).isEqualTo(6);
+        assertThat(stringOf(buffer)).isEqualTo("567");
+    }
+
+    @Test
+    void digesting_digestsBytesReadOnly() throws IOException {
+        ReadableByteChannel rbc = Channels.newChannel(new ByteArrayInputStream("Hello World!".getBytes(StandardCharsets.UTF_8)));
+        MessageDigest digest = Digests.digest("SHA-1");
+
+        ReadableByteChannel digesting = ByteChannels.digesting(rbc, digest);
+
+        ByteBuffer buffer = ByteBuffer.allocate(32);
+        buffer.put((byte) 'x');
+        while (digesting.read(buffer) != -1) ;
+        assertThat(Digests.hexOf(digest.digest())).isEqualTo("2ef7bde608ce5404e97d5f042f95f89f1c232871");
+    }
+
     @Test
     void isOpen_underlyingChannelIsOpen() {
         ReadableByteChannel rbc = Channels.newChannel(new ByteArrayInputStream("123456789".getBytes(StandardCharsets.UTF_8)));
@@ -112,6 +180,30 @@ public class ByteChannelsTest {
         assertThat(limited.isOpen()).isFalse();
     }
 
+    private static ReadableByteChannel oneByteAtATime(byte[] content) {
+        ReadableByteChannel rbc = Channels.newChannel(new ByteArrayInputStream(content));
+        return new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                ByteBuffer one = ByteBuffer.allocate(1);
+                int read = rbc.read(one);
+                one.flip();
+                dst.put(one);
+                return read;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return rbc.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                rbc.close();
+            }
+        };
+    }
+
     private String stringOf(ByteBuffer buffer) {
         buffer.flip();
         return StandardCharsets.UTF_8.decode(buffer).toString();
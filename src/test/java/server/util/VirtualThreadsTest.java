@@ -0,0 +1,33 @@
+package server.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class VirtualThreadsTest {
+    @Test
+    void newThreadPerTaskExecutor_supported() throws ExecutionException, InterruptedException {
+        assumeTrue(VirtualThreads.isSupported());
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor();
+
+        String threadDescription = executor.submit(() -> Thread.currentThread().toString()).get();
+        executor.shutdown();
+
+        assertThat(threadDescription).startsWith("VirtualThread");
+    }
+
+    @Test
+    void newThreadPerTaskExecutor_unsupported() {
+        assumeFalse(VirtualThreads.isSupported());
+
+        Throwable error = catchThrowable(VirtualThreads::newThreadPerTaskExecutor);
+
+        assertThat(error).isInstanceOf(UnsupportedOperationException.class);
+    }
+}